@@ -0,0 +1,26 @@
+package app.config;
+
+import app.security.CachingClientDetailsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class ClientDetailsConfig {
+    @Autowired
+    private DataSource dataSource;
+
+    @Value("${iam.client.cache.max-size:10000}")
+    private int clientCacheMaxSize;
+
+    @Value("${iam.client.cache.ttl-seconds:300}")
+    private long clientCacheTtlSeconds;
+
+    @Bean("jdbcClientDetailsService")
+    public CachingClientDetailsService jdbcClientDetailsService() {
+        return new CachingClientDetailsService(dataSource, clientCacheMaxSize, clientCacheTtlSeconds * 1000);
+    }
+}
@@ -4,13 +4,18 @@ import app.domain.EndUser;
 import app.domain.Tenant;
 import app.repository.EndUserRepository;
 import app.repository.TenantRepository;
+import app.security.DomainUser;
 import app.util.EmailUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
 import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.ClientDetailsService;
+import org.springframework.security.oauth2.provider.NoSuchClientException;
 import org.springframework.security.oauth2.provider.OAuth2Authentication;
 import org.springframework.security.oauth2.provider.token.TokenEnhancer;
 
@@ -24,16 +29,22 @@ public class CustomTokenEnhancer implements TokenEnhancer {
     @Autowired
     private EndUserRepository endUserRepository;
 
+    @Autowired
+    @Qualifier("jdbcClientDetailsService")
+    private ClientDetailsService clientDetailsService;
+
     @Override
     public OAuth2AccessToken enhance(OAuth2AccessToken accessToken, OAuth2Authentication authentication) {
         final Map<String, Object> additionalInfo = new HashMap<>();
         if (authentication.getPrincipal() != null && authentication.getPrincipal().getClass() == String.class) {
-            String tenantAccount = (String) authentication.getPrincipal();
-            Tenant tenant = tenantRepository.findByLoginCredentialAccount(tenantAccount);
-            if (tenant == null) {
+            String tenantId = findTenantId((String) authentication.getPrincipal());
+            if (tenantId == null) {
                 return accessToken;
             }
-            additionalInfo.put("id", tenant.getId());
+            additionalInfo.put("id", tenantId);
+        } else if (authentication.getPrincipal() instanceof DomainUser) {
+            // loaded by DomainUserDetailsService during this authentication, no need to look the user up again
+            additionalInfo.put("id", ((DomainUser) authentication.getPrincipal()).getId());
         } else {
             Authentication usernamePasswordAuthToken = SecurityContextHolder.getContext().getAuthentication();
             if (usernamePasswordAuthToken == null) {
@@ -56,6 +67,21 @@ public class CustomTokenEnhancer implements TokenEnhancer {
         return accessToken;
     }
 
+    // tenant clients carry the tenant id in their additional information, see TenantBaseClientDetailsFactory
+    private String findTenantId(String tenantAccount) {
+        try {
+            ClientDetails clientDetails = clientDetailsService.loadClientByClientId(tenantAccount);
+            Object tenantId = clientDetails.getAdditionalInformation().get("id");
+            if (tenantId != null) {
+                return tenantId.toString();
+            }
+        } catch (NoSuchClientException e) {
+            return null;
+        }
+        Tenant tenant = tenantRepository.findByLoginCredentialAccount(tenantAccount);
+        return tenant == null ? null : tenant.getId();
+    }
+
     private boolean isEmailLogin(String login) {
         return EmailUtil.isEmailLogin(login);
     }
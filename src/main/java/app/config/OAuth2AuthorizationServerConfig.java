@@ -1,5 +1,6 @@
 package app.config;
 
+import app.security.CustomWebResponseExceptionTranslator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
@@ -15,10 +16,12 @@ import org.springframework.security.oauth2.provider.client.JdbcClientDetailsServ
 import org.springframework.security.oauth2.provider.code.AuthorizationCodeServices;
 import org.springframework.security.oauth2.provider.code.JdbcAuthorizationCodeServices;
 import org.springframework.security.oauth2.provider.token.TokenEnhancer;
+import org.springframework.security.oauth2.provider.token.TokenEnhancerChain;
 import org.springframework.security.oauth2.provider.token.TokenStore;
-import org.springframework.security.oauth2.provider.token.store.JdbcTokenStore;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
 
 import javax.sql.DataSource;
+import java.util.Arrays;
 
 @Configuration
 @EnableAuthorizationServer
@@ -30,20 +33,20 @@ public class OAuth2AuthorizationServerConfig extends AuthorizationServerConfigur
     @Autowired
     private AuthenticationManager authenticationManager;
 
+    @Autowired
+    private TokenStore tokenStore;
+
+    @Autowired(required = false)
+    private JwtAccessTokenConverter jwtAccessTokenConverter;
 
     @Autowired
-    @Qualifier("domainUserDetailsService")
-    UserDetailsService domainUserDetailsService;
+    @Qualifier("jdbcClientDetailsService")
+    private JdbcClientDetailsService jdbcClientDetailsService;
 
-    @Bean
-    public TokenStore jdbcTokenStore() {
-        return new JdbcTokenStore(dataSource);
-    }
 
-    @Bean("jdbcClientDetailsService")
-    public JdbcClientDetailsService jdbcClientDetailsService() {
-        return new JdbcClientDetailsService(dataSource);
-    }
+    @Autowired
+    @Qualifier("domainUserDetailsService")
+    UserDetailsService domainUserDetailsService;
 
     @Bean
     protected AuthorizationCodeServices authorizationCodeServices() {
@@ -57,9 +60,18 @@ public class OAuth2AuthorizationServerConfig extends AuthorizationServerConfigur
 
     @Override
     public void configure(AuthorizationServerEndpointsConfigurer endpoints) throws Exception {
-        endpoints.tokenStore(jdbcTokenStore())
+        TokenEnhancer tokenEnhancer = tokenEnhancer();
+        if (jwtAccessTokenConverter != null) {
+            // the custom claims have to be added before the converter signs the token
+            TokenEnhancerChain tokenEnhancerChain = new TokenEnhancerChain();
+            tokenEnhancerChain.setTokenEnhancers(Arrays.asList(tokenEnhancer, jwtAccessTokenConverter));
+            tokenEnhancer = tokenEnhancerChain;
+            endpoints.accessTokenConverter(jwtAccessTokenConverter);
+        }
+        endpoints.tokenStore(tokenStore)
                 .authenticationManager(authenticationManager)
-                .authorizationCodeServices(authorizationCodeServices()).tokenEnhancer(tokenEnhancer());
+                .authorizationCodeServices(authorizationCodeServices()).tokenEnhancer(tokenEnhancer)
+                .exceptionTranslator(new CustomWebResponseExceptionTranslator());
     }
 
     @Override
@@ -69,6 +81,6 @@ public class OAuth2AuthorizationServerConfig extends AuthorizationServerConfigur
 
     @Override
     public void configure(ClientDetailsServiceConfigurer clients) throws Exception {
-        clients.withClientDetails(jdbcClientDetailsService());
+        clients.withClientDetails(jdbcClientDetailsService);
     }
 }
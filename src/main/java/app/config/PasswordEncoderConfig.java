@@ -0,0 +1,62 @@
+package app.config;
+
+import app.security.BoundedPasswordEncoder;
+import app.security.PrefixedPasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+import org.springframework.security.crypto.scrypt.SCryptPasswordEncoder;
+import org.springframework.util.ClassUtils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * iam.password.encoding.id selects the algorithm for new hashes (bcrypt | pbkdf2 | scrypt, scrypt needs Bouncy Castle).
+ * Existing hashes keep working and are re-hashed with the current setting on the user's next successful login.
+ */
+@Configuration
+public class PasswordEncoderConfig {
+    private static final String PBKDF2 = "pbkdf2";
+    private static final String SCRYPT = "scrypt";
+
+    @Value("${iam.password.encoding.id:bcrypt}")
+    private String encodingId;
+
+    @Value("${iam.password.encoding.bcrypt-strength:10}")
+    private int bcryptStrength;
+
+    @Value("${iam.password.encoding.pbkdf2-secret:}")
+    private String pbkdf2Secret;
+
+    @Value("${iam.password.encoding.pbkdf2-iterations:185000}")
+    private int pbkdf2Iterations;
+
+    @Value("${iam.password.hashing.pool-size:0}")
+    private int hashingPoolSize;
+
+    @Value("${iam.password.hashing.queue-capacity:100}")
+    private int hashingQueueCapacity;
+
+    @Value("${iam.password.hashing.retry-after-seconds:1}")
+    private long hashingRetryAfterSeconds;
+
+    @Bean
+    public BoundedPasswordEncoder passwordEncoder() {
+        int threads = hashingPoolSize > 0 ? hashingPoolSize : Runtime.getRuntime().availableProcessors();
+        return new BoundedPasswordEncoder(prefixedPasswordEncoder(), threads, hashingQueueCapacity, hashingRetryAfterSeconds);
+    }
+
+    private PrefixedPasswordEncoder prefixedPasswordEncoder() {
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put(PrefixedPasswordEncoder.BCRYPT, new BCryptPasswordEncoder(bcryptStrength));
+        encoders.put(PBKDF2, new Pbkdf2PasswordEncoder(pbkdf2Secret, pbkdf2Iterations, 256));
+        if (ClassUtils.isPresent("org.bouncycastle.crypto.generators.SCrypt", getClass().getClassLoader())) {
+            encoders.put(SCRYPT, new SCryptPasswordEncoder());
+        }
+        return new PrefixedPasswordEncoder(encodingId, encoders, PrefixedPasswordEncoder.BCRYPT, bcryptStrength);
+    }
+}
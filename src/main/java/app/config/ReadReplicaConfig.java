@@ -0,0 +1,111 @@
+package app.config;
+
+import app.config.datasource.ReadWriteRoutingDataSource;
+import app.config.datasource.ReplicaLagGuard;
+import app.config.datasource.ReplicaReadJpaDialect;
+import org.apache.tomcat.jdbc.pool.PoolConfiguration;
+import org.apache.tomcat.jdbc.pool.PoolProperties;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * iam.datasource.replica.enabled=true : read-only transactions (the listing and search endpoints) and token lookups
+ * go to the replicas in iam.datasource.replica.urls, everything else to spring.datasource. Replica pools are sized
+ * like the spring.datasource.tomcat pool. Read-only transactions only read from the second-level and query caches,
+ * they do not fill them.
+ */
+@Configuration
+@ConditionalOnProperty(name = "iam.datasource.replica.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+    @Value("${iam.datasource.replica.urls:}")
+    private String[] replicaUrls;
+
+    @Value("${iam.datasource.replica.username:${spring.datasource.username:}}")
+    private String replicaUsername;
+
+    @Value("${iam.datasource.replica.password:${spring.datasource.password:}}")
+    private String replicaPassword;
+
+    @Value("${iam.datasource.replica.read-your-writes-ms:2000}")
+    private long readYourWritesMillis;
+
+    // the pools themselves are not beans: every DataSource bean triggers the schema/data initializer, which needs the
+    // proxy below to exist already
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource.tomcat")
+    public PoolProperties dataSourcePoolProperties(DataSourceProperties properties) {
+        PoolProperties pool = new PoolProperties();
+        pool.setDriverClassName(properties.determineDriverClassName());
+        pool.setUrl(properties.determineUrl());
+        pool.setUsername(properties.determineUsername());
+        pool.setPassword(properties.determinePassword());
+        return pool;
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(PoolProperties dataSourcePoolProperties) {
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            if (StringUtils.hasText(url)) {
+                replicas.add(pool(dataSourcePoolProperties, "replica-" + replicas.size(), url.trim(),
+                        replicaUsername, replicaPassword));
+            }
+        }
+        if (replicas.isEmpty()) {
+            throw new IllegalStateException("iam.datasource.replica.enabled is set but iam.datasource.replica.urls is empty");
+        }
+        DataSource primary = pool(dataSourcePoolProperties, ReadWriteRoutingDataSource.PRIMARY,
+                dataSourcePoolProperties.getUrl(), dataSourcePoolProperties.getUsername(), dataSourcePoolProperties.getPassword());
+        return new ReadWriteRoutingDataSource(primary, replicas, new ReplicaLagGuard(readYourWritesMillis));
+    }
+
+    @Bean
+    @Primary
+    @DependsOn("routingDataSource")
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public static BeanPostProcessor replicaReadJpaDialect() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof AbstractEntityManagerFactoryBean) {
+                    ((AbstractEntityManagerFactoryBean) bean).setJpaDialect(new ReplicaReadJpaDialect());
+                }
+                return bean;
+            }
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean;
+            }
+        };
+    }
+
+    private static DataSource pool(PoolConfiguration template, String name, String url, String username, String password) {
+        PoolProperties properties = new PoolProperties();
+        BeanUtils.copyProperties(template, properties, "name", "url", "username", "password", "dataSource", "dbProperties");
+        properties.setName(name);
+        properties.setUrl(url);
+        properties.setUsername(username);
+        properties.setPassword(password);
+        return new org.apache.tomcat.jdbc.pool.DataSource(properties);
+    }
+}
@@ -0,0 +1,59 @@
+package app.config;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Statistics;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Hit, miss and size of each Hibernate second-level cache region configured in {@code ehcache-hibernate.xml},
+ * e.g. {@code cache.l2.Tenant.hit} or {@code cache.l2.tenant-lookup.miss}.
+ */
+@Component
+public class SecondLevelCacheMetrics implements PublicMetrics {
+    static final String CACHE_MANAGER_NAME = "iam-second-level";
+    private static final String DOMAIN_PACKAGE = "app.domain.";
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        CacheManager cacheManager = cacheManager();
+        if (cacheManager == null) {
+            return metrics;
+        }
+        for (String name : cacheManager.getCacheNames()) {
+            Ehcache cache = cacheManager.getEhcache(name);
+            if (cache == null) {
+                continue;
+            }
+            Statistics statistics = cache.getStatistics();
+            String prefix = "cache.l2." + regionName(name);
+            metrics.add(new Metric<>(prefix + ".hit", statistics.getCacheHits()));
+            metrics.add(new Metric<>(prefix + ".miss", statistics.getCacheMisses()));
+            metrics.add(new Metric<>(prefix + ".size", cache.getSize()));
+        }
+        return metrics;
+    }
+
+    static CacheManager cacheManager() {
+        for (CacheManager cacheManager : CacheManager.ALL_CACHE_MANAGERS) {
+            if (CACHE_MANAGER_NAME.equals(cacheManager.getName())) {
+                return cacheManager;
+            }
+        }
+        return null;
+    }
+
+    private static String regionName(String cacheName) {
+        if (cacheName.startsWith(DOMAIN_PACKAGE)) {
+            return cacheName.substring(DOMAIN_PACKAGE.length());
+        }
+        return cacheName.substring(cacheName.lastIndexOf('.') + 1);
+    }
+}
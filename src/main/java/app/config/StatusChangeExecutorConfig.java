@@ -0,0 +1,27 @@
+package app.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/*
+ * Bulk end-user status changes run one after another on a single thread. iam.end-user.status-change.max-queued-jobs
+ * bounds how many may wait behind the running one; further submissions are refused until the queue drains.
+ */
+@Configuration
+public class StatusChangeExecutorConfig {
+    @Value("${iam.end-user.status-change.max-queued-jobs:100}")
+    private int maxQueuedJobs;
+
+    @Bean
+    public ThreadPoolTaskExecutor endUserStatusChangeExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(maxQueuedJobs);
+        executor.setThreadNamePrefix("end-user-status-change-");
+        executor.setDaemon(true);
+        return executor;
+    }
+}
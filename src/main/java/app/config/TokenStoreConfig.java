@@ -0,0 +1,145 @@
+package app.config;
+
+import app.config.datasource.ReadWriteRoutingDataSource;
+import app.config.datasource.ReplicaLagGuard;
+import app.security.CachingTokenStore;
+import app.security.CompactJdbcTokenStore;
+import app.security.JavaSerializedJdbcTokenStore;
+import app.security.PersistentRefreshJwtTokenStore;
+import app.security.ReplicaFallbackTokenStore;
+import app.security.WriteBehindJdbcTokenStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.Resource;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.KeyStoreKeyFactory;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+
+/*
+ * iam.token.store=jdbc (default) : access tokens are persisted and looked up on each request (through a read cache).
+ * iam.token.store=jwt            : access tokens are signed JWTs verified locally, refresh tokens stay in the database.
+ * With read replicas configured (ReadReplicaConfig) access tokens missing from the read cache are looked up on a
+ * replica before the primary. Tokens revoked on this node are read from the primary until the replicas had
+ * iam.datasource.replica.read-your-writes-ms to replay the revocation; refresh tokens are always read from the primary.
+ */
+@Configuration
+@EnableScheduling
+public class TokenStoreConfig {
+    private static final Logger log = LoggerFactory.getLogger(TokenStoreConfig.class);
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired(required = false)
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    @Value("${iam.token.cache.max-size:10000}")
+    private int tokenCacheMaxSize;
+
+    @Value("${iam.token.cache.ttl-seconds:60}")
+    private long tokenCacheTtlSeconds;
+
+    @Value("${iam.token.jwt.key-store:}")
+    private Resource jwtKeyStore;
+
+    @Value("${iam.token.jwt.key-store-password:}")
+    private String jwtKeyStorePassword;
+
+    @Value("${iam.token.jwt.key-alias:}")
+    private String jwtKeyAlias;
+
+    @Value("${iam.token.jwt.key-password:}")
+    private String jwtKeyPassword;
+
+    @Value("${iam.token.serialization:compact}")
+    private String tokenSerialization;
+
+    @Value("${iam.datasource.replica.read-your-writes-ms:2000}")
+    private long replicaLagMillis;
+
+    @Value("${iam.token.write-behind.enabled:false}")
+    private boolean writeBehindEnabled;
+
+    @Value("${iam.token.write-behind.flush-interval-ms:5}")
+    private long writeBehindFlushIntervalMillis;
+
+    @Value("${iam.token.write-behind.max-batch-size:500}")
+    private int writeBehindMaxBatchSize;
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "iam.token.store", havingValue = "jdbc", matchIfMissing = true)
+    public CachingTokenStore tokenStore() {
+        return new CachingTokenStore(readingFromReplicas(persistentTokenStore()), tokenCacheMaxSize, tokenCacheTtlSeconds * 1000);
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "iam.token.store", havingValue = "jwt")
+    public TokenStore jwtTokenStore() {
+        return new PersistentRefreshJwtTokenStore(jwtAccessTokenConverter(), persistentTokenStore());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "iam.token.store", havingValue = "jwt")
+    public JwtAccessTokenConverter jwtAccessTokenConverter() {
+        JwtAccessTokenConverter converter = new JwtAccessTokenConverter();
+        converter.setKeyPair(jwtKeyPair());
+        return converter;
+    }
+
+    // every store writes the expiration column for the reaper and reads rows of either serialization
+    @Bean
+    public CompactJdbcTokenStore persistentTokenStore() {
+        if (writeBehindEnabled) {
+            if ("java".equals(tokenSerialization)) {
+                throw new IllegalStateException("iam.token.write-behind.enabled=true writes compact tokens, "
+                        + "it cannot be combined with iam.token.serialization=java");
+            }
+            return new WriteBehindJdbcTokenStore(dataSource, writeBehindFlushIntervalMillis, writeBehindMaxBatchSize);
+        }
+        if ("java".equals(tokenSerialization)) {
+            return new JavaSerializedJdbcTokenStore(dataSource);
+        }
+        return new CompactJdbcTokenStore(dataSource);
+    }
+
+    private TokenStore readingFromReplicas(TokenStore tokenStore) {
+        if (routingDataSource == null) {
+            return tokenStore;
+        }
+        // reads whatever serialization the primary's store wrote
+        CompactJdbcTokenStore replicaTokenStore = new CompactJdbcTokenStore(routingDataSource.replicaDataSource());
+        return new ReplicaFallbackTokenStore(tokenStore, replicaTokenStore, new ReplicaLagGuard(replicaLagMillis));
+    }
+
+    private KeyPair jwtKeyPair() {
+        if (jwtKeyStore != null && jwtKeyStore.exists()) {
+            KeyStoreKeyFactory keyStoreKeyFactory = new KeyStoreKeyFactory(jwtKeyStore, jwtKeyStorePassword.toCharArray());
+            String keyPassword = StringUtils.hasText(jwtKeyPassword) ? jwtKeyPassword : jwtKeyStorePassword;
+            return keyStoreKeyFactory.getKeyPair(jwtKeyAlias, keyPassword.toCharArray());
+        }
+        log.warn("No iam.token.jwt.key-store configured, signing tokens with a generated key. "
+                + "Tokens will not survive a restart and are not shared between instances.");
+        try {
+            KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+            keyPairGenerator.initialize(2048);
+            return keyPairGenerator.generateKeyPair();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
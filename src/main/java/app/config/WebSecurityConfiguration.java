@@ -2,6 +2,9 @@ package app.config;
 
 import app.security.CustomAuthenticationEntryPoint;
 import app.security.CustomLogoutSuccessHandler;
+import app.security.DomainUserDetailsService;
+import app.security.PasswordUpgradingAuthenticationProvider;
+import app.security.UpgradablePasswordEncoder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
@@ -17,8 +20,6 @@ import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.config.annotation.web.configuration.EnableResourceServer;
 import org.springframework.security.oauth2.provider.expression.OAuth2MethodSecurityExpressionHandler;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
@@ -33,7 +34,7 @@ public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter {
 
     @Autowired
     @Qualifier("domainUserDetailsService")
-    private UserDetailsService domainUserDetailsService;
+    private DomainUserDetailsService domainUserDetailsService;
 
     @Autowired
     CustomAuthenticationEntryPoint customAuthenticationEntryPoint;
@@ -42,11 +43,11 @@ public class WebSecurityConfiguration extends WebSecurityConfigurerAdapter {
     CustomLogoutSuccessHandler customLogoutSuccessHandler;
 
     @Autowired
-    PasswordEncoder passwordEncoder;
-    @Override
-    protected void configure(AuthenticationManagerBuilder auth) throws Exception {
-        auth.userDetailsService(domainUserDetailsService)
-                .passwordEncoder(passwordEncoder);
+    UpgradablePasswordEncoder passwordEncoder;
+    // global, so the password grant of the authorization server uses it as well
+    @Autowired
+    public void configureGlobal(AuthenticationManagerBuilder auth) throws Exception {
+        auth.authenticationProvider(new PasswordUpgradingAuthenticationProvider(domainUserDetailsService, passwordEncoder));
     }
 
     @Override
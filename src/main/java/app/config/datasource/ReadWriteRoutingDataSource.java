@@ -0,0 +1,163 @@
+package app.config.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends the statements of read-only transactions to the read replicas, round robin, and everything else to the
+ * primary.
+ * <p>
+ * The target is chosen when a statement first needs a connection, so this must sit behind a
+ * {@link LazyConnectionDataSourceProxy}: transaction managers ask for a connection before the transaction is marked
+ * read-only. A principal that committed a write within the {@link ReplicaLagGuard} window keeps reading from the
+ * primary, and a replica that cannot hand out a connection is skipped for the primary.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements PublicMetrics {
+    public static final String PRIMARY = "primary";
+    private static final Logger log = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    private final Map<String, DataSource> targets = new LinkedHashMap<>();
+    private final List<String> replicas = new ArrayList<>();
+    private final Map<String, AtomicLong> connections = new HashMap<>();
+    private final ReplicaLagGuard lagGuard;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final AtomicLong replicaFallbacks = new AtomicLong();
+    private final AtomicLong readYourWrites = new AtomicLong();
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicaDataSources, ReplicaLagGuard lagGuard) {
+        this.lagGuard = lagGuard;
+        targets.put(PRIMARY, primary);
+        for (DataSource replica : replicaDataSources) {
+            String name = "replica-" + replicas.size();
+            targets.put(name, replica);
+            replicas.add(name);
+        }
+        targets.keySet().forEach(name -> connections.put(name, new AtomicLong()));
+        setTargetDataSources(new HashMap<>(targets));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicas.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        if (lagGuard.wroteRecently(currentPrincipal())) {
+            readYourWrites.incrementAndGet();
+            return PRIMARY;
+        }
+        return nextReplica();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        String target = (String) determineCurrentLookupKey();
+        if (PRIMARY.equals(target)) {
+            recordWriteOnCommit();
+            return connect(PRIMARY);
+        }
+        try {
+            return connect(target);
+        } catch (SQLException e) {
+            replicaFallbacks.incrementAndGet();
+            log.warn("Reading from the primary, {} refused a connection: {}", target, e.getMessage());
+            return connect(PRIMARY);
+        }
+    }
+
+    /**
+     * The replicas without transaction-based routing or fallback, for reads that retry on the primary themselves.
+     */
+    public DataSource replicaDataSource() {
+        return new AbstractDataSource() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return connect(replicas.isEmpty() ? PRIMARY : nextReplica());
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return connect(replicas.isEmpty() ? PRIMARY : nextReplica(), username, password);
+            }
+        };
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        targets.forEach((name, dataSource) -> {
+            String prefix = "datasource.routing." + name;
+            metrics.add(new Metric<>(prefix + ".connections", connections.get(name).get()));
+            if (dataSource instanceof org.apache.tomcat.jdbc.pool.DataSourceProxy) {
+                org.apache.tomcat.jdbc.pool.DataSourceProxy pool = (org.apache.tomcat.jdbc.pool.DataSourceProxy) dataSource;
+                metrics.add(new Metric<>(prefix + ".active", pool.getNumActive()));
+                metrics.add(new Metric<>(prefix + ".idle", pool.getNumIdle()));
+                metrics.add(new Metric<>(prefix + ".max", pool.getMaxActive()));
+            }
+        });
+        metrics.add(new Metric<>("datasource.routing.replica-fallbacks", replicaFallbacks.get()));
+        metrics.add(new Metric<>("datasource.routing.read-your-writes", readYourWrites.get()));
+        return metrics;
+    }
+
+    private Connection connect(String target) throws SQLException {
+        Connection connection = targets.get(target).getConnection();
+        connections.get(target).incrementAndGet();
+        return connection;
+    }
+
+    private Connection connect(String target, String username, String password) throws SQLException {
+        Connection connection = targets.get(target).getConnection(username, password);
+        connections.get(target).incrementAndGet();
+        return connection;
+    }
+
+    private String nextReplica() {
+        return replicas.get(Math.floorMod(nextReplica.getAndIncrement(), replicas.size()));
+    }
+
+    private void recordWriteOnCommit() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return;
+        }
+        String principal = currentPrincipal();
+        if (principal == null) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                lagGuard.writeCommitted(principal);
+            }
+        });
+    }
+
+    private static String currentPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null ? null : authentication.getName();
+    }
+}
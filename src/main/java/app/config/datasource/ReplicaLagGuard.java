@@ -0,0 +1,52 @@
+package app.config.datasource;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers when each principal last committed a write, so that its reads stay on the primary until the replicas
+ * have had time to replay that write.
+ */
+public class ReplicaLagGuard {
+    private static final int PURGE_THRESHOLD = 10000;
+
+    private final long windowMillis;
+    private final LongSupplier clock;
+    private final ConcurrentMap<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    public ReplicaLagGuard(long windowMillis) {
+        this(windowMillis, System::currentTimeMillis);
+    }
+
+    ReplicaLagGuard(long windowMillis, LongSupplier clock) {
+        this.windowMillis = windowMillis;
+        this.clock = clock;
+    }
+
+    public void writeCommitted(String principal) {
+        if (principal == null || windowMillis <= 0) {
+            return;
+        }
+        long now = clock.getAsLong();
+        lastWrites.put(principal, now);
+        if (lastWrites.size() > PURGE_THRESHOLD) {
+            lastWrites.values().removeIf(writtenAt -> now - writtenAt >= windowMillis);
+        }
+    }
+
+    public boolean wroteRecently(String principal) {
+        if (principal == null) {
+            return false;
+        }
+        Long writtenAt = lastWrites.get(principal);
+        if (writtenAt == null) {
+            return false;
+        }
+        if (clock.getAsLong() - writtenAt < windowMillis) {
+            return true;
+        }
+        lastWrites.remove(principal, writtenAt);
+        return false;
+    }
+}
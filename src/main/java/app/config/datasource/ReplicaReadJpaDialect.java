@@ -0,0 +1,26 @@
+package app.config.datasource;
+
+import org.hibernate.CacheMode;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.sql.SQLException;
+
+/**
+ * Keeps read-only transactions, which {@link ReadWriteRoutingDataSource} may send to a lagging replica, from putting
+ * what they read into the second-level and query caches. They still read from the caches; only the primary fills
+ * them, so a replica that has not replayed a write yet cannot pin the old state there for the whole TTL.
+ */
+public class ReplicaReadJpaDialect extends HibernateJpaDialect {
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws PersistenceException, SQLException {
+        Object transactionData = super.beginTransaction(entityManager, definition);
+        if (definition.isReadOnly()) {
+            getSession(entityManager).setCacheMode(CacheMode.GET);
+        }
+        return transactionData;
+    }
+}
@@ -1,10 +0,0 @@
-package app.config.tenant;
-
-import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
-
-public class MultitenantDataSource extends AbstractRoutingDataSource {
-    @Override
-    protected Object determineCurrentLookupKey() {
-        return TenantContext.getCurrentTenant();
-    }
-}
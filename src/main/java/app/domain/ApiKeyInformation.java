@@ -2,6 +2,8 @@ package app.domain;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.*;
@@ -10,6 +12,7 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "TENANT_API_KEY")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class ApiKeyInformation extends Auditible implements Serializable{
     @Id
     @GeneratedValue(generator = "uuid2")
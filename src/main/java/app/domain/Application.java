@@ -2,6 +2,8 @@ package app.domain;
 
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.GenericGenerator;
 import org.springframework.security.core.GrantedAuthority;
 
@@ -12,10 +14,11 @@ import java.util.List;
 import java.util.Set;
 
 @Entity(name = "TENANT_APPLICATION")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Application extends Auditible {
     @Id
-    @GeneratedValue(generator = "uuid2")
-    @GenericGenerator(name = "uuid2", strategy = "uuid2")
+    @GeneratedValue(generator = "time-ordered-uuid")
+    @GenericGenerator(name = "time-ordered-uuid", strategy = "app.domain.TimeOrderedUuidGenerator")
     @Column(columnDefinition = "VARCHAR(36)", name = "APP_ID")
     private String id;;
 
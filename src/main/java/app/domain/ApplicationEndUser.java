@@ -4,7 +4,8 @@ import javax.persistence.*;
 import java.io.Serializable;
 
 @Entity
-@Table(name = "APP_END_USER")
+// the primary key already covers (APP_ID, END_USER_ID), the index serves lookups starting from the user
+@Table(name = "APP_END_USER", indexes = @Index(name = "IDX_APP_END_USER_USER_APP", columnList = "END_USER_ID, APP_ID"))
 @AssociationOverrides({
         @AssociationOverride(name = "pk.application", joinColumns = @JoinColumn(name = "APP_ID"))
         , @AssociationOverride(name = "pk.endUser", joinColumns = @JoinColumn(name = "END_USER_ID"))
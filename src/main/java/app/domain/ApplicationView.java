@@ -0,0 +1,92 @@
+package app.domain;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An application as the REST resources return it, with its owner reduced to the tenant id.
+ */
+public class ApplicationView extends AuditibleView {
+    private final String id;
+    private final String managerId;
+    private final String apiKey;
+    private final String name;
+    private final Application.ApplicationStatus status;
+    private final boolean disabledNewUser;
+    private final List<String> authorizedGrantTypes;
+    private final List<GrantedAuthority> authorities;
+    private final Set<String> registeredRedirectUris;
+    private final List<String> scopes;
+    private final String owner;
+
+    private ApplicationView(Application application) {
+        super(application);
+        this.id = application.getId();
+        this.managerId = application.getManagerId();
+        this.apiKey = application.getApiKey();
+        this.name = application.getName();
+        this.status = application.getStatus();
+        this.disabledNewUser = application.isDisabledNewUser();
+        this.authorizedGrantTypes = Collections.unmodifiableList(new ArrayList<>(application.getAuthorizedGrantTypes()));
+        this.authorities = Collections.unmodifiableList(new ArrayList<>(application.getAuthorities()));
+        this.registeredRedirectUris = Collections.unmodifiableSet(new LinkedHashSet<>(application.getRegisteredRedirectUris()));
+        this.scopes = Collections.unmodifiableList(new ArrayList<>(application.getScopes()));
+        this.owner = application.getOwner() == null ? null : application.getOwner().getId();
+    }
+
+    /**
+     * @return {@code null} when {@code application} is {@code null}
+     */
+    public static ApplicationView of(Application application) {
+        return application == null ? null : new ApplicationView(application);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getManagerId() {
+        return managerId;
+    }
+
+    public String getApiKey() {
+        return apiKey;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Application.ApplicationStatus getStatus() {
+        return status;
+    }
+
+    public boolean isDisabledNewUser() {
+        return disabledNewUser;
+    }
+
+    public List<String> getAuthorizedGrantTypes() {
+        return authorizedGrantTypes;
+    }
+
+    public List<GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    public Set<String> getRegisteredRedirectUris() {
+        return registeredRedirectUris;
+    }
+
+    public List<String> getScopes() {
+        return scopes;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+}
@@ -0,0 +1,43 @@
+package app.domain;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * The audit columns of {@link Auditible}, copied into a response view.
+ */
+abstract class AuditibleView {
+    private final String createdBy;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private final LocalDateTime createdAt;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private final LocalDateTime lastModifiedAt;
+
+    private final String lastModifiedBy;
+
+    AuditibleView(Auditible auditible) {
+        this.createdBy = auditible.getCreatedBy();
+        this.createdAt = auditible.getCreatedAt();
+        this.lastModifiedAt = auditible.getLastModifiedAt();
+        this.lastModifiedBy = auditible.getLastModifiedBy();
+    }
+
+    public String getCreatedBy() {
+        return createdBy;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getLastModifiedAt() {
+        return lastModifiedAt;
+    }
+
+    public String getLastModifiedBy() {
+        return lastModifiedBy;
+    }
+}
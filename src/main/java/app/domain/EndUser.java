@@ -3,14 +3,17 @@ package app.domain;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
-import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.collection.spi.PersistentCollection;
 import org.hibernate.validator.constraints.Email;
 
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.stream.Collectors;
 /*
  // TODO : EndUesr 하위의 username은 credential의 account와 중복 따라서 제거, credential account로 사용자 조회 api 추가 필요.
  * DomainUserDetailsService
@@ -21,11 +24,18 @@ import java.util.Optional;
  */
 
 @Entity(name = "APP_USER")
+@Table(indexes = {
+        @Index(name = "IDX_APP_USER_NORMALIZED_ACCOUNT", columnList = "NORMALIZED_ACCOUNT"),
+        @Index(name = "IDX_APP_USER_NORMALIZED_EMAIL", columnList = "NORMALIZED_EMAIL"),
+        @Index(name = "IDX_APP_USER_NORMALIZED_MOBILE", columnList = "NORMALIZED_MOBILE_PHONE_NO"),
+        @Index(name = "IDX_APP_USER_CREATED_DATE_ID", columnList = "CREATED_DATE, END_USER_ID"),
+        @Index(name = "IDX_APP_USER_LAST_MODIFIED_DT", columnList = "LAST_MODIFIED_DT")
+})
 public class EndUser extends Auditible {
 
     @Id
-    @GeneratedValue(generator = "uuid2")
-    @GenericGenerator(name = "uuid2", strategy = "uuid2")
+    @GeneratedValue(generator = "time-ordered-uuid")
+    @GenericGenerator(name = "time-ordered-uuid", strategy = "app.domain.TimeOrderedUuidGenerator")
     @Column(columnDefinition = "VARCHAR(36)", name = "END_USER_ID")
     private String id;
 
@@ -41,16 +51,39 @@ public class EndUser extends Auditible {
 
     private UserProfile profile;
 
-    @JsonProperty("applications")
-    @JsonSerialize(using = EndUserApplicationJsonSerializer.class)
+    @JsonProperty(value = "applications", access = JsonProperty.Access.WRITE_ONLY)
     @JsonDeserialize(using = EndUserApplicationJsonDeserializer.class)
     @OneToMany(fetch = FetchType.LAZY, mappedBy = "pk.endUser", cascade = CascadeType.ALL)
     private List<ApplicationEndUser> applicationEndUsers = new ArrayList<ApplicationEndUser>();
 
+    // the same APP_END_USER rows as plain ids, loaded for up to a page of end-users in one statement
+    @JsonIgnore
+    @org.codehaus.jackson.annotate.JsonIgnore
+    @BatchSize(size = 100)
+    @OneToMany(fetch = FetchType.LAZY)
+    @JoinColumn(name = "END_USER_ID", insertable = false, updatable = false)
+    private List<EndUserApplicationId> applicationIdRows = new ArrayList<>();
+
     @JsonIgnore
     @org.codehaus.jackson.annotate.JsonIgnore
     private String tenantId;
 
+    // trimmed, lower-cased copies of the identity lookup keys, so lookups can use an index and ignore case
+    @JsonIgnore
+    @org.codehaus.jackson.annotate.JsonIgnore
+    @Column(name = "NORMALIZED_ACCOUNT")
+    private String normalizedAccount;
+
+    @JsonIgnore
+    @org.codehaus.jackson.annotate.JsonIgnore
+    @Column(name = "NORMALIZED_EMAIL")
+    private String normalizedEmail;
+
+    @JsonIgnore
+    @org.codehaus.jackson.annotate.JsonIgnore
+    @Column(name = "NORMALIZED_MOBILE_PHONE_NO")
+    private String normalizedMobilePhoneNo;
+
     public String getId() {
         return id;
     }
@@ -99,6 +132,24 @@ public class EndUser extends Auditible {
         this.applicationEndUsers = applicationEndUsers;
     }
 
+    /**
+     * Ids of the applications the end-user is registered to. Unless {@link #getApplicationEndUsers()} is already
+     * loaded or changed in this session, they are read without loading the applications.
+     */
+    @JsonProperty("applications")
+    public List<String> getApplicationIds() {
+        if (!(applicationEndUsers instanceof PersistentCollection)
+                || ((PersistentCollection) applicationEndUsers).wasInitialized()
+                || ((PersistentCollection) applicationEndUsers).isDirty()) {
+            return getApplicationEndUsers().stream()
+                    .map(applicationEndUser -> applicationEndUser.getApplication().getId())
+                    .collect(Collectors.toList());
+        }
+        return applicationIdRows.stream()
+                .map(EndUserApplicationId::getApplicationId)
+                .collect(Collectors.toList());
+    }
+
     public String getTenantId() {
         return tenantId;
     }
@@ -107,6 +158,18 @@ public class EndUser extends Auditible {
         this.tenantId = tenantId;
     }
 
+    @PrePersist
+    @PreUpdate
+    void normalizeLookupKeys() {
+        normalizedAccount = normalize(credential == null ? null : credential.getAccount());
+        normalizedEmail = normalize(email);
+        normalizedMobilePhoneNo = normalize(profile == null ? null : profile.getMobilePhoneNo());
+    }
+
+    public static String normalize(String lookupKey) {
+        return lookupKey == null ? null : lookupKey.trim().toLowerCase(Locale.ROOT);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,61 @@
+package app.domain;
+
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import java.io.Serializable;
+
+/**
+ * Read-only view of an {@code APP_END_USER} row as plain ids. {@link ApplicationEndUser} maps the same rows and is
+ * the one that writes them; reading this one never loads the {@link Application}.
+ */
+@Entity
+@Immutable
+@Table(name = "APP_END_USER")
+public class EndUserApplicationId {
+    @EmbeddedId
+    private Key key;
+
+    //for JPA
+    protected EndUserApplicationId() {
+    }
+
+    public String getApplicationId() {
+        return key.applicationId;
+    }
+
+    public String getEndUserId() {
+        return key.endUserId;
+    }
+
+    @Embeddable
+    static class Key implements Serializable {
+        @Column(name = "APP_ID", columnDefinition = "VARCHAR(36)")
+        private String applicationId;
+
+        @Column(name = "END_USER_ID", columnDefinition = "VARCHAR(36)")
+        private String endUserId;
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key that = (Key) o;
+
+            if (applicationId != null ? !applicationId.equals(that.applicationId) : that.applicationId != null) return false;
+            return endUserId != null ? endUserId.equals(that.endUserId) : that.endUserId == null;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = applicationId != null ? applicationId.hashCode() : 0;
+            result = 31 * result + (endUserId != null ? endUserId.hashCode() : 0);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package app.domain;
+
+/**
+ * Result of the single registration check: whether the application exists and which existing end users of it
+ * already use the account, email or mobile phone no being registered (null when there is none).
+ */
+public class EndUserConflicts {
+    private final long applicationCount;
+    private final String accountOwnerId;
+    private final String emailOwnerId;
+    private final String mobilePhoneNoOwnerId;
+
+    public EndUserConflicts(Long applicationCount, String accountOwnerId, String emailOwnerId, String mobilePhoneNoOwnerId) {
+        this.applicationCount = applicationCount == null ? 0 : applicationCount;
+        this.accountOwnerId = accountOwnerId;
+        this.emailOwnerId = emailOwnerId;
+        this.mobilePhoneNoOwnerId = mobilePhoneNoOwnerId;
+    }
+
+    public boolean isApplicationExists() {
+        return applicationCount > 0;
+    }
+
+    public String getAccountOwnerId() {
+        return accountOwnerId;
+    }
+
+    public String getEmailOwnerId() {
+        return emailOwnerId;
+    }
+
+    public String getMobilePhoneNoOwnerId() {
+        return mobilePhoneNoOwnerId;
+    }
+}
@@ -0,0 +1,61 @@
+package app.domain;
+
+import app.error.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position after the last end-user of a keyset page, ordered by {@code (createdAt, id)}.
+ * Clients only see the opaque {@link #encode() encoded} form and pass it back unchanged.
+ */
+public class EndUserCursor {
+    private static final char SEPARATOR = '|';
+
+    private final LocalDateTime createdAt;
+    private final String id;
+
+    public EndUserCursor(LocalDateTime createdAt, String id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public static EndUserCursor after(EndUser endUser) {
+        return new EndUserCursor(endUser.getCreatedAt(), endUser.getId());
+    }
+
+    /**
+     * Returns {@code null} for an empty cursor, which asks for the first page.
+     */
+    public static EndUserCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(SEPARATOR);
+            if (separator < 0 || separator == decoded.length() - 1) {
+                throw new InvalidCursorException("Invalid cursor: " + cursor);
+            }
+            String createdAt = decoded.substring(0, separator);
+            return new EndUserCursor(createdAt.isEmpty() ? null : LocalDateTime.parse(createdAt), decoded.substring(separator + 1));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    public String encode() {
+        String value = (createdAt == null ? "" : createdAt.toString()) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+}
@@ -0,0 +1,66 @@
+package app.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk end-user import. Rows are numbered from 1 in input order, not counting a CSV header.
+ * Only the first {@code maxErrors} failures are listed; {@link #getFailed()} counts all of them.
+ */
+public class EndUserImportResult {
+    private final int maxErrors;
+    private final List<RowError> errors = new ArrayList<>();
+    private int imported;
+    private int failed;
+
+    public EndUserImportResult(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    public void addImported(int count) {
+        imported += count;
+    }
+
+    public void addError(int row, String account, String message) {
+        failed++;
+        if (errors.size() < maxErrors) {
+            errors.add(new RowError(row, account, message));
+        }
+    }
+
+    public int getImported() {
+        return imported;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public static class RowError {
+        private final int row;
+        private final String account;
+        private final String message;
+
+        public RowError(int row, String account, String message) {
+            this.row = row;
+            this.account = account;
+            this.message = message;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public String getAccount() {
+            return account;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+}
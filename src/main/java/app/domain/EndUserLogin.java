@@ -0,0 +1,41 @@
+package app.domain;
+
+/**
+ * The columns needed to authenticate an end user, selected with a constructor expression so a login never
+ * hydrates or registers an {@link EndUser} entity.
+ */
+public class EndUserLogin {
+    private final String id;
+    private final String tenantId;
+    private final String account;
+    private final String password;
+    private final EndUserStatus status;
+
+    public EndUserLogin(String id, String tenantId, String account, String password, EndUserStatus status) {
+        this.id = id;
+        this.tenantId = tenantId;
+        this.account = account;
+        this.password = password;
+        this.status = status;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public EndUserStatus getStatus() {
+        return status;
+    }
+}
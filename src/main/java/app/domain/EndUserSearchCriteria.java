@@ -0,0 +1,180 @@
+package app.domain;
+
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filters of the end-user search; every filter that is set must match.
+ * <p>
+ * Text filters match exactly unless they start or end with {@code *}: {@code kim*} matches values starting with
+ * "kim" and can still use an index, {@code *kim*} matches values containing it. Email and mobile number are compared
+ * case-insensitively through their normalized columns.
+ */
+public class EndUserSearchCriteria {
+    public static final String WILDCARD = "*";
+
+    private String applicationId;
+    private String email;
+    private String firstName;
+    private String lastName;
+    private String middleName;
+    private String nickname;
+    private String mobileNo;
+    private Gender gender;
+    private EndUserStatus status;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdFrom;
+
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+    private LocalDateTime createdTo;
+
+    // no setter, so request parameters cannot switch it on or off
+    private boolean exactMatch;
+
+    /**
+     * Criteria of the deprecated exact-match lookups: text filters are compared literally, {@code *} included,
+     * and a blank filter matches nothing.
+     */
+    public static EndUserSearchCriteria exactMatch() {
+        EndUserSearchCriteria criteria = new EndUserSearchCriteria();
+        criteria.exactMatch = true;
+        return criteria;
+    }
+
+    public static String contains(String value) {
+        return WILDCARD + value + WILDCARD;
+    }
+
+    /**
+     * The term of a filter starting with a wildcard, i.e. one no B-tree index can serve, otherwise {@code null}.
+     */
+    public static String substringTerm(String value) {
+        if (value == null || !value.startsWith(WILDCARD)) {
+            return null;
+        }
+        String term = value.substring(1);
+        return term.endsWith(WILDCARD) ? term.substring(0, term.length() - 1) : term;
+    }
+
+    public boolean isEmpty() {
+        return isBlank(applicationId) && isBlank(email) && isBlank(firstName) && isBlank(lastName) && isBlank(middleName)
+                && isBlank(nickname) && isBlank(mobileNo) && gender == null && status == null
+                && createdFrom == null && createdTo == null;
+    }
+
+    public boolean isExactMatch() {
+        return exactMatch;
+    }
+
+    public String getApplicationId() {
+        return applicationId;
+    }
+
+    public void setApplicationId(String applicationId) {
+        this.applicationId = applicationId;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    public String getMiddleName() {
+        return middleName;
+    }
+
+    public void setMiddleName(String middleName) {
+        this.middleName = middleName;
+    }
+
+    public String getNickname() {
+        return nickname;
+    }
+
+    public void setNickname(String nickname) {
+        this.nickname = nickname;
+    }
+
+    public String getMobileNo() {
+        return mobileNo;
+    }
+
+    public void setMobileNo(String mobileNo) {
+        this.mobileNo = mobileNo;
+    }
+
+    public Gender getGender() {
+        return gender;
+    }
+
+    public void setGender(Gender gender) {
+        this.gender = gender;
+    }
+
+    public EndUserStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(EndUserStatus status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getCreatedFrom() {
+        return createdFrom;
+    }
+
+    public void setCreatedFrom(LocalDateTime createdFrom) {
+        this.createdFrom = createdFrom;
+    }
+
+    public LocalDateTime getCreatedTo() {
+        return createdTo;
+    }
+
+    public void setCreatedTo(LocalDateTime createdTo) {
+        this.createdTo = createdTo;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "EndUserSearchCriteria{" +
+                "applicationId='" + applicationId + '\'' +
+                ", email='" + email + '\'' +
+                ", firstName='" + firstName + '\'' +
+                ", lastName='" + lastName + '\'' +
+                ", middleName='" + middleName + '\'' +
+                ", nickname='" + nickname + '\'' +
+                ", mobileNo='" + mobileNo + '\'' +
+                ", gender=" + gender +
+                ", status=" + status +
+                ", createdFrom=" + createdFrom +
+                ", createdTo=" + createdTo +
+                ", exactMatch=" + exactMatch +
+                '}';
+    }
+}
@@ -0,0 +1,112 @@
+package app.domain;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of a bulk status change. The counters are updated after each committed chunk while clients poll it.
+ */
+public class EndUserStatusChangeJob {
+    public enum State {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String tenantId;
+    private final EndUserStatus status;
+    private final Integer requested;
+    private final AtomicLong matched = new AtomicLong();
+    private final AtomicLong changed = new AtomicLong();
+    private final AtomicLong chunks = new AtomicLong();
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private volatile LocalDateTime finishedAt;
+    private volatile State state = State.RUNNING;
+    private volatile String error;
+
+    /**
+     * @param requested the number of end-user ids given, {@code null} when the end-users are selected by a filter
+     */
+    public EndUserStatusChangeJob(String tenantId, EndUserStatus status, Integer requested) {
+        this.tenantId = tenantId;
+        this.status = status;
+        this.requested = requested;
+    }
+
+    public void chunkDone(int matched, int changed) {
+        this.matched.addAndGet(matched);
+        this.changed.addAndGet(changed);
+        chunks.incrementAndGet();
+    }
+
+    public void completed() {
+        finishedAt = LocalDateTime.now();
+        state = State.COMPLETED;
+    }
+
+    public void failed(String error) {
+        this.error = error;
+        finishedAt = LocalDateTime.now();
+        state = State.FAILED;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    @JsonIgnore
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public EndUserStatus getStatus() {
+        return status;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public Integer getRequested() {
+        return requested;
+    }
+
+    /**
+     * End-users of the tenant found so far, whether their status had to change or not.
+     */
+    public long getMatched() {
+        return matched.get();
+    }
+
+    public long getChanged() {
+        return changed.get();
+    }
+
+    /**
+     * Matched end-users that already had the status.
+     */
+    public long getUnchanged() {
+        return matched.get() - changed.get();
+    }
+
+    public long getChunks() {
+        return chunks.get();
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
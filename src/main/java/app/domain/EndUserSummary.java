@@ -0,0 +1,78 @@
+package app.domain;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns an end-user list view needs, selected with a constructor expression instead of loading
+ * {@link EndUser} entities with their profile, address and applications.
+ */
+public class EndUserSummary {
+    private final String id;
+    private final String account;
+    private final String email;
+    private final EndUserStatus status;
+    private final String firstName;
+    private final String lastName;
+    private final String nickName;
+    private final String mobilePhoneNo;
+    private final Gender gender;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private final LocalDateTime createdAt;
+
+    public EndUserSummary(String id, String account, String email, EndUserStatus status, String firstName, String lastName,
+                          String nickName, String mobilePhoneNo, Gender gender, LocalDateTime createdAt) {
+        this.id = id;
+        this.account = account;
+        this.email = email;
+        this.status = status;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.nickName = nickName;
+        this.mobilePhoneNo = mobilePhoneNo;
+        this.gender = gender;
+        this.createdAt = createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public EndUserStatus getStatus() {
+        return status;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getNickName() {
+        return nickName;
+    }
+
+    public String getMobilePhoneNo() {
+        return mobilePhoneNo;
+    }
+
+    public Gender getGender() {
+        return gender;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
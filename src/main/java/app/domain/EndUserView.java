@@ -0,0 +1,58 @@
+package app.domain;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An end-user as the REST resources return it. It is copied from {@link EndUser} inside the handler's transaction,
+ * so rendering the response needs neither the persistence context nor a database connection.
+ */
+public class EndUserView extends AuditibleView {
+    private final String id;
+    private final String email;
+    private final EndUserStatus status;
+    private final LoginCredential credential;
+    private final UserProfile profile;
+    private final List<String> applications;
+
+    private EndUserView(EndUser endUser) {
+        super(endUser);
+        this.id = endUser.getId();
+        this.email = endUser.getEmail();
+        this.status = endUser.getStatus();
+        this.credential = endUser.getCredential();
+        this.profile = endUser.getProfile();
+        this.applications = Collections.unmodifiableList(endUser.getApplicationIds());
+    }
+
+    /**
+     * @return {@code null} when {@code endUser} is {@code null}
+     */
+    public static EndUserView of(EndUser endUser) {
+        return endUser == null ? null : new EndUserView(endUser);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public EndUserStatus getStatus() {
+        return status;
+    }
+
+    public LoginCredential getCredential() {
+        return credential;
+    }
+
+    public UserProfile getProfile() {
+        return profile;
+    }
+
+    public List<String> getApplications() {
+        return applications;
+    }
+}
@@ -0,0 +1,110 @@
+package app.domain;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A tenant as the REST resources return it, with its API key and applications copied in.
+ */
+public class TenantView extends AuditibleView {
+    private final String id;
+    private final String email;
+    private final LoginCredential loginCredential;
+    private final String companyName;
+    private final Tenant.Status status;
+    private final UserProfile profile;
+    private final ApiKeyView apiKeyInformation;
+    private final List<ApplicationView> applications;
+
+    private TenantView(Tenant tenant) {
+        super(tenant);
+        this.id = tenant.getId();
+        this.email = tenant.getEmail();
+        this.loginCredential = tenant.getLoginCredential();
+        this.companyName = tenant.getCompanyName();
+        this.status = tenant.getStatus();
+        this.profile = tenant.getProfile();
+        this.apiKeyInformation = tenant.getApiKeyInformation() == null ? null : new ApiKeyView(tenant.getApiKeyInformation());
+        this.applications = Collections.unmodifiableList(tenant.getApplications().stream()
+                .map(ApplicationView::of)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * @return {@code null} when {@code tenant} is {@code null}
+     */
+    public static TenantView of(Tenant tenant) {
+        return tenant == null ? null : new TenantView(tenant);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public LoginCredential getLoginCredential() {
+        return loginCredential;
+    }
+
+    public String getCompanyName() {
+        return companyName;
+    }
+
+    public Tenant.Status getStatus() {
+        return status;
+    }
+
+    public UserProfile getProfile() {
+        return profile;
+    }
+
+    public ApiKeyView getApiKeyInformation() {
+        return apiKeyInformation;
+    }
+
+    public List<ApplicationView> getApplications() {
+        return applications;
+    }
+
+    public static class ApiKeyView extends AuditibleView {
+        private final String id;
+        private final String apiKey;
+
+        @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+        private final LocalDateTime expireDate;
+
+        @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+        private final LocalDateTime issueDate;
+
+        private ApiKeyView(ApiKeyInformation apiKeyInformation) {
+            super(apiKeyInformation);
+            this.id = apiKeyInformation.getId();
+            this.apiKey = apiKeyInformation.getApiKey();
+            this.expireDate = apiKeyInformation.getExpireDate();
+            this.issueDate = apiKeyInformation.getIssueDate();
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getApiKey() {
+            return apiKey;
+        }
+
+        public LocalDateTime getExpireDate() {
+            return expireDate;
+        }
+
+        public LocalDateTime getIssueDate() {
+            return issueDate;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package app.domain.event;
+
+import app.domain.EndUser;
+
+import java.util.Collections;
+
+/**
+ * Published by {@code EndUserService} once a new end-user has been saved and added to its application,
+ * either through the tenant API or through self registration.
+ */
+public class EndUserCreated extends EndUserEvent {
+    private final boolean registered;
+
+    public EndUserCreated(String applicationId, EndUser endUser, boolean registered) {
+        super(endUser, Collections.singletonList(applicationId));
+        this.registered = registered;
+    }
+
+    public String getApplicationId() {
+        return getApplicationIds().get(0);
+    }
+
+    public boolean isRegistered() {
+        return registered;
+    }
+}
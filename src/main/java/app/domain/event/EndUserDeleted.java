@@ -0,0 +1,15 @@
+package app.domain.event;
+
+import app.domain.EndUser;
+
+import java.util.List;
+
+/**
+ * Published by {@code EndUserService} after an end-user has been deleted.
+ */
+public class EndUserDeleted extends EndUserEvent {
+
+    public EndUserDeleted(EndUser endUser, List<String> applicationIds) {
+        super(endUser, applicationIds);
+    }
+}
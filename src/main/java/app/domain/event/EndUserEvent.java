@@ -0,0 +1,89 @@
+package app.domain.event;
+
+import app.domain.EndUser;
+import app.domain.EndUserStatus;
+import app.domain.UserProfile;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Snapshot of an end-user taken when the event is published, so listeners never touch the managed entity.
+ */
+public abstract class EndUserEvent implements DomainEvent {
+    private final String endUserId;
+    private final String tenantId;
+    private final List<String> applicationIds;
+    private final String account;
+    private final String email;
+    private final String mobilePhoneNo;
+    private final String firstName;
+    private final String lastName;
+    private final String middleName;
+    private final String nickName;
+    private final EndUserStatus status;
+
+    protected EndUserEvent(EndUser endUser, List<String> applicationIds) {
+        this.endUserId = endUser.getId();
+        this.tenantId = endUser.getTenantId();
+        this.applicationIds = Collections.unmodifiableList(applicationIds);
+        this.account = endUser.getCredential() == null ? null : endUser.getCredential().getAccount();
+        this.email = endUser.getEmail();
+        UserProfile profile = endUser.getProfile();
+        this.mobilePhoneNo = profile == null ? null : profile.getMobilePhoneNo();
+        this.firstName = profile == null ? null : profile.getFirstName();
+        this.lastName = profile == null ? null : profile.getLastName();
+        this.middleName = profile == null ? null : profile.getMiddleName();
+        this.nickName = profile == null ? null : profile.getNickName();
+        this.status = endUser.getStatus();
+    }
+
+    public String getEndUserId() {
+        return endUserId;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public List<String> getApplicationIds() {
+        return applicationIds;
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getMobilePhoneNo() {
+        return mobilePhoneNo;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getMiddleName() {
+        return middleName;
+    }
+
+    public String getNickName() {
+        return nickName;
+    }
+
+    public EndUserStatus getStatus() {
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "{endUserId='" + endUserId + "', applicationIds=" + applicationIds + '}';
+    }
+}
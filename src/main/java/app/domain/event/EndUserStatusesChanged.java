@@ -0,0 +1,52 @@
+package app.domain.event;
+
+import app.domain.EndUserStatus;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Published by {@code EndUserStatusChangeService} for each chunk of a bulk status change, in the transaction that
+ * changed the statuses. It carries how many end-users of each application left which status, not the end-users.
+ */
+public class EndUserStatusesChanged implements DomainEvent {
+    private final EndUserStatus status;
+    private final List<Change> changes;
+
+    public EndUserStatusesChanged(EndUserStatus status, List<Change> changes) {
+        this.status = status;
+        this.changes = Collections.unmodifiableList(changes);
+    }
+
+    public EndUserStatus getStatus() {
+        return status;
+    }
+
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    public static class Change {
+        private final String applicationId;
+        private final EndUserStatus previousStatus;
+        private final long count;
+
+        public Change(String applicationId, EndUserStatus previousStatus, long count) {
+            this.applicationId = applicationId;
+            this.previousStatus = previousStatus;
+            this.count = count;
+        }
+
+        public String getApplicationId() {
+            return applicationId;
+        }
+
+        public EndUserStatus getPreviousStatus() {
+            return previousStatus;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
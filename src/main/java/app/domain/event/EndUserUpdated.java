@@ -0,0 +1,22 @@
+package app.domain.event;
+
+import app.domain.EndUser;
+import app.domain.EndUserStatus;
+
+import java.util.List;
+
+/**
+ * Published by {@code EndUserService} after an end-user's email, status or profile has been changed.
+ */
+public class EndUserUpdated extends EndUserEvent {
+    private final EndUserStatus previousStatus;
+
+    public EndUserUpdated(EndUser endUser, List<String> applicationIds, EndUserStatus previousStatus) {
+        super(endUser, applicationIds);
+        this.previousStatus = previousStatus;
+    }
+
+    public EndUserStatus getPreviousStatus() {
+        return previousStatus;
+    }
+}
@@ -1,5 +1,6 @@
 package app.error;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -158,5 +159,62 @@ public class ExceptionHandleController {
         ));
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST)
+    public ResponseEntity<ErrorResponse> handleInvalidCursor(HttpServletRequest request, InvalidCursorException ice) {
+        return ResponseEntity.badRequest().body(new ErrorResponse(
+                "InvalidCursorException",
+                ice.getMessage(),
+                request.getRequestURI(),
+                HttpStatus.BAD_REQUEST
+        ));
+    }
+
+    @ExceptionHandler(InvalidStatusChangeException.class)
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST)
+    public ResponseEntity<ErrorResponse> handleInvalidStatusChange(HttpServletRequest request, InvalidStatusChangeException isce) {
+        return ResponseEntity.badRequest().body(new ErrorResponse(
+                "InvalidStatusChangeException",
+                isce.getMessage(),
+                request.getRequestURI(),
+                HttpStatus.BAD_REQUEST
+        ));
+    }
+
+    @ExceptionHandler(UnknownFieldException.class)
+    @ResponseStatus(value = HttpStatus.BAD_REQUEST)
+    public ResponseEntity<ErrorResponse> handleUnknownField(HttpServletRequest request, UnknownFieldException ufe) {
+        return ResponseEntity.badRequest().body(new ErrorResponse(
+                "UnknownFieldException",
+                ufe.getMessage(),
+                request.getRequestURI(),
+                HttpStatus.BAD_REQUEST
+        ));
+    }
+
+    @ExceptionHandler(PasswordHashingUnavailableException.class)
+    @ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE)
+    public ResponseEntity<ErrorResponse> handlePasswordHashingUnavailable(HttpServletRequest request, PasswordHashingUnavailableException phue) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(phue.getRetryAfterSeconds()))
+                .body(new ErrorResponse(
+                        "PasswordHashingUnavailableException",
+                        phue.getMessage(),
+                        request.getRequestURI(),
+                        HttpStatus.SERVICE_UNAVAILABLE
+                ));
+    }
+
+    @ExceptionHandler(StatusChangeQueueFullException.class)
+    @ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE)
+    public ResponseEntity<ErrorResponse> handleStatusChangeQueueFull(HttpServletRequest request, StatusChangeQueueFullException scqfe) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(new ErrorResponse(
+                "StatusChangeQueueFullException",
+                scqfe.getMessage(),
+                request.getRequestURI(),
+                HttpStatus.SERVICE_UNAVAILABLE
+        ));
+    }
+
     //
 }
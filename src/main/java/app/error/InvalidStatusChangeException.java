@@ -0,0 +1,7 @@
+package app.error;
+
+public class InvalidStatusChangeException extends RuntimeException {
+    public InvalidStatusChangeException(String message) {
+        super(message);
+    }
+}
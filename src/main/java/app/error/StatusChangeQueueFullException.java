@@ -0,0 +1,7 @@
+package app.error;
+
+public class StatusChangeQueueFullException extends RuntimeException {
+    public StatusChangeQueueFullException(String message) {
+        super(message);
+    }
+}
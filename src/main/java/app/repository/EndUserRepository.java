@@ -1,7 +1,8 @@
 package app.repository;
 
 import app.domain.EndUser;
-import app.domain.Gender;
+import app.domain.EndUserConflicts;
+import app.domain.EndUserLogin;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -11,10 +12,11 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface EndUserRepository extends JpaRepository<EndUser, String> {
+public interface EndUserRepository extends JpaRepository<EndUser, String>, EndUserRepositoryCustom {
 
     @Secured("hasRole('SYS_ADMIN')")
     Page<EndUser> findAll(Pageable pageable);
@@ -37,238 +39,71 @@ public interface EndUserRepository extends JpaRepository<EndUser, String> {
 
     @Query("select user from APP_USER user join user.applicationEndUsers a " +
             "where (a.pk.application.id = :applicationId) " +
-            "and user.credential.account = :account")
+            "and user.normalizedAccount = lower(trim(:account))")
     EndUser findByApplicationAndCredentialAccount(
             @Param("applicationId") String applicationId,
             @Param("account") String account);
 
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where (a.pk.application.id = :applicationId)")
-    Page<EndUser> findByApplication(@Param("applicationId") String applicationId, Pageable pageable);
-
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-        "where a.pk.application.id = :applicationId " +
-        "and a.pk.application.owner.id = :tenantId " +
-        "and user.email = :email")
-    EndUser findByEmail(
-            @Param("email") String email,
+    @Query("select new app.domain.EndUserLogin(user.id, user.tenantId, user.credential.account, user.credential.password, user.status) " +
+            "from APP_USER user join user.applicationEndUsers a " +
+            "where (a.pk.application.id = :applicationId) " +
+            "and user.normalizedAccount = lower(trim(:account))")
+    EndUserLogin findLoginByApplicationAndCredentialAccount(
             @Param("applicationId") String applicationId,
-            @Param("tenantId") String tenantId
-    );
-
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where a.pk.application.owner.id = :tenantId " +
-            "and user.email = :email")
-    EndUser findByEmail(
-            @Param("email") String email,
-            @Param("tenantId") String tenantId
-    );
+            @Param("account") String account);
 
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where a.pk.application.id = :applicationId " +
-            "and a.pk.application.owner.id = :tenantId " +
-            "and user.email like %:email%")
-    Page<EndUser> findByEmailLike(
-            @Param("email") String email,
+    @Query("select new app.domain.EndUserLogin(user.id, user.tenantId, user.credential.account, user.credential.password, user.status) " +
+            "from APP_USER user join user.applicationEndUsers a " +
+            "where (a.pk.application.id = :applicationId) " +
+            "and user.normalizedEmail = lower(trim(:email))")
+    EndUserLogin findLoginByApplicationAndEmail(
             @Param("applicationId") String applicationId,
-            @Param("tenantId") String tenantId,
-            Pageable pageable);
+            @Param("email") String email);
 
     @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where a.pk.application.owner.id = :tenantId " +
-            "and user.email like %:email%")
-    Page<EndUser> findByEmailLike(
-            @Param("email") String email,
-            @Param("tenantId") String tenantId,
-            Pageable pageable);
+            "where (a.pk.application.id = :applicationId)")
+    Page<EndUser> findByApplication(@Param("applicationId") String applicationId, Pageable pageable);
 
     @Query("select user from APP_USER user join user.applicationEndUsers a " +
             "where (a.pk.application.id = :applicationId) " +
-            "and user.email = :email")
+            "and user.normalizedEmail = lower(trim(:email))")
     EndUser findByApplicationAndEmail(
             @Param("applicationId") String applicationId,
             @Param("email") String email);
 
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where a.pk.application.id = :applicationId " +
-            "and a.pk.application.owner.id = :tenantId " +
-            "and user.profile.firstName = :firstName")
-    Page<EndUser> findByProfileFirstName(
-            @Param("firstName") String firstName,
-            @Param("applicationId") String applicationId,
-            @Param("tenantId") String tenantId,
-            Pageable pageable);
-
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where a.pk.application.owner.id = :tenantId " +
-            "and user.profile.firstName = :firstName")
-    Page<EndUser> findByProfileFirstName(
-            @Param("firstName") String firstName,
-            @Param("tenantId") String tenantId,
-            Pageable pageable);
-
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where a.pk.application.id = :applicationId " +
-            "and a.pk.application.owner.id = :tenantId " +
-            "and user.profile.firstName like %:firstName%")
-    Page<EndUser> findByProfileFirstNameLike(
-            @Param("firstName") String firstName,
-            @Param("applicationId") String applicationId,
-            @Param("tenantId") String tenantId,
-            Pageable pageable);
-
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where a.pk.application.owner.id = :tenantId " +
-            "and user.profile.firstName like %:firstName%")
-    Page<EndUser> findByProfileFirstNameLike(
-            @Param("firstName") String firstName,
-            @Param("tenantId") String tenantId,
-            Pageable pageable);
-
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where a.pk.application.id = :applicationId " +
-            "and a.pk.application.owner.id = :tenantId " +
-            "and user.profile.lastName like %:lastName%")
-    Page<EndUser> findByProfileLastNameLike(
-            @Param("lastName") String lastName,
-            @Param("applicationId") String applicationId,
-            @Param("tenantId") String tenantId,
-            Pageable pageable);
-
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where a.pk.application.owner.id = :tenantId " +
-            "and user.profile.lastName like %:lastName%")
-    Page<EndUser> findByProfileLastNameLike(
-            @Param("lastName") String lastName,
-            @Param("tenantId") String tenantId,
-            Pageable pageable);
-
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where a.pk.application.id = :applicationId " +
-            "and a.pk.application.owner.id = :tenantId " +
-            "and user.profile.lastName = :lastName")
-    Page<EndUser> findByProfileLastName(
-            @Param("lastName") String lastName,
-            @Param("applicationId") String applicationId,
-            @Param("tenantId") String tenantId,
-            Pageable pageable);
-
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where a.pk.application.owner.id = :tenantId " +
-            "and user.profile.lastName = :lastName")
-    Page<EndUser> findByProfileLastName(
-            @Param("lastName") String lastName,
-            @Param("tenantId") String tenantId,
-            Pageable pageable);
-
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where a.pk.application.id = :applicationId " +
-            "and a.pk.application.owner.id = :tenantId " +
-            "and user.profile.middleName = :middleName")
-    Page<EndUser> findByProfileMiddleName(
-            @Param("middleName") String middleName,
-            @Param("applicationId") String applicationId,
-            @Param("tenantId") String tenantId,
-            Pageable pageable);
-
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where a.pk.application.owner.id = :tenantId " +
-            "and user.profile.middleName = :middleName")
-    Page<EndUser> findByProfileMiddleName(
-            @Param("middleName") String middleName,
-            @Param("tenantId") String tenantId,
-            Pageable pageable);
-
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where a.pk.application.id = :applicationId " +
-            "and a.pk.application.owner.id = :tenantId " +
-            "and user.profile.middleName like %:middleName%")
-    Page<EndUser> findByProfileMiddleNameLike(
-            @Param("middleName") String middleName,
-            @Param("applicationId") String applicationId,
-            @Param("tenantId") String tenantId,
-            Pageable pageable);
-
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where a.pk.application.owner.id = :tenantId " +
-            "and user.profile.middleName like %:middleName%")
-    Page<EndUser> findByProfileMiddleNameLike(
-            @Param("middleName") String middleName,
-            @Param("tenantId") String tenantId,
-            Pageable pageable);
-
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where a.pk.application.id = :applicationId " +
-            "and a.pk.application.owner.id = :tenantId " +
-            "and user.profile.nickName = :nickName")
-    Page<EndUser> findByProfileNickName(
-            @Param("nickName") String nickName,
-            @Param("applicationId") String applicationId,
-            @Param("tenantId") String tenantId,
-            Pageable pageable);
-
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where a.pk.application.owner.id = :tenantId " +
-            "and user.profile.nickName = :nickName")
-    Page<EndUser> findByProfileNickName(
-            @Param("nickName") String nickName,
-            @Param("tenantId") String tenantId,
-            Pageable pageable);
-
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where a.pk.application.id = :applicationId " +
-            "and a.pk.application.owner.id = :tenantId " +
-            "and user.profile.nickName like %:nickName%")
-    Page<EndUser> findByProfileNickNameLike(
-            @Param("nickName") String nickName,
+    // one row even without matches: the aggregates are null then. Email and mobile matches of excludedEndUserId are ignored.
+    @Query("select new app.domain.EndUserConflicts(" +
+            "(select count(application.id) from TENANT_APPLICATION application where application.id = :applicationId), " +
+            "max(case when user.normalizedAccount = lower(trim(:account)) then user.id else null end), " +
+            "max(case when user.normalizedEmail = lower(trim(:email)) and user.id <> :excludedEndUserId then user.id else null end), " +
+            "max(case when user.normalizedMobilePhoneNo = lower(trim(:mobilePhoneNo)) and user.id <> :excludedEndUserId then user.id else null end)) " +
+            "from APP_USER user join user.applicationEndUsers a " +
+            "where (a.pk.application.id = :applicationId) " +
+            "and (user.normalizedAccount = lower(trim(:account)) " +
+            "or user.normalizedEmail = lower(trim(:email)) " +
+            "or user.normalizedMobilePhoneNo = lower(trim(:mobilePhoneNo)))")
+    EndUserConflicts findRegistrationConflicts(
             @Param("applicationId") String applicationId,
-            @Param("tenantId") String tenantId,
-            Pageable pageable);
-
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where a.pk.application.owner.id = :tenantId " +
-            "and user.profile.nickName like %:nickName%")
-    Page<EndUser> findByProfileNickNameLike(
-            @Param("nickName") String nickName,
-            @Param("tenantId") String tenantId,
-            Pageable pageable);
-
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where a.pk.application.id = :applicationId " +
-            "and a.pk.application.owner.id = :tenantId " +
-            "and user.profile.mobilePhoneNo = :mobilePhoneNo")
-    EndUser findByProfileMobilePhoneNo(
+            @Param("account") String account,
+            @Param("email") String email,
             @Param("mobilePhoneNo") String mobilePhoneNo,
-            @Param("applicationId") String applicationId,
-            @Param("tenantId") String tenantId);
+            @Param("excludedEndUserId") String excludedEndUserId);
 
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where a.pk.application.owner.id = :tenantId " +
-            "and user.profile.mobilePhoneNo = :mobilePhoneNo")
-    EndUser findByProfileMobilePhoneNo(
-            @Param("mobilePhoneNo") String mobilePhoneNo,
-            @Param("tenantId") String tenantId);
+    // set-wise duplicate checks for bulk imports, the keys must already be normalized
+    @Query("select user.normalizedAccount from APP_USER user join user.applicationEndUsers a " +
+            "where (a.pk.application.id = :applicationId) and user.normalizedAccount in :accounts")
+    List<String> findExistingAccounts(@Param("applicationId") String applicationId, @Param("accounts") Collection<String> accounts);
 
-    @Query("select user from APP_USER user join user.applicationEndUsers a where (a.pk.application.id = :applicationId) and user.profile.mobilePhoneNo = :mobilePhoneNo")
-    EndUser findByApplicationAndMobileNo(@Param("applicationId") String applicationId, @Param("mobilePhoneNo") String mobilePhoneNo);
+    @Query("select user.normalizedEmail from APP_USER user join user.applicationEndUsers a " +
+            "where (a.pk.application.id = :applicationId) and user.normalizedEmail in :emails")
+    List<String> findExistingEmails(@Param("applicationId") String applicationId, @Param("emails") Collection<String> emails);
 
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where a.pk.application.id = :applicationId " +
-            "and a.pk.application.owner.id = :tenantId " +
-            "and user.profile.gender = :gender")
-    Page<EndUser> findByProfileGender(
-            @Param("gender") Gender gender,
-            @Param("applicationId") String applicationId,
-            @Param("tenantId") String tenantId,
-            Pageable pageable);
+    @Query("select user.normalizedMobilePhoneNo from APP_USER user join user.applicationEndUsers a " +
+            "where (a.pk.application.id = :applicationId) and user.normalizedMobilePhoneNo in :mobilePhoneNos")
+    List<String> findExistingMobilePhoneNos(@Param("applicationId") String applicationId, @Param("mobilePhoneNos") Collection<String> mobilePhoneNos);
 
-    @Query("select user from APP_USER user join user.applicationEndUsers a " +
-            "where a.pk.application.owner.id = :tenantId " +
-            "and user.profile.gender = :gender")
-    Page<EndUser> findByProfileGender(
-            @Param("gender") Gender gender,
-            @Param("tenantId") String tenantId,
-            Pageable pageable);
+    @Query("select user from APP_USER user join user.applicationEndUsers a where (a.pk.application.id = :applicationId) and user.normalizedMobilePhoneNo = lower(trim(:mobilePhoneNo))")
+    EndUser findByApplicationAndMobileNo(@Param("applicationId") String applicationId, @Param("mobilePhoneNo") String mobilePhoneNo);
 
     @Modifying
     @Query("update APP_USER user set user.credential.password = ?1 where user.id = ?2")
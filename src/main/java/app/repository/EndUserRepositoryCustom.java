@@ -0,0 +1,60 @@
+package app.repository;
+
+import app.domain.CursorPage;
+import app.domain.EndUser;
+import app.domain.EndUserCursor;
+import app.domain.EndUserSearchCriteria;
+import app.domain.EndUserStatus;
+import app.domain.EndUserSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface EndUserRepositoryCustom {
+
+    /**
+     * End-users of the tenant matching every filter of the criteria, as list view rows.
+     */
+    Page<EndUserSummary> search(String tenantId, EndUserSearchCriteria criteria, Pageable pageable);
+
+    /**
+     * Same filters as {@link #search}, loading the entities for callers that return whole end-users.
+     */
+    Page<EndUser> searchEndUsers(String tenantId, EndUserSearchCriteria criteria, Pageable pageable);
+
+    /**
+     * {@link #search} restricted to the given end-user ids, e.g. candidates found by an in-memory index.
+     */
+    Page<EndUserSummary> search(String tenantId, EndUserSearchCriteria criteria, Collection<String> endUserIds, Pageable pageable);
+
+    Page<EndUser> searchEndUsers(String tenantId, EndUserSearchCriteria criteria, Collection<String> endUserIds, Pageable pageable);
+
+    /**
+     * Keyset page of the tenant's end-users (optionally of one application) ordered by {@code (createdAt, id)},
+     * starting after the cursor, or from the beginning for a {@code null} cursor. No count query is run.
+     */
+    CursorPage<EndUser> findAllOfTenantAfter(String tenantId, String applicationId, EndUserCursor cursor, int size);
+
+    CursorPage<EndUser> findApplicationEndUsersAfter(String applicationId, EndUserCursor cursor, int size);
+
+    /**
+     * Ids of the tenant's end-users matching the criteria (and among {@code endUserIds} unless it is {@code null}),
+     * in id order after {@code afterId}, so a large selection can be walked in chunks without loading entities.
+     */
+    List<String> findIdsAfter(String tenantId, EndUserSearchCriteria criteria, Collection<String> endUserIds, String afterId, int size);
+
+    /**
+     * {@code [applicationId, status, count]} of the given end-users whose status is not {@code status} yet.
+     */
+    List<Object[]> countStatusChanges(Collection<String> endUserIds, EndUserStatus status);
+
+    /**
+     * Moves the given end-users that are not in {@code status} yet to it with one update statement. Entity
+     * listeners do not run for bulk updates, so the last-modified columns are set here.
+     *
+     * @return the number of end-users changed
+     */
+    int updateStatus(Collection<String> endUserIds, EndUserStatus status, String modifiedBy);
+}
@@ -0,0 +1,269 @@
+package app.repository;
+
+import app.domain.CursorPage;
+import app.domain.EndUser;
+import app.domain.EndUserCursor;
+import app.domain.EndUserSearchCriteria;
+import app.domain.EndUserStatus;
+import app.domain.EndUserSummary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds one query from the filters that are actually set. The tenant (and application) restriction is an
+ * {@code exists} on {@code APP_END_USER}, so an end-user in several applications of the tenant is returned once.
+ */
+class EndUserRepositoryImpl implements EndUserRepositoryCustom {
+    private static final String SUMMARY_SELECT = "select new app.domain.EndUserSummary(user.id, user.credential.account, " +
+            "user.email, user.status, user.profile.firstName, user.profile.lastName, user.profile.nickName, " +
+            "user.profile.mobilePhoneNo, user.profile.gender, user.createdAt) ";
+    private static final char LIKE_ESCAPE = '!';
+    private static final Map<String, String> SORTABLE_PROPERTIES = new HashMap<>();
+
+    static {
+        SORTABLE_PROPERTIES.put("id", "user.id");
+        SORTABLE_PROPERTIES.put("account", "user.credential.account");
+        SORTABLE_PROPERTIES.put("email", "user.email");
+        SORTABLE_PROPERTIES.put("status", "user.status");
+        SORTABLE_PROPERTIES.put("firstName", "user.profile.firstName");
+        SORTABLE_PROPERTIES.put("lastName", "user.profile.lastName");
+        SORTABLE_PROPERTIES.put("nickName", "user.profile.nickName");
+        SORTABLE_PROPERTIES.put("createdAt", "user.createdAt");
+    }
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<EndUserSummary> search(String tenantId, EndUserSearchCriteria criteria, Pageable pageable) {
+        return search(tenantId, criteria, null, pageable);
+    }
+
+    @Override
+    public Page<EndUser> searchEndUsers(String tenantId, EndUserSearchCriteria criteria, Pageable pageable) {
+        return searchEndUsers(tenantId, criteria, null, pageable);
+    }
+
+    @Override
+    public Page<EndUserSummary> search(String tenantId, EndUserSearchCriteria criteria, Collection<String> endUserIds, Pageable pageable) {
+        return find(SUMMARY_SELECT, EndUserSummary.class, tenantId, criteria, endUserIds, pageable);
+    }
+
+    @Override
+    public Page<EndUser> searchEndUsers(String tenantId, EndUserSearchCriteria criteria, Collection<String> endUserIds, Pageable pageable) {
+        return find("select user ", EndUser.class, tenantId, criteria, endUserIds, pageable);
+    }
+
+    @Override
+    public CursorPage<EndUser> findAllOfTenantAfter(String tenantId, String applicationId, EndUserCursor cursor, int size) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        StringBuilder where = new StringBuilder("where exists (select a.pk.endUser.id from ApplicationEndUser a " +
+                "where a.pk.endUser = user and a.pk.application.owner.id = :tenantId");
+        parameters.put("tenantId", tenantId);
+        if (hasText(applicationId)) {
+            where.append(" and a.pk.application.id = :applicationId");
+            parameters.put("applicationId", applicationId);
+        }
+        where.append(")");
+        return findAfter(where, parameters, cursor, size);
+    }
+
+    @Override
+    public CursorPage<EndUser> findApplicationEndUsersAfter(String applicationId, EndUserCursor cursor, int size) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        StringBuilder where = new StringBuilder("where exists (select a.pk.endUser.id from ApplicationEndUser a " +
+                "where a.pk.endUser = user and a.pk.application.id = :applicationId)");
+        parameters.put("applicationId", applicationId);
+        return findAfter(where, parameters, cursor, size);
+    }
+
+    @Override
+    public List<String> findIdsAfter(String tenantId, EndUserSearchCriteria criteria, Collection<String> endUserIds, String afterId, int size) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        String where = where(tenantId, criteria, endUserIds, parameters);
+        if (afterId != null) {
+            where += " and user.id > :afterId";
+            parameters.put("afterId", afterId);
+        }
+        TypedQuery<String> query = entityManager.createQuery("select user.id from APP_USER user " + where +
+                " order by user.id asc", String.class);
+        parameters.forEach(query::setParameter);
+        query.setMaxResults(size);
+        return query.getResultList();
+    }
+
+    @Override
+    public List<Object[]> countStatusChanges(Collection<String> endUserIds, EndUserStatus status) {
+        return entityManager.createQuery("select a.pk.application.id, user.status, count(user) " +
+                "from ApplicationEndUser a join a.pk.endUser user " +
+                "where user.id in :endUserIds and (user.status is null or user.status <> :status) " +
+                "group by a.pk.application.id, user.status", Object[].class)
+                .setParameter("endUserIds", endUserIds)
+                .setParameter("status", status)
+                .getResultList();
+    }
+
+    @Override
+    public int updateStatus(Collection<String> endUserIds, EndUserStatus status, String modifiedBy) {
+        return entityManager.createQuery("update APP_USER user set user.status = :status, " +
+                "user.lastModifiedAt = :modifiedAt, user.lastModifiedBy = :modifiedBy " +
+                "where user.id in :endUserIds and (user.status is null or user.status <> :status)")
+                .setParameter("status", status)
+                .setParameter("modifiedAt", LocalDateTime.now())
+                .setParameter("modifiedBy", modifiedBy)
+                .setParameter("endUserIds", endUserIds)
+                .executeUpdate();
+    }
+
+    // seeks on the (CREATED_DATE, END_USER_ID) index instead of skipping offset rows; one extra row tells whether
+    // there is a next page. A null createdAt sorts first, matching MySQL and H2.
+    private CursorPage<EndUser> findAfter(StringBuilder where, Map<String, Object> parameters, EndUserCursor cursor, int size) {
+        if (cursor != null && cursor.getCreatedAt() != null) {
+            where.append(" and (user.createdAt > :createdAt or (user.createdAt = :createdAt and user.id > :id))");
+            parameters.put("createdAt", cursor.getCreatedAt());
+            parameters.put("id", cursor.getId());
+        } else if (cursor != null) {
+            where.append(" and (user.createdAt is not null or user.id > :id)");
+            parameters.put("id", cursor.getId());
+        }
+
+        TypedQuery<EndUser> query = entityManager.createQuery("select user from APP_USER user " + where +
+                " order by user.createdAt asc, user.id asc", EndUser.class);
+        parameters.forEach(query::setParameter);
+        query.setMaxResults(size + 1);
+        List<EndUser> content = new ArrayList<>(query.getResultList());
+
+        if (content.size() <= size) {
+            return new CursorPage<>(content, null);
+        }
+        content.remove(size);
+        return new CursorPage<>(content, EndUserCursor.after(content.get(size - 1)).encode());
+    }
+
+    private <T> Page<T> find(String select, Class<T> resultClass, String tenantId, EndUserSearchCriteria criteria,
+                             Collection<String> endUserIds, Pageable pageable) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        String where = where(tenantId, criteria, endUserIds, parameters);
+
+        TypedQuery<T> query = entityManager.createQuery(select + "from APP_USER user " + where + orderBy(pageable.getSort()), resultClass);
+        parameters.forEach(query::setParameter);
+        query.setFirstResult(pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize());
+        List<T> content = query.getResultList();
+
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            TypedQuery<Long> countQuery = entityManager.createQuery("select count(user) from APP_USER user " + where, Long.class);
+            parameters.forEach(countQuery::setParameter);
+            return countQuery.getSingleResult();
+        });
+    }
+
+    private String where(String tenantId, EndUserSearchCriteria criteria, Collection<String> endUserIds, Map<String, Object> parameters) {
+        StringBuilder where = new StringBuilder("where exists (select a.pk.endUser.id from ApplicationEndUser a " +
+                "where a.pk.endUser = user and a.pk.application.owner.id = :tenantId");
+        parameters.put("tenantId", tenantId);
+        if (hasText(criteria.getApplicationId())) {
+            where.append(" and a.pk.application.id = :applicationId");
+            parameters.put("applicationId", criteria.getApplicationId());
+        }
+        where.append(")");
+
+        if (endUserIds != null) {
+            where.append(" and user.id in :endUserIds");
+            parameters.put("endUserIds", endUserIds);
+        }
+
+        text(where, parameters, "user.normalizedEmail", "email", EndUser.normalize(criteria.getEmail()), criteria.isExactMatch());
+        text(where, parameters, "user.normalizedMobilePhoneNo", "mobilePhoneNo", EndUser.normalize(criteria.getMobileNo()), criteria.isExactMatch());
+        text(where, parameters, "user.profile.firstName", "firstName", criteria.getFirstName(), criteria.isExactMatch());
+        text(where, parameters, "user.profile.lastName", "lastName", criteria.getLastName(), criteria.isExactMatch());
+        text(where, parameters, "user.profile.middleName", "middleName", criteria.getMiddleName(), criteria.isExactMatch());
+        text(where, parameters, "user.profile.nickName", "nickName", criteria.getNickname(), criteria.isExactMatch());
+        if (criteria.getGender() != null) {
+            where.append(" and user.profile.gender = :gender");
+            parameters.put("gender", criteria.getGender());
+        }
+        if (criteria.getStatus() != null) {
+            where.append(" and user.status = :status");
+            parameters.put("status", criteria.getStatus());
+        }
+        if (criteria.getCreatedFrom() != null) {
+            where.append(" and user.createdAt >= :createdFrom");
+            parameters.put("createdFrom", criteria.getCreatedFrom());
+        }
+        if (criteria.getCreatedTo() != null) {
+            where.append(" and user.createdAt < :createdTo");
+            parameters.put("createdTo", criteria.getCreatedTo());
+        }
+        return where.toString();
+    }
+
+    private void text(StringBuilder where, Map<String, Object> parameters, String path, String parameter, String value,
+                      boolean exactMatch) {
+        if (exactMatch && value != null) {
+            // "= null" is never true, so a blank filter matches nothing
+            where.append(" and ").append(path).append(" = :").append(parameter);
+            parameters.put(parameter, hasText(value) ? value : null);
+            return;
+        }
+        if (!hasText(value)) {
+            return;
+        }
+        boolean leading = value.startsWith(EndUserSearchCriteria.WILDCARD);
+        boolean trailing = value.length() > 1 && value.endsWith(EndUserSearchCriteria.WILDCARD);
+        String term = value.substring(leading ? 1 : 0, trailing ? value.length() - 1 : value.length());
+        if (term.isEmpty()) {
+            return;
+        }
+        if (!leading && !trailing) {
+            where.append(" and ").append(path).append(" = :").append(parameter);
+            parameters.put(parameter, term);
+            return;
+        }
+        where.append(" and ").append(path).append(" like :").append(parameter).append(" escape '").append(LIKE_ESCAPE).append("'");
+        parameters.put(parameter, (leading ? "%" : "") + escapeLike(term) + (trailing ? "%" : ""));
+    }
+
+    // unknown properties are ignored rather than concatenated into the query; the id keeps pages stable
+    private String orderBy(Sort sort) {
+        List<String> orders = new ArrayList<>();
+        if (sort != null) {
+            for (Sort.Order order : sort) {
+                String path = SORTABLE_PROPERTIES.get(order.getProperty());
+                if (path != null) {
+                    orders.add(path + (order.isAscending() ? " asc" : " desc"));
+                }
+            }
+        }
+        orders.add("user.id asc");
+        return " order by " + String.join(", ", orders);
+    }
+
+    private static String escapeLike(String term) {
+        StringBuilder escaped = new StringBuilder(term.length());
+        for (char c : term.toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.trim().isEmpty();
+    }
+}
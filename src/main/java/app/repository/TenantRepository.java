@@ -7,11 +7,18 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+
 @Repository
 public interface TenantRepository extends JpaRepository<Tenant, String> {
+    /**
+     * Query cache region of the lookups by login account and API key, which run on nearly every request.
+     */
+    String TENANT_LOOKUP_REGION = "tenant-lookup";
 
     Page<Tenant> findAll(Pageable pageable);
 
@@ -22,11 +29,15 @@ public interface TenantRepository extends JpaRepository<Tenant, String> {
     @Query("select t from Tenant t where t.email like %:email%")
     Page<Tenant> findByEmailLike(@Param("email") String email, Pageable pageable);
 
+    @QueryHints({@QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = TENANT_LOOKUP_REGION)})
     Tenant findByLoginCredentialAccount(String account);
 
     @Query("select t from Tenant t where t.loginCredential.account like %:account%")
     Page<Tenant> findByLoginCredentialAccountLike(@Param("account") String account, Pageable pageable);
 
+    @QueryHints({@QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = TENANT_LOOKUP_REGION)})
     Tenant findByApiKeyInformationApiKey(String apiKey);
 
     @Query("select apps from TENANT_APPLICATION apps where apps.owner.id = :id")
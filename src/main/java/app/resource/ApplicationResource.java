@@ -1,6 +1,7 @@
 package app.resource;
 
 import app.domain.Application;
+import app.domain.ApplicationView;
 import app.error.RecordNotFoundException;
 import app.repository.ApplicationRepository;
 import app.service.ApplicationService;
@@ -11,6 +12,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
@@ -38,50 +40,55 @@ public class ApplicationResource {
     @Deprecated
     @RequestMapping(method = RequestMethod.GET)
     @PreAuthorize("#oauth2.clientHasAnyRole('ADMIN','AP_MANAGER')")
-    public ResponseEntity<Page<Application>> findAll(
+    @Transactional(readOnly = true)
+    public ResponseEntity<Page<ApplicationView>> findAll(
             @RequestParam("managerId") String managerId,
             Pageable pageable) {
         Page<Application> applications = applicationRepository.findByManagerId(managerId, pageable);
-        return ResponseEntity.ok(applications);
+        return ResponseEntity.ok(applications.map(ApplicationView::of));
     }
 
     @RequestMapping(value = "/own", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.clientHasAnyRole('ADMIN','AP_MANAGER')")
-    public ResponseEntity<Page<Application>> findAllOfTenant(
+    @Transactional(readOnly = true)
+    public ResponseEntity<Page<ApplicationView>> findAllOfTenant(
             Principal principal,
             Pageable pageable) {
         String tenantAccount = PrincipalUtil.getUserNameFrom(principal);
         Page<Application> applications = applicationService.findAllOf(tenantAccount, pageable);
-        return ResponseEntity.ok(applications);
+        return ResponseEntity.ok(applications.map(ApplicationView::of));
     }
 
     @Deprecated
     @RequestMapping(value = "/{id}", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.clientHasAnyRole('ADMIN', 'AP_MANAGER')")
-    public ResponseEntity<Application> findById(
+    @Transactional(readOnly = true)
+    public ResponseEntity<ApplicationView> findById(
             @PathVariable("id") String id,
             @RequestParam("managerId") String managerId
     ) {
         Application application = applicationRepository.findByIdAndManagerId(id, managerId);
         Optional.ofNullable(application).<RecordNotFoundException>orElseThrow(() -> new RecordNotFoundException());
-        return ResponseEntity.ok(application);
+        return ResponseEntity.ok(ApplicationView.of(application));
     }
 
     @RequestMapping(value = "/own/{id}", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.clientHasAnyRole('ADMIN', 'AP_MANAGER')")
-    public ResponseEntity<Application> findOwnApplicationById(
+    @Transactional(readOnly = true)
+    public ResponseEntity<ApplicationView> findOwnApplicationById(
             @PathVariable("id") String id,
             Principal principal
     ) {
         String tenantAccount = PrincipalUtil.getUserNameFrom(principal);
         Application application = applicationService.findOneOf(tenantAccount, id);
         Optional.ofNullable(application).<RecordNotFoundException>orElseThrow(() -> new RecordNotFoundException());
-        return ResponseEntity.ok(application);
+        return ResponseEntity.ok(ApplicationView.of(application));
     }
 
     @Deprecated
     @RequestMapping(method = RequestMethod.POST)
     @PreAuthorize("#oauth2.clientHasAnyRole('ADMIN', 'AP_MANAGER')")
+    @Transactional
     public ResponseEntity<?> createApplication(
             @RequestParam("managerId") String managerId,
             @RequestBody Application application,
@@ -90,11 +97,12 @@ public class ApplicationResource {
         String tenantAccount = PrincipalUtil.getUserNameFrom(principal);
         Application createdApp = applicationService.createApplication(managerId, tenantAccount, application);
         URI createdAppUri = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(createdApp.getId()).toUri();
-        return ResponseEntity.created(createdAppUri).body(createdApp);
+        return ResponseEntity.created(createdAppUri).body(ApplicationView.of(createdApp));
     }
 
     @RequestMapping(value = "/own",method = RequestMethod.POST)
     @PreAuthorize("#oauth2.clientHasAnyRole('ADMIN', 'AP_MANAGER')")
+    @Transactional
     public ResponseEntity<?> createOwnApplication(
             @RequestBody Application application,
             Principal principal
@@ -102,12 +110,13 @@ public class ApplicationResource {
         String tenantAccount = PrincipalUtil.getUserNameFrom(principal);
         Application createdApp = applicationService.createApplication(tenantAccount, application);
         URI createdAppUri = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(createdApp.getId()).toUri();
-        return ResponseEntity.created(createdAppUri).body(createdApp);
+        return ResponseEntity.created(createdAppUri).body(ApplicationView.of(createdApp));
     }
 
     @Deprecated
     @RequestMapping(value = "{id}", method = RequestMethod.PUT)
     @PreAuthorize("#oauth2.clientHasAnyRole('ADMIN', 'AP_MANAGER')")
+    @Transactional
     public ResponseEntity<?> updateApplication(
             @RequestParam("managerId") String managerId,
             @PathVariable("id") String applicationId,
@@ -116,11 +125,12 @@ public class ApplicationResource {
         Application existingApp = applicationRepository.findByIdAndManagerId(applicationId, managerId);
         Optional.ofNullable(existingApp).<RecordNotFoundException>orElseThrow(() -> new RecordNotFoundException());
         Application createdApp = applicationRepository.save(application);
-        return ResponseEntity.ok(createdApp);
+        return ResponseEntity.ok(ApplicationView.of(createdApp));
     }
 
     @RequestMapping(value = "/own/{id}", method = RequestMethod.PUT)
     @PreAuthorize("#oauth2.clientHasAnyRole('ADMIN', 'AP_MANAGER')")
+    @Transactional
     public ResponseEntity<?> updateOwnApplication(
             @PathVariable("id") String applicationId,
             @RequestBody Application application,
@@ -128,7 +138,7 @@ public class ApplicationResource {
     ) {
         String tenantAccount = PrincipalUtil.getUserNameFrom(principal);
         Application updatedApp = applicationService.updateApplicationOf(tenantAccount, applicationId, application);
-        return ResponseEntity.ok(updatedApp);
+        return ResponseEntity.ok(ApplicationView.of(updatedApp));
     }
 
     @Deprecated
@@ -159,7 +169,8 @@ public class ApplicationResource {
 
     @RequestMapping(value = "/search/by-name-like", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.clientHasAnyRole('ADMIN', 'AP_MANAGER')")
-    public ResponseEntity<Page<Application>> findByNameLikeAndOwnerAccount(
+    @Transactional(readOnly = true)
+    public ResponseEntity<Page<ApplicationView>> findByNameLikeAndOwnerAccount(
             @RequestParam("name") String applicationName,
             Pageable pageable,
             Principal principal
@@ -167,31 +178,33 @@ public class ApplicationResource {
         String tenantAccount = PrincipalUtil.getUserNameFrom(principal);
 
         Page<Application> applications = applicationRepository.findByNameLikeAndOwnerAccount(applicationName, tenantAccount, pageable);
-        return ResponseEntity.ok(applications);
+        return ResponseEntity.ok(applications.map(ApplicationView::of));
     }
 
     @RequestMapping(value = "/search/by-status", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.clientHasAnyRole('ADMIN', 'AP_MANAGER')")
-    public ResponseEntity<Page<Application>> findByStatusAndOwnerAccount(
+    @Transactional(readOnly = true)
+    public ResponseEntity<Page<ApplicationView>> findByStatusAndOwnerAccount(
             @RequestParam("status")Application.ApplicationStatus status,
             Pageable pageable,
             Principal principal
     ) {
         String tenantAccount = PrincipalUtil.getUserNameFrom(principal);
         Page<Application> applications = applicationRepository.findByStatusAndOwnerAccount(status, tenantAccount, pageable);
-        return ResponseEntity.ok(applications);
+        return ResponseEntity.ok(applications.map(ApplicationView::of));
     }
 
     @RequestMapping(value = "/search/by-disabled-new-user", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.clientHasAnyRole('ADMIN', 'AP_MANAGER')")
-    public ResponseEntity<Page<Application>> findByIsDisabledNewUserAndOwnerAccount(
+    @Transactional(readOnly = true)
+    public ResponseEntity<Page<ApplicationView>> findByIsDisabledNewUserAndOwnerAccount(
             @RequestParam("disabledNewUser") Boolean isDisabledNewUser,
             Pageable pageable,
             Principal principal
     ) {
         String tenantAccount = PrincipalUtil.getUserNameFrom(principal);
         Page<Application> applications = applicationRepository.findByIsDisabledNewUserAndOwnerAccount(isDisabledNewUser, tenantAccount, pageable);
-        return ResponseEntity.ok(applications);
+        return ResponseEntity.ok(applications.map(ApplicationView::of));
     }
 
     @RequestMapping(value = "/search", method = RequestMethod.GET)
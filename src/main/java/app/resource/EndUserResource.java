@@ -1,6 +1,12 @@
 package app.resource;
 
+import app.domain.CursorPage;
 import app.domain.EndUser;
+import app.domain.EndUserCursor;
+import app.domain.EndUserSearchCriteria;
+import app.domain.EndUserStatus;
+import app.domain.EndUserStatusChangeJob;
+import app.domain.EndUserView;
 import app.domain.Gender;
 import app.domain.PasswordUpdateRequest;
 import app.domain.Tenant;
@@ -9,22 +15,40 @@ import app.error.InvalidTenantAccountException;
 import app.error.RecordNotFoundException;
 import app.repository.EndUserRepository;
 import app.repository.TenantRepository;
+import app.domain.EndUserImportResult;
+import app.service.EndUserExportService;
+import app.service.EndUserImportService;
+import app.service.EndUserSearchService;
 import app.service.EndUserService;
+import app.service.EndUserStatusChangeService;
+import app.service.EndUserStatusCounts;
 import app.util.PrincipalUtil;
 import io.swagger.annotations.*;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Serializable;
 import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -39,6 +63,8 @@ import java.util.Optional;
 )
 public class EndUserResource {
     private static final String AP_MANAGER_AUTHORITY = "AP_MANAGER";
+    private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+    private static final String CSV_MEDIA_TYPE = "text/csv";
 
     private final EndUserRepository endUserRepository;
 
@@ -46,10 +72,28 @@ public class EndUserResource {
 
     private final EndUserService endUserService;
 
-    public EndUserResource(EndUserRepository endUserRepository, TenantRepository tenantRepository, EndUserService endUserService) {
+    private final EndUserSearchService endUserSearchService;
+
+    private final EndUserExportService endUserExportService;
+
+    private final EndUserStatusCounts endUserStatusCounts;
+
+    private final EndUserImportService endUserImportService;
+
+    private final EndUserStatusChangeService endUserStatusChangeService;
+
+    public EndUserResource(EndUserRepository endUserRepository, TenantRepository tenantRepository, EndUserService endUserService,
+                           EndUserSearchService endUserSearchService, EndUserExportService endUserExportService,
+                           EndUserStatusCounts endUserStatusCounts, EndUserImportService endUserImportService,
+                           EndUserStatusChangeService endUserStatusChangeService) {
         this.endUserRepository = endUserRepository;
         this.tenantRepository = tenantRepository;
         this.endUserService = endUserService;
+        this.endUserSearchService = endUserSearchService;
+        this.endUserExportService = endUserExportService;
+        this.endUserStatusCounts = endUserStatusCounts;
+        this.endUserImportService = endUserImportService;
+        this.endUserStatusChangeService = endUserStatusChangeService;
     }
 
     @ApiOperation(value = "Tenant별 모든 End-user 조회")
@@ -60,9 +104,47 @@ public class EndUserResource {
     })
     @RequestMapping(method = RequestMethod.GET)
     @PreAuthorize("#oauth2.hasScope('read') and #oauth2.clientHasAnyRole('AP_MANAGER', 'ADMIN')")
-    public ResponseEntity<Page<EndUser>> findAll(Principal principal, Pageable pageable) {
+    @Transactional(readOnly = true)
+    public ResponseEntity<Page<EndUserView>> findAll(Principal principal, Pageable pageable) {
         Tenant tenant = getTenant(principal);
-        return ResponseEntity.ok(endUserRepository.findAllOfTenant(tenant.getId(), pageable));
+        return ResponseEntity.ok(endUserRepository.findAllOfTenant(tenant.getId(), pageable).map(EndUserView::of));
+    }
+
+    @ApiOperation(value = "Tenant별 모든 End-user를 cursor로 조회 (생성 시각, ID 순서, 전체 개수 없음)")
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "cursor", value = "이전 응답의 nextCursor, 첫 page는 빈 값", dataType = "String", required = true),
+            @ApiImplicitParam(name = "size", value = "page 게시물 개수", example = "10", dataType = "Integer", defaultValue = "20"),
+            @ApiImplicitParam(name = "applicationId", value = "Application ID", dataType = "String")
+    })
+    @RequestMapping(method = RequestMethod.GET, params = "cursor")
+    @PreAuthorize("#oauth2.hasScope('read') and #oauth2.clientHasAnyRole('AP_MANAGER', 'ADMIN')")
+    @Transactional(readOnly = true)
+    public ResponseEntity<CursorPage<EndUserView>> findAllByCursor(
+            Principal principal,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String applicationId) {
+        Tenant tenant = getTenant(principal);
+        return ResponseEntity.ok(endUserRepository.findAllOfTenantAfter(
+                tenant.getId(), applicationId, EndUserCursor.decode(cursor), CursorPage.limitSize(size)).map(EndUserView::of));
+    }
+
+    @ApiOperation(value = "Tenant별 모든 End-user를 NDJSON(한 줄에 End-user 하나)으로 내보내기")
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "fields", value = "내보낼 field 목록, 없으면 전체", example = "id,email,status", dataType = "String"),
+            @ApiImplicitParam(name = "modifiedSince", value = "이 시각 이후 수정된 End-user만", example = "2017-01-01T00:00:00", dataType = "String")
+    })
+    @RequestMapping(value = "/export", method = RequestMethod.GET)
+    @PreAuthorize("#oauth2.hasScope('read') and #oauth2.clientHasAnyRole('AP_MANAGER', 'ADMIN')")
+    public ResponseEntity<StreamingResponseBody> export(
+            Principal principal,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime modifiedSince) {
+        String tenantId = getTenant(principal).getId();
+        List<String> exportedFields = endUserExportService.resolveFields(fields);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NDJSON_MEDIA_TYPE))
+                .body(out -> endUserExportService.export(tenantId, exportedFields, modifiedSince, out));
     }
 
     @ApiOperation(value = "Tenant별 모든 End-user를 Status별 개수 조희")
@@ -70,7 +152,8 @@ public class EndUserResource {
     @PreAuthorize("#oauth2.hasScope('read') and #oauth2.clientHasAnyRole('AP_MANAGER', 'ADMIN')")
     public ResponseEntity<List<Object[]>> findCountsEndUserByStatus(Principal principal) {
         Tenant tenant = getTenant(principal);
-        return ResponseEntity.ok(endUserRepository.findCountsEndUserByStatusForTenant(tenant.getId()));
+        List<Object[]> counts = endUserStatusCounts.countByStatus(tenant.getId());
+        return ResponseEntity.ok(counts != null ? counts : endUserRepository.findCountsEndUserByStatusForTenant(tenant.getId()));
     }
 
     @ApiOperation(value = "단일 End-user 조회")
@@ -79,33 +162,66 @@ public class EndUserResource {
     })
     @RequestMapping(value = "/{id}", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.hasScope('read') and #oauth2.clientHasAnyRole('USER','AP_MANAGER','ADMIN')")
-    public ResponseEntity<EndUser> findById(@PathVariable String id) {
+    @Transactional(readOnly = true)
+    public ResponseEntity<EndUserView> findById(@PathVariable String id) {
         EndUser endUser = endUserRepository.findById(id);
-        return ResponseEntity.ok(Optional.ofNullable(endUser).<RecordNotFoundException>orElseThrow(RecordNotFoundException::new));
+        return ResponseEntity.ok(EndUserView.of(Optional.ofNullable(endUser).<RecordNotFoundException>orElseThrow(RecordNotFoundException::new)));
     }
 
     @ApiOperation(value = "삭제 예정")
     @Deprecated
     @RequestMapping(value = "/by-tenant", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.hasScope('read') and #oauth2.clientHasAnyRole('AP_MANAGER', 'ADMIN')")
-    public ResponseEntity<Page<EndUser>> findEndUserByTenant(Pageable pageable, Principal principal) {
+    @Transactional(readOnly = true)
+    public ResponseEntity<Page<EndUserView>> findEndUserByTenant(Pageable pageable, Principal principal) {
         Tenant tenant = getTenant(principal);
         Optional.ofNullable(tenant).<RecordNotFoundException>orElseThrow(() -> new RecordNotFoundException("Invalid Tenant"));
         String tenantId = tenant.getId();
-        return ResponseEntity.ok(endUserRepository.findAllEndUsersForTenant(tenantId, pageable));
+        return ResponseEntity.ok(endUserRepository.findAllEndUsersForTenant(tenantId, pageable).map(EndUserView::of));
     }
 
 
     @RequestMapping(method = RequestMethod.POST)
     @PreAuthorize("#oauth2.hasScope('write') and #oauth2.clientHasAnyRole('AP_MANAGER','ADMIN')")
+    @Transactional
     public ResponseEntity<?> createEndUser(@RequestParam String applicationId, @RequestBody EndUser endUser) {
         EndUser createdEndUser = endUserService.createEndUser(applicationId, endUser);
         URI createdUserUri = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(createdEndUser.getId()).toUri();
-        return ResponseEntity.created(createdUserUri).body(createdEndUser);
+        return ResponseEntity.created(createdUserUri).body(EndUserView.of(createdEndUser));
+    }
+
+    @ApiOperation(value = "JSON 배열 혹은 NDJSON으로 End-user 일괄 등록")
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "applicationId", value = "Application ID", dataType = "String", paramType = "query"),
+            @ApiImplicitParam(name = "preHashed", value = "password가 이미 hash된 값인지 여부", defaultValue = "false", dataType = "Boolean", paramType = "query")
+    })
+    @RequestMapping(value = "/import", method = RequestMethod.POST, consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON_MEDIA_TYPE})
+    @PreAuthorize("#oauth2.hasScope('write') and #oauth2.clientHasAnyRole('AP_MANAGER','ADMIN')")
+    public ResponseEntity<EndUserImportResult> importEndUsers(
+            @RequestParam String applicationId,
+            @RequestParam(defaultValue = "false") boolean preHashed,
+            InputStream body) throws IOException {
+        return ResponseEntity.ok(endUserImportService.importJson(applicationId, body, preHashed));
+    }
+
+    @ApiOperation(value = "CSV(첫 줄은 column 이름)로 End-user 일괄 등록")
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "applicationId", value = "Application ID", dataType = "String", paramType = "query"),
+            @ApiImplicitParam(name = "preHashed", value = "password가 이미 hash된 값인지 여부", defaultValue = "false", dataType = "Boolean", paramType = "query")
+    })
+    @RequestMapping(value = "/import", method = RequestMethod.POST, consumes = CSV_MEDIA_TYPE)
+    @PreAuthorize("#oauth2.hasScope('write') and #oauth2.clientHasAnyRole('AP_MANAGER','ADMIN')")
+    public ResponseEntity<EndUserImportResult> importEndUsersFromCsv(
+            @RequestParam String applicationId,
+            @RequestParam(defaultValue = "false") boolean preHashed,
+            HttpServletRequest request) throws IOException {
+        Charset charset = request.getCharacterEncoding() == null ? StandardCharsets.UTF_8 : Charset.forName(request.getCharacterEncoding());
+        return ResponseEntity.ok(endUserImportService.importCsv(applicationId, new InputStreamReader(request.getInputStream(), charset), preHashed));
     }
 
     @RequestMapping(value = "/{id}", method = RequestMethod.PUT)
     @PreAuthorize("#oauth2.hasScope('write') and #oauth2.clientHasAnyRole('USER','AP_MANAGER','ADMIN')")
+    @Transactional
     public ResponseEntity<?> updateEndUser(
             @PathVariable String id,
             @RequestParam(value = "applicationId", required = false) String applicationId,
@@ -114,7 +230,7 @@ public class EndUserResource {
 
         if (isAllowedEdit(principal, id)) {
             EndUser updatedEndUser = endUserService.updateEndUser(id, endUser);
-            return ResponseEntity.ok(updatedEndUser);
+            return ResponseEntity.ok(EndUserView.of(updatedEndUser));
         } else {
             return ResponseEntity.badRequest().body(new ErrorResponse(
                     "Not Allowed user update",
@@ -135,6 +251,7 @@ public class EndUserResource {
 
     @RequestMapping(value = "/{id}/password", method = RequestMethod.PUT)
     @PreAuthorize("#oauth2.hasScope('write') and #oauth2.clientHasAnyRole('USER','AP_MANAGER','ADMIN')")
+    @Transactional
     public ResponseEntity<?> updateEndUserPassword(
             @PathVariable String id,
             @RequestParam("applicationId") String applicationId,
@@ -146,7 +263,7 @@ public class EndUserResource {
         EndUser endUser = endUserRepository.findByApplicationAndCredentialAccount(applicationId, userName);
         if (endUser != null && id.equals(endUser.getId())) {
             EndUser updatedEndUser = endUserService.updatePassword(id, passwordUpdateRequest);
-            return ResponseEntity.ok(updatedEndUser);
+            return ResponseEntity.ok(EndUserView.of(updatedEndUser));
         }
         return ResponseEntity.badRequest().body(new ErrorResponse(
                 "Not Allowed Password update",
@@ -158,6 +275,7 @@ public class EndUserResource {
 
     @RequestMapping(value = "/{id}/profile", method = RequestMethod.PUT)
     @PreAuthorize("#oauth2.hasScope('write') and #oauth2.clientHasAnyRole('USER','AP_MANAGER','ADMIN')")
+    @Transactional
     public ResponseEntity<?> updateEndUserProfile(
             @PathVariable String id,
             @RequestParam(value = "applicationId", required = false) String applicationId,
@@ -165,7 +283,7 @@ public class EndUserResource {
             Principal principal) {
         if (isAllowedEdit(principal, id)) {
             EndUser profileUpdatedEndUser = endUserService.updateEndUserProfile(id, endUser);
-            return ResponseEntity.ok(profileUpdatedEndUser);
+            return ResponseEntity.ok(EndUserView.of(profileUpdatedEndUser));
         } else {
             return ResponseEntity.badRequest().body(new ErrorResponse(
                     "Not Allowed user update",
@@ -185,36 +303,69 @@ public class EndUserResource {
 
     @RequestMapping(value = "/{id}/un-registration", method = RequestMethod.PUT)
     @PreAuthorize("#oauth2.clientHasAnyRole('AP_MANAGER','ADMIN')")
+    @Transactional
     public ResponseEntity<?> unregisterEndUser(
             @RequestParam("applicationId") String applicationId,
             @PathVariable String id) {
         EndUser unregisteredEndUser = endUserService.unregisterEndUser(applicationId, id);
-        return ResponseEntity.ok(unregisteredEndUser);
+        return ResponseEntity.ok(EndUserView.of(unregisteredEndUser));
     }
 
     @RequestMapping(value = "/register", method = RequestMethod.POST)
+    @Transactional
     public ResponseEntity<?> register(@RequestParam String applicationId, @RequestBody EndUser endUser) {
         EndUser registeredEndUser = endUserService.register(applicationId, endUser);
         URI createdUserUri = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(registeredEndUser.getId()).toUri();
-        return ResponseEntity.created(createdUserUri).body(registeredEndUser);
+        return ResponseEntity.created(createdUserUri).body(EndUserView.of(registeredEndUser));
     }
 
     @RequestMapping(value = "/{id}/activation", method = RequestMethod.PUT)
+    @Transactional
     public ResponseEntity<?> activate(@RequestParam String applicationId, @PathVariable("id") String id) {
         EndUser activatedEndUser = endUserService.activate(applicationId, id);
-        return ResponseEntity.ok(activatedEndUser);
+        return ResponseEntity.ok(EndUserView.of(activatedEndUser));
     }
 
     @RequestMapping(value = "/{id}/termination", method = RequestMethod.PUT)
+    @Transactional
     public ResponseEntity<?> terminate(@RequestParam String applicationId, @PathVariable("id") String id) {
         EndUser terminatedEndUser = endUserService.terminate(applicationId, id);
-        return ResponseEntity.ok(terminatedEndUser);
+        return ResponseEntity.ok(EndUserView.of(terminatedEndUser));
     }
 
     @RequestMapping(value = "/{id}/suspend", method = RequestMethod.PUT)
+    @Transactional
     public ResponseEntity<?> suspend(@RequestParam String applicationId, @PathVariable("id") String id) {
         EndUser suspendedEndUser = endUserService.suspend(applicationId, id);
-        return ResponseEntity.ok(suspendedEndUser);
+        return ResponseEntity.ok(EndUserView.of(suspendedEndUser));
+    }
+
+    @ApiOperation(value = "여러 End-user의 상태를 한 번에 변경(id 목록 혹은 검색 조건으로 선택), 진행 상황은 반환된 job으로 조회")
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "to", value = "변경할 상태(ACTIVE, SUSPENDED, TERMINATED)", dataType = "String", paramType = "query"),
+            @ApiImplicitParam(name = "applicationId", value = "Application ID", dataType = "String", paramType = "query", required = false),
+            @ApiImplicitParam(name = "status", value = "현재 상태", dataType = "String", paramType = "query", required = false),
+            @ApiImplicitParam(name = "createdFrom", value = "생성 일시 시작(포함)", example = "2017-01-01T00:00:00", dataType = "String", paramType = "query", required = false),
+            @ApiImplicitParam(name = "createdTo", value = "생성 일시 끝(미포함)", example = "2018-01-01T00:00:00", dataType = "String", paramType = "query", required = false)
+    })
+    @RequestMapping(value = "/status-changes", method = RequestMethod.POST)
+    @PreAuthorize("#oauth2.hasScope('write') and #oauth2.clientHasAnyRole('AP_MANAGER','ADMIN')")
+    public ResponseEntity<EndUserStatusChangeJob> changeStatuses(
+            @RequestParam("to") EndUserStatus status,
+            EndUserSearchCriteria criteria,
+            @RequestBody(required = false) List<String> endUserIds,
+            Principal principal) {
+        EndUserStatusChangeJob job = endUserStatusChangeService.submit(
+                getTenant(principal).getId(), status, criteria, endUserIds, PrincipalUtil.getUserNameFrom(principal));
+        URI jobUri = ServletUriComponentsBuilder.fromCurrentRequest().replaceQuery(null).path("/{id}").buildAndExpand(job.getId()).toUri();
+        return ResponseEntity.accepted().location(jobUri).body(job);
+    }
+
+    @ApiOperation(value = "End-user 상태 일괄 변경의 진행 상황 조회")
+    @RequestMapping(value = "/status-changes/{jobId}", method = RequestMethod.GET)
+    @PreAuthorize("#oauth2.hasScope('read') and #oauth2.clientHasAnyRole('AP_MANAGER','ADMIN')")
+    public ResponseEntity<EndUserStatusChangeJob> findStatusChange(@PathVariable String jobId, Principal principal) {
+        return ResponseEntity.ok(endUserStatusChangeService.findJob(getTenant(principal).getId(), jobId));
     }
 
     @ApiOperation(value = "현재의 Tenant 및 특정 Application내의 End-user중 이름의 일부 혹은 전체가 일치하는 End-user 조회")
@@ -222,21 +373,18 @@ public class EndUserResource {
             @ApiImplicitParam(name = "applicationId", value = "Application ID", example = "ed203469-2d21-447e-994a-04821a05e5e4", dataType = "String", paramType = "query", required = false),
             @ApiImplicitParam(name = "firstName", value = "사용자 이름(성씨 제)", example = "길동", dataType = "String", paramType = "query")
     })
+    @Deprecated
     @RequestMapping(value = "/search/by-firstName-like", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.clientHasAnyRole('AP_MANAGER','ADMIN')")
-    public ResponseEntity<Page<EndUser>> findByFirstNameLike(
+    public ResponseEntity<Page<EndUserView>> findByFirstNameLike(
             @RequestParam(value = "applicationId", required = false) String applicationId,
             @RequestParam("firstName") String firstName,
             Principal principal,
             Pageable pageable) {
-        Tenant tenant = getTenant(principal);
-        Page<EndUser> endUsers;
-        if (applicationId != null && !applicationId.isEmpty()) {
-            endUsers = endUserRepository.findByProfileFirstNameLike(firstName, applicationId, tenant.getId(), pageable);
-        } else {
-            endUsers = endUserRepository.findByProfileFirstNameLike(firstName, tenant.getId(), pageable);
-        }
-        return ResponseEntity.ok(endUsers);
+        EndUserSearchCriteria criteria = new EndUserSearchCriteria();
+        criteria.setApplicationId(applicationId);
+        criteria.setFirstName(EndUserSearchCriteria.contains(firstName));
+        return ResponseEntity.ok(searchEndUsers(principal, criteria, pageable));
     }
 
     private Tenant getTenant(Principal principal) {
@@ -252,23 +400,18 @@ public class EndUserResource {
             @ApiImplicitParam(name = "applicationId", value = "Application ID", example = "ed203469-2d21-447e-994a-04821a05e5e4", dataType = "String", paramType = "query", required = false),
             @ApiImplicitParam(name = "firstName", value = "사용자 이름(성씨 제)", example = "길동", dataType = "String", paramType = "query")
     })
+    @Deprecated
     @RequestMapping(value = "/search/by-firstName", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.clientHasAnyRole('AP_MANAGER','ADMIN')")
-    public ResponseEntity<Page<EndUser>> findByFirstName(
+    public ResponseEntity<Page<EndUserView>> findByFirstName(
             @RequestParam(value = "applicationId", required = false) String applicationId,
             @RequestParam("firstName") String firstName,
             Principal principal,
             Pageable pageable) {
-        Tenant tenant = getTenant(principal);
-
-        Page<EndUser> endUsers;
-        if (applicationId != null && !applicationId.isEmpty()) {
-            endUsers = endUserRepository.findByProfileFirstName(firstName, applicationId, tenant.getId(), pageable);
-        } else {
-            endUsers = endUserRepository.findByProfileFirstName(firstName, tenant.getId(), pageable);
-        }
-
-        return ResponseEntity.ok(endUsers);
+        EndUserSearchCriteria criteria = EndUserSearchCriteria.exactMatch();
+        criteria.setApplicationId(applicationId);
+        criteria.setFirstName(firstName);
+        return ResponseEntity.ok(searchEndUsers(principal, criteria, pageable));
     }
 
     @ApiOperation(value = "현재의 Tenant 및 특정 Application내의 End-user중 성의 일부 혹은 전체가 일치하는 End-user를  조회")
@@ -276,21 +419,18 @@ public class EndUserResource {
             @ApiImplicitParam(name = "applicationId", value = "Application ID", example = "ed203469-2d21-447e-994a-04821a05e5e4", dataType = "String", paramType = "query", required = false),
             @ApiImplicitParam(name = "lastName", value = "사용자 성", example = "홍", dataType = "String", paramType = "query")
     })
+    @Deprecated
     @RequestMapping(value = "/search/by-lastName-like", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.clientHasAnyRole('AP_MANAGER','ADMIN')")
-    public ResponseEntity<Page<EndUser>> findByLastNameLike(
+    public ResponseEntity<Page<EndUserView>> findByLastNameLike(
             @RequestParam(value = "applicationId", required = false) String applicationId,
             @RequestParam("lastName") String lastName,
             Principal principal,
             Pageable pageable) {
-        Tenant tenant = getTenant(principal);
-        Page<EndUser> endUsers;
-        if (applicationId != null && !applicationId.isEmpty()) {
-            endUsers = endUserRepository.findByProfileLastNameLike(lastName, applicationId, tenant.getId(), pageable);
-        } else {
-            endUsers = endUserRepository.findByProfileLastNameLike(lastName, tenant.getId(), pageable);
-        }
-        return ResponseEntity.ok(endUsers);
+        EndUserSearchCriteria criteria = new EndUserSearchCriteria();
+        criteria.setApplicationId(applicationId);
+        criteria.setLastName(EndUserSearchCriteria.contains(lastName));
+        return ResponseEntity.ok(searchEndUsers(principal, criteria, pageable));
     }
 
     @ApiOperation(value = "현재의 Tenant 및 특정 Application내의 End-user중 성이 일치하는 End-user를  조회")
@@ -298,21 +438,18 @@ public class EndUserResource {
             @ApiImplicitParam(name = "applicationId", value = "Application ID", example = "ed203469-2d21-447e-994a-04821a05e5e4", dataType = "String", paramType = "query", required = false),
             @ApiImplicitParam(name = "lastName", value = "사용자 성", example = "홍", dataType = "String", paramType = "query")
     })
+    @Deprecated
     @RequestMapping(value = "/search/by-lastName", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.clientHasAnyRole('AP_MANAGER','ADMIN')")
-    public ResponseEntity<Page<EndUser>> findByLastName(
+    public ResponseEntity<Page<EndUserView>> findByLastName(
             @RequestParam(value = "applicationId", required = false) String applicationId,
             @RequestParam("lastName") String lastName,
             Principal principal,
             Pageable pageable) {
-        Tenant tenant = getTenant(principal);
-        Page<EndUser> endUsers;
-        if (applicationId != null && !applicationId.isEmpty()) {
-            endUsers = endUserRepository.findByProfileLastName(lastName, applicationId, tenant.getId(), pageable);
-        } else {
-            endUsers = endUserRepository.findByProfileLastName(lastName, tenant.getId(), pageable);
-        }
-        return ResponseEntity.ok(endUsers);
+        EndUserSearchCriteria criteria = EndUserSearchCriteria.exactMatch();
+        criteria.setApplicationId(applicationId);
+        criteria.setLastName(lastName);
+        return ResponseEntity.ok(searchEndUsers(principal, criteria, pageable));
     }
 
     @ApiOperation(value = "현재의 Tenant 및 특정 Application내의 End-user중 중간 이름의 일부 혹은 전체가 일치하는 End-user를  조회")
@@ -320,21 +457,18 @@ public class EndUserResource {
             @ApiImplicitParam(name = "applicationId", value = "Application ID", example = "ed203469-2d21-447e-994a-04821a05e5e4", dataType = "String", paramType = "query", required = false),
             @ApiImplicitParam(name = "middleName", value = "중간 이름", example = "", dataType = "String", paramType = "query")
     })
+    @Deprecated
     @RequestMapping(value = "/search/by-middleName-like", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.clientHasAnyRole('AP_MANAGER','ADMIN')")
-    public ResponseEntity<Page<EndUser>> findByMiddleNameLike(
+    public ResponseEntity<Page<EndUserView>> findByMiddleNameLike(
             @RequestParam(value = "applicationId", required = false) String applicationId,
             @RequestParam("middleName") String middleName,
             Principal principal,
             Pageable pageable) {
-        Tenant tenant = getTenant(principal);
-        Page<EndUser> endUsers;
-        if (applicationId != null && !applicationId.isEmpty()) {
-            endUsers = endUserRepository.findByProfileMiddleNameLike(middleName, applicationId, tenant.getId(), pageable);
-        } else {
-            endUsers = endUserRepository.findByProfileMiddleNameLike(middleName, tenant.getId(), pageable);
-        }
-        return ResponseEntity.ok(endUsers);
+        EndUserSearchCriteria criteria = new EndUserSearchCriteria();
+        criteria.setApplicationId(applicationId);
+        criteria.setMiddleName(EndUserSearchCriteria.contains(middleName));
+        return ResponseEntity.ok(searchEndUsers(principal, criteria, pageable));
     }
 
     @ApiOperation(value = "현재의 Tenant 및 특정 Application내의 End-user중 중간 이름이 일치하는 End-user를  조회")
@@ -342,66 +476,55 @@ public class EndUserResource {
             @ApiImplicitParam(name = "applicationId", value = "Application ID", example = "ed203469-2d21-447e-994a-04821a05e5e4", dataType = "String", paramType = "query", required = false),
             @ApiImplicitParam(name = "middleName", value = "중간 이름", example = "", dataType = "String", paramType = "query")
     })
+    @Deprecated
     @RequestMapping(value = "/search/by-middleName", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.clientHasAnyRole('AP_MANAGER','ADMIN')")
-    public ResponseEntity<Page<EndUser>> findByMiddleName(
+    public ResponseEntity<Page<EndUserView>> findByMiddleName(
             @RequestParam(value = "applicationId", required = false) String applicationId,
             @RequestParam("middleName") String middleName,
             Principal principal,
             Pageable pageable) {
-        Tenant tenant = getTenant(principal);
-        Page<EndUser> endUsers;
-        if (applicationId != null && !applicationId.isEmpty()) {
-            endUsers = endUserRepository.findByProfileMiddleName(middleName, applicationId, tenant.getId(), pageable);
-        } else {
-            endUsers = endUserRepository.findByProfileMiddleName(middleName, tenant.getId(), pageable);
-        }
-        return ResponseEntity.ok(endUsers);
+        EndUserSearchCriteria criteria = EndUserSearchCriteria.exactMatch();
+        criteria.setApplicationId(applicationId);
+        criteria.setMiddleName(middleName);
+        return ResponseEntity.ok(searchEndUsers(principal, criteria, pageable));
     }
 
-    // TODO: search end user within a current tenant
     @ApiOperation(value = "현재의 Tenant 및 특정 Application내의 End-user중 이메일의 일부 혹은 전체가 일치하는 End-user를  조회")
     @ApiImplicitParams({
             @ApiImplicitParam(name = "applicationId", value = "Application ID", example = "ed203469-2d21-447e-994a-04821a05e5e4", dataType = "String", paramType = "query", required = false),
             @ApiImplicitParam(name = "email", value = "이메일 주소", example = "", dataType = "String", paramType = "query")
     })
+    @Deprecated
     @RequestMapping(value = "/search/by-email-like", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.clientHasAnyRole('AP_MANAGER','ADMIN')")
-    public ResponseEntity<Page<EndUser>> findByEmailLike(
+    public ResponseEntity<Page<EndUserView>> findByEmailLike(
             @RequestParam(value = "applicationId", required = false) String applicationId,
             @RequestParam("email") String email,
             Principal principal,
             Pageable pageable) {
-        Tenant tenant = getTenant(principal);
-        Page<EndUser> endUsers;
-        if (applicationId != null && !applicationId.isEmpty()) {
-            endUsers = endUserRepository.findByEmailLike(email, applicationId, tenant.getId(), pageable);
-        } else {
-            endUsers = endUserRepository.findByEmailLike(email, tenant.getId(), pageable);
-        }
-        return ResponseEntity.ok(endUsers);
+        EndUserSearchCriteria criteria = new EndUserSearchCriteria();
+        criteria.setApplicationId(applicationId);
+        criteria.setEmail(EndUserSearchCriteria.contains(email));
+        return ResponseEntity.ok(searchEndUsers(principal, criteria, pageable));
     }
 
-    // TODO: search end user within a current tenant
     @ApiOperation(value = "현재의 Tenant 및 특정 Application내의 End-user중 이메일이 일치하는 End-user를  조회")
     @ApiImplicitParams({
             @ApiImplicitParam(name = "applicationId", value = "Application ID", example = "ed203469-2d21-447e-994a-04821a05e5e4", dataType = "String", paramType = "query", required = false),
             @ApiImplicitParam(name = "email", value = "이메일 주소", example = "", dataType = "String", paramType = "query")
     })
+    @Deprecated
     @RequestMapping(value = "/search/by-email", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.clientHasAnyRole('USER','AP_MANAGER','ADMIN')")
-    public ResponseEntity<EndUser> findByEmail(
+    public ResponseEntity<EndUserView> findByEmail(
             @RequestParam(value = "applicationId", required = false) String applicationId,
             @RequestParam("email") String email,
             Principal principal) {
-        Tenant tenant = getTenant(principal);
-        EndUser endUser;
-        if (applicationId != null && !applicationId.isEmpty()) {
-            endUser = endUserRepository.findByEmail(email, applicationId, tenant.getId());
-        } else {
-            endUser = endUserRepository.findByEmail(email, tenant.getId());
-        }
-        return ResponseEntity.ok(endUser);
+        EndUserSearchCriteria criteria = EndUserSearchCriteria.exactMatch();
+        criteria.setApplicationId(applicationId);
+        criteria.setEmail(email);
+        return ResponseEntity.ok(findEndUser(principal, criteria));
     }
 
     @ApiOperation(value = "현재의 Tenant 및 특정 Application내의 End-user중 핸드폰 번호가 일치하는 End-user를  조회")
@@ -409,21 +532,18 @@ public class EndUserResource {
             @ApiImplicitParam(name = "applicationId", value = "Application ID", example = "ed203469-2d21-447e-994a-04821a05e5e4", dataType = "String", paramType = "query", required = false),
             @ApiImplicitParam(name = "mobileNo", value = "핸드폰 번호", example = "", dataType = "String", paramType = "query")
     })
+    @Deprecated
     @RequestMapping(value = "/search/by-mobileNo", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.clientHasAnyRole('AP_MANAGER','ADMIN')")
-    public ResponseEntity<EndUser> findByMobileNo(
+    public ResponseEntity<EndUserView> findByMobileNo(
             @RequestParam(value = "applicationId", required = false) String applicationId,
             @RequestParam("mobileNo") String mobileNo,
             Principal principal,
             Pageable pageable) {
-        Tenant tenant = getTenant(principal);
-        EndUser endUser;
-        if (applicationId != null && !applicationId.isEmpty()) {
-            endUser = endUserRepository.findByProfileMobilePhoneNo(mobileNo, applicationId, tenant.getId());
-        } else {
-            endUser = endUserRepository.findByProfileMobilePhoneNo(mobileNo, tenant.getId());
-        }
-        return ResponseEntity.ok(endUser);
+        EndUserSearchCriteria criteria = EndUserSearchCriteria.exactMatch();
+        criteria.setApplicationId(applicationId);
+        criteria.setMobileNo(mobileNo);
+        return ResponseEntity.ok(findEndUser(principal, criteria));
     }
 
     @ApiOperation(value = "현재의 Tenant 및 특정 Application내의 End-user중 성별이 일치하는 End-user를  조회")
@@ -431,21 +551,18 @@ public class EndUserResource {
             @ApiImplicitParam(name = "applicationId", value = "Application ID", example = "ed203469-2d21-447e-994a-04821a05e5e4", dataType = "String", paramType = "query", required = false),
             @ApiImplicitParam(name = "gender", value = "성별(남: MALE, 여: FEMALE, 없음: NONE", example = "", dataType = "String", paramType = "query")
     })
+    @Deprecated
     @RequestMapping(value = "/search/by-gender", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.clientHasAnyRole('AP_MANAGER','ADMIN')")
-    public ResponseEntity<Page<EndUser>> findByGender(
+    public ResponseEntity<Page<EndUserView>> findByGender(
             @RequestParam(value = "applicationId", required = false) String applicationId,
             @RequestParam("gender") Gender gender,
             Principal principal,
             Pageable pageable) {
-        Tenant tenant = getTenant(principal);
-        Page<EndUser> endUsers;
-        if (applicationId != null && !applicationId.isEmpty()) {
-            endUsers = endUserRepository.findByProfileGender(gender, applicationId, tenant.getId(), pageable);
-        } else {
-            endUsers = endUserRepository.findByProfileGender(gender, tenant.getId(), pageable);
-        }
-        return ResponseEntity.ok(endUsers);
+        EndUserSearchCriteria criteria = new EndUserSearchCriteria();
+        criteria.setApplicationId(applicationId);
+        criteria.setGender(gender);
+        return ResponseEntity.ok(searchEndUsers(principal, criteria, pageable));
     }
 
     @ApiOperation(value = "현재의 Tenant 및 특정 Application내의 End-user중 별명이 일치하는 End-user를  조회")
@@ -453,21 +570,18 @@ public class EndUserResource {
             @ApiImplicitParam(name = "applicationId", value = "Application ID", example = "ed203469-2d21-447e-994a-04821a05e5e4", dataType = "String", paramType = "query", required = false),
             @ApiImplicitParam(name = "nickname", value = "별명", example = "길동이", dataType = "String", paramType = "query")
     })
+    @Deprecated
     @RequestMapping(value = "/search/by-nickname", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.clientHasAnyRole('AP_MANAGER','ADMIN')")
-    public ResponseEntity<Page<EndUser>> findByNickName(
+    public ResponseEntity<Page<EndUserView>> findByNickName(
             @RequestParam(value = "applicationId", required = false) String applicationId,
             @RequestParam("nickname") String nickname,
             Principal principal,
             Pageable pageable) {
-        Tenant tenant = getTenant(principal);
-        Page<EndUser> endUsers;
-        if (applicationId != null && !applicationId.isEmpty()) {
-            endUsers = endUserRepository.findByProfileNickName(nickname, applicationId, tenant.getId(), pageable);
-        } else {
-            endUsers = endUserRepository.findByProfileNickName(nickname, tenant.getId(), pageable);
-        }
-        return ResponseEntity.ok(endUsers);
+        EndUserSearchCriteria criteria = EndUserSearchCriteria.exactMatch();
+        criteria.setApplicationId(applicationId);
+        criteria.setNickname(nickname);
+        return ResponseEntity.ok(searchEndUsers(principal, criteria, pageable));
     }
 
     @ApiOperation(value = "현재의 Tenant 및 특정 Application내의 End-user중 별명의 일부 혹은 전체가 일치하는 End-user를  조회")
@@ -475,29 +589,47 @@ public class EndUserResource {
             @ApiImplicitParam(name = "applicationId", value = "Application ID", example = "ed203469-2d21-447e-994a-04821a05e5e4", dataType = "String", paramType = "query", required = false),
             @ApiImplicitParam(name = "nickname", value = "별명", example = "길동이", dataType = "String", paramType = "query")
     })
+    @Deprecated
     @RequestMapping(value = "/search/by-nickname-like", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.clientHasAnyRole('AP_MANAGER','ADMIN')")
-    public ResponseEntity<Page<EndUser>> findByNickNameLike(
+    public ResponseEntity<Page<EndUserView>> findByNickNameLike(
             @RequestParam(value = "applicationId", required = false) String applicationId,
             @RequestParam("nickname") String nickname,
             Principal principal,
             Pageable pageable) {
-        Tenant tenant = getTenant(principal);
-        Page<EndUser> endUsers;
-        if (applicationId != null && !applicationId.isEmpty()) {
-            endUsers = endUserRepository.findByProfileNickNameLike(nickname, applicationId, tenant.getId(), pageable);
-        } else {
-            endUsers = endUserRepository.findByProfileNickNameLike(nickname, tenant.getId(), pageable);
-        }
-        return ResponseEntity.ok(endUsers);
+        EndUserSearchCriteria criteria = new EndUserSearchCriteria();
+        criteria.setApplicationId(applicationId);
+        criteria.setNickname(EndUserSearchCriteria.contains(nickname));
+        return ResponseEntity.ok(searchEndUsers(principal, criteria, pageable));
     }
 
-    @ApiOperation(value = "현재의 Tenant 및 특정 Application내의 End-user를 조회할 수 있는 API path를 반환")
+    @ApiOperation(value = "현재의 Tenant 및 특정 Application내의 End-user를 조건을 조합하여 조회. 조건이 없으면 조회할 수 있는 API path를 반환",
+            notes = "문자열 조건은 기본적으로 전체 일치이며, 끝에 *를 붙이면 앞부분 일치(kim*), 앞뒤에 *를 붙이면 부분 일치(*kim*)로 조회한다.")
+    @ApiImplicitParams({
+            @ApiImplicitParam(name = "applicationId", value = "Application ID", example = "ed203469-2d21-447e-994a-04821a05e5e4", dataType = "String", paramType = "query", required = false),
+            @ApiImplicitParam(name = "email", value = "이메일 주소", dataType = "String", paramType = "query", required = false),
+            @ApiImplicitParam(name = "firstName", value = "사용자 이름(성씨 제)", example = "길동", dataType = "String", paramType = "query", required = false),
+            @ApiImplicitParam(name = "lastName", value = "사용자 성", example = "홍", dataType = "String", paramType = "query", required = false),
+            @ApiImplicitParam(name = "middleName", value = "중간 이름", dataType = "String", paramType = "query", required = false),
+            @ApiImplicitParam(name = "nickname", value = "별명", example = "길동이", dataType = "String", paramType = "query", required = false),
+            @ApiImplicitParam(name = "mobileNo", value = "핸드폰 번호", dataType = "String", paramType = "query", required = false),
+            @ApiImplicitParam(name = "gender", value = "성별(남: MALE, 여: FEMALE, 없음: NONE", dataType = "String", paramType = "query", required = false),
+            @ApiImplicitParam(name = "status", value = "상태(CREATED, ACTIVE, SUSPENDED, TERMINATED)", dataType = "String", paramType = "query", required = false),
+            @ApiImplicitParam(name = "createdFrom", value = "생성 일시 시작(포함)", example = "2017-01-01T00:00:00", dataType = "String", paramType = "query", required = false),
+            @ApiImplicitParam(name = "createdTo", value = "생성 일시 끝(미포함)", example = "2018-01-01T00:00:00", dataType = "String", paramType = "query", required = false)
+    })
     @RequestMapping(value = "/search", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.clientHasAnyRole('AP_MANAGER','ADMIN')")
-    public ResponseEntity<List<SearchMethod>> search() {
-        return ResponseEntity.ok(Arrays.asList(
-                 new SearchMethod("by-firstName-like", "/api/end-users/search/by-firstName-like")
+    public ResponseEntity<?> search(EndUserSearchCriteria criteria, Principal principal, Pageable pageable) {
+        if (criteria.isEmpty()) {
+            return ResponseEntity.ok(searchMethods());
+        }
+        return ResponseEntity.ok(endUserSearchService.search(getTenant(principal).getId(), criteria, pageable));
+    }
+
+    private List<SearchMethod> searchMethods() {
+        return Arrays.asList(
+                 new SearchMethod("search", "/api/end-users/search")
                 ,new SearchMethod("by-firstName-like", "/api/end-users/search/by-firstName-like")
                 ,new SearchMethod("by-firstName", "/api/end-users/search/by-firstName")
                 ,new SearchMethod("by-lastName-like", "/api/end-users/search/by-lastName-like")
@@ -510,7 +642,16 @@ public class EndUserResource {
                 ,new SearchMethod("by-gender", "/api/end-users/search/by-gender")
                 ,new SearchMethod("by-nickname", "/api/end-users/search/by-nickname")
                 ,new SearchMethod("by-nickname-like", "/api/end-users/search/by-nickname-like")
-        ));
+        );
+    }
+
+    private Page<EndUserView> searchEndUsers(Principal principal, EndUserSearchCriteria criteria, Pageable pageable) {
+        return endUserSearchService.searchEndUsers(getTenant(principal).getId(), criteria, pageable);
+    }
+
+    private EndUserView findEndUser(Principal principal, EndUserSearchCriteria criteria) {
+        List<EndUserView> endUsers = searchEndUsers(principal, criteria, new PageRequest(0, 1)).getContent();
+        return endUsers.isEmpty() ? null : endUsers.get(0);
     }
 
     public static class SearchMethod implements Serializable{
@@ -1,10 +1,14 @@
 package app.resource;
 
-import app.domain.Application;
-import app.domain.EndUser;
+import app.domain.ApplicationView;
+import app.domain.CursorPage;
+import app.domain.EndUserCursor;
+import app.domain.EndUserView;
 import app.domain.PasswordUpdateRequest;
 import app.domain.Tenant;
+import app.domain.TenantView;
 import app.error.ErrorResponse;
+import app.repository.EndUserRepository;
 import app.repository.TenantRepository;
 import app.service.TenantService;
 import app.util.PrincipalUtil;
@@ -16,6 +20,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
@@ -31,61 +36,71 @@ public class TenantResource {
 
     private final TenantService tenantService;
 
+    private final EndUserRepository endUserRepository;
+
     @Autowired
-    public TenantResource(TenantRepository tenantRepository, TenantService tenantService) {
+    public TenantResource(TenantRepository tenantRepository, TenantService tenantService, EndUserRepository endUserRepository) {
         this.tenantRepository = tenantRepository;
         this.tenantService = tenantService;
+        this.endUserRepository = endUserRepository;
     }
 
     @RequestMapping(method = RequestMethod.GET)
     @PreAuthorize("#oauth2.clientHasAnyRole('SYS_ADMIN')")
-    public ResponseEntity<Page<Tenant>> findAll(Pageable pageable) {
-        return ResponseEntity.ok(tenantRepository.findAll(pageable));
+    @Transactional(readOnly = true)
+    public ResponseEntity<Page<TenantView>> findAll(Pageable pageable) {
+        return ResponseEntity.ok(tenantRepository.findAll(pageable).map(TenantView::of));
     }
 
     @RequestMapping(value = "/register", method = RequestMethod.POST)
-    public ResponseEntity<Tenant> register(@RequestBody Tenant tenant) {
+    @Transactional
+    public ResponseEntity<TenantView> register(@RequestBody Tenant tenant) {
         Tenant createdTenant = tenantService.createTenant(tenant);
-        return ResponseEntity.ok(createdTenant);
+        return ResponseEntity.ok(TenantView.of(createdTenant));
     }
 
     @RequestMapping(value = "/{id}/activation", method = RequestMethod.PUT)
     @PreAuthorize("#oauth2.hasScope('write') and #oauth2.clientHasAnyRole('AP_MANAGER','ADMIN', 'SYS_ADMIN')")
-    public ResponseEntity<Tenant> activate(@PathVariable String id) {
+    @Transactional
+    public ResponseEntity<TenantView> activate(@PathVariable String id) {
         Tenant tenant = tenantService.activate(id);
         // TODO : notify Tenant activated Event
-        return ResponseEntity.ok(tenant);
+        return ResponseEntity.ok(TenantView.of(tenant));
     }
 
     @RequestMapping(value = "/{id}/inactivation", method = RequestMethod.PUT)
     @PreAuthorize("#oauth2.hasScope('write') and #oauth2.clientHasAnyRole('AP_MANAGER','ADMIN', 'SYS_ADMIN')")
-    public ResponseEntity<Tenant> inactivate(@PathVariable String id) {
+    @Transactional
+    public ResponseEntity<TenantView> inactivate(@PathVariable String id) {
         Tenant tenant = tenantService.inactivate(id);
         // TODO : notify Tenant activated Event
-        return ResponseEntity.ok(tenant);
+        return ResponseEntity.ok(TenantView.of(tenant));
     }
 
     @RequestMapping(value = "/{id}/lock", method = RequestMethod.PUT)
     @PreAuthorize("#oauth2.hasScope('write') and #oauth2.clientHasAnyRole('AP_MANAGER','ADMIN', 'SYS_ADMIN')")
-    public ResponseEntity<Tenant> lock(@PathVariable String id) {
+    @Transactional
+    public ResponseEntity<TenantView> lock(@PathVariable String id) {
         Tenant tenant = tenantService.lock(id);
         // TODO : notify Tenant activated Event
-        return ResponseEntity.ok(tenant);
+        return ResponseEntity.ok(TenantView.of(tenant));
     }
 
     @RequestMapping(value = "/{id}/termination", method = RequestMethod.PUT)
     @PreAuthorize("#oauth2.hasScope('write') and #oauth2.clientHasAnyRole('AP_MANAGER','ADMIN', 'SYS_ADMIN')")
-    public ResponseEntity<Tenant> terminate(@PathVariable String id) {
+    @Transactional
+    public ResponseEntity<TenantView> terminate(@PathVariable String id) {
         Tenant tenant = tenantService.terminate(id);
         // TODO : notify Tenant activated Event
-        return ResponseEntity.ok(tenant);
+        return ResponseEntity.ok(TenantView.of(tenant));
     }
 
     @RequestMapping(value = "/{id}", method = RequestMethod.PUT)
     @PreAuthorize("#oauth2.hasScope('write') and #oauth2.clientHasAnyRole('AP_MANAGER','ADMIN', 'SYS_ADMIN')")
+    @Transactional
     public ResponseEntity<?> update(@PathVariable String id, @RequestBody Tenant tenant, Principal principal) {
         if (isAllowedEdit(principal, id)) {
-            return ResponseEntity.ok(tenantService.update(id, tenant));
+            return ResponseEntity.ok(TenantView.of(tenantService.update(id, tenant)));
         } else {
             return ResponseEntity.badRequest().body(new ErrorResponse(
                     "Not Allowed tenant update",
@@ -98,13 +113,14 @@ public class TenantResource {
 
     @RequestMapping(value = "/{id}/password", method = RequestMethod.PUT)
     @PreAuthorize("#oauth2.hasScope('write') and #oauth2.clientHasAnyRole('AP_MANAGER','ADMIN', 'SYS_ADMIN')")
+    @Transactional
     public ResponseEntity<?> updatePassword(
             @PathVariable String id,
             @RequestBody PasswordUpdateRequest passwordUpdateRequest,
             Principal principal) {
         if (isAllowedEdit(principal, id)) {
             Tenant tenant = tenantService.updatePassword(id, passwordUpdateRequest);
-            return ResponseEntity.ok(tenant);
+            return ResponseEntity.ok(TenantView.of(tenant));
         } else {
             return ResponseEntity.badRequest().body(new ErrorResponse(
                     "Not Allowed update tenant password",
@@ -117,14 +133,27 @@ public class TenantResource {
 
     @RequestMapping(value = "/{id}/applications", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.hasScope('write') and #oauth2.clientHasAnyRole('AP_MANAGER','ADMIN', 'SYS_ADMIN')")
-    public ResponseEntity<Page<Application>> findAllApplications(@PathVariable String id, Pageable pageable) {
-        return ResponseEntity.ok(tenantRepository.findApplicationsByTenantId(id, pageable));
+    @Transactional(readOnly = true)
+    public ResponseEntity<Page<ApplicationView>> findAllApplications(@PathVariable String id, Pageable pageable) {
+        return ResponseEntity.ok(tenantRepository.findApplicationsByTenantId(id, pageable).map(ApplicationView::of));
     }
 
     @RequestMapping(value = "/{id}/end-users", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.hasScope('write') and #oauth2.clientHasAnyRole('AP_MANAGER','ADMIN', 'SYS_ADMIN')")
-    public ResponseEntity<Page<EndUser>> findAllEndUsers(@PathVariable String id, Pageable pageable) {
-        return ResponseEntity.ok(tenantRepository.findEndUsersByTenantId(id, pageable));
+    @Transactional(readOnly = true)
+    public ResponseEntity<Page<EndUserView>> findAllEndUsers(@PathVariable String id, Pageable pageable) {
+        return ResponseEntity.ok(tenantRepository.findEndUsersByTenantId(id, pageable).map(EndUserView::of));
+    }
+
+    @RequestMapping(value = "/{id}/end-users", method = RequestMethod.GET, params = "cursor")
+    @PreAuthorize("#oauth2.hasScope('write') and #oauth2.clientHasAnyRole('AP_MANAGER','ADMIN', 'SYS_ADMIN')")
+    @Transactional(readOnly = true)
+    public ResponseEntity<CursorPage<EndUserView>> findAllEndUsersByCursor(
+            @PathVariable String id,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(endUserRepository.findAllOfTenantAfter(
+                id, null, EndUserCursor.decode(cursor), CursorPage.limitSize(size)).map(EndUserView::of));
     }
 
     private boolean isAllowedEdit(Principal principal, String id) {
@@ -144,26 +173,30 @@ public class TenantResource {
 
     @RequestMapping(value = "/{id}", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.hasScope('read') and #oauth2.clientHasAnyRole('AP_MANAGER','ADMIN', 'SYS_ADMIN')")
-    public ResponseEntity<Tenant> findById(@PathVariable String id) {
-        return ResponseEntity.ok(tenantRepository.findById(id));
+    @Transactional(readOnly = true)
+    public ResponseEntity<TenantView> findById(@PathVariable String id) {
+        return ResponseEntity.ok(TenantView.of(tenantRepository.findById(id)));
     }
 
     @RequestMapping(value = "/search/by-email", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.hasScope('read') and #oauth2.clientHasAnyRole('AP_MANAGER','ADMIN', 'SYS_ADMIN')")
-    public ResponseEntity<Tenant> findByEmail(@RequestParam String email) {
-        return ResponseEntity.ok(tenantRepository.findByEmail(email));
+    @Transactional(readOnly = true)
+    public ResponseEntity<TenantView> findByEmail(@RequestParam String email) {
+        return ResponseEntity.ok(TenantView.of(tenantRepository.findByEmail(email)));
     }
 
     @RequestMapping(value = "/search/by-account", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.hasScope('read') and #oauth2.clientHasAnyRole('AP_MANAGER','ADMIN', 'SYS_ADMIN')")
-    public ResponseEntity<Tenant> findByAccount(@RequestParam String account) {
-        return ResponseEntity.ok(tenantRepository.findByLoginCredentialAccount(account));
+    @Transactional(readOnly = true)
+    public ResponseEntity<TenantView> findByAccount(@RequestParam String account) {
+        return ResponseEntity.ok(TenantView.of(tenantRepository.findByLoginCredentialAccount(account)));
     }
 
     @RequestMapping(value = "/search/by-api-key", method = RequestMethod.GET)
     @PreAuthorize("#oauth2.hasScope('read') and #oauth2.clientHasAnyRole('AP_MANAGER','ADMIN', 'SYS_ADMIN')")
-    public ResponseEntity<Tenant> findByApiKey(@RequestParam String apiKey) {
-        return ResponseEntity.ok(tenantRepository.findByApiKeyInformationApiKey(apiKey));
+    @Transactional(readOnly = true)
+    public ResponseEntity<TenantView> findByApiKey(@RequestParam String apiKey) {
+        return ResponseEntity.ok(TenantView.of(tenantRepository.findByApiKeyInformationApiKey(apiKey)));
     }
 
 
@@ -0,0 +1,194 @@
+package app.security;
+
+import app.error.PasswordHashingUnavailableException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs a CPU-bound {@link PasswordEncoder} (BCrypt) on a dedicated pool of {@code poolSize} threads with a queue of
+ * {@code queueCapacity} pending hashes. Request threads only wait for the result, so a burst of logins can no longer
+ * occupy every servlet worker. When the queue is full the call fails fast with
+ * {@link PasswordHashingUnavailableException}, which is answered with 503 and Retry-After.
+ */
+public class BoundedPasswordEncoder implements UpgradablePasswordEncoder, PublicMetrics, DisposableBean {
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long retryAfterSeconds;
+
+    private final AtomicLong hashCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong totalHashNanos = new AtomicLong();
+    private volatile long lastHashMillis;
+    private volatile long maxHashMillis;
+    private volatile long lastWaitMillis;
+    private volatile long maxWaitMillis;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int poolSize, int queueCapacity, long retryAfterSeconds) {
+        Assert.notNull(delegate, "delegate password encoder is required");
+        Assert.isTrue(poolSize > 0, "poolSize must be positive");
+        Assert.isTrue(queueCapacity > 0, "queueCapacity must be positive");
+        this.delegate = delegate;
+        this.retryAfterSeconds = retryAfterSeconds;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Only inspects the hash, so it runs on the calling thread.
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate instanceof UpgradablePasswordEncoder
+                && ((UpgradablePasswordEncoder) delegate).upgradeEncoding(encodedPassword);
+    }
+
+    @Override
+    public boolean isEncoded(String encodedPassword) {
+        return delegate instanceof UpgradablePasswordEncoder
+                && ((UpgradablePasswordEncoder) delegate).isEncoded(encodedPassword);
+    }
+
+    /**
+     * Encodes many passwords on all pool threads at once, for bulk imports. At most {@code poolSize} of them are
+     * queued at any time, so the queue keeps room for logins.
+     */
+    public List<String> encodeAll(List<? extends CharSequence> rawPasswords) {
+        int window = executor.getCorePoolSize();
+        List<Future<String>> futures = new ArrayList<>(rawPasswords.size());
+        List<String> encoded = new ArrayList<>(rawPasswords.size());
+        try {
+            for (CharSequence rawPassword : rawPasswords) {
+                if (futures.size() - encoded.size() >= window) {
+                    encoded.add(await(futures.get(encoded.size())));
+                }
+                futures.add(submit(() -> delegate.encode(rawPassword)));
+            }
+            while (encoded.size() < futures.size()) {
+                encoded.add(await(futures.get(encoded.size())));
+            }
+            return encoded;
+        } finally {
+            for (int i = encoded.size(); i < futures.size(); i++) {
+                futures.get(i).cancel(true);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        long hashes = hashCount.get();
+        metrics.add(new Metric<>("passwordencoder.queue.depth", getQueueDepth()));
+        metrics.add(new Metric<>("passwordencoder.active", executor.getActiveCount()));
+        metrics.add(new Metric<>("passwordencoder.rejected", rejectedCount.get()));
+        metrics.add(new Metric<>("passwordencoder.hash.count", hashes));
+        metrics.add(new Metric<>("passwordencoder.hash.latency.last", lastHashMillis));
+        metrics.add(new Metric<>("passwordencoder.hash.latency.max", maxHashMillis));
+        metrics.add(new Metric<>("passwordencoder.hash.latency.avg",
+                hashes == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalHashNanos.get() / hashes)));
+        metrics.add(new Metric<>("passwordencoder.wait.latency.last", lastWaitMillis));
+        metrics.add(new Metric<>("passwordencoder.wait.latency.max", maxWaitMillis));
+        return metrics;
+    }
+
+    private <T> T execute(Callable<T> hashing) {
+        return await(submit(hashing));
+    }
+
+    private <T> Future<T> submit(Callable<T> hashing) {
+        long submittedAt = System.nanoTime();
+        try {
+            return executor.submit(() -> {
+                long start = System.nanoTime();
+                recordWait(start - submittedAt);
+                try {
+                    return hashing.call();
+                } finally {
+                    recordHash(System.nanoTime() - start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            throw new PasswordHashingUnavailableException("Too many concurrent password operations", retryAfterSeconds);
+        }
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingUnavailableException("Interrupted while waiting for password hashing", retryAfterSeconds);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void recordWait(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        lastWaitMillis = millis;
+        if (millis > maxWaitMillis) {
+            maxWaitMillis = millis;
+        }
+    }
+
+    private void recordHash(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        hashCount.incrementAndGet();
+        totalHashNanos.addAndGet(nanos);
+        lastHashMillis = millis;
+        if (millis > maxHashMillis) {
+            maxHashMillis = millis;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package app.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.ClientRegistrationException;
+import org.springframework.security.oauth2.provider.NoSuchClientException;
+import org.springframework.security.oauth2.provider.client.BaseClientDetails;
+import org.springframework.security.oauth2.provider.client.JdbcClientDetailsService;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link JdbcClientDetailsService} that keeps loaded clients in memory.
+ * Every change made through this service evicts the client, again once its transaction commits; the TTL bounds how long a change made on another
+ * node can go unnoticed. Callers always get a copy, so mutating a loaded client never touches the cache.
+ */
+public class CachingClientDetailsService extends JdbcClientDetailsService
+        implements ApplicationListener<ApplicationReadyEvent>, PublicMetrics {
+    private static final Logger log = LoggerFactory.getLogger(CachingClientDetailsService.class);
+    private static final String TOKEN_ENDPOINT = "/oauth/token";
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong tokenEndpointHits = new AtomicLong();
+    private final AtomicLong tokenEndpointMisses = new AtomicLong();
+
+    public CachingClientDetailsService(DataSource dataSource, final int maxSize, long ttlMillis) {
+        super(dataSource);
+        Assert.isTrue(maxSize > 0, "maxSize must be positive");
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    @Override
+    public ClientDetails loadClientByClientId(String clientId) throws ClientRegistrationException {
+        boolean tokenEndpoint = isTokenEndpointRequest();
+        Entry entry = lookup(clientId);
+        if (entry != null) {
+            hits.incrementAndGet();
+            if (tokenEndpoint) {
+                tokenEndpointHits.incrementAndGet();
+            }
+            return new BaseClientDetails(entry.clientDetails);
+        }
+        misses.incrementAndGet();
+        if (tokenEndpoint) {
+            tokenEndpointMisses.incrementAndGet();
+        }
+        ClientDetails clientDetails = super.loadClientByClientId(clientId);
+        cache(clientDetails);
+        return new BaseClientDetails(clientDetails);
+    }
+
+    @Override
+    public void addClientDetails(ClientDetails clientDetails) {
+        try {
+            super.addClientDetails(clientDetails);
+        } finally {
+            evictOnCommit(clientDetails.getClientId());
+        }
+    }
+
+    @Override
+    public void updateClientDetails(ClientDetails clientDetails) throws NoSuchClientException {
+        try {
+            super.updateClientDetails(clientDetails);
+        } finally {
+            evictOnCommit(clientDetails.getClientId());
+        }
+    }
+
+    @Override
+    public void updateClientSecret(String clientId, String secret) throws NoSuchClientException {
+        try {
+            super.updateClientSecret(clientId, secret);
+        } finally {
+            evictOnCommit(clientId);
+        }
+    }
+
+    @Override
+    public void removeClientDetails(String clientId) throws NoSuchClientException {
+        try {
+            super.removeClientDetails(clientId);
+        } finally {
+            evictOnCommit(clientId);
+        }
+    }
+
+    /**
+     * Loads up to {@code maxSize} clients from {@code oauth_client_details} so the first logins after startup
+     * do not all go to the database.
+     */
+    public int warm() {
+        List<ClientDetails> clients = listClientDetails();
+        int warmed = 0;
+        for (ClientDetails clientDetails : clients) {
+            if (warmed == maxSize) {
+                break;
+            }
+            cache(clientDetails);
+            warmed++;
+        }
+        return warmed;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        try {
+            log.info("Warmed client details cache with {} clients", warm());
+        } catch (RuntimeException e) {
+            log.warn("Could not warm client details cache", e);
+        }
+    }
+
+    public void evict(String clientId) {
+        synchronized (entries) {
+            if (entries.remove(clientId) != null) {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    // evicting only before the commit would let a concurrent load re-cache the old row for the whole TTL
+    private void evictOnCommit(final String clientId) {
+        evict(clientId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    evict(clientId);
+                }
+            });
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getTokenEndpointHitCount() {
+        return tokenEndpointHits.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("clientdetails.cache.hit", hits.get()));
+        metrics.add(new Metric<>("clientdetails.cache.miss", misses.get()));
+        metrics.add(new Metric<>("clientdetails.cache.eviction", evictions.get()));
+        metrics.add(new Metric<>("clientdetails.cache.size", size()));
+        metrics.add(new Metric<>("clientdetails.cache.token-endpoint.hit", tokenEndpointHits.get()));
+        metrics.add(new Metric<>("clientdetails.cache.token-endpoint.miss", tokenEndpointMisses.get()));
+        return metrics;
+    }
+
+    private void cache(ClientDetails clientDetails) {
+        Entry entry = new Entry(new BaseClientDetails(clientDetails), System.currentTimeMillis() + ttlMillis);
+        synchronized (entries) {
+            entries.put(clientDetails.getClientId(), entry);
+        }
+    }
+
+    private Entry lookup(String clientId) {
+        synchronized (entries) {
+            Entry entry = entries.get(clientId);
+            if (entry != null && entry.isExpired()) {
+                entries.remove(clientId);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private boolean isTokenEndpointRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes
+                && ((ServletRequestAttributes) attributes).getRequest().getRequestURI().endsWith(TOKEN_ENDPOINT);
+    }
+
+    private static class Entry {
+        private final ClientDetails clientDetails;
+        private final long expiresAt;
+
+        private Entry(ClientDetails clientDetails, long expiresAt) {
+            this.clientDetails = clientDetails;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
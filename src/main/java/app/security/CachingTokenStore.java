@@ -0,0 +1,266 @@
+package app.security;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache in front of another {@link TokenStore}.
+ * Only {@link #readAccessToken(String)} and {@link #readAuthentication(String)} are cached, the hot path of
+ * every bearer-token request. Entries live at most {@code ttlMillis} and never past the token's own expiration;
+ * the TTL is also the upper bound for how long a revocation made on another node can go unnoticed here.
+ * <p>
+ * Removals bump a generation and evict both before and after the delegate deletes, and a lookup only caches its
+ * result if no removal happened while it read, so a read racing a revocation cannot put the token back.
+ */
+public class CachingTokenStore implements TokenStore, PublicMetrics {
+    private final TokenStore delegate;
+    private final long ttlMillis;
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private long removals;
+
+    public CachingTokenStore(TokenStore delegate, final int maxSize, long ttlMillis) {
+        Assert.notNull(delegate, "delegate token store is required");
+        Assert.isTrue(maxSize > 0, "maxSize must be positive");
+        this.delegate = delegate;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String tokenValue) {
+        Entry entry = lookup(tokenValue);
+        if (entry != null && entry.accessToken != null) {
+            hits.incrementAndGet();
+            return entry.accessToken;
+        }
+        misses.incrementAndGet();
+        long generation = generation();
+        OAuth2AccessToken accessToken = delegate.readAccessToken(tokenValue);
+        if (accessToken != null) {
+            synchronized (entries) {
+                if (removals == generation) {
+                    Entry cached = entries.get(tokenValue);
+                    OAuth2Authentication authentication = cached == null ? null : cached.authentication;
+                    entries.put(tokenValue, new Entry(accessToken, authentication, expiresAt(accessToken)));
+                }
+            }
+        }
+        return accessToken;
+    }
+
+    @Override
+    public OAuth2Authentication readAuthentication(OAuth2AccessToken token) {
+        return readAuthentication(token.getValue());
+    }
+
+    @Override
+    public OAuth2Authentication readAuthentication(String tokenValue) {
+        Entry entry = lookup(tokenValue);
+        if (entry != null && entry.authentication != null) {
+            hits.incrementAndGet();
+            return entry.authentication;
+        }
+        misses.incrementAndGet();
+        long generation = generation();
+        OAuth2AccessToken accessToken = entry == null ? null : entry.accessToken;
+        if (accessToken == null) {
+            // the entry must not outlive the token, whose expiration only the stored access token knows
+            accessToken = delegate.readAccessToken(tokenValue);
+        }
+        OAuth2Authentication authentication = delegate.readAuthentication(tokenValue);
+        if (authentication != null && accessToken != null) {
+            synchronized (entries) {
+                if (removals == generation) {
+                    entries.put(tokenValue, new Entry(accessToken, authentication, expiresAt(accessToken)));
+                }
+            }
+        }
+        return authentication;
+    }
+
+    @Override
+    public void storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+        evict(token.getValue());
+        delegate.storeAccessToken(token, authentication);
+    }
+
+    @Override
+    public void removeAccessToken(OAuth2AccessToken token) {
+        evict(token.getValue());
+        try {
+            delegate.removeAccessToken(token);
+        } finally {
+            evict(token.getValue());
+        }
+    }
+
+    @Override
+    public void storeRefreshToken(OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+        delegate.storeRefreshToken(refreshToken, authentication);
+    }
+
+    @Override
+    public OAuth2RefreshToken readRefreshToken(String tokenValue) {
+        return delegate.readRefreshToken(tokenValue);
+    }
+
+    @Override
+    public OAuth2Authentication readAuthenticationForRefreshToken(OAuth2RefreshToken token) {
+        return delegate.readAuthenticationForRefreshToken(token);
+    }
+
+    @Override
+    public void removeRefreshToken(OAuth2RefreshToken token) {
+        evictIssuedWith(token);
+        try {
+            delegate.removeRefreshToken(token);
+        } finally {
+            evictIssuedWith(token);
+        }
+    }
+
+    @Override
+    public void removeAccessTokenUsingRefreshToken(OAuth2RefreshToken refreshToken) {
+        evictIssuedWith(refreshToken);
+        try {
+            delegate.removeAccessTokenUsingRefreshToken(refreshToken);
+        } finally {
+            evictIssuedWith(refreshToken);
+        }
+    }
+
+    @Override
+    public OAuth2AccessToken getAccessToken(OAuth2Authentication authentication) {
+        return delegate.getAccessToken(authentication);
+    }
+
+    @Override
+    public Collection<OAuth2AccessToken> findTokensByClientIdAndUserName(String clientId, String userName) {
+        return delegate.findTokensByClientIdAndUserName(clientId, userName);
+    }
+
+    @Override
+    public Collection<OAuth2AccessToken> findTokensByClientId(String clientId) {
+        return delegate.findTokensByClientId(clientId);
+    }
+
+    public void evict(String tokenValue) {
+        synchronized (entries) {
+            removals++;
+            if (entries.remove(tokenValue) != null) {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("tokenstore.cache.hit", hits.get()));
+        metrics.add(new Metric<>("tokenstore.cache.miss", misses.get()));
+        metrics.add(new Metric<>("tokenstore.cache.eviction", evictions.get()));
+        metrics.add(new Metric<>("tokenstore.cache.size", size()));
+        return metrics;
+    }
+
+    private Entry lookup(String tokenValue) {
+        synchronized (entries) {
+            Entry entry = entries.get(tokenValue);
+            if (entry != null && entry.isExpired()) {
+                entries.remove(tokenValue);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private void evictIssuedWith(OAuth2RefreshToken refreshToken) {
+        if (refreshToken == null) {
+            return;
+        }
+        synchronized (entries) {
+            removals++;
+            entries.values().removeIf(entry -> {
+                boolean issuedWith = entry.accessToken != null && entry.accessToken.getRefreshToken() != null
+                        && refreshToken.getValue().equals(entry.accessToken.getRefreshToken().getValue());
+                if (issuedWith) {
+                    evictions.incrementAndGet();
+                }
+                return issuedWith;
+            });
+        }
+    }
+
+    private long generation() {
+        synchronized (entries) {
+            return removals;
+        }
+    }
+
+    private long expiresAt(OAuth2AccessToken accessToken) {
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        Date expiration = accessToken == null ? null : accessToken.getExpiration();
+        if (expiration != null) {
+            expiresAt = Math.min(expiresAt, expiration.getTime());
+        }
+        return expiresAt;
+    }
+
+    private static class Entry {
+        private final OAuth2AccessToken accessToken;
+        private final OAuth2Authentication authentication;
+        private final long expiresAt;
+
+        private Entry(OAuth2AccessToken accessToken, OAuth2Authentication authentication, long expiresAt) {
+            this.accessToken = accessToken;
+            this.authentication = authentication;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
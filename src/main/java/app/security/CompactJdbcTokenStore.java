@@ -0,0 +1,118 @@
+package app.security;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.oauth2.common.ExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.AuthenticationKeyGenerator;
+import org.springframework.security.oauth2.provider.token.DefaultAuthenticationKeyGenerator;
+import org.springframework.security.oauth2.provider.token.store.JdbcTokenStore;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.Date;
+
+/**
+ * {@link JdbcTokenStore} persisting its blobs with {@link CompactTokenCodec} instead of Java serialization.
+ * Rows written by the plain {@link JdbcTokenStore} remain readable.
+ * Tokens are also written with their expiry in the {@code expiration} column so {@link TokenReaper} can find them.
+ */
+public class CompactJdbcTokenStore extends JdbcTokenStore {
+    protected static final String INSERT_ACCESS_TOKEN_SQL = "insert into oauth_access_token (token_id, token, authentication_id, user_name, client_id, authentication, refresh_token, expiration) values (?, ?, ?, ?, ?, ?, ?, ?)";
+    protected static final String INSERT_REFRESH_TOKEN_SQL = "insert into oauth_refresh_token (token_id, token, authentication, expiration) values (?, ?, ?, ?)";
+
+    // tokens without an expiry are stored with this one, so they are never reaped and never backfilled again
+    public static final Timestamp NEVER_EXPIRES = Timestamp.valueOf("9999-12-31 00:00:00");
+
+    protected final JdbcTemplate jdbcTemplate;
+    protected AuthenticationKeyGenerator authenticationKeyGenerator = new DefaultAuthenticationKeyGenerator();
+    private final CompactTokenCodec codec;
+
+    public CompactJdbcTokenStore(DataSource dataSource) {
+        this(dataSource, new CompactTokenCodec());
+    }
+
+    public CompactJdbcTokenStore(DataSource dataSource, CompactTokenCodec codec) {
+        super(dataSource);
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.codec = codec;
+    }
+
+    @Override
+    public void setAuthenticationKeyGenerator(AuthenticationKeyGenerator authenticationKeyGenerator) {
+        super.setAuthenticationKeyGenerator(authenticationKeyGenerator);
+        this.authenticationKeyGenerator = authenticationKeyGenerator;
+    }
+
+    @Override
+    public void storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+        if (readAccessToken(token.getValue()) != null) {
+            removeAccessToken(token.getValue());
+        }
+        jdbcTemplate.update(INSERT_ACCESS_TOKEN_SQL, accessTokenRow(token, authentication, authenticationKeyGenerator.extractKey(authentication)));
+    }
+
+    @Override
+    public void storeRefreshToken(OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+        jdbcTemplate.update(INSERT_REFRESH_TOKEN_SQL, refreshTokenRow(refreshToken, authentication));
+    }
+
+    protected Object[] accessTokenRow(OAuth2AccessToken token, OAuth2Authentication authentication, String authenticationKey) {
+        OAuth2RefreshToken refreshToken = token.getRefreshToken();
+        return new Object[]{
+                extractTokenKey(token.getValue()),
+                serializeAccessToken(token),
+                authenticationKey,
+                authentication.isClientOnly() ? null : authentication.getName(),
+                authentication.getOAuth2Request().getClientId(),
+                serializeAuthentication(authentication),
+                refreshToken == null ? null : extractTokenKey(refreshToken.getValue()),
+                expiration(token.getExpiration())};
+    }
+
+    protected Object[] refreshTokenRow(OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+        Date expiration = refreshToken instanceof ExpiringOAuth2RefreshToken
+                ? ((ExpiringOAuth2RefreshToken) refreshToken).getExpiration()
+                : null;
+        return new Object[]{
+                extractTokenKey(refreshToken.getValue()),
+                serializeRefreshToken(refreshToken),
+                serializeAuthentication(authentication),
+                expiration(expiration)};
+    }
+
+    public static Timestamp expiration(Date expiration) {
+        return expiration == null ? NEVER_EXPIRES : new Timestamp(expiration.getTime());
+    }
+
+    @Override
+    protected byte[] serializeAccessToken(OAuth2AccessToken token) {
+        return codec.serializeAccessToken(token);
+    }
+
+    @Override
+    protected byte[] serializeRefreshToken(OAuth2RefreshToken token) {
+        return codec.serializeRefreshToken(token);
+    }
+
+    @Override
+    protected byte[] serializeAuthentication(OAuth2Authentication authentication) {
+        return codec.serializeAuthentication(authentication);
+    }
+
+    @Override
+    protected OAuth2AccessToken deserializeAccessToken(byte[] token) {
+        return codec.deserializeAccessToken(token);
+    }
+
+    @Override
+    protected OAuth2RefreshToken deserializeRefreshToken(byte[] token) {
+        return codec.deserializeRefreshToken(token);
+    }
+
+    @Override
+    protected OAuth2Authentication deserializeAuthentication(byte[] authentication) {
+        return codec.deserializeAuthentication(authentication);
+    }
+}
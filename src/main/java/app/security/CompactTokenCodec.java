@@ -0,0 +1,465 @@
+package app.security;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.oauth2.common.DefaultExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.ExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.common.util.SerializationUtils;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Compact, versioned binary encoding of tokens and authentications for the token tables.
+ * <p>
+ * Layout: {@code 'T' 'K' version kind} followed by the fields of the value, strings as varint length + UTF-8.
+ * Values carrying something the format does not know about (custom principals, request extensions, non-string
+ * additional information, ...) are written with Java serialization instead, and Java-serialized blobs written
+ * before this format existed are still read, so old rows are migrated as they expire and get replaced.
+ */
+public class CompactTokenCodec {
+    static final byte MAGIC_0 = 'T';
+    static final byte MAGIC_1 = 'K';
+    static final byte VERSION = 1;
+
+    private static final byte KIND_ACCESS_TOKEN = 1;
+    private static final byte KIND_REFRESH_TOKEN = 2;
+    private static final byte KIND_AUTHENTICATION = 3;
+
+    private static final byte PRINCIPAL_NONE = 0;
+    private static final byte PRINCIPAL_NAME = 1;
+    private static final byte PRINCIPAL_USER = 2;
+    private static final byte PRINCIPAL_DOMAIN_USER = 3;
+
+    private static final byte REFRESH_TOKEN_NONE = 0;
+    private static final byte REFRESH_TOKEN_PLAIN = 1;
+    private static final byte REFRESH_TOKEN_EXPIRING = 2;
+
+    public byte[] serializeAccessToken(OAuth2AccessToken token) {
+        if (!isCompactable(token)) {
+            return SerializationUtils.serialize(token);
+        }
+        Writer writer = new Writer(KIND_ACCESS_TOKEN);
+        writer.writeString(token.getValue());
+        writer.writeString(token.getTokenType());
+        writer.writeDate(token.getExpiration());
+        writer.writeStrings(token.getScope());
+        writeRefreshToken(writer, token.getRefreshToken());
+        Map<String, Object> additionalInformation = token.getAdditionalInformation();
+        writer.writeVarInt(additionalInformation.size());
+        for (Map.Entry<String, Object> entry : additionalInformation.entrySet()) {
+            writer.writeString(entry.getKey());
+            writer.writeString((String) entry.getValue());
+        }
+        return writer.toByteArray();
+    }
+
+    public OAuth2AccessToken deserializeAccessToken(byte[] bytes) {
+        if (!isCompact(bytes)) {
+            return SerializationUtils.deserialize(bytes);
+        }
+        return decode(bytes, KIND_ACCESS_TOKEN, this::readAccessToken);
+    }
+
+    private OAuth2AccessToken readAccessToken(Reader reader) {
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken(reader.readString());
+        token.setTokenType(reader.readString());
+        token.setExpiration(reader.readDate());
+        token.setScope(reader.readStringSet());
+        token.setRefreshToken(readRefreshToken(reader));
+        int size = reader.readVarInt();
+        Map<String, Object> additionalInformation = size == 0 ? Collections.emptyMap() : new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            additionalInformation.put(reader.readString(), reader.readString());
+        }
+        token.setAdditionalInformation(additionalInformation);
+        return token;
+    }
+
+    public byte[] serializeRefreshToken(OAuth2RefreshToken token) {
+        if (!isCompactable(token)) {
+            return SerializationUtils.serialize(token);
+        }
+        Writer writer = new Writer(KIND_REFRESH_TOKEN);
+        writeRefreshToken(writer, token);
+        return writer.toByteArray();
+    }
+
+    public OAuth2RefreshToken deserializeRefreshToken(byte[] bytes) {
+        if (!isCompact(bytes)) {
+            return SerializationUtils.deserialize(bytes);
+        }
+        return decode(bytes, KIND_REFRESH_TOKEN, this::readRefreshToken);
+    }
+
+    public byte[] serializeAuthentication(OAuth2Authentication authentication) {
+        if (!isCompactable(authentication)) {
+            return SerializationUtils.serialize(authentication);
+        }
+        OAuth2Request request = authentication.getOAuth2Request();
+        Writer writer = new Writer(KIND_AUTHENTICATION);
+        writer.writeString(request.getClientId());
+        writer.writeBoolean(request.isApproved());
+        writer.writeStrings(request.getScope());
+        writeAuthorities(writer, request.getAuthorities());
+        writer.writeStrings(request.getResourceIds());
+        writer.writeString(request.getRedirectUri());
+        writer.writeStrings(request.getResponseTypes());
+        writer.writeStringMap(request.getRequestParameters());
+
+        Authentication userAuthentication = authentication.getUserAuthentication();
+        if (userAuthentication == null) {
+            writer.writeByte(PRINCIPAL_NONE);
+            return writer.toByteArray();
+        }
+        Object principal = userAuthentication.getPrincipal();
+        if (principal instanceof User) {
+            User user = (User) principal;
+            if (user instanceof DomainUser) {
+                writer.writeByte(PRINCIPAL_DOMAIN_USER);
+                writer.writeString(((DomainUser) user).getId());
+                writer.writeString(((DomainUser) user).getTenantId());
+            } else {
+                writer.writeByte(PRINCIPAL_USER);
+            }
+            writer.writeString(user.getUsername());
+            writer.writeBoolean(user.isEnabled());
+            writer.writeBoolean(user.isAccountNonExpired());
+            writer.writeBoolean(user.isCredentialsNonExpired());
+            writer.writeBoolean(user.isAccountNonLocked());
+            writeAuthorities(writer, user.getAuthorities());
+        } else {
+            writer.writeByte(PRINCIPAL_NAME);
+            writer.writeString((String) principal);
+        }
+        writeAuthorities(writer, userAuthentication.getAuthorities());
+        @SuppressWarnings("unchecked")
+        Map<String, String> details = (Map<String, String>) userAuthentication.getDetails();
+        writer.writeBoolean(details != null);
+        if (details != null) {
+            writer.writeStringMap(details);
+        }
+        return writer.toByteArray();
+    }
+
+    public OAuth2Authentication deserializeAuthentication(byte[] bytes) {
+        if (!isCompact(bytes)) {
+            return SerializationUtils.deserialize(bytes);
+        }
+        return decode(bytes, KIND_AUTHENTICATION, this::readAuthentication);
+    }
+
+    private OAuth2Authentication readAuthentication(Reader reader) {
+        String clientId = reader.readString();
+        boolean approved = reader.readBoolean();
+        Set<String> scope = reader.readStringSet();
+        List<GrantedAuthority> clientAuthorities = readAuthorities(reader);
+        Set<String> resourceIds = reader.readStringSet();
+        String redirectUri = reader.readString();
+        Set<String> responseTypes = reader.readStringSet();
+        Map<String, String> requestParameters = reader.readStringMap();
+        OAuth2Request request = new OAuth2Request(requestParameters, clientId, clientAuthorities, approved, scope,
+                resourceIds, redirectUri, responseTypes, null);
+
+        byte principalType = reader.readByte();
+        if (principalType == PRINCIPAL_NONE) {
+            return new OAuth2Authentication(request, null);
+        }
+        Object principal;
+        if (principalType == PRINCIPAL_USER || principalType == PRINCIPAL_DOMAIN_USER) {
+            String id = principalType == PRINCIPAL_DOMAIN_USER ? reader.readString() : null;
+            String tenantId = principalType == PRINCIPAL_DOMAIN_USER ? reader.readString() : null;
+            String username = reader.readString();
+            boolean enabled = reader.readBoolean();
+            boolean accountNonExpired = reader.readBoolean();
+            boolean credentialsNonExpired = reader.readBoolean();
+            boolean accountNonLocked = reader.readBoolean();
+            List<GrantedAuthority> authorities = readAuthorities(reader);
+            principal = principalType == PRINCIPAL_DOMAIN_USER
+                    ? new DomainUser(id, tenantId, username, "", enabled, accountNonExpired, credentialsNonExpired, accountNonLocked, authorities)
+                    : new User(username, "", enabled, accountNonExpired, credentialsNonExpired, accountNonLocked, authorities);
+        } else if (principalType == PRINCIPAL_NAME) {
+            principal = reader.readString();
+        } else {
+            throw new IllegalArgumentException("Unknown principal type " + principalType);
+        }
+        UsernamePasswordAuthenticationToken userAuthentication =
+                new UsernamePasswordAuthenticationToken(principal, null, readAuthorities(reader));
+        if (reader.readBoolean()) {
+            userAuthentication.setDetails(reader.readStringMap());
+        }
+        return new OAuth2Authentication(request, userAuthentication);
+    }
+
+    private <T> T decode(byte[] bytes, byte kind, Function<Reader, T> readFunction) {
+        try {
+            return readFunction.apply(new Reader(bytes, kind));
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated token data", e);
+        }
+    }
+
+    public static boolean isCompact(byte[] bytes) {
+        return bytes != null && bytes.length >= 4 && bytes[0] == MAGIC_0 && bytes[1] == MAGIC_1;
+    }
+
+    private boolean isCompactable(OAuth2AccessToken token) {
+        if (token.getClass() != DefaultOAuth2AccessToken.class || !isCompactable(token.getRefreshToken())) {
+            return false;
+        }
+        return token.getAdditionalInformation().values().stream().allMatch(value -> value instanceof String);
+    }
+
+    private boolean isCompactable(OAuth2RefreshToken token) {
+        return token == null
+                || token.getClass() == DefaultOAuth2RefreshToken.class
+                || token.getClass() == DefaultExpiringOAuth2RefreshToken.class;
+    }
+
+    private boolean isCompactable(OAuth2Authentication authentication) {
+        OAuth2Request request = authentication.getOAuth2Request();
+        if (authentication.getDetails() != null || request.isRefresh() || !request.getExtensions().isEmpty()
+                || !isCompactable(request.getAuthorities())) {
+            return false;
+        }
+        Authentication userAuthentication = authentication.getUserAuthentication();
+        if (userAuthentication == null) {
+            return true;
+        }
+        if (userAuthentication.getClass() != UsernamePasswordAuthenticationToken.class
+                || !isCompactable(userAuthentication.getAuthorities())) {
+            return false;
+        }
+        Object principal = userAuthentication.getPrincipal();
+        boolean compactablePrincipal = principal instanceof String
+                || (principal != null && (principal.getClass() == User.class || principal.getClass() == DomainUser.class)
+                && isCompactable(((User) principal).getAuthorities()));
+        Object details = userAuthentication.getDetails();
+        boolean compactableDetails = details == null || (details instanceof Map
+                && ((Map<?, ?>) details).entrySet().stream()
+                .allMatch(e -> e.getKey() instanceof String && (e.getValue() == null || e.getValue() instanceof String)));
+        return compactablePrincipal && compactableDetails;
+    }
+
+    private boolean isCompactable(Collection<? extends GrantedAuthority> authorities) {
+        return authorities.stream().allMatch(authority -> authority.getClass() == SimpleGrantedAuthority.class);
+    }
+
+    private void writeRefreshToken(Writer writer, OAuth2RefreshToken token) {
+        if (token == null) {
+            writer.writeByte(REFRESH_TOKEN_NONE);
+        } else if (token instanceof ExpiringOAuth2RefreshToken) {
+            writer.writeByte(REFRESH_TOKEN_EXPIRING);
+            writer.writeString(token.getValue());
+            writer.writeDate(((ExpiringOAuth2RefreshToken) token).getExpiration());
+        } else {
+            writer.writeByte(REFRESH_TOKEN_PLAIN);
+            writer.writeString(token.getValue());
+        }
+    }
+
+    private OAuth2RefreshToken readRefreshToken(Reader reader) {
+        byte type = reader.readByte();
+        switch (type) {
+            case REFRESH_TOKEN_NONE:
+                return null;
+            case REFRESH_TOKEN_PLAIN:
+                return new DefaultOAuth2RefreshToken(reader.readString());
+            case REFRESH_TOKEN_EXPIRING:
+                return new DefaultExpiringOAuth2RefreshToken(reader.readString(), reader.readDate());
+            default:
+                throw new IllegalArgumentException("Unknown refresh token type " + type);
+        }
+    }
+
+    private void writeAuthorities(Writer writer, Collection<? extends GrantedAuthority> authorities) {
+        writer.writeVarInt(authorities.size());
+        for (GrantedAuthority authority : authorities) {
+            writer.writeString(authority.getAuthority());
+        }
+    }
+
+    private List<GrantedAuthority> readAuthorities(Reader reader) {
+        int size = reader.readVarInt();
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+        List<GrantedAuthority> authorities = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            authorities.add(new SimpleGrantedAuthority(reader.readString()));
+        }
+        return authorities;
+    }
+
+    private static final class Writer {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+
+        private Writer(byte kind) {
+            out.write(MAGIC_0);
+            out.write(MAGIC_1);
+            out.write(VERSION);
+            out.write(kind);
+        }
+
+        void writeByte(byte value) {
+            out.write(value);
+        }
+
+        void writeBoolean(boolean value) {
+            out.write(value ? 1 : 0);
+        }
+
+        void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+
+        void writeLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (value >>> shift));
+            }
+        }
+
+        void writeDate(Date date) {
+            writeBoolean(date != null);
+            if (date != null) {
+                writeLong(date.getTime());
+            }
+        }
+
+        // null is written as length 0, the empty string as length 1
+        void writeString(String value) {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length + 1);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        void writeStrings(Collection<String> values) {
+            int size = values == null ? 0 : values.size();
+            writeVarInt(size);
+            if (size > 0) {
+                values.forEach(this::writeString);
+            }
+        }
+
+        void writeStringMap(Map<String, String> values) {
+            writeVarInt(values.size());
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                writeString(entry.getKey());
+                writeString(entry.getValue());
+            }
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        private Reader(byte[] bytes, byte expectedKind) {
+            this.bytes = bytes;
+            if (bytes[2] > VERSION) {
+                throw new IllegalArgumentException("Unsupported token format version " + bytes[2]);
+            }
+            if (bytes[3] != expectedKind) {
+                throw new IllegalArgumentException("Unexpected token format kind " + bytes[3]);
+            }
+            this.position = 4;
+        }
+
+        byte readByte() {
+            return bytes[position++];
+        }
+
+        boolean readBoolean() {
+            return bytes[position++] != 0;
+        }
+
+        int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (bytes[position++] & 0xFF);
+            }
+            return value;
+        }
+
+        Date readDate() {
+            return readBoolean() ? new Date(readLong()) : null;
+        }
+
+        String readString() {
+            int length = readVarInt();
+            if (length == 0) {
+                return null;
+            }
+            String value = new String(bytes, position, length - 1, StandardCharsets.UTF_8);
+            position += length - 1;
+            return value;
+        }
+
+        Set<String> readStringSet() {
+            int size = readVarInt();
+            if (size == 0) {
+                return Collections.emptySet();
+            }
+            Set<String> values = new LinkedHashSet<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                values.add(readString());
+            }
+            return values;
+        }
+
+        Map<String, String> readStringMap() {
+            int size = readVarInt();
+            if (size == 0) {
+                return Collections.emptyMap();
+            }
+            Map<String, String> values = new HashMap<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                values.put(readString(), readString());
+            }
+            return values;
+        }
+    }
+}
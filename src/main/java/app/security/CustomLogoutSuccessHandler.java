@@ -28,7 +28,7 @@ public class CustomLogoutSuccessHandler extends AbstractAuthenticationTargetUrlR
         final String token = request.getHeader(HEADER_AUTHORIZATION);
         Optional.ofNullable(token).ifPresent(t -> {
             if (t.startsWith(BEARER_AUTHENTICATION)) {
-                OAuth2AccessToken oAuth2AccessToken = tokenStore.readAccessToken(t.split(" ")[0]);
+                OAuth2AccessToken oAuth2AccessToken = tokenStore.readAccessToken(t.substring(BEARER_AUTHENTICATION.length()).trim());
                 Optional.ofNullable(oAuth2AccessToken).ifPresent(oauthToken -> {
                     tokenStore.removeAccessToken(oauthToken);
                 });
@@ -0,0 +1,44 @@
+package app.security;
+
+import app.error.PasswordHashingUnavailableException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
+import org.springframework.security.oauth2.provider.error.DefaultWebResponseExceptionTranslator;
+
+/**
+ * Answers token requests rejected by a saturated {@link BoundedPasswordEncoder} with 503 and Retry-After
+ * instead of the generic 500 of {@link DefaultWebResponseExceptionTranslator}.
+ */
+public class CustomWebResponseExceptionTranslator extends DefaultWebResponseExceptionTranslator {
+    @Override
+    public ResponseEntity<OAuth2Exception> translate(Exception e) throws Exception {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PasswordHashingUnavailableException) {
+                HttpHeaders headers = new HttpHeaders();
+                headers.set(HttpHeaders.RETRY_AFTER,
+                        String.valueOf(((PasswordHashingUnavailableException) cause).getRetryAfterSeconds()));
+                return new ResponseEntity<>(new TemporarilyUnavailableException(cause.getMessage()), headers,
+                        HttpStatus.SERVICE_UNAVAILABLE);
+            }
+        }
+        return super.translate(e);
+    }
+
+    private static class TemporarilyUnavailableException extends OAuth2Exception {
+        private TemporarilyUnavailableException(String msg) {
+            super(msg);
+        }
+
+        @Override
+        public String getOAuth2ErrorCode() {
+            return "temporarily_unavailable";
+        }
+
+        @Override
+        public int getHttpErrorCode() {
+            return HttpStatus.SERVICE_UNAVAILABLE.value();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package app.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Authenticated end user, carrying the ids token enhancement needs so it does not have to load the user again.
+ */
+public class DomainUser extends User {
+    private final String id;
+    private final String tenantId;
+
+    public DomainUser(String id, String tenantId, String username, String password,
+                      Collection<? extends GrantedAuthority> authorities) {
+        this(id, tenantId, username, password, true, true, true, true, authorities);
+    }
+
+    public DomainUser(String id, String tenantId, String username, String password, boolean enabled,
+                      boolean accountNonExpired, boolean credentialsNonExpired, boolean accountNonLocked,
+                      Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, enabled, accountNonExpired, credentialsNonExpired, accountNonLocked, authorities);
+        this.id = id;
+        this.tenantId = tenantId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+}
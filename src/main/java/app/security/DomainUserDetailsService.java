@@ -1,6 +1,8 @@
 package app.security;
 
 import app.domain.EndUser;
+import app.domain.EndUserLogin;
+import app.domain.EndUserStatus;
 import app.repository.EndUserRepository;
 import app.util.EmailUtil;
 import org.slf4j.Logger;
@@ -47,22 +49,39 @@ public class DomainUserDetailsService implements UserDetailsService {
         if (StringUtils.isEmpty(applicationId)) {
             throw new InvalidClientException("client_id(application id) is required");
         }
-        EndUser userFromRepository = null;
+        EndUserLogin userFromRepository = null;
         if (isEmailLogin(login)) {
-            userFromRepository = endUserRepository.findByApplicationAndEmail(applicationId, lowercaseLogin);
+            userFromRepository = endUserRepository.findLoginByApplicationAndEmail(applicationId, lowercaseLogin);
         } else {
-            userFromRepository = endUserRepository.findByApplicationAndCredentialAccount(applicationId, lowercaseLogin);
+            userFromRepository = endUserRepository.findLoginByApplicationAndCredentialAccount(applicationId, lowercaseLogin);
         }
 
         return buildLoadedUserDetails(login, userFromRepository);
     }
 
-    private UserDetails buildLoadedUserDetails(String login, EndUser userFromRepository) {
+    public void updatePassword(DomainUser user, String encodedPassword) {
+        EndUser endUser = endUserRepository.findOne(user.getId());
+        if (endUser == null || endUser.getCredential() == null) {
+            return;
+        }
+        endUser.getCredential().setPassword(encodedPassword);
+        endUserRepository.save(endUser);
+        log.debug("Upgraded password hash of user {}", user.getId());
+    }
+
+    // SUSPENDED users are locked and TERMINATED users disabled, both are rejected before the password is checked
+    private UserDetails buildLoadedUserDetails(String login, EndUserLogin userFromRepository) {
         return Optional.ofNullable(userFromRepository).map(u -> {
             Collection<GrantedAuthority> grantedAuthorities = Arrays.asList(new SimpleGrantedAuthority("USER"));
-            return new User(
-                    u.getCredential().getAccount(),
-                    u.getCredential().getPassword(),
+            return new DomainUser(
+                    u.getId(),
+                    u.getTenantId(),
+                    u.getAccount(),
+                    u.getPassword(),
+                    u.getStatus() != EndUserStatus.TERMINATED,
+                    true,
+                    true,
+                    u.getStatus() != EndUserStatus.SUSPENDED,
                     grantedAuthorities);
         }).<UsernameNotFoundException>orElseThrow(() -> new UsernameNotFoundException(String.format("User: %s was not found", login)));
     }
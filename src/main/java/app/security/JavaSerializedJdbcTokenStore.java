@@ -0,0 +1,34 @@
+package app.security;
+
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.common.util.SerializationUtils;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.store.JdbcTokenStore;
+
+import javax.sql.DataSource;
+
+/**
+ * Writes Java-serialized blobs like the plain {@link JdbcTokenStore}, but with the {@code expiration} column of
+ * {@link CompactJdbcTokenStore}, so {@link TokenReaper} finds its tokens without decoding them.
+ */
+public class JavaSerializedJdbcTokenStore extends CompactJdbcTokenStore {
+    public JavaSerializedJdbcTokenStore(DataSource dataSource) {
+        super(dataSource);
+    }
+
+    @Override
+    protected byte[] serializeAccessToken(OAuth2AccessToken token) {
+        return SerializationUtils.serialize(token);
+    }
+
+    @Override
+    protected byte[] serializeRefreshToken(OAuth2RefreshToken token) {
+        return SerializationUtils.serialize(token);
+    }
+
+    @Override
+    protected byte[] serializeAuthentication(OAuth2Authentication authentication) {
+        return SerializationUtils.serialize(authentication);
+    }
+}
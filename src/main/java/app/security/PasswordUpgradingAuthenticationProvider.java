@@ -0,0 +1,39 @@
+package app.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+
+/**
+ * Re-hashes the password of an end user whose stored hash is outdated, right after the password was verified.
+ * A failed upgrade never fails the login; it is retried on the next one.
+ */
+public class PasswordUpgradingAuthenticationProvider extends DaoAuthenticationProvider {
+    private static final Logger log = LoggerFactory.getLogger(PasswordUpgradingAuthenticationProvider.class);
+
+    private final DomainUserDetailsService domainUserDetailsService;
+    private final UpgradablePasswordEncoder passwordEncoder;
+
+    public PasswordUpgradingAuthenticationProvider(DomainUserDetailsService domainUserDetailsService, UpgradablePasswordEncoder passwordEncoder) {
+        this.domainUserDetailsService = domainUserDetailsService;
+        this.passwordEncoder = passwordEncoder;
+        setUserDetailsService(domainUserDetailsService);
+        setPasswordEncoder(passwordEncoder);
+    }
+
+    @Override
+    protected Authentication createSuccessAuthentication(Object principal, Authentication authentication, UserDetails user) {
+        if (user instanceof DomainUser && authentication.getCredentials() != null
+                && passwordEncoder.upgradeEncoding(user.getPassword())) {
+            try {
+                String encoded = passwordEncoder.encode(authentication.getCredentials().toString());
+                domainUserDetailsService.updatePassword((DomainUser) user, encoded);
+            } catch (RuntimeException e) {
+                log.warn("Could not upgrade password hash of user {}", ((DomainUser) user).getId(), e);
+            }
+        }
+        return super.createSuccessAuthentication(principal, authentication, user);
+    }
+}
@@ -0,0 +1,40 @@
+package app.security;
+
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+import org.springframework.security.oauth2.provider.token.store.JwtAccessTokenConverter;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+
+/**
+ * Self-contained JWT access tokens with refresh tokens kept in another (persistent) store.
+ * Access tokens are verified locally from their signature; refresh tokens stay revocable through the delegate.
+ */
+public class PersistentRefreshJwtTokenStore extends JwtTokenStore {
+    private final TokenStore refreshTokenStore;
+
+    public PersistentRefreshJwtTokenStore(JwtAccessTokenConverter jwtTokenEnhancer, TokenStore refreshTokenStore) {
+        super(jwtTokenEnhancer);
+        this.refreshTokenStore = refreshTokenStore;
+    }
+
+    @Override
+    public void storeRefreshToken(OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+        refreshTokenStore.storeRefreshToken(refreshToken, authentication);
+    }
+
+    @Override
+    public OAuth2RefreshToken readRefreshToken(String tokenValue) {
+        return refreshTokenStore.readRefreshToken(tokenValue);
+    }
+
+    @Override
+    public OAuth2Authentication readAuthenticationForRefreshToken(OAuth2RefreshToken token) {
+        return refreshTokenStore.readAuthenticationForRefreshToken(token);
+    }
+
+    @Override
+    public void removeRefreshToken(OAuth2RefreshToken token) {
+        refreshTokenStore.removeRefreshToken(token);
+    }
+}
@@ -0,0 +1,96 @@
+package app.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.util.Assert;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stores hashes as {@code {id}hash} so the algorithm or its cost can change without invalidating existing hashes.
+ * New hashes use the encoder registered as {@code idForEncode}; hashes without a prefix predate this encoder and are
+ * checked with the {@code legacyId} encoder. A hash needs an upgrade when its id differs from {@code idForEncode} or,
+ * for BCrypt, when its cost differs from the configured one.
+ */
+public class PrefixedPasswordEncoder implements UpgradablePasswordEncoder {
+    public static final String BCRYPT = "bcrypt";
+    private static final String PREFIX = "{";
+    private static final String SUFFIX = "}";
+    private static final Pattern BCRYPT_COST = Pattern.compile("\\A\\$2[aby]?\\$(\\d\\d)\\$");
+
+    private final String idForEncode;
+    private final PasswordEncoder encoderForEncode;
+    private final Map<String, PasswordEncoder> encoders;
+    private final String legacyId;
+    private final int bcryptStrength;
+
+    public PrefixedPasswordEncoder(String idForEncode, Map<String, PasswordEncoder> encoders, String legacyId, int bcryptStrength) {
+        Assert.isTrue(encoders.containsKey(idForEncode), "No password encoder registered for id " + idForEncode);
+        Assert.isTrue(encoders.containsKey(legacyId), "No password encoder registered for id " + legacyId);
+        this.idForEncode = idForEncode;
+        this.encoderForEncode = encoders.get(idForEncode);
+        this.encoders = new HashMap<>(encoders);
+        this.legacyId = legacyId;
+        this.bcryptStrength = bcryptStrength;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return PREFIX + idForEncode + SUFFIX + encoderForEncode.encode(rawPassword);
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        String id = extractId(encodedPassword);
+        PasswordEncoder encoder = encoders.get(id == null ? legacyId : id);
+        if (encoder == null) {
+            return false;
+        }
+        return encoder.matches(rawPassword, id == null ? encodedPassword : extractHash(encodedPassword, id));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        String id = extractId(encodedPassword);
+        if (!idForEncode.equals(id)) {
+            return true;
+        }
+        if (BCRYPT.equals(id)) {
+            Matcher matcher = BCRYPT_COST.matcher(extractHash(encodedPassword, id));
+            return !matcher.find() || Integer.parseInt(matcher.group(1)) != bcryptStrength;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isEncoded(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        String id = extractId(encodedPassword);
+        if (id == null) {
+            return BCRYPT.equals(legacyId) && BCRYPT_COST.matcher(encodedPassword).find();
+        }
+        return encoders.containsKey(id) && encodedPassword.length() > PREFIX.length() + id.length() + SUFFIX.length();
+    }
+
+    private String extractId(String encodedPassword) {
+        if (!encodedPassword.startsWith(PREFIX)) {
+            return null;
+        }
+        int end = encodedPassword.indexOf(SUFFIX);
+        return end < 0 ? null : encodedPassword.substring(PREFIX.length(), end);
+    }
+
+    private String extractHash(String encodedPassword, String id) {
+        return encodedPassword.substring(PREFIX.length() + id.length() + SUFFIX.length());
+    }
+}
@@ -0,0 +1,142 @@
+package app.security;
+
+import app.config.datasource.ReplicaLagGuard;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * Looks access tokens up on a read replica and only asks the primary store when the replica does not have them,
+ * either because it has not replayed a token issued moments ago yet or because it is unreachable. Everything else,
+ * including refresh tokens, which must not be used again once removed, goes to the primary store.
+ * <p>
+ * An access token removed through this store, directly or with its refresh token, is read from the primary for the
+ * {@code revocations} window, as the replica may still return it until it replayed the removal.
+ */
+public class ReplicaFallbackTokenStore implements TokenStore {
+    private static final Logger log = LoggerFactory.getLogger(ReplicaFallbackTokenStore.class);
+
+    private final TokenStore delegate;
+    private final TokenStore replica;
+    private final ReplicaLagGuard revocations;
+
+    public ReplicaFallbackTokenStore(TokenStore delegate, TokenStore replica, ReplicaLagGuard revocations) {
+        this.delegate = delegate;
+        this.replica = replica;
+        this.revocations = revocations;
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String tokenValue) {
+        if (!revocations.wroteRecently(tokenValue)) {
+            OAuth2AccessToken found = fromReplica(store -> store.readAccessToken(tokenValue));
+            if (found != null && !refreshTokenRevoked(found)) {
+                return found;
+            }
+        }
+        return delegate.readAccessToken(tokenValue);
+    }
+
+    @Override
+    public OAuth2Authentication readAuthentication(OAuth2AccessToken token) {
+        if (refreshTokenRevoked(token)) {
+            return delegate.readAuthentication(token.getValue());
+        }
+        return readAuthentication(token.getValue());
+    }
+
+    @Override
+    public OAuth2Authentication readAuthentication(String token) {
+        if (!revocations.wroteRecently(token)) {
+            OAuth2Authentication found = fromReplica(store -> store.readAuthentication(token));
+            if (found != null) {
+                return found;
+            }
+        }
+        return delegate.readAuthentication(token);
+    }
+
+    @Override
+    public OAuth2RefreshToken readRefreshToken(String tokenValue) {
+        return delegate.readRefreshToken(tokenValue);
+    }
+
+    @Override
+    public OAuth2Authentication readAuthenticationForRefreshToken(OAuth2RefreshToken token) {
+        return delegate.readAuthenticationForRefreshToken(token);
+    }
+
+    @Override
+    public void storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+        delegate.storeAccessToken(token, authentication);
+    }
+
+    @Override
+    public void removeAccessToken(OAuth2AccessToken token) {
+        try {
+            delegate.removeAccessToken(token);
+        } finally {
+            revocations.writeCommitted(token.getValue());
+        }
+    }
+
+    @Override
+    public void storeRefreshToken(OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+        delegate.storeRefreshToken(refreshToken, authentication);
+    }
+
+    @Override
+    public void removeRefreshToken(OAuth2RefreshToken token) {
+        try {
+            delegate.removeRefreshToken(token);
+        } finally {
+            revocations.writeCommitted(token.getValue());
+        }
+    }
+
+    @Override
+    public void removeAccessTokenUsingRefreshToken(OAuth2RefreshToken refreshToken) {
+        try {
+            delegate.removeAccessTokenUsingRefreshToken(refreshToken);
+        } finally {
+            revocations.writeCommitted(refreshToken.getValue());
+        }
+    }
+
+    @Override
+    public OAuth2AccessToken getAccessToken(OAuth2Authentication authentication) {
+        return delegate.getAccessToken(authentication);
+    }
+
+    @Override
+    public Collection<OAuth2AccessToken> findTokensByClientIdAndUserName(String clientId, String userName) {
+        return delegate.findTokensByClientIdAndUserName(clientId, userName);
+    }
+
+    @Override
+    public Collection<OAuth2AccessToken> findTokensByClientId(String clientId) {
+        return delegate.findTokensByClientId(clientId);
+    }
+
+    // the access token was issued with a refresh token that was removed, and with it the access token
+    private boolean refreshTokenRevoked(OAuth2AccessToken token) {
+        return token.getRefreshToken() != null && revocations.wroteRecently(token.getRefreshToken().getValue());
+    }
+
+    // null when the replica does not have the token or cannot be reached
+    private <T> T fromReplica(Function<TokenStore, T> lookup) {
+        try {
+            return lookup.apply(replica);
+        } catch (DataAccessException e) {
+            log.warn("Token lookup on the replica failed, reading from the primary: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package app.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.common.ExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Deletes expired access tokens, refresh tokens and abandoned authorization codes.
+ * <p>
+ * Each table is cleaned in small batches: the keys of at most {@code batchSize} expired rows are selected through
+ * the expiry index and deleted by key, with a pause between batches and at most {@code maxBatches} per table and run,
+ * so no statement holds locks for long. Rows written before the stores filled the expiry column are backfilled from
+ * their blob the same way.
+ */
+@Component
+@ConditionalOnProperty(name = "iam.token.reaper.enabled", havingValue = "true", matchIfMissing = true)
+public class TokenReaper {
+    private static final Logger log = LoggerFactory.getLogger(TokenReaper.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CompactTokenCodec codec = new CompactTokenCodec();
+
+    @Value("${iam.token.reaper.batch-size:500}")
+    private int batchSize;
+
+    @Value("${iam.token.reaper.max-batches:20}")
+    private int maxBatches;
+
+    @Value("${iam.token.reaper.pause-ms:100}")
+    private long pauseMillis;
+
+    @Value("${iam.token.reaper.code-ttl-seconds:600}")
+    private long codeTtlSeconds;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final Map<String, AtomicLong> deletedTotals = new LinkedHashMap<>();
+    private final AtomicLong backfilledTotal = new AtomicLong();
+    private volatile Map<String, Object> lastRun = Collections.emptyMap();
+
+    @Autowired
+    public TokenReaper(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        deletedTotals.put("oauth_access_token", new AtomicLong());
+        deletedTotals.put("oauth_refresh_token", new AtomicLong());
+        deletedTotals.put("oauth_code", new AtomicLong());
+    }
+
+    @Scheduled(initialDelayString = "${iam.token.reaper.initial-delay-ms:60000}", fixedDelayString = "${iam.token.reaper.interval-ms:300000}")
+    public void reap() {
+        long start = System.currentTimeMillis();
+        Timestamp now = new Timestamp(start);
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("startedAt", now.toString());
+        try {
+            int backfilled = backfillAccessTokenExpiration() + backfillRefreshTokenExpiration();
+            run.put("backfilled", backfilled);
+            run.put("oauth_access_token", deleteInBatches("oauth_access_token", "token_id", "expiration", now));
+            run.put("oauth_refresh_token", deleteInBatches("oauth_refresh_token", "token_id", "expiration", now));
+            run.put("oauth_code", deleteInBatches("oauth_code", "code", "created_at",
+                    new Timestamp(start - TimeUnit.SECONDS.toMillis(codeTtlSeconds))));
+        } catch (RuntimeException e) {
+            log.error("Token reaper run failed", e);
+            run.put("error", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.put("error", "interrupted");
+        }
+        run.put("durationMs", System.currentTimeMillis() - start);
+        runs.incrementAndGet();
+        lastRun = Collections.unmodifiableMap(run);
+        log.debug("Token reaper run finished: {}", run);
+    }
+
+    public Map<String, Object> statistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("runs", runs.get());
+        Map<String, Long> deleted = new LinkedHashMap<>();
+        deletedTotals.forEach((table, count) -> deleted.put(table, count.get()));
+        statistics.put("deleted", deleted);
+        statistics.put("backfilled", backfilledTotal.get());
+        statistics.put("lastRun", lastRun);
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("batchSize", batchSize);
+        settings.put("maxBatches", maxBatches);
+        settings.put("pauseMs", pauseMillis);
+        settings.put("codeTtlSeconds", codeTtlSeconds);
+        statistics.put("settings", settings);
+        return statistics;
+    }
+
+    // the expiry is checked again on delete, as a row may have been replaced with a fresh one since the select
+    private long deleteInBatches(String table, String keyColumn, String expiryColumn, Timestamp threshold) throws InterruptedException {
+        long deleted = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            List<String> keys = jdbcTemplate.queryForList("select " + keyColumn + " from " + table
+                    + " where " + expiryColumn + " < ? limit " + batchSize, String.class, threshold);
+            if (keys.isEmpty()) {
+                break;
+            }
+            List<Object> args = new ArrayList<>(keys);
+            args.add(threshold);
+            deleted += jdbcTemplate.update("delete from " + table + " where " + keyColumn + " in ("
+                    + placeholders(keys.size()) + ") and " + expiryColumn + " < ?", args.toArray());
+            if (keys.size() < batchSize) {
+                break;
+            }
+            Thread.sleep(pauseMillis);
+        }
+        deletedTotals.get(table).addAndGet(deleted);
+        return deleted;
+    }
+
+    private int backfillAccessTokenExpiration() throws InterruptedException {
+        return backfill("oauth_access_token", token -> codec.deserializeAccessToken(token).getExpiration());
+    }
+
+    private int backfillRefreshTokenExpiration() throws InterruptedException {
+        return backfill("oauth_refresh_token", token -> {
+            OAuth2RefreshToken refreshToken = codec.deserializeRefreshToken(token);
+            return refreshToken instanceof ExpiringOAuth2RefreshToken
+                    ? ((ExpiringOAuth2RefreshToken) refreshToken).getExpiration()
+                    : null;
+        });
+    }
+
+    // only rows written before the stores wrote the column are left, so this drains and then finds nothing
+    private int backfill(String table, Function<byte[], Date> expirationOf) throws InterruptedException {
+        int backfilled = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                    "select token_id, token from " + table + " where expiration is null limit " + batchSize);
+            if (rows.isEmpty()) {
+                break;
+            }
+            List<Object[]> updates = new ArrayList<>(rows.size());
+            for (Map<String, Object> row : rows) {
+                Timestamp expiration;
+                try {
+                    expiration = CompactJdbcTokenStore.expiration(expirationOf.apply((byte[]) row.get("token")));
+                } catch (IllegalArgumentException e) {
+                    // unreadable tokens are useless, let them be reaped
+                    expiration = new Timestamp(0);
+                }
+                updates.add(new Object[]{expiration, row.get("token_id")});
+            }
+            jdbcTemplate.batchUpdate("update " + table + " set expiration = ? where token_id = ? and expiration is null", updates);
+            backfilled += rows.size();
+            if (rows.size() < batchSize) {
+                break;
+            }
+            Thread.sleep(pauseMillis);
+        }
+        backfilledTotal.addAndGet(backfilled);
+        return backfilled;
+    }
+
+    private String placeholders(int count) {
+        StringBuilder builder = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            builder.append(i == 0 ? "?" : ",?");
+        }
+        return builder.toString();
+    }
+}
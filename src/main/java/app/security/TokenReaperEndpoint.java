@@ -0,0 +1,25 @@
+package app.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+@Component
+@ConditionalOnProperty(name = "iam.token.reaper.enabled", havingValue = "true", matchIfMissing = true)
+public class TokenReaperEndpoint extends AbstractEndpoint<Map<String, Object>> {
+    private final TokenReaper tokenReaper;
+
+    @Autowired
+    public TokenReaperEndpoint(TokenReaper tokenReaper) {
+        super("tokenreaper");
+        this.tokenReaper = tokenReaper;
+    }
+
+    @Override
+    public Map<String, Object> invoke() {
+        return tokenReaper.statistics();
+    }
+}
@@ -0,0 +1,15 @@
+package app.security;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+public interface UpgradablePasswordEncoder extends PasswordEncoder {
+    /**
+     * @return true if the hash was not produced with the current algorithm and cost and should be re-encoded
+     */
+    boolean upgradeEncoding(String encodedPassword);
+
+    /**
+     * @return true if {@link #matches} can check passwords against the hash, e.g. for hashes imported as they are
+     */
+    boolean isEncoded(String encodedPassword);
+}
@@ -0,0 +1,330 @@
+package app.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token store that keeps freshly issued tokens in memory and group-commits them every {@code flushIntervalMillis}
+ * with batched statements in a single transaction, instead of running remove + insert per token on the request thread.
+ * <p>
+ * Unflushed tokens are served from memory, so the issuing node sees them immediately. Other nodes only see them
+ * after the next flush, and tokens issued within the last interval are lost if the process dies; clients then have
+ * to authenticate again. Removals are applied synchronously.
+ */
+public class WriteBehindJdbcTokenStore extends CompactJdbcTokenStore implements InitializingBean, DisposableBean, PublicMetrics {
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindJdbcTokenStore.class);
+
+    private static final String DELETE_ACCESS_TOKEN_BY_AUTHENTICATION_SQL = "delete from oauth_access_token where authentication_id = ?";
+    private static final String DELETE_ACCESS_TOKEN_SQL = "delete from oauth_access_token where token_id = ?";
+
+    private final TransactionTemplate transactionTemplate;
+    private final long flushIntervalMillis;
+    private final int maxBatchSize;
+
+    private final Map<String, PendingAccessToken> pendingAccessTokens = new ConcurrentHashMap<>();
+    private final Map<String, String> pendingAccessTokenValuesByAuthentication = new ConcurrentHashMap<>();
+    private final Map<String, PendingRefreshToken> pendingRefreshTokens = new ConcurrentHashMap<>();
+    private final Object flushLock = new Object();
+    private ScheduledExecutorService flushExecutor;
+
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+    private final AtomicLong flushedTokens = new AtomicLong();
+    private volatile int lastBatchSize;
+    private volatile int maxObservedBatchSize;
+    private volatile long lastFlushMillis;
+    private volatile long maxFlushMillis;
+
+    public WriteBehindJdbcTokenStore(DataSource dataSource, long flushIntervalMillis, int maxBatchSize) {
+        super(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flushExecutor.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (flushExecutor != null) {
+            flushExecutor.shutdown();
+            flushExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        flush();
+    }
+
+    @Override
+    public void storeAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication) {
+        String authenticationKey = authenticationKeyGenerator.extractKey(authentication);
+        pendingAccessTokens.put(token.getValue(), new PendingAccessToken(token, authentication, authenticationKey));
+        String replaced = pendingAccessTokenValuesByAuthentication.put(authenticationKey, token.getValue());
+        if (replaced != null && !replaced.equals(token.getValue())) {
+            pendingAccessTokens.remove(replaced);
+        }
+    }
+
+    @Override
+    public void storeRefreshToken(OAuth2RefreshToken refreshToken, OAuth2Authentication authentication) {
+        pendingRefreshTokens.put(refreshToken.getValue(), new PendingRefreshToken(refreshToken, authentication));
+    }
+
+    @Override
+    public OAuth2AccessToken getAccessToken(OAuth2Authentication authentication) {
+        String tokenValue = pendingAccessTokenValuesByAuthentication.get(authenticationKeyGenerator.extractKey(authentication));
+        PendingAccessToken pending = tokenValue == null ? null : pendingAccessTokens.get(tokenValue);
+        if (pending != null) {
+            return pending.token;
+        }
+        return super.getAccessToken(authentication);
+    }
+
+    @Override
+    public OAuth2AccessToken readAccessToken(String tokenValue) {
+        PendingAccessToken pending = pendingAccessTokens.get(tokenValue);
+        if (pending != null) {
+            return pending.token;
+        }
+        return super.readAccessToken(tokenValue);
+    }
+
+    @Override
+    public OAuth2Authentication readAuthentication(String token) {
+        PendingAccessToken pending = pendingAccessTokens.get(token);
+        if (pending != null) {
+            return pending.authentication;
+        }
+        return super.readAuthentication(token);
+    }
+
+    @Override
+    public OAuth2RefreshToken readRefreshToken(String token) {
+        PendingRefreshToken pending = pendingRefreshTokens.get(token);
+        if (pending != null) {
+            return pending.token;
+        }
+        return super.readRefreshToken(token);
+    }
+
+    @Override
+    public OAuth2Authentication readAuthenticationForRefreshToken(String value) {
+        PendingRefreshToken pending = pendingRefreshTokens.get(value);
+        if (pending != null) {
+            return pending.authentication;
+        }
+        return super.readAuthenticationForRefreshToken(value);
+    }
+
+    @Override
+    public void removeAccessToken(String tokenValue) {
+        synchronized (flushLock) {
+            PendingAccessToken pending = pendingAccessTokens.remove(tokenValue);
+            if (pending != null) {
+                pendingAccessTokenValuesByAuthentication.remove(pending.authenticationKey, tokenValue);
+            }
+            super.removeAccessToken(tokenValue);
+        }
+    }
+
+    @Override
+    public void removeRefreshToken(String token) {
+        synchronized (flushLock) {
+            pendingRefreshTokens.remove(token);
+            super.removeRefreshToken(token);
+        }
+    }
+
+    @Override
+    public void removeAccessTokenUsingRefreshToken(String refreshToken) {
+        synchronized (flushLock) {
+            Iterator<PendingAccessToken> iterator = pendingAccessTokens.values().iterator();
+            while (iterator.hasNext()) {
+                PendingAccessToken pending = iterator.next();
+                OAuth2RefreshToken issuedWith = pending.token.getRefreshToken();
+                if (issuedWith != null && refreshToken.equals(issuedWith.getValue())) {
+                    iterator.remove();
+                    pendingAccessTokenValuesByAuthentication.remove(pending.authenticationKey, pending.token.getValue());
+                }
+            }
+            super.removeAccessTokenUsingRefreshToken(refreshToken);
+        }
+    }
+
+    @Override
+    public Collection<OAuth2AccessToken> findTokensByClientId(String clientId) {
+        flush();
+        return super.findTokensByClientId(clientId);
+    }
+
+    @Override
+    public Collection<OAuth2AccessToken> findTokensByUserName(String userName) {
+        flush();
+        return super.findTokensByUserName(userName);
+    }
+
+    @Override
+    public Collection<OAuth2AccessToken> findTokensByClientIdAndUserName(String clientId, String userName) {
+        flush();
+        return super.findTokensByClientIdAndUserName(clientId, userName);
+    }
+
+    public void flush() {
+        synchronized (flushLock) {
+            while (!pendingAccessTokens.isEmpty() || !pendingRefreshTokens.isEmpty()) {
+                List<PendingAccessToken> accessTokens = take(pendingAccessTokens.values());
+                List<PendingRefreshToken> refreshTokens = take(pendingRefreshTokens.values());
+                long start = System.currentTimeMillis();
+                try {
+                    transactionTemplate.execute(status -> {
+                        writeBatch(accessTokens, refreshTokens);
+                        return null;
+                    });
+                } catch (RuntimeException e) {
+                    flushFailures.incrementAndGet();
+                    log.warn("Batched token flush failed, storing {} tokens one by one", accessTokens.size() + refreshTokens.size(), e);
+                    writeOneByOne(accessTokens, refreshTokens);
+                }
+                accessTokens.forEach(this::clearPending);
+                refreshTokens.forEach(pending -> pendingRefreshTokens.remove(pending.token.getValue(), pending));
+                recordFlush(accessTokens.size() + refreshTokens.size(), System.currentTimeMillis() - start);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Token flush failed", e);
+        }
+    }
+
+    private <T> List<T> take(Collection<T> pending) {
+        List<T> batch = new ArrayList<>(Math.min(pending.size(), maxBatchSize));
+        Iterator<T> iterator = pending.iterator();
+        while (iterator.hasNext() && batch.size() < maxBatchSize) {
+            batch.add(iterator.next());
+        }
+        return batch;
+    }
+
+    private void writeBatch(List<PendingAccessToken> accessTokens, List<PendingRefreshToken> refreshTokens) {
+        if (!accessTokens.isEmpty()) {
+            List<Object[]> deleteByAuthentication = new ArrayList<>(accessTokens.size());
+            List<Object[]> deleteByToken = new ArrayList<>(accessTokens.size());
+            List<Object[]> inserts = new ArrayList<>(accessTokens.size());
+            for (PendingAccessToken pending : accessTokens) {
+                Object[] row = accessTokenRow(pending.token, pending.authentication, pending.authenticationKey);
+                deleteByAuthentication.add(new Object[]{pending.authenticationKey});
+                deleteByToken.add(new Object[]{row[0]});
+                inserts.add(row);
+            }
+            jdbcTemplate.batchUpdate(DELETE_ACCESS_TOKEN_BY_AUTHENTICATION_SQL, deleteByAuthentication);
+            jdbcTemplate.batchUpdate(DELETE_ACCESS_TOKEN_SQL, deleteByToken);
+            jdbcTemplate.batchUpdate(INSERT_ACCESS_TOKEN_SQL, inserts);
+        }
+        if (!refreshTokens.isEmpty()) {
+            List<Object[]> inserts = new ArrayList<>(refreshTokens.size());
+            for (PendingRefreshToken pending : refreshTokens) {
+                inserts.add(refreshTokenRow(pending.token, pending.authentication));
+            }
+            jdbcTemplate.batchUpdate(INSERT_REFRESH_TOKEN_SQL, inserts);
+        }
+    }
+
+    private void writeOneByOne(List<PendingAccessToken> accessTokens, List<PendingRefreshToken> refreshTokens) {
+        for (PendingRefreshToken pending : refreshTokens) {
+            try {
+                super.storeRefreshToken(pending.token, pending.authentication);
+            } catch (RuntimeException e) {
+                log.error("Dropping refresh token that could not be stored", e);
+            }
+        }
+        for (PendingAccessToken pending : accessTokens) {
+            try {
+                super.storeAccessToken(pending.token, pending.authentication);
+            } catch (RuntimeException e) {
+                log.error("Dropping access token that could not be stored", e);
+            }
+        }
+    }
+
+    private void clearPending(PendingAccessToken pending) {
+        if (pendingAccessTokens.remove(pending.token.getValue(), pending)) {
+            pendingAccessTokenValuesByAuthentication.remove(pending.authenticationKey, pending.token.getValue());
+        }
+    }
+
+    private void recordFlush(int batchSize, long elapsedMillis) {
+        flushCount.incrementAndGet();
+        flushedTokens.addAndGet(batchSize);
+        lastBatchSize = batchSize;
+        lastFlushMillis = elapsedMillis;
+        maxObservedBatchSize = Math.max(maxObservedBatchSize, batchSize);
+        maxFlushMillis = Math.max(maxFlushMillis, elapsedMillis);
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        metrics.add(new Metric<>("tokenstore.writebehind.pending", pendingAccessTokens.size() + pendingRefreshTokens.size()));
+        metrics.add(new Metric<>("tokenstore.writebehind.flush.count", flushCount.get()));
+        metrics.add(new Metric<>("tokenstore.writebehind.flush.failures", flushFailures.get()));
+        metrics.add(new Metric<>("tokenstore.writebehind.flush.tokens", flushedTokens.get()));
+        metrics.add(new Metric<>("tokenstore.writebehind.batch.size.last", lastBatchSize));
+        metrics.add(new Metric<>("tokenstore.writebehind.batch.size.max", maxObservedBatchSize));
+        metrics.add(new Metric<>("tokenstore.writebehind.flush.latency.last", lastFlushMillis));
+        metrics.add(new Metric<>("tokenstore.writebehind.flush.latency.max", maxFlushMillis));
+        return metrics;
+    }
+
+    private static class PendingAccessToken {
+        private final OAuth2AccessToken token;
+        private final OAuth2Authentication authentication;
+        private final String authenticationKey;
+
+        private PendingAccessToken(OAuth2AccessToken token, OAuth2Authentication authentication, String authenticationKey) {
+            this.token = token;
+            this.authentication = authentication;
+            this.authenticationKey = authenticationKey;
+        }
+    }
+
+    private static class PendingRefreshToken {
+        private final OAuth2RefreshToken token;
+        private final OAuth2Authentication authentication;
+
+        private PendingRefreshToken(OAuth2RefreshToken token, OAuth2Authentication authentication) {
+            this.token = token;
+            this.authentication = authentication;
+        }
+    }
+}
@@ -17,12 +17,15 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.NoSuchClientException;
 import org.springframework.security.oauth2.provider.client.JdbcClientDetailsService;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
 @Service
+@Transactional
 public class ApplicationService {
     private static final int DEFAULT_API_KEY_LENGTH = 32;
     private final ApplicationRepository applicationRepository;
@@ -30,16 +33,19 @@ public class ApplicationService {
     private final JdbcClientDetailsService jdbcClientDetailsService;
     private final ClientDetailsFactory<Application> clientDetailsFactory;
     private final TenantService tenantService;
+    private final EndUserStatusCounts endUserStatusCounts;
 
     public ApplicationService(
             ApplicationRepository applicationRepository,
             JdbcClientDetailsService jdbcClientDetailsService,
             @Qualifier("applicationBaseClientDetailsFactory") ClientDetailsFactory<Application> clientDetailsFactory,
-            TenantService tenantService) {
+            TenantService tenantService,
+            EndUserStatusCounts endUserStatusCounts) {
         this.applicationRepository = applicationRepository;
         this.jdbcClientDetailsService = jdbcClientDetailsService;
         this.clientDetailsFactory = clientDetailsFactory;
         this.tenantService = tenantService;
+        this.endUserStatusCounts = endUserStatusCounts;
     }
 
     public boolean addApplicationUser(String applicationId, EndUser endUser) {
@@ -77,6 +83,9 @@ public class ApplicationService {
         newApplication.setApiKey(ApiKeyGenerator.generate(DEFAULT_API_KEY_LENGTH).getApiKey());
         Application createdApplication = applicationRepository.save(newApplication);
         tenantService.addApplicationToTenant(tenantAccount, createdApplication);
+        endUserStatusCounts.addApplication(
+                createdApplication.getOwner() == null ? null : createdApplication.getOwner().getId(),
+                createdApplication.getId());
         ClientDetails clientDetails = buildClientDetails(createdApplication);
         jdbcClientDetailsService.addClientDetails(clientDetails);
         return createdApplication;
@@ -146,6 +155,11 @@ public class ApplicationService {
             if (!tenant.getApplications().contains(application)) {
                 throw new InvalidApplicationOwnerException(String.format("Tenant(%s) does NOT have application: %s", tenantAccount, application.getId()));
             }
+            try {
+                jdbcClientDetailsService.removeClientDetails(application.getId());
+            } catch (NoSuchClientException e) {
+                // an application without a client registration is still deleted
+            }
             applicationRepository.delete(application.getId());
             return true;
         }catch (Throwable t){
@@ -154,8 +168,9 @@ public class ApplicationService {
     }
 
     public void checkApplicationExists(String applicationId) {
-        Application application = applicationRepository.findOne(applicationId);
-        Optional.ofNullable(application).<RecordNotFoundException>orElseThrow(() -> new RecordNotFoundException(String.format("Application: %s does not exist", application)));
+        if (applicationId == null || !applicationRepository.exists(applicationId)) {
+            throw new RecordNotFoundException(String.format("Application: %s does not exist", applicationId));
+        }
     }
 
 
@@ -0,0 +1,159 @@
+package app.service;
+
+import app.error.UnknownFieldException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams a tenant's end-users as newline-delimited JSON, one object per line.
+ * <p>
+ * Rows are read with plain JDBC and a fetch size and written as they arrive, so no entity is ever loaded into a
+ * persistence context and memory use does not grow with the tenant. On MySQL the fetch size only streams with
+ * {@code useCursorFetch=true} on the connection URL.
+ */
+@Service
+public class EndUserExportService {
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Map<String, String> COLUMNS = new LinkedHashMap<>();
+
+    static {
+        COLUMNS.put("id", "u.end_user_id");
+        COLUMNS.put("account", "u.account");
+        COLUMNS.put("email", "u.email");
+        COLUMNS.put("status", "u.status");
+        COLUMNS.put("firstName", "u.first_name");
+        COLUMNS.put("lastName", "u.last_name");
+        COLUMNS.put("middleName", "u.middle_name");
+        COLUMNS.put("nickName", "u.nick_name");
+        COLUMNS.put("mobilePhoneNo", "u.mobile_phone_no");
+        COLUMNS.put("gender", "u.gender");
+        COLUMNS.put("birthDate", "u.birth_date");
+        COLUMNS.put("country", "u.country");
+        COLUMNS.put("locale", "u.locale");
+        COLUMNS.put("language", "u.language");
+        COLUMNS.put("timezone", "u.timezone");
+        COLUMNS.put("createdAt", "u.created_date");
+        COLUMNS.put("lastModifiedAt", "u.last_modified_dt");
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @Value("${iam.end-user.export.fetch-size:1000}")
+    private int fetchSize;
+
+    @Value("${iam.end-user.export.flush-rows:500}")
+    private int flushRows;
+
+    @Autowired
+    public EndUserExportService(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @PostConstruct
+    void init() {
+        jdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Checks the requested field names, all fields for an empty selection.
+     * Call it before the response is committed so an unknown field can still be answered with an error.
+     */
+    public List<String> resolveFields(Collection<String> fields) {
+        if (fields == null || fields.isEmpty()) {
+            return Collections.unmodifiableList(new ArrayList<>(COLUMNS.keySet()));
+        }
+        List<String> resolved = new ArrayList<>();
+        for (String field : fields) {
+            if (!COLUMNS.containsKey(field)) {
+                throw new UnknownFieldException("Unknown end-user field: " + field);
+            }
+            if (!resolved.contains(field)) {
+                resolved.add(field);
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Writes the end-users of the tenant modified at or after {@code modifiedSince} (all if {@code null}).
+     *
+     * @return the number of exported end-users
+     */
+    public long export(String tenantId, List<String> fields, LocalDateTime modifiedSince, OutputStream out) throws IOException {
+        List<String> selected = resolveFields(fields);
+        List<String> columns = new ArrayList<>();
+        for (String field : selected) {
+            columns.add(COLUMNS.get(field));
+        }
+        StringBuilder sql = new StringBuilder("select ").append(String.join(", ", columns)).append(" from app_user u ")
+                .append("where exists (select 1 from app_end_user aeu join tenant_application a on a.app_id = aeu.app_id ")
+                .append("where aeu.end_user_id = u.end_user_id and a.owner_id = ?)");
+        List<Object> arguments = new ArrayList<>();
+        arguments.add(tenantId);
+        if (modifiedSince != null) {
+            sql.append(" and u.last_modified_dt >= ?");
+            arguments.add(Timestamp.valueOf(modifiedSince));
+        }
+
+        JsonGenerator generator = jsonFactory.createGenerator(out);
+        generator.setRootValueSeparator(null);
+        long[] rows = {0};
+        try {
+            jdbcTemplate.query(sql.toString(), rs -> {
+                try {
+                    write(generator, selected, rs);
+                    if (++rows[0] % flushRows == 0) {
+                        generator.flush();
+                    }
+                } catch (IOException e) {
+                    // the client went away, stop reading rows
+                    throw new UncheckedIOException(e);
+                }
+            }, arguments.toArray());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        generator.flush();
+        return rows[0];
+    }
+
+    private static void write(JsonGenerator generator, List<String> fields, ResultSet rs) throws IOException, SQLException {
+        generator.writeStartObject();
+        for (int i = 0; i < fields.size(); i++) {
+            Object value = rs.getObject(i + 1);
+            if (value instanceof Timestamp) {
+                value = ((Timestamp) value).toLocalDateTime().format(TIMESTAMP_FORMAT);
+            }
+            generator.writeFieldName(fields.get(i));
+            if (value == null) {
+                generator.writeNull();
+            } else {
+                generator.writeString(value.toString());
+            }
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+}
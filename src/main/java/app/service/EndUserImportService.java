@@ -0,0 +1,393 @@
+package app.service;
+
+import app.domain.Application;
+import app.domain.ApplicationEndUser;
+import app.domain.EndUser;
+import app.domain.EndUserImportResult;
+import app.domain.EndUserStatus;
+import app.domain.Gender;
+import app.domain.LoginCredential;
+import app.domain.UserProfile;
+import app.domain.event.EndUserCreated;
+import app.error.PasswordHashingUnavailableException;
+import app.error.RecordNotFoundException;
+import app.error.UnknownFieldException;
+import app.repository.ApplicationRepository;
+import app.repository.EndUserRepository;
+import app.security.BoundedPasswordEncoder;
+import app.util.CsvReader;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Imports end-users into an application in chunks of {@code batchSize} rows.
+ * <p>
+ * Per chunk, the duplicate checks {@link EndUserService#createEndUser} runs per end-user become three set-wise
+ * queries, passwords are hashed on all cores of the password hashing pool (or taken as they are when they are
+ * already hashed), and the rows are inserted in one transaction with JDBC batching, then flushed and cleared so the
+ * persistence context does not grow with the import. A row that fails validation is reported and skipped; a chunk
+ * that fails to insert is reported row by row and the import goes on with the next chunk, where its rows are not
+ * taken for duplicates.
+ */
+@Service
+public class EndUserImportService {
+    private static final Logger log = LoggerFactory.getLogger(EndUserImportService.class);
+    static final List<String> CSV_COLUMNS = Arrays.asList("account", "password", "email", "status", "firstName",
+            "lastName", "middleName", "nickName", "mobilePhoneNo", "gender", "birthDate", "country", "locale",
+            "language", "timezone");
+
+    private final EndUserRepository endUserRepository;
+    private final ApplicationRepository applicationRepository;
+    private final BoundedPasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${iam.end-user.import.batch-size:500}")
+    private int batchSize;
+
+    @Value("${iam.end-user.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    @Autowired
+    public EndUserImportService(EndUserRepository endUserRepository, ApplicationRepository applicationRepository,
+                                BoundedPasswordEncoder passwordEncoder, ApplicationEventPublisher eventPublisher,
+                                PlatformTransactionManager transactionManager, ObjectMapper objectMapper) {
+        this.endUserRepository = endUserRepository;
+        this.applicationRepository = applicationRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Reads a JSON array of end-users, or end-user objects one after another (NDJSON), in the format
+     * {@code POST /api/end-users} accepts.
+     */
+    public EndUserImportResult importJson(String applicationId, InputStream in, boolean preHashed) throws IOException {
+        String tenantId = findTenantId(applicationId);
+        JsonParser parser = objectMapper.getFactory().createParser(in);
+        JsonToken first = parser.nextToken();
+        boolean array = first == JsonToken.START_ARRAY;
+        int[] number = {0};
+        return importRows(applicationId, tenantId, preHashed, () -> {
+            JsonToken token = array || number[0] > 0 ? parser.nextToken() : first;
+            if (token == null || token == JsonToken.END_ARRAY) {
+                return null;
+            }
+            JsonNode node = parser.readValueAsTree();
+            Row row = new Row(++number[0]);
+            try {
+                row.endUser = objectMapper.treeToValue(node, EndUser.class);
+            } catch (JsonProcessingException e) {
+                row.error = "Invalid end-user: " + e.getOriginalMessage();
+            }
+            return row;
+        });
+    }
+
+    /**
+     * Reads CSV with a header row naming some of {@link #CSV_COLUMNS}.
+     */
+    public EndUserImportResult importCsv(String applicationId, Reader in, boolean preHashed) throws IOException {
+        String tenantId = findTenantId(applicationId);
+        CsvReader csv = new CsvReader(in);
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            return new EndUserImportResult(maxReportedErrors);
+        }
+        for (String column : header) {
+            if (!CSV_COLUMNS.contains(column)) {
+                throw new UnknownFieldException("Unknown end-user column: " + column);
+            }
+        }
+        int[] number = {0};
+        return importRows(applicationId, tenantId, preHashed, () -> {
+            List<String> record = csv.readRecord();
+            if (record == null) {
+                return null;
+            }
+            Row row = new Row(++number[0]);
+            if (record.size() != header.size()) {
+                row.error = String.format("Expected %d columns but found %d", header.size(), record.size());
+            } else {
+                row.endUser = toEndUser(header, record);
+            }
+            return row;
+        });
+    }
+
+    private EndUserImportResult importRows(String applicationId, String tenantId, boolean preHashed, RowReader reader) throws IOException {
+        long start = System.currentTimeMillis();
+        EndUserImportResult result = new EndUserImportResult(maxReportedErrors);
+        ImportedKeys importedKeys = new ImportedKeys();
+        List<Row> chunk = new ArrayList<>(batchSize);
+        for (Row row = reader.next(); row != null; row = reader.next()) {
+            chunk.add(row);
+            if (chunk.size() == batchSize) {
+                importChunk(applicationId, tenantId, chunk, preHashed, importedKeys, result);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(applicationId, tenantId, chunk, preHashed, importedKeys, result);
+        }
+        log.info("Imported {} end-users into application {} in {} ms, {} rows failed",
+                result.getImported(), applicationId, System.currentTimeMillis() - start, result.getFailed());
+        return result;
+    }
+
+    private void importChunk(String applicationId, String tenantId, List<Row> chunk, boolean preHashed,
+                             ImportedKeys importedKeys, EndUserImportResult result) {
+        for (Row row : chunk) {
+            if (row.error == null) {
+                row.error = validate(row.endUser, preHashed);
+            }
+        }
+        rejectDuplicates(applicationId, chunk, importedKeys);
+        List<Row> accepted = new ArrayList<>(chunk.size());
+        chunk.stream().filter(row -> row.error == null).forEach(accepted::add);
+        if (!accepted.isEmpty() && (preHashed || hashPasswords(accepted))) {
+            insert(applicationId, tenantId, accepted);
+        }
+        // only committed rows count as imported, rows of a failed chunk may come again
+        accepted.stream().filter(row -> row.error == null).forEach(importedKeys::add);
+
+        for (Row row : chunk) {
+            if (row.error == null) {
+                result.addImported(1);
+            } else {
+                result.addError(row.number, row.account(), row.error);
+            }
+        }
+    }
+
+    private String validate(EndUser endUser, boolean preHashed) {
+        if (endUser.getId() != null) {
+            return "Ids are assigned on import";
+        }
+        LoginCredential credential = endUser.getCredential();
+        if (credential == null || isEmpty(credential.getAccount()) || isEmpty(credential.getPassword())) {
+            return "No user credential provided";
+        }
+        if (preHashed && !passwordEncoder.isEncoded(credential.getPassword())) {
+            return "Password is not a supported hash";
+        }
+        if (endUser.getStatus() == EndUserStatus.UNKNOWN) {
+            return "Unknown status";
+        }
+        return null;
+    }
+
+    // duplicates of end-users already in the application and of earlier rows of this import
+    private void rejectDuplicates(String applicationId, List<Row> chunk, ImportedKeys importedKeys) {
+        ImportedKeys chunkKeys = new ImportedKeys();
+        List<Row> rows = new ArrayList<>(chunk.size());
+        chunk.stream().filter(row -> row.error == null).forEach(rows::add);
+        if (rows.isEmpty()) {
+            return;
+        }
+        Set<String> existingAccounts = existing(applicationId, rows, Row::account, endUserRepository::findExistingAccounts);
+        Set<String> existingEmails = existing(applicationId, rows, Row::email, endUserRepository::findExistingEmails);
+        Set<String> existingMobilePhoneNos = existing(applicationId, rows, Row::mobilePhoneNo, endUserRepository::findExistingMobilePhoneNos);
+
+        for (Row row : rows) {
+            String account = normalizedKey(row.account());
+            String email = normalizedKey(row.email());
+            String mobilePhoneNo = normalizedKey(row.mobilePhoneNo());
+            if (existingAccounts.contains(account) || importedKeys.accounts.contains(account) || chunkKeys.accounts.contains(account)) {
+                row.error = String.format("%s already existing", row.account());
+            } else if (email != null && (existingEmails.contains(email) || importedKeys.emails.contains(email) || chunkKeys.emails.contains(email))) {
+                row.error = String.format("Same email(%s) is not allowed", row.email());
+            } else if (mobilePhoneNo != null && (existingMobilePhoneNos.contains(mobilePhoneNo)
+                    || importedKeys.mobilePhoneNos.contains(mobilePhoneNo) || chunkKeys.mobilePhoneNos.contains(mobilePhoneNo))) {
+                row.error = String.format("Same mobile no(%s) is not allowed", row.mobilePhoneNo());
+            } else {
+                chunkKeys.add(row);
+            }
+        }
+    }
+
+    private boolean hashPasswords(List<Row> rows) {
+        List<String> rawPasswords = new ArrayList<>(rows.size());
+        rows.forEach(row -> rawPasswords.add(row.endUser.getCredential().getPassword()));
+        List<String> encoded;
+        try {
+            encoded = passwordEncoder.encodeAll(rawPasswords);
+        } catch (PasswordHashingUnavailableException e) {
+            rows.forEach(row -> row.error = e.getMessage());
+            return false;
+        }
+        for (int i = 0; i < rows.size(); i++) {
+            rows.get(i).endUser.getCredential().setPassword(encoded.get(i));
+        }
+        return true;
+    }
+
+    private void insert(String applicationId, String tenantId, List<Row> rows) {
+        try {
+            transactionTemplate.execute(status -> {
+                Application application = entityManager.getReference(Application.class, applicationId);
+                for (Row row : rows) {
+                    EndUser endUser = row.endUser;
+                    if (endUser.getStatus() == null) {
+                        endUser.setStatus(EndUserStatus.CREATED);
+                    }
+                    endUser.setTenantId(tenantId);
+                    entityManager.persist(endUser);
+                    ApplicationEndUser applicationEndUser = new ApplicationEndUser();
+                    applicationEndUser.setApplication(application);
+                    applicationEndUser.setEndUser(endUser);
+                    endUser.getApplicationEndUsers().add(applicationEndUser);
+                    entityManager.persist(applicationEndUser);
+                    eventPublisher.publishEvent(new EndUserCreated(applicationId, endUser, false));
+                }
+                entityManager.flush();
+                entityManager.clear();
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.warn("Could not import {} end-users into application {}", rows.size(), applicationId, e);
+            String message = "Could not be saved: " + e.getMessage();
+            rows.forEach(row -> row.error = message);
+        }
+    }
+
+    private Set<String> existing(String applicationId, List<Row> rows, Function<Row, String> key, ExistingKeysQuery query) {
+        Set<String> keys = new HashSet<>();
+        for (Row row : rows) {
+            String normalized = normalizedKey(key.apply(row));
+            if (normalized != null) {
+                keys.add(normalized);
+            }
+        }
+        return keys.isEmpty() ? keys : new HashSet<>(query.find(applicationId, keys));
+    }
+
+    // like EndUserRegistrationValidator, an empty value is no key at all
+    private static String normalizedKey(String value) {
+        String normalized = EndUser.normalize(value);
+        return normalized == null || normalized.isEmpty() ? null : normalized;
+    }
+
+    private String findTenantId(String applicationId) {
+        Application application = applicationRepository.findOne(applicationId);
+        if (application == null) {
+            throw new RecordNotFoundException(String.format("Application: %s does not exist", applicationId));
+        }
+        return application.getOwner() == null ? null : application.getOwner().getId();
+    }
+
+    private static EndUser toEndUser(List<String> header, List<String> record) {
+        EndUser endUser = new EndUser();
+        LoginCredential credential = new LoginCredential();
+        UserProfile profile = new UserProfile();
+        endUser.setCredential(credential);
+        endUser.setProfile(profile);
+        for (int i = 0; i < header.size(); i++) {
+            String value = record.get(i).isEmpty() ? null : record.get(i);
+            switch (header.get(i)) {
+                case "account": credential.setAccount(value); break;
+                case "password": credential.setPassword(value); break;
+                case "email": endUser.setEmail(value); break;
+                case "status": endUser.setStatus(value == null ? null : EndUserStatus.fromString(value)); break;
+                case "firstName": profile.setFirstName(value); break;
+                case "lastName": profile.setLastName(value); break;
+                case "middleName": profile.setMiddleName(value); break;
+                case "nickName": profile.setNickName(value); break;
+                case "mobilePhoneNo": profile.setMobilePhoneNo(value); break;
+                case "gender": profile.setGender(Gender.fromString(value)); break;
+                case "birthDate": profile.setBirthDate(value); break;
+                case "country": profile.setCountry(value); break;
+                case "locale": profile.setLocale(value); break;
+                case "language": profile.setLanguage(value); break;
+                case "timezone": profile.setTimezone(value); break;
+                default: throw new UnknownFieldException("Unknown end-user column: " + header.get(i));
+            }
+        }
+        return endUser;
+    }
+
+    private static boolean isEmpty(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    private interface RowReader {
+        Row next() throws IOException;
+    }
+
+    private interface ExistingKeysQuery {
+        Collection<String> find(String applicationId, Collection<String> keys);
+    }
+
+    private static class Row {
+        private final int number;
+        private EndUser endUser;
+        private String error;
+
+        private Row(int number) {
+            this.number = number;
+        }
+
+        private String account() {
+            return endUser == null || endUser.getCredential() == null ? null : endUser.getCredential().getAccount();
+        }
+
+        private String email() {
+            return endUser == null ? null : endUser.getEmail();
+        }
+
+        private String mobilePhoneNo() {
+            return endUser == null || endUser.getProfile() == null ? null : endUser.getProfile().getMobilePhoneNo();
+        }
+    }
+
+    private static class ImportedKeys {
+        private final Set<String> accounts = new HashSet<>();
+        private final Set<String> emails = new HashSet<>();
+        private final Set<String> mobilePhoneNos = new HashSet<>();
+
+        private void add(Row row) {
+            String account = normalizedKey(row.account());
+            if (account != null) {
+                accounts.add(account);
+            }
+            String email = normalizedKey(row.email());
+            if (email != null) {
+                emails.add(email);
+            }
+            String mobilePhoneNo = normalizedKey(row.mobilePhoneNo());
+            if (mobilePhoneNo != null) {
+                mobilePhoneNos.add(mobilePhoneNo);
+            }
+        }
+    }
+}
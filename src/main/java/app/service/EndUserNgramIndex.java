@@ -0,0 +1,346 @@
+package app.service;
+
+import app.domain.EndUser;
+import app.domain.event.EndUserCreated;
+import app.domain.event.EndUserDeleted;
+import app.domain.event.EndUserEvent;
+import app.domain.event.EndUserUpdated;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory trigram index over the email and names of each tenant's end-users, so substring searches can hand the
+ * database a short list of ids instead of scanning with {@code like '%x%'}.
+ * <p>
+ * The index only narrows the candidates: the database query still applies every filter, so stale entries cost
+ * nothing but an id in the list. Missing entries would hide end-users, which is why changes are applied after commit,
+ * changes committed while a rebuild scans are replayed onto the new index, and the index must stay disabled when
+ * several nodes write end-users.
+ */
+@Component
+public class EndUserNgramIndex implements ApplicationListener<ApplicationReadyEvent>, PublicMetrics {
+    private static final Logger log = LoggerFactory.getLogger(EndUserNgramIndex.class);
+    private static final String TENANTS_QUERY = "select distinct owner_id from tenant_application where owner_id is not null";
+    private static final String TENANT_QUERY = "select owner_id from tenant_application where app_id = ?";
+    private static final String TENANT_END_USERS_QUERY = "select u.end_user_id, u.normalized_email, u.first_name, u.last_name, " +
+            "u.middle_name, u.nick_name from app_user u where exists (select 1 from app_end_user aeu " +
+            "join tenant_application a on a.app_id = aeu.app_id where aeu.end_user_id = u.end_user_id and a.owner_id = ?)";
+    static final int GRAM = 3;
+
+    public enum Field {
+        EMAIL, FIRST_NAME, LAST_NAME, MIDDLE_NAME, NICK_NAME
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${iam.search.ngram-index.enabled:false}")
+    private boolean enabled;
+
+    @Value("${iam.search.ngram-index.rebuild-parallelism:0}")
+    private int rebuildParallelism;
+
+    private final Map<String, TenantIndex> tenants = new ConcurrentHashMap<>();
+    private final Map<String, String> applicationTenants = new ConcurrentHashMap<>();
+    private final Object lock = new Object();
+    private List<EndUserEvent> pending;
+    private volatile boolean ready;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong lookupNanos = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+    private volatile long lastRebuildMillis;
+
+    @Autowired
+    public EndUserNgramIndex(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    /**
+     * Ids of the tenant's end-users whose field contains the term, ignoring case, or {@code null} when the index
+     * cannot answer: disabled, not built yet, or a term shorter than a trigram.
+     */
+    public Set<String> find(String tenantId, Field field, String term) {
+        String normalized = EndUser.normalize(term);
+        if (!isReady() || normalized == null || normalized.length() < GRAM) {
+            return null;
+        }
+        long start = System.nanoTime();
+        TenantIndex index = tenants.get(tenantId);
+        Set<String> ids = index == null ? Collections.emptySet() : index.find(field, normalized);
+        lookups.incrementAndGet();
+        lookupNanos.addAndGet(System.nanoTime() - start);
+        return ids;
+    }
+
+    /**
+     * Rebuilds every tenant's index from the database, one tenant per task.
+     */
+    @Scheduled(initialDelayString = "${iam.search.ngram-index.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${iam.search.ngram-index.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        synchronized (lock) {
+            pending = new ArrayList<>();
+        }
+        Map<String, TenantIndex> rebuilt = new HashMap<>();
+        try {
+            List<String> tenantIds = jdbcTemplate.queryForList(TENANTS_QUERY, String.class);
+            int parallelism = rebuildParallelism > 0 ? rebuildParallelism : Runtime.getRuntime().availableProcessors();
+            ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(parallelism, tenantIds.size())));
+            try {
+                Map<String, Future<TenantIndex>> futures = new HashMap<>();
+                for (String tenantId : tenantIds) {
+                    futures.put(tenantId, executor.submit(() -> load(tenantId)));
+                }
+                for (Map.Entry<String, Future<TenantIndex>> future : futures.entrySet()) {
+                    rebuilt.put(future.getKey(), future.getValue().get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while rebuilding the end-user n-gram index", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Could not rebuild the end-user n-gram index", e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+            synchronized (lock) {
+                // the new indexes get the changes committed during the scan before any search can see them
+                applicationTenants.clear();
+                for (EndUserEvent event : pending) {
+                    apply(rebuilt, event);
+                }
+                tenants.putAll(rebuilt);
+                tenants.keySet().retainAll(rebuilt.keySet());
+                ready = true;
+            }
+        } finally {
+            synchronized (lock) {
+                pending = null;
+            }
+        }
+        rebuilds.incrementAndGet();
+        lastRebuildMillis = System.currentTimeMillis() - start;
+        log.info("Built end-user n-gram index for {} tenants in {} ms", rebuilt.size(), lastRebuildMillis);
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Could not build the end-user n-gram index, substring searches scan the database", e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEndUserCreated(EndUserCreated event) {
+        onEndUserEvent(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEndUserUpdated(EndUserUpdated event) {
+        onEndUserEvent(event);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEndUserDeleted(EndUserDeleted event) {
+        onEndUserEvent(event);
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        if (!enabled) {
+            return metrics;
+        }
+        long documents = 0;
+        long postings = 0;
+        for (TenantIndex index : tenants.values()) {
+            documents += index.size();
+            postings += index.postingCount();
+        }
+        long lookupCount = lookups.get();
+        metrics.add(new Metric<>("search.ngramindex.tenants", tenants.size()));
+        metrics.add(new Metric<>("search.ngramindex.documents", documents));
+        metrics.add(new Metric<>("search.ngramindex.postings", postings));
+        metrics.add(new Metric<>("search.ngramindex.lookup.count", lookupCount));
+        metrics.add(new Metric<>("search.ngramindex.lookup.avg-micros",
+                lookupCount == 0 ? 0.0 : lookupNanos.get() / 1000.0 / lookupCount));
+        metrics.add(new Metric<>("search.ngramindex.rebuild", rebuilds.get()));
+        metrics.add(new Metric<>("search.ngramindex.rebuild.last-ms", lastRebuildMillis));
+        return metrics;
+    }
+
+    private void onEndUserEvent(EndUserEvent event) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (lock) {
+            if (pending != null) {
+                pending.add(event);
+            }
+            apply(tenants, event);
+        }
+    }
+
+    private void apply(Map<String, TenantIndex> target, EndUserEvent event) {
+        Set<String> tenantIds = new HashSet<>();
+        for (String applicationId : event.getApplicationIds()) {
+            String tenantId = tenantOf(applicationId);
+            if (tenantId != null) {
+                tenantIds.add(tenantId);
+            }
+        }
+        for (String tenantId : tenantIds) {
+            TenantIndex index = target.computeIfAbsent(tenantId, id -> new TenantIndex());
+            if (event instanceof EndUserDeleted) {
+                index.remove(event.getEndUserId());
+            } else {
+                index.put(event.getEndUserId(), event.getEmail(), event.getFirstName(), event.getLastName(),
+                        event.getMiddleName(), event.getNickName());
+            }
+        }
+    }
+
+    private String tenantOf(String applicationId) {
+        String tenantId = applicationTenants.get(applicationId);
+        if (tenantId == null) {
+            List<String> owners = jdbcTemplate.queryForList(TENANT_QUERY, String.class, applicationId);
+            if (owners.isEmpty() || owners.get(0) == null) {
+                return null;
+            }
+            tenantId = owners.get(0);
+            applicationTenants.put(applicationId, tenantId);
+        }
+        return tenantId;
+    }
+
+    private TenantIndex load(String tenantId) {
+        TenantIndex index = new TenantIndex();
+        jdbcTemplate.query(TENANT_END_USERS_QUERY, rs -> {
+            index.put(rs.getString(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5), rs.getString(6));
+        }, tenantId);
+        return index;
+    }
+
+    static Set<String> trigrams(String value) {
+        Set<String> trigrams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= value.length(); i++) {
+            trigrams.add(value.substring(i, i + GRAM));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Postings per field and trigram plus the indexed values, so candidates can be checked for the whole term.
+     */
+    static class TenantIndex {
+        private final Map<String, String[]> documents = new HashMap<>();
+        private final Map<String, Set<String>> postings = new HashMap<>();
+
+        synchronized void put(String id, String... values) {
+            remove(id);
+            String[] normalized = new String[Field.values().length];
+            for (Field field : Field.values()) {
+                String value = EndUser.normalize(values[field.ordinal()]);
+                normalized[field.ordinal()] = value;
+                if (value != null) {
+                    for (String trigram : trigrams(value)) {
+                        postings.computeIfAbsent(key(field, trigram), k -> new HashSet<>()).add(id);
+                    }
+                }
+            }
+            documents.put(id, normalized);
+        }
+
+        synchronized void remove(String id) {
+            String[] values = documents.remove(id);
+            if (values == null) {
+                return;
+            }
+            for (Field field : Field.values()) {
+                String value = values[field.ordinal()];
+                if (value != null) {
+                    for (String trigram : trigrams(value)) {
+                        String key = key(field, trigram);
+                        Set<String> ids = postings.get(key);
+                        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                            postings.remove(key);
+                        }
+                    }
+                }
+            }
+        }
+
+        synchronized Set<String> find(Field field, String term) {
+            Set<String> smallest = null;
+            for (String trigram : trigrams(term)) {
+                Set<String> ids = postings.get(key(field, trigram));
+                if (ids == null) {
+                    return Collections.emptySet();
+                }
+                if (smallest == null || ids.size() < smallest.size()) {
+                    smallest = ids;
+                }
+            }
+            Set<String> matches = new HashSet<>();
+            for (String id : smallest) {
+                String value = documents.get(id)[field.ordinal()];
+                if (value != null && value.contains(term)) {
+                    matches.add(id);
+                }
+            }
+            return matches;
+        }
+
+        synchronized int size() {
+            return documents.size();
+        }
+
+        synchronized long postingCount() {
+            long count = 0;
+            for (Set<String> ids : postings.values()) {
+                count += ids.size();
+            }
+            return count;
+        }
+
+        private static String key(Field field, String trigram) {
+            return field.ordinal() + trigram;
+        }
+    }
+}
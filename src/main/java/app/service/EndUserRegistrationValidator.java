@@ -1,10 +1,12 @@
 package app.service;
 
 import app.domain.EndUser;
+import app.domain.EndUserConflicts;
 import app.domain.LoginCredential;
 import app.error.DuplicatedEmailUserFoundException;
 import app.error.DuplicatedMobileNoFoundException;
 import app.error.NoUserLoginCredentialException;
+import app.error.RecordNotFoundException;
 import app.error.SameUserNameFoundException;
 import app.repository.EndUserRepository;
 
@@ -14,55 +16,71 @@ class EndUserRegistrationValidator {
 
     private final EndUserRepository endUserRepository;
     private final ApplicationService applicationService;
+    private final RegistrationBloomFilter registrationBloomFilter;
 
-    EndUserRegistrationValidator(EndUserRepository endUserRepository, ApplicationService applicationService) {
+    EndUserRegistrationValidator(
+            EndUserRepository endUserRepository,
+            ApplicationService applicationService,
+            RegistrationBloomFilter registrationBloomFilter) {
         this.endUserRepository = endUserRepository;
         this.applicationService = applicationService;
+        this.registrationBloomFilter = registrationBloomFilter;
     }
 
+    // application existence and all duplicates are checked with one query, then reported in the order they always were
     void validateEndUserRegistrationConstraints(String applicationId, EndUser endUser) {
-        validateApplicationExists(applicationId);
+        String account = endUser.getCredential() == null ? null : endUser.getCredential().getAccount();
+        String mobilePhoneNo = endUser.getProfile() == null ? null : endUser.getProfile().getMobilePhoneNo();
+        if (!registrationBloomFilter.mightBeRegistered(applicationId, account, endUser.getEmail(), mobilePhoneNo)) {
+            // nobody in the application has any of these keys, only the application itself needs checking
+            applicationService.checkApplicationExists(applicationId);
+            validateHaveLoginCredential(endUser);
+            return;
+        }
+        EndUserConflicts conflicts = findConflicts(applicationId, endUser, account, mobilePhoneNo);
+        validateApplicationExists(applicationId, conflicts);
         validateHaveLoginCredential(endUser);
-        validateNoDuplicatedUserName(applicationId, endUser);
-        validateNoDuplicatedUserEmail(applicationId, endUser);
-        validateNoDuplicatedUserMobile(applicationId, endUser);
+        if (conflicts.getAccountOwnerId() == null && conflicts.getEmailOwnerId() == null && conflicts.getMobilePhoneNoOwnerId() == null) {
+            registrationBloomFilter.recordFalsePositive();
+        }
+        validateNoDuplicatedUserName(endUser, conflicts);
+        validateNoDuplicatedUserEmail(endUser, conflicts);
+        validateNoDuplicatedUserMobile(endUser, conflicts);
     }
 
-    private void validateApplicationExists(String applicationId) {
-        applicationService.checkApplicationExists(applicationId);
+    private EndUserConflicts findConflicts(String applicationId, EndUser endUser, String account, String mobilePhoneNo) {
+        return endUserRepository.findRegistrationConflicts(
+                applicationId,
+                account,
+                emptyToNull(endUser.getEmail()),
+                emptyToNull(mobilePhoneNo),
+                Optional.ofNullable(endUser.getId()).orElse("")); // Fix DEPPJT-298
     }
 
-    private void validateNoDuplicatedUserMobile(String applicationId, EndUser endUser) {
-        if (endUser.getProfile() == null ||
-                endUser.getProfile().getMobilePhoneNo() == null ||
-                endUser.getProfile().getMobilePhoneNo().isEmpty()) {
-            return;
+    private void validateApplicationExists(String applicationId, EndUserConflicts conflicts) {
+        if (!conflicts.isApplicationExists()) {
+            throw new RecordNotFoundException(String.format("Application: %s does not exist", applicationId));
         }
+    }
 
-        Optional.ofNullable(endUserRepository.findByApplicationAndMobileNo(applicationId, endUser.getProfile().getMobilePhoneNo()))
-                .filter(e -> !e.getId().equals(endUser.getId())) // Fix DEPPJT-298
-                .ifPresent(e -> {
+    private void validateNoDuplicatedUserMobile(EndUser endUser, EndUserConflicts conflicts) {
+        Optional.ofNullable(conflicts.getMobilePhoneNoOwnerId())
+                .ifPresent(id -> {
                     throw new DuplicatedMobileNoFoundException(String.format("Same mobile no(%s) is not allowed", endUser.getEmail()));
                 }
         );
     }
 
-    private void validateNoDuplicatedUserEmail(String applicationId, EndUser endUser) {
-        if (endUser.getEmail() == null ||
-                endUser.getEmail().isEmpty()) {
-            return;
-        }
-        Optional.ofNullable(endUserRepository.findByApplicationAndEmail(applicationId, endUser.getEmail()))
-                .filter(e -> !e.getId().equals(endUser.getId())) // Fix DEPPJT-298
-                .ifPresent(e -> {
+    private void validateNoDuplicatedUserEmail(EndUser endUser, EndUserConflicts conflicts) {
+        Optional.ofNullable(conflicts.getEmailOwnerId())
+                .ifPresent(id -> {
                     throw new DuplicatedEmailUserFoundException(String.format("Same email(%s) is not allowed", endUser.getEmail()));
                 });
     }
 
-    private void validateNoDuplicatedUserName(String applicationId, EndUser endUser) {
-
-        Optional.ofNullable(endUserRepository.findByApplicationAndCredentialAccount(applicationId, endUser.getCredential().getAccount()))
-                .ifPresent(e -> {
+    private void validateNoDuplicatedUserName(EndUser endUser, EndUserConflicts conflicts) {
+        Optional.ofNullable(conflicts.getAccountOwnerId())
+                .ifPresent(id -> {
                     throw new SameUserNameFoundException(String.format("%s already existing", endUser.getCredential().getAccount()));
                 }
         );
@@ -79,4 +97,8 @@ class EndUserRegistrationValidator {
         account.filter(a -> a.isEmpty()).ifPresent(a -> new NoUserLoginCredentialException());
         password.filter(a -> a.isEmpty()).ifPresent(a -> new NoUserLoginCredentialException());
     }
-}
\ No newline at end of file
+
+    private String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+}
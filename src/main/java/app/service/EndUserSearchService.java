@@ -0,0 +1,82 @@
+package app.service;
+
+import app.domain.EndUserSearchCriteria;
+import app.domain.EndUserSummary;
+import app.domain.EndUserView;
+import app.repository.EndUserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Runs end-user searches, letting {@link EndUserNgramIndex} turn substring filters into a list of candidate ids
+ * when it can. Without the index, or with too many candidates, the database evaluates the filters on its own.
+ */
+@Service
+@Transactional(readOnly = true)
+public class EndUserSearchService {
+    private final EndUserRepository endUserRepository;
+    private final EndUserNgramIndex endUserNgramIndex;
+
+    @Value("${iam.search.ngram-index.max-candidates:1000}")
+    private int maxCandidates;
+
+    @Autowired
+    public EndUserSearchService(EndUserRepository endUserRepository, EndUserNgramIndex endUserNgramIndex) {
+        this.endUserRepository = endUserRepository;
+        this.endUserNgramIndex = endUserNgramIndex;
+    }
+
+    public Page<EndUserSummary> search(String tenantId, EndUserSearchCriteria criteria, Pageable pageable) {
+        Set<String> candidates = findCandidates(tenantId, criteria);
+        if (candidates != null && candidates.isEmpty()) {
+            return new PageImpl<>(Collections.emptyList(), pageable, 0);
+        }
+        return endUserRepository.search(tenantId, criteria, candidates, pageable);
+    }
+
+    public Page<EndUserView> searchEndUsers(String tenantId, EndUserSearchCriteria criteria, Pageable pageable) {
+        Set<String> candidates = findCandidates(tenantId, criteria);
+        if (candidates != null && candidates.isEmpty()) {
+            return new PageImpl<>(Collections.emptyList(), pageable, 0);
+        }
+        return endUserRepository.searchEndUsers(tenantId, criteria, candidates, pageable).map(EndUserView::of);
+    }
+
+    // null means "no restriction"
+    Set<String> findCandidates(String tenantId, EndUserSearchCriteria criteria) {
+        if (!endUserNgramIndex.isReady() || criteria.isExactMatch()) {
+            return null;
+        }
+        Set<String> candidates = null;
+        candidates = narrow(candidates, tenantId, EndUserNgramIndex.Field.EMAIL, criteria.getEmail());
+        candidates = narrow(candidates, tenantId, EndUserNgramIndex.Field.FIRST_NAME, criteria.getFirstName());
+        candidates = narrow(candidates, tenantId, EndUserNgramIndex.Field.LAST_NAME, criteria.getLastName());
+        candidates = narrow(candidates, tenantId, EndUserNgramIndex.Field.MIDDLE_NAME, criteria.getMiddleName());
+        candidates = narrow(candidates, tenantId, EndUserNgramIndex.Field.NICK_NAME, criteria.getNickname());
+        if (candidates != null && candidates.size() > maxCandidates) {
+            return null;
+        }
+        return candidates;
+    }
+
+    private Set<String> narrow(Set<String> candidates, String tenantId, EndUserNgramIndex.Field field, String filter) {
+        Set<String> ids = endUserNgramIndex.find(tenantId, field, EndUserSearchCriteria.substringTerm(filter));
+        if (ids == null) {
+            return candidates;
+        }
+        if (candidates == null) {
+            return new HashSet<>(ids);
+        }
+        candidates.retainAll(ids);
+        return candidates;
+    }
+}
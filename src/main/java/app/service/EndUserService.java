@@ -3,16 +3,21 @@ package app.service;
 import app.domain.EndUser;
 import app.domain.EndUserStatus;
 import app.domain.PasswordUpdateRequest;
+import app.domain.event.EndUserCreated;
+import app.domain.event.EndUserDeleted;
+import app.domain.event.EndUserUpdated;
 import app.error.FailToAddUserToApplicationException;
 import app.error.RecordNotFoundException;
 import app.repository.EndUserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 /*
@@ -26,17 +31,21 @@ public class EndUserService {
     private final ApplicationService applicationService;
     private final EndUserRegistrationValidator endUserRegistrationValidator;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public EndUserService(
             EndUserRepository endUserRepository,
             ApplicationService applicationService,
-            PasswordEncoder passwordEncoder
+            PasswordEncoder passwordEncoder,
+            RegistrationBloomFilter registrationBloomFilter,
+            ApplicationEventPublisher eventPublisher
     ) {
         this.endUserRepository = endUserRepository;
         this.applicationService = applicationService;
-        this.endUserRegistrationValidator = new EndUserRegistrationValidator(endUserRepository, applicationService);
+        this.endUserRegistrationValidator = new EndUserRegistrationValidator(endUserRepository, applicationService, registrationBloomFilter);
         this.passwordEncoder = passwordEncoder;
+        this.eventPublisher = eventPublisher;
     }
 
     public EndUser createEndUser(String applicationId, EndUser endUser) {
@@ -44,12 +53,12 @@ public class EndUserService {
         endUser.getCredential().setPassword(passwordEncoder.encode(endUser.getCredential().getPassword()));
         endUser.setStatus(EndUserStatus.CREATED);
         EndUser createdUserEndUser = saveEndUser(endUser);
-        // TODO : notify EndUser created Event
         log.info("End-user {} is created." , endUser.getCredential().getAccount());
         boolean result = applicationService.addApplicationUser(applicationId, createdUserEndUser);
         if (!result) {
             throw new FailToAddUserToApplicationException(String.format("Fail to add user(%s) to application(%s)", endUser.getId(), applicationId));
         }
+        eventPublisher.publishEvent(new EndUserCreated(applicationId, createdUserEndUser, false));
         return createdUserEndUser;
     }
 
@@ -62,14 +71,16 @@ public class EndUserService {
             EndUser endUser) {
 
         EndUser exitingEndUser = findExistingEndUser(id);
+        EndUserStatus previousStatus = exitingEndUser.getStatus();
 
         updateEndUserEmail(endUser, exitingEndUser);
         updateEndUserStatus(endUser, exitingEndUser);
         updateEndUserProfile(endUser, exitingEndUser);
-        // TODO : notify EndUser updated Event
         log.info("End-user {} is updated." , endUser.getId());
 
-        return saveEndUser(exitingEndUser);
+        EndUser updatedEndUser = saveEndUser(exitingEndUser);
+        eventPublisher.publishEvent(new EndUserUpdated(exitingEndUser, applicationIdsOf(exitingEndUser), previousStatus));
+        return updatedEndUser;
     }
 
     private void updateEndUserProfile(EndUser endUser, EndUser exitingEndUser) {
@@ -99,15 +110,17 @@ public class EndUserService {
 
         EndUser exitingEndUser = findExistingEndUser(id);
         updateEndUserProfile(endUser, exitingEndUser);
-        // TODO : notify EndUser Profile updated Event
         log.info("End-user {} Profile is updated." , endUser.getId(), endUser.getProfile());
-        return saveEndUser(exitingEndUser);
+        EndUser updatedEndUser = saveEndUser(exitingEndUser);
+        eventPublisher.publishEvent(new EndUserUpdated(exitingEndUser, applicationIdsOf(exitingEndUser), exitingEndUser.getStatus()));
+        return updatedEndUser;
     }
 
     public boolean deleteEndUser(String applicationId, String id) {
         EndUser endUser = findExistingEndUser(id);
+        List<String> applicationIds = applicationIdsOf(endUser);
         endUserRepository.delete(id);
-        // TODO : notify EndUser deleted Event
+        eventPublisher.publishEvent(new EndUserDeleted(endUser, applicationIds));
         log.info("End-user {} is deleted." , endUser.getCredential().getAccount());
         return true;
     }
@@ -130,51 +143,45 @@ public class EndUserService {
         if (!result) {
             throw new FailToAddUserToApplicationException(String.format("Fail to add user(%s) to application(%s)", endUser.getId(), applicationId));
         }
-        // TODO : notify EndUser registered Event
+        eventPublisher.publishEvent(new EndUserCreated(applicationId, registeredEndUser, true));
         log.info("End-user {} registration is completed." , endUser.getCredential().getAccount());
         return registeredEndUser;
     }
 
     public EndUser activate(String applicationId, String id) {
         EndUser endUser = findExistingEndUser(id);
-        Optional.of(endUser)
-                .filter(e -> e.getStatus() != EndUserStatus.ACTIVE)
-                .ifPresent(
-                        e -> {
-                            e.setStatus(EndUserStatus.ACTIVE); EndUser activatedEndUser = saveEndUser(endUser);
-                        }
-                );
-        // TODO : notify EndUser Status changed Event
+        changeStatus(endUser, EndUserStatus.ACTIVE);
         log.info("End-user {} activation is completed." , endUser.getCredential().getAccount());
         return endUser;
     }
 
     public EndUser terminate(String applicationId, String id) {
         EndUser endUser = findExistingEndUser(id);
-        Optional.of(endUser)
-                .filter(e -> e.getStatus() != EndUserStatus.TERMINATED)
-                .ifPresent(e -> {
-                    e.setStatus(EndUserStatus.TERMINATED);
-                    EndUser activatedEndUser = saveEndUser(endUser);
-                });
-        // TODO : notify EndUser Status changed Event
+        changeStatus(endUser, EndUserStatus.TERMINATED);
         log.info("End-user {} termination is completed." , endUser.getCredential().getAccount());
         return endUser;
     }
 
     public EndUser suspend(String applicationId, String id) {
         EndUser endUser = findExistingEndUser(id);
-        Optional.of(endUser)
-                .filter(e -> e.getStatus() != EndUserStatus.SUSPENDED)
-                .ifPresent(e -> {
-                    e.setStatus(EndUserStatus.SUSPENDED);
-                    EndUser activatedEndUser = saveEndUser(endUser);
-                });
-        // TODO : notify EndUser Status changed Event
+        changeStatus(endUser, EndUserStatus.SUSPENDED);
         log.info("End-user {} suspending is completed." , endUser.getCredential().getAccount());
         return endUser;
     }
 
+    private void changeStatus(EndUser endUser, EndUserStatus status) {
+        EndUserStatus previousStatus = endUser.getStatus();
+        if (previousStatus != status) {
+            endUser.setStatus(status);
+            saveEndUser(endUser);
+            eventPublisher.publishEvent(new EndUserUpdated(endUser, applicationIdsOf(endUser), previousStatus));
+        }
+    }
+
+    private List<String> applicationIdsOf(EndUser endUser) {
+        return endUser.getApplicationIds();
+    }
+
     private EndUser findExistingEndUser(String id) {
         EndUser endUser = endUserRepository.findById(id);
         Optional.ofNullable(endUser).<RecordNotFoundException>orElseThrow(RecordNotFoundException::new);
@@ -0,0 +1,169 @@
+package app.service;
+
+import app.domain.EndUserSearchCriteria;
+import app.domain.EndUserStatus;
+import app.domain.EndUserStatusChangeJob;
+import app.domain.event.EndUserStatusesChanged;
+import app.error.InvalidStatusChangeException;
+import app.error.RecordNotFoundException;
+import app.error.StatusChangeQueueFullException;
+import app.repository.EndUserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Activates, suspends or terminates many end-users at once, selected by id or by the filters of the end-user search.
+ * <p>
+ * The end-users are walked in chunks of ids, and each chunk is one transaction with one bulk {@code UPDATE}, so no
+ * entity is loaded. As with {@link EndUserService#activate} and friends, end-users already in the status are left
+ * alone. Jobs run on the {@code endUserStatusChangeExecutor} and their progress is kept in memory on the node that
+ * runs them; unfinished jobs are always kept, finished ones only up to {@code retained-jobs}.
+ */
+@Service
+public class EndUserStatusChangeService {
+    private static final Logger log = LoggerFactory.getLogger(EndUserStatusChangeService.class);
+    private static final Set<EndUserStatus> TARGET_STATUSES = EnumSet.of(EndUserStatus.ACTIVE, EndUserStatus.SUSPENDED, EndUserStatus.TERMINATED);
+
+    private final EndUserRepository endUserRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor executor;
+
+    @Value("${iam.end-user.status-change.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${iam.end-user.status-change.retained-jobs:100}")
+    private int retainedJobs;
+
+    @Value("${iam.end-user.status-change.max-ids:10000}")
+    private int maxIds;
+
+    private final Map<String, EndUserStatusChangeJob> jobs = new LinkedHashMap<>();
+
+    @Autowired
+    public EndUserStatusChangeService(EndUserRepository endUserRepository, ApplicationEventPublisher eventPublisher,
+                                      PlatformTransactionManager transactionManager, TaskExecutor endUserStatusChangeExecutor) {
+        this.endUserRepository = endUserRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executor = endUserStatusChangeExecutor;
+    }
+
+    /**
+     * Starts moving the tenant's end-users to {@code status}: the ones in {@code endUserIds} when given (further
+     * restricted by the criteria), otherwise all matching the criteria, which must then have a filter set.
+     */
+    public EndUserStatusChangeJob submit(String tenantId, EndUserStatus status, EndUserSearchCriteria criteria,
+                                         Collection<String> endUserIds, String modifiedBy) {
+        if (!TARGET_STATUSES.contains(status)) {
+            throw new InvalidStatusChangeException(String.format("End-users can only be moved to %s", TARGET_STATUSES));
+        }
+        boolean byIds = endUserIds != null && !endUserIds.isEmpty();
+        if (!byIds && criteria.isEmpty()) {
+            throw new InvalidStatusChangeException("Either end-user ids or a filter is required");
+        }
+        List<String> ids = byIds ? new ArrayList<>(new LinkedHashSet<>(endUserIds)) : null;
+        if (byIds && ids.size() > maxIds) {
+            throw new InvalidStatusChangeException(String.format("At most %d end-user ids can be changed at once, use a filter instead", maxIds));
+        }
+        EndUserStatusChangeJob job = new EndUserStatusChangeJob(tenantId, status, byIds ? ids.size() : null);
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+            dropFinishedJobs();
+        }
+        try {
+            executor.execute(() -> run(job, criteria, ids, modifiedBy));
+        } catch (TaskRejectedException e) {
+            synchronized (jobs) {
+                jobs.remove(job.getId());
+            }
+            throw new StatusChangeQueueFullException("Too many end-user status changes are waiting, try again later");
+        }
+        return job;
+    }
+
+    public EndUserStatusChangeJob findJob(String tenantId, String jobId) {
+        EndUserStatusChangeJob job;
+        synchronized (jobs) {
+            job = jobs.get(jobId);
+        }
+        if (job == null || !job.getTenantId().equals(tenantId)) {
+            throw new RecordNotFoundException(String.format("Status change job: %s does not exist", jobId));
+        }
+        return job;
+    }
+
+    // running and queued jobs stay until they finish, only the oldest finished ones are forgotten
+    private void dropFinishedJobs() {
+        long finished = jobs.values().stream().filter(job -> job.getState() != EndUserStatusChangeJob.State.RUNNING).count();
+        Iterator<EndUserStatusChangeJob> iterator = jobs.values().iterator();
+        while (finished > retainedJobs && iterator.hasNext()) {
+            if (iterator.next().getState() != EndUserStatusChangeJob.State.RUNNING) {
+                iterator.remove();
+                finished--;
+            }
+        }
+    }
+
+    private void run(EndUserStatusChangeJob job, EndUserSearchCriteria criteria, List<String> ids, String modifiedBy) {
+        long start = System.currentTimeMillis();
+        try {
+            if (ids != null) {
+                for (int from = 0; from < ids.size(); from += chunkSize) {
+                    List<String> requested = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+                    changeChunk(job, criteria, requested, null, modifiedBy);
+                }
+            } else {
+                String afterId = null;
+                do {
+                    afterId = changeChunk(job, criteria, null, afterId, modifiedBy);
+                } while (afterId != null);
+            }
+            job.completed();
+            log.info("Moved {} of {} end-users of tenant {} to {} in {} ms", job.getChanged(), job.getMatched(),
+                    job.getTenantId(), job.getStatus(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            log.warn("End-user status change {} failed after {} changes", job.getId(), job.getChanged(), e);
+            job.failed(e.getMessage());
+        }
+    }
+
+    // returns the last id of a full chunk, i.e. where the next chunk of a filtered change starts
+    private String changeChunk(EndUserStatusChangeJob job, EndUserSearchCriteria criteria, List<String> requested,
+                               String afterId, String modifiedBy) {
+        int limit = requested == null ? chunkSize : requested.size();
+        List<String> ids = endUserRepository.findIdsAfter(job.getTenantId(), criteria, requested, afterId, limit);
+        if (ids.isEmpty()) {
+            return null;
+        }
+        int changed = transactionTemplate.execute(status -> {
+            List<EndUserStatusesChanged.Change> changes = new ArrayList<>();
+            for (Object[] count : endUserRepository.countStatusChanges(ids, job.getStatus())) {
+                changes.add(new EndUserStatusesChanged.Change((String) count[0], (EndUserStatus) count[1], (Long) count[2]));
+            }
+            int updated = endUserRepository.updateStatus(ids, job.getStatus(), modifiedBy);
+            eventPublisher.publishEvent(new EndUserStatusesChanged(job.getStatus(), changes));
+            return updated;
+        });
+        job.chunkDone(ids.size(), changed);
+        return ids.size() == limit ? ids.get(ids.size() - 1) : null;
+    }
+}
@@ -0,0 +1,246 @@
+package app.service;
+
+import app.domain.EndUserStatus;
+import app.domain.event.EndUserCreated;
+import app.domain.event.EndUserDeleted;
+import app.domain.event.EndUserEvent;
+import app.domain.event.EndUserStatusesChanged;
+import app.domain.event.EndUserUpdated;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-user counts per application and status, kept in {@code END_USER_STATUS_COUNT} so the status dashboard reads a
+ * handful of rows instead of grouping every end-user of the tenant.
+ * <p>
+ * The counts are adjusted by the end-user events of {@link EndUserService} and {@link EndUserStatusChangeService},
+ * synchronously and therefore in the same transaction as the change itself. Every application has a row per status
+ * from its creation (or the first reconciliation) on, so an adjustment is an {@code UPDATE} of existing rows, taken
+ * in key order, and never an insert racing another registration. A failing adjustment fails the change with it.
+ * <p>
+ * Changes made around the services (deleted applications, direct SQL) and a change committed while a reconciliation
+ * runs leave the counts off until the next periodic reconciliation, which recomputes them from {@code APP_END_USER}.
+ * Until a reconciliation succeeded, e.g. while {@code END_USER_STATUS_COUNT} does not exist yet, and after an
+ * adjustment found no row to update, events are ignored and {@link #countByStatus(String)} returns {@code null}.
+ * <p>
+ * Like {@code findCountsEndUserByStatusForTenant}, an end-user is counted once per application of the tenant.
+ */
+@Component
+public class EndUserStatusCounts implements ApplicationListener<ApplicationReadyEvent>, PublicMetrics {
+    private static final Logger log = LoggerFactory.getLogger(EndUserStatusCounts.class);
+    private static final String COUNTS_QUERY = "select a.owner_id, aeu.app_id, u.status, count(*) " +
+            "from app_end_user aeu join app_user u on u.end_user_id = aeu.end_user_id " +
+            "join tenant_application a on a.app_id = aeu.app_id " +
+            "where u.status is not null group by a.owner_id, aeu.app_id, u.status";
+    private static final String APPLICATIONS_QUERY = "select owner_id, app_id from tenant_application";
+    private static final String INSERT = "insert into end_user_status_count (tenant_id, app_id, status, end_user_count) values (?, ?, ?, ?)";
+    private static final String INCREMENT = "update end_user_status_count set end_user_count = end_user_count + ? where app_id = ? and status = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${iam.end-user.status-counts.enabled:true}")
+    private boolean enabled;
+
+    private final AtomicLong adjustments = new AtomicLong();
+    private final AtomicLong reconciliations = new AtomicLong();
+    private final AtomicLong correctedRows = new AtomicLong();
+    private volatile boolean ready;
+
+    @Autowired
+    public EndUserStatusCounts(DataSource dataSource, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * {@code [status, count]} pairs of the tenant's end-users, or {@code null} until the counts were reconciled once
+     * so callers can fall back to counting the end-users.
+     */
+    public List<Object[]> countByStatus(String tenantId) {
+        if (!enabled || !ready) {
+            return null;
+        }
+        return jdbcTemplate.query("select status, sum(end_user_count) from end_user_status_count where tenant_id = ? " +
+                "group by status having sum(end_user_count) > 0", (rs, rowNum) ->
+                new Object[]{EndUserStatus.valueOf(rs.getString(1)), rs.getLong(2)}, tenantId);
+    }
+
+    /**
+     * Adds the zero counts of a new application, in the transaction that creates it.
+     */
+    public void addApplication(String tenantId, String applicationId) {
+        if (!enabled || !ready) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (EndUserStatus status : EndUserStatus.values()) {
+            rows.add(new Object[]{tenantId, applicationId, status.name(), 0L});
+        }
+        jdbcTemplate.batchUpdate(INSERT, rows);
+    }
+
+    @EventListener
+    public void onEndUserCreated(EndUserCreated event) {
+        Adjustments adjustments = new Adjustments();
+        adjustments.add(event, event.getStatus(), 1);
+        apply(adjustments);
+    }
+
+    @EventListener
+    public void onEndUserUpdated(EndUserUpdated event) {
+        if (event.getPreviousStatus() != event.getStatus()) {
+            Adjustments adjustments = new Adjustments();
+            adjustments.add(event, event.getPreviousStatus(), -1);
+            adjustments.add(event, event.getStatus(), 1);
+            apply(adjustments);
+        }
+    }
+
+    @EventListener
+    public void onEndUserDeleted(EndUserDeleted event) {
+        Adjustments adjustments = new Adjustments();
+        adjustments.add(event, event.getStatus(), -1);
+        apply(adjustments);
+    }
+
+    @EventListener
+    public void onEndUserStatusesChanged(EndUserStatusesChanged event) {
+        Adjustments adjustments = new Adjustments();
+        for (EndUserStatusesChanged.Change change : event.getChanges()) {
+            adjustments.add(change.getApplicationId(), change.getPreviousStatus(), -change.getCount());
+            adjustments.add(change.getApplicationId(), event.getStatus(), change.getCount());
+        }
+        apply(adjustments);
+    }
+
+    /**
+     * Replaces all counts with ones computed from the end-users.
+     *
+     * @return the number of (application, status) rows whose count was wrong
+     */
+    @Scheduled(initialDelayString = "${iam.end-user.status-counts.reconcile-interval-ms:3600000}",
+            fixedDelayString = "${iam.end-user.status-counts.reconcile-interval-ms:3600000}")
+    public int reconcile() {
+        if (!enabled) {
+            return 0;
+        }
+        long start = System.currentTimeMillis();
+        int corrected = transactionTemplate.execute(status -> {
+            // a row for every application and status, so adjustments always find the row to update
+            Map<String, Object[]> counts = new TreeMap<>();
+            jdbcTemplate.query(APPLICATIONS_QUERY, rs -> {
+                for (EndUserStatus endUserStatus : EndUserStatus.values()) {
+                    counts.put(rs.getString(2) + '/' + endUserStatus.name(), new Object[]{rs.getString(1), rs.getString(2), endUserStatus.name(), 0L});
+                }
+            });
+            jdbcTemplate.query(COUNTS_QUERY, rs -> {
+                counts.put(rs.getString(2) + '/' + rs.getString(3), new Object[]{rs.getString(1), rs.getString(2), rs.getString(3), rs.getLong(4)});
+            });
+            Map<String, Long> current = new HashMap<>();
+            jdbcTemplate.query("select app_id, status, end_user_count from end_user_status_count", rs -> {
+                current.put(rs.getString(1) + '/' + rs.getString(2), rs.getLong(3));
+            });
+            int changed = 0;
+            for (Map.Entry<String, Object[]> count : counts.entrySet()) {
+                Long previous = current.remove(count.getKey());
+                if ((previous == null ? 0L : previous) != (long) count.getValue()[3]) {
+                    changed++;
+                }
+            }
+            for (Long left : current.values()) {
+                if (left != 0) {
+                    changed++;
+                }
+            }
+            jdbcTemplate.update("delete from end_user_status_count");
+            jdbcTemplate.batchUpdate(INSERT, new ArrayList<>(counts.values()));
+            return changed;
+        });
+        ready = true;
+        reconciliations.incrementAndGet();
+        correctedRows.addAndGet(corrected);
+        if (corrected > 0) {
+            log.info("Corrected {} end-user status counts in {} ms", corrected, System.currentTimeMillis() - start);
+        }
+        return corrected;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.warn("Could not reconcile end-user status counts, statuses are counted from the end-users", e);
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        if (enabled) {
+            metrics.add(new Metric<>("enduser.statuscounts.adjustment", adjustments.get()));
+            metrics.add(new Metric<>("enduser.statuscounts.reconciliation", reconciliations.get()));
+            metrics.add(new Metric<>("enduser.statuscounts.corrected", correctedRows.get()));
+        }
+        return metrics;
+    }
+
+    // rows are updated in key order, so two transactions adjusting the same rows cannot deadlock each other
+    private void apply(Adjustments pending) {
+        if (!enabled || !ready) {
+            return;
+        }
+        for (Map.Entry<String, Long> adjustment : pending.deltas.entrySet()) {
+            if (adjustment.getValue() == 0) {
+                continue;
+            }
+            int split = adjustment.getKey().lastIndexOf('/');
+            String[] key = {adjustment.getKey().substring(0, split), adjustment.getKey().substring(split + 1)};
+            if (jdbcTemplate.update(INCREMENT, adjustment.getValue(), key[0], key[1]) == 0) {
+                ready = false;
+                log.warn("No end-user status count for application {} and status {}, counting from the end-users "
+                        + "until the next reconciliation", key[0], key[1]);
+                return;
+            }
+            adjustments.incrementAndGet();
+        }
+    }
+
+    private static class Adjustments {
+        private final Map<String, Long> deltas = new TreeMap<>();
+
+        private void add(EndUserEvent event, EndUserStatus status, long delta) {
+            for (String applicationId : event.getApplicationIds()) {
+                add(applicationId, status, delta);
+            }
+        }
+
+        private void add(String applicationId, EndUserStatus status, long delta) {
+            if (status != null) {
+                deltas.merge(applicationId + '/' + status.name(), delta, Long::sum);
+            }
+        }
+    }
+}
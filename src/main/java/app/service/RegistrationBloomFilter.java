@@ -0,0 +1,324 @@
+package app.service;
+
+import app.domain.EndUser;
+import app.domain.event.EndUserCreated;
+import app.domain.event.EndUserDeleted;
+import app.domain.event.EndUserEvent;
+import app.domain.event.EndUserUpdated;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-application Bloom filter of the normalized accounts, emails and mobile numbers of end-users, so registrations
+ * with keys nobody in the application uses can skip the duplicate lookup.
+ * <p>
+ * A "no" from the filter is definite, a "maybe" still goes to the database. The filters are built from
+ * {@code APP_USER}/{@code APP_END_USER} when the application is ready and rebuilt periodically; in between they follow
+ * the end-user events published by {@link EndUserService}. Keys are added as soon as the end-user is written and
+ * again once its transaction committed, so a rebuild whose scan missed the uncommitted end-user still gets them.
+ * Keys of deleted end-users cannot be removed from a Bloom filter and only disappear on the next rebuild, which costs
+ * false positives, never missed duplicates.
+ * <p>
+ * Only end-users created on this node are added, so the filter must stay disabled when several nodes register
+ * end-users for the same applications.
+ */
+@Component
+public class RegistrationBloomFilter implements ApplicationListener<ApplicationReadyEvent>, PublicMetrics {
+    private static final Logger log = LoggerFactory.getLogger(RegistrationBloomFilter.class);
+    private static final String LOOKUP_KEYS_QUERY = "select aeu.app_id, u.normalized_account, u.normalized_email, u.normalized_mobile_phone_no " +
+            "from app_end_user aeu join app_user u on u.end_user_id = aeu.end_user_id";
+    private static final String USERS_PER_APPLICATION_QUERY = "select app_id, count(*) from app_end_user group by app_id";
+    private static final int KEYS_PER_END_USER = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${iam.registration.bloom-filter.enabled:false}")
+    private boolean enabled;
+
+    @Value("${iam.registration.bloom-filter.false-positive-probability:0.01}")
+    private double falsePositiveProbability;
+
+    @Value("${iam.registration.bloom-filter.min-capacity:1024}")
+    private int minCapacity;
+
+    private final Object lock = new Object();
+    private Map<String, Filter> filters = new HashMap<>();
+    private List<EndUserEvent> duringRebuild;
+    private volatile boolean ready;
+
+    private final AtomicLong definiteNegatives = new AtomicLong();
+    private final AtomicLong positives = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+    private final AtomicLong staleEndUsers = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+
+    @Autowired
+    public RegistrationBloomFilter(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * Returns {@code false} only if no end-user of the application can have any of the given keys.
+     * Always {@code true} while the filter is disabled or not built yet.
+     */
+    public boolean mightBeRegistered(String applicationId, String account, String email, String mobilePhoneNo) {
+        if (!enabled || !ready) {
+            return true;
+        }
+        boolean mightContain;
+        synchronized (lock) {
+            Filter filter = filters.get(applicationId);
+            mightContain = filter != null && (filter.mightContain(key("a:", account))
+                    || filter.mightContain(key("e:", email))
+                    || filter.mightContain(key("m:", mobilePhoneNo)));
+        }
+        (mightContain ? positives : definiteNegatives).incrementAndGet();
+        return mightContain;
+    }
+
+    /**
+     * Called when the database found no conflict for keys the filter reported as possibly registered.
+     */
+    public void recordFalsePositive() {
+        falsePositives.incrementAndGet();
+    }
+
+    @Scheduled(initialDelayString = "${iam.registration.bloom-filter.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${iam.registration.bloom-filter.rebuild-interval-ms:3600000}")
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        synchronized (lock) {
+            // the scan may not see end-users committed while it runs, so their events are replayed into the new filters
+            duringRebuild = new ArrayList<>();
+        }
+        try {
+            Map<String, Filter> next = new HashMap<>();
+            jdbcTemplate.query(USERS_PER_APPLICATION_QUERY, rs -> {
+                next.put(rs.getString(1), newFilter(rs.getLong(2) * KEYS_PER_END_USER));
+            });
+            jdbcTemplate.query(LOOKUP_KEYS_QUERY, rs -> {
+                Filter filter = next.computeIfAbsent(rs.getString(1), id -> newFilter(0));
+                filter.put(key("a:", rs.getString(2)));
+                filter.put(key("e:", rs.getString(3)));
+                filter.put(key("m:", rs.getString(4)));
+            });
+            synchronized (lock) {
+                for (EndUserEvent event : duringRebuild) {
+                    for (String applicationId : event.getApplicationIds()) {
+                        add(next, applicationId, event);
+                    }
+                }
+                filters = next;
+                staleEndUsers.set(0);
+                ready = true;
+            }
+            rebuilds.incrementAndGet();
+            log.info("Built registration Bloom filters for {} applications in {} ms", next.size(), System.currentTimeMillis() - start);
+        } finally {
+            synchronized (lock) {
+                duringRebuild = null;
+            }
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Could not build registration Bloom filters, duplicates are checked in the database", e);
+        }
+    }
+
+    @EventListener
+    public void onEndUserCreated(EndUserCreated event) {
+        add(event);
+    }
+
+    @EventListener
+    public void onEndUserUpdated(EndUserUpdated event) {
+        // the previous keys stay in the filter until the next rebuild
+        add(event);
+    }
+
+    @TransactionalEventListener
+    public void onEndUserCreatedCommitted(EndUserCreated event) {
+        add(event);
+    }
+
+    @TransactionalEventListener
+    public void onEndUserUpdatedCommitted(EndUserUpdated event) {
+        add(event);
+    }
+
+    @EventListener
+    public void onEndUserDeleted(EndUserDeleted event) {
+        if (enabled) {
+            staleEndUsers.incrementAndGet();
+        }
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>();
+        if (!enabled) {
+            return metrics;
+        }
+        long memoryBytes = 0;
+        double expectedFalsePositiveProbability = 0;
+        int applications;
+        synchronized (lock) {
+            applications = filters.size();
+            for (Filter filter : filters.values()) {
+                memoryBytes += filter.sizeInBytes();
+                expectedFalsePositiveProbability = Math.max(expectedFalsePositiveProbability, filter.expectedFalsePositiveProbability());
+            }
+        }
+        long negatives = definiteNegatives.get();
+        long falsePositiveCount = falsePositives.get();
+        metrics.add(new Metric<>("registration.bloomfilter.applications", applications));
+        metrics.add(new Metric<>("registration.bloomfilter.memory.bytes", memoryBytes));
+        metrics.add(new Metric<>("registration.bloomfilter.fpp.expected.max", expectedFalsePositiveProbability));
+        metrics.add(new Metric<>("registration.bloomfilter.fpp.observed",
+                negatives + falsePositiveCount == 0 ? 0.0 : (double) falsePositiveCount / (negatives + falsePositiveCount)));
+        metrics.add(new Metric<>("registration.bloomfilter.negative", negatives));
+        metrics.add(new Metric<>("registration.bloomfilter.positive", positives.get()));
+        metrics.add(new Metric<>("registration.bloomfilter.false-positive", falsePositiveCount));
+        metrics.add(new Metric<>("registration.bloomfilter.stale-end-users", staleEndUsers.get()));
+        metrics.add(new Metric<>("registration.bloomfilter.rebuild", rebuilds.get()));
+        return metrics;
+    }
+
+    private void add(EndUserEvent event) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (lock) {
+            for (String applicationId : event.getApplicationIds()) {
+                add(filters, applicationId, event);
+            }
+            if (duringRebuild != null) {
+                duringRebuild.add(event);
+            }
+        }
+    }
+
+    private void add(Map<String, Filter> target, String applicationId, EndUserEvent event) {
+        Filter filter = target.computeIfAbsent(applicationId, id -> newFilter(0));
+        filter.put(key("a:", event.getAccount()));
+        filter.put(key("e:", event.getEmail()));
+        filter.put(key("m:", event.getMobilePhoneNo()));
+    }
+
+    private Filter newFilter(long expectedKeys) {
+        return new Filter((int) Math.min(Integer.MAX_VALUE / 16, Math.max(minCapacity, expectedKeys * 2)), falsePositiveProbability);
+    }
+
+    private static String key(String prefix, String value) {
+        String normalized = EndUser.normalize(value);
+        return normalized == null || normalized.isEmpty() ? null : prefix + normalized;
+    }
+
+    /**
+     * Plain Bloom filter with double hashing over one 64-bit FNV-1a hash. Not thread-safe, guarded by {@code lock}.
+     * Once more keys than its capacity were added it answers "maybe" for everything until it is rebuilt.
+     */
+    static class Filter {
+        private final BitSet bits;
+        private final int numBits;
+        private final int numHashes;
+        private final int capacity;
+        private int insertions;
+
+        Filter(int capacity, double falsePositiveProbability) {
+            this.capacity = capacity;
+            this.numBits = (int) Math.max(64, Math.ceil(-capacity * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2))));
+            this.numHashes = Math.max(1, (int) Math.round((double) numBits / capacity * Math.log(2)));
+            this.bits = new BitSet(numBits);
+        }
+
+        void put(String key) {
+            if (key == null) {
+                return;
+            }
+            long hash = hash(key);
+            int hash1 = (int) hash;
+            int hash2 = (int) (hash >>> 32);
+            for (int i = 1; i <= numHashes; i++) {
+                bits.set(index(hash1 + i * hash2));
+            }
+            insertions++;
+        }
+
+        boolean mightContain(String key) {
+            if (key == null) {
+                return false;
+            }
+            if (isSaturated()) {
+                return true;
+            }
+            long hash = hash(key);
+            int hash1 = (int) hash;
+            int hash2 = (int) (hash >>> 32);
+            for (int i = 1; i <= numHashes; i++) {
+                if (!bits.get(index(hash1 + i * hash2))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean isSaturated() {
+            return insertions > capacity;
+        }
+
+        double expectedFalsePositiveProbability() {
+            return isSaturated() ? 1.0 : Math.pow((double) bits.cardinality() / numBits, numHashes);
+        }
+
+        long sizeInBytes() {
+            return numBits / 8;
+        }
+
+        private int index(int combinedHash) {
+            return (combinedHash & Integer.MAX_VALUE) % numBits;
+        }
+
+        private static long hash(String key) {
+            long hash = 0xcbf29ce484222325L;
+            for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b & 0xff;
+                hash *= 0x100000001b3L;
+            }
+            // spread FNV's weak low bits before they are split into the two hashes
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
@@ -16,12 +16,14 @@ import org.springframework.security.oauth2.provider.ClientDetails;
 import org.springframework.security.oauth2.provider.NoSuchClientException;
 import org.springframework.security.oauth2.provider.client.JdbcClientDetailsService;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.function.Consumer;
 
 @Service
+@Transactional
 public class TenantService {
     private static final int DEFAULT_API_KEY_LENGTH = 32;
     private final TenantRepository tenantRepository;
@@ -36,6 +36,9 @@ public class TenantBaseClientDetailsFactory implements ClientDetailsFactory<Tena
         details.setRefreshTokenValiditySeconds(3600);
         details.setAccessTokenValiditySeconds(3600);
         details.setRegisteredRedirectUri(Collections.<String>emptySet());
+        if (tenant.getId() != null) {
+            details.setAdditionalInformation(Collections.singletonMap("id", tenant.getId()));
+        }
         return details;
     }
 }
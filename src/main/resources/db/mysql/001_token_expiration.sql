@@ -0,0 +1,15 @@
+-- Adds a queryable expiry to the token tables so expired rows can be reaped by index.
+-- Rows written before this migration keep a NULL expiration until TokenReaper backfills it from the blob.
+-- DATETIME rather than TIMESTAMP: tokens that never expire are stored as 9999-12-31, past TIMESTAMP's 2038 limit.
+ALTER TABLE oauth_access_token ADD COLUMN expiration DATETIME NULL;
+CREATE INDEX idx_oauth_access_token_token_id ON oauth_access_token (token_id);
+CREATE INDEX idx_oauth_access_token_refresh_token ON oauth_access_token (refresh_token);
+CREATE INDEX idx_oauth_access_token_expiration ON oauth_access_token (expiration);
+
+ALTER TABLE oauth_refresh_token ADD COLUMN expiration DATETIME NULL;
+CREATE INDEX idx_oauth_refresh_token_token_id ON oauth_refresh_token (token_id);
+CREATE INDEX idx_oauth_refresh_token_expiration ON oauth_refresh_token (expiration);
+
+ALTER TABLE oauth_code ADD COLUMN created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+CREATE INDEX idx_oauth_code_code ON oauth_code (code);
+CREATE INDEX idx_oauth_code_created_at ON oauth_code (created_at);
@@ -0,0 +1,17 @@
+-- Normalized, indexed identity lookup keys on app_user, and the (end_user_id, app_id) join order on app_end_user
+-- (the primary key already covers app_id, end_user_id).
+-- Run before deploying the version that queries the normalized columns; EndUser keeps them in sync afterwards.
+ALTER TABLE app_user ADD COLUMN normalized_account VARCHAR(255) NULL;
+ALTER TABLE app_user ADD COLUMN normalized_email VARCHAR(255) NULL;
+ALTER TABLE app_user ADD COLUMN normalized_mobile_phone_no VARCHAR(255) NULL;
+
+UPDATE app_user SET
+  normalized_account = LOWER(TRIM(account)),
+  normalized_email = LOWER(TRIM(email)),
+  normalized_mobile_phone_no = LOWER(TRIM(mobile_phone_no));
+
+CREATE INDEX idx_app_user_normalized_account ON app_user (normalized_account);
+CREATE INDEX idx_app_user_normalized_email ON app_user (normalized_email);
+CREATE INDEX idx_app_user_normalized_mobile ON app_user (normalized_mobile_phone_no);
+
+CREATE INDEX idx_app_end_user_user_app ON app_end_user (end_user_id, app_id);
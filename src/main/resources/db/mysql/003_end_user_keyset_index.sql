@@ -0,0 +1,2 @@
+-- Keyset (cursor) listing of end-users seeks on (created_date, end_user_id) instead of counting and skipping rows.
+CREATE INDEX idx_app_user_created_date_id ON app_user (created_date, end_user_id);
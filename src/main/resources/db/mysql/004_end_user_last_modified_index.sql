@@ -0,0 +1,2 @@
+-- Incremental end-user exports (modifiedSince) range-scan last_modified_dt.
+CREATE INDEX idx_app_user_last_modified_dt ON app_user (last_modified_dt);
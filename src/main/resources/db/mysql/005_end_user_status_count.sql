@@ -0,0 +1,11 @@
+-- End-user counts per application and status for the status dashboard, maintained by EndUserStatusCounts.
+-- The table is filled by the reconciliation that runs when the application starts.
+CREATE TABLE end_user_status_count (
+  tenant_id VARCHAR(36) NULL,
+  app_id VARCHAR(36) NOT NULL,
+  status VARCHAR(32) NOT NULL,
+  end_user_count BIGINT NOT NULL,
+  PRIMARY KEY (app_id, status)
+);
+
+CREATE INDEX idx_end_user_status_count_tenant ON end_user_status_count (tenant_id);
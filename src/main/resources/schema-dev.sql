@@ -28,19 +28,32 @@ create table IF NOT EXISTS oauth_access_token (
   user_name VARCHAR(256),
   client_id VARCHAR(256),
   authentication LONGVARBINARY,
-  refresh_token VARCHAR(256)
+  refresh_token VARCHAR(256),
+  expiration TIMESTAMP
 );
 
+create index IF NOT EXISTS idx_oauth_access_token_token_id on oauth_access_token (token_id);
+create index IF NOT EXISTS idx_oauth_access_token_refresh_token on oauth_access_token (refresh_token);
+create index IF NOT EXISTS idx_oauth_access_token_expiration on oauth_access_token (expiration);
+
 create table IF NOT EXISTS oauth_refresh_token (
   token_id VARCHAR(256),
   token LONGVARBINARY,
-  authentication LONGVARBINARY
+  authentication LONGVARBINARY,
+  expiration TIMESTAMP
 );
 
+create index IF NOT EXISTS idx_oauth_refresh_token_token_id on oauth_refresh_token (token_id);
+create index IF NOT EXISTS idx_oauth_refresh_token_expiration on oauth_refresh_token (expiration);
+
 create table IF NOT EXISTS oauth_code (
-  code VARCHAR(256), authentication LONGVARBINARY
+  code VARCHAR(256), authentication LONGVARBINARY,
+  created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+create index IF NOT EXISTS idx_oauth_code_code on oauth_code (code);
+create index IF NOT EXISTS idx_oauth_code_created_at on oauth_code (created_at);
+
 create table IF NOT EXISTS oauth_approvals (
 	userId VARCHAR(256),
 	clientId VARCHAR(256),
@@ -48,4 +61,14 @@ create table IF NOT EXISTS oauth_approvals (
 	status VARCHAR(10),
 	expiresAt TIMESTAMP,
 	lastModifiedAt TIMESTAMP
-);
\ No newline at end of file
+);
+
+create table IF NOT EXISTS end_user_status_count (
+  tenant_id VARCHAR(36),
+  app_id VARCHAR(36) NOT NULL,
+  status VARCHAR(32) NOT NULL,
+  end_user_count BIGINT NOT NULL,
+  PRIMARY KEY (app_id, status)
+);
+
+create index IF NOT EXISTS idx_end_user_status_count_tenant on end_user_status_count (tenant_id);
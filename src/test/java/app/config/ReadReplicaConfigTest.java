@@ -0,0 +1,200 @@
+package app.config;
+
+import app.IdentityAccessServiceApplication;
+import app.config.datasource.ReadWriteRoutingDataSource;
+import app.domain.Tenant;
+import app.repository.TenantRepository;
+import app.service.TenantService;
+import app.util.TenantTestUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.Collections;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// the replica is a second in-memory database holding a snapshot of the primary, so it lags behind every later write
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = IdentityAccessServiceApplication.class, properties = {
+        "spring.datasource.url=" + ReadReplicaConfigTest.PRIMARY_URL,
+        "iam.datasource.replica.enabled=true",
+        "iam.datasource.replica.urls=" + ReadReplicaConfigTest.REPLICA_URL
+})
+public class ReadReplicaConfigTest {
+    static final String PRIMARY_URL = "jdbc:h2:mem:ROUTING_PRIMARY;DB_CLOSE_ON_EXIT=FALSE";
+    static final String REPLICA_URL = "jdbc:h2:mem:ROUTING_REPLICA;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    @Autowired
+    private TenantService tenantService;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private TokenStore tokenStore;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+    private String account;
+
+    @Before
+    public void setUp() {
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        account = "replica-" + UUID.randomUUID().toString().substring(0, 8);
+        replicate();
+    }
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void applicationUsesTheRoutingDataSourceLazily() {
+        assertTrue(dataSource instanceof LazyConnectionDataSourceProxy);
+        assertEquals(routingDataSource, ((LazyConnectionDataSourceProxy) dataSource).getTargetDataSource());
+    }
+
+    @Test
+    public void readOnlyTransactionsAreAnsweredByTheReplica() {
+        createTenant();
+
+        assertNull(readOnly.execute(status -> tenantRepository.findByLoginCredentialAccount(account)));
+        assertNotNull(readWrite.execute(status -> tenantRepository.findByLoginCredentialAccount(account)));
+
+        replicate();
+        assertNotNull(readOnly.execute(status -> tenantRepository.findByLoginCredentialAccount(account)));
+    }
+
+    @Test
+    public void principalReadsItsOwnWritesFromThePrimary() {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("writer", null));
+        createTenant();
+
+        assertNotNull(readOnly.execute(status -> tenantRepository.findByLoginCredentialAccount(account)));
+
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("someone-else", null));
+        assertNull(readOnly.execute(status -> tenantRepository.findByLoginCredentialAccount(account)));
+    }
+
+    @Test
+    public void replicaReadsDoNotFillTheQueryCache() {
+        createTenant();
+        assertNull(readOnly.execute(status -> tenantRepository.findByLoginCredentialAccount(account)));
+
+        Tenant found = readWrite.execute(status -> tenantRepository.findByLoginCredentialAccount(account));
+
+        assertNotNull(found);
+    }
+
+    @Test
+    public void tokenLookupsTryTheReplicaFirst() {
+        long replicaConnections = metric("datasource.routing.replica-0.connections");
+
+        assertNull(tokenStore.readAccessToken("no-such-token"));
+
+        assertTrue(metric("datasource.routing.replica-0.connections") > replicaConnections);
+    }
+
+    @Test
+    public void tokenLookupsAreCachedInFrontOfTheReplica() {
+        tokenStore.storeAccessToken(new DefaultOAuth2AccessToken(account), authentication());
+        replicate();
+        long replicaConnections = metric("datasource.routing.replica-0.connections");
+
+        assertNotNull(tokenStore.readAccessToken(account));
+        assertNotNull(tokenStore.readAccessToken(account));
+
+        assertEquals(replicaConnections + 1, metric("datasource.routing.replica-0.connections"));
+    }
+
+    @Test
+    public void revokedTokensAreNotReadFromALaggingReplica() {
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken(account);
+        tokenStore.storeAccessToken(token, authentication());
+        replicate();
+        tokenStore.removeAccessToken(token);
+
+        // the replica has not seen the revocation yet
+        assertNull(tokenStore.readAccessToken(account));
+    }
+
+    @Test
+    public void replicaDataSourceHandsOutConnectionsForExplicitCredentials() throws Exception {
+        try (Connection connection = routingDataSource.replicaDataSource().getConnection("sa", "")) {
+            assertTrue(connection.getMetaData().getURL().contains("ROUTING_REPLICA"));
+        }
+    }
+
+    @Test
+    public void poolMetricsArePublishedPerTarget() {
+        assertEquals(100, metric("datasource.routing.primary.max"));
+        assertEquals(100, metric("datasource.routing.replica-0.max"));
+    }
+
+    private void createTenant() {
+        tenantService.createTenant(TenantTestUtil.createTestTenant(account, account + "@test.com"));
+    }
+
+    private OAuth2Authentication authentication() {
+        // one client per test, as tokens of the same authentication replace each other
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), account,
+                AuthorityUtils.createAuthorityList("USER"), true, Collections.singleton("read"),
+                Collections.emptySet(), null, Collections.emptySet(), null);
+        return new OAuth2Authentication(request, null);
+    }
+
+    // replaces the replica with a copy of the primary as it is now
+    private static void replicate() {
+        JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+        JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+        replica.execute("drop all objects");
+        for (String statement : primary.queryForList("script", String.class)) {
+            replica.execute(statement);
+        }
+    }
+
+    private long metric(String name) {
+        for (Metric<?> metric : routingDataSource.metrics()) {
+            if (metric.getName().equals(name)) {
+                return metric.getValue().longValue();
+            }
+        }
+        throw new AssertionError("No metric " + name);
+    }
+}
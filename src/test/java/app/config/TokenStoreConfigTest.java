@@ -0,0 +1,62 @@
+package app.config;
+
+import app.config.datasource.ReadWriteRoutingDataSource;
+import app.security.CompactJdbcTokenStore;
+import app.security.JavaSerializedJdbcTokenStore;
+import app.security.ReplicaFallbackTokenStore;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class TokenStoreConfigTest {
+    private TokenStoreConfig config;
+
+    @Before
+    public void setUp() {
+        config = new TokenStoreConfig();
+        ReflectionTestUtils.setField(config, "dataSource", mock(DataSource.class));
+        ReadWriteRoutingDataSource routingDataSource = mock(ReadWriteRoutingDataSource.class);
+        when(routingDataSource.replicaDataSource()).thenReturn(mock(DataSource.class));
+        ReflectionTestUtils.setField(config, "routingDataSource", routingDataSource);
+        ReflectionTestUtils.setField(config, "tokenSerialization", "compact");
+        ReflectionTestUtils.setField(config, "tokenCacheMaxSize", 10);
+        ReflectionTestUtils.setField(config, "tokenCacheTtlSeconds", 60L);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void writeBehindRefusesJavaSerialization() {
+        ReflectionTestUtils.setField(config, "writeBehindEnabled", true);
+        ReflectionTestUtils.setField(config, "tokenSerialization", "java");
+
+        config.persistentTokenStore();
+    }
+
+    @Test
+    public void writeBehindTokensAreReadCompactFromTheReplicas() {
+        ReflectionTestUtils.setField(config, "writeBehindEnabled", true);
+
+        assertTrue(replicaTokenStore() instanceof CompactJdbcTokenStore);
+    }
+
+    @Test
+    public void javaSerializedTokensAreWrittenWithTheirExpiration() {
+        ReflectionTestUtils.setField(config, "tokenSerialization", "java");
+
+        assertTrue(config.persistentTokenStore() instanceof JavaSerializedJdbcTokenStore);
+        // the compact store reads Java-serialized rows too
+        assertTrue(replicaTokenStore() instanceof CompactJdbcTokenStore);
+    }
+
+    private TokenStore replicaTokenStore() {
+        // the cache is in front of the replica lookup
+        Object replicaLookup = ReflectionTestUtils.getField(config.tokenStore(), "delegate");
+        assertTrue(replicaLookup instanceof ReplicaFallbackTokenStore);
+        return (TokenStore) ReflectionTestUtils.getField(replicaLookup, "replica");
+    }
+}
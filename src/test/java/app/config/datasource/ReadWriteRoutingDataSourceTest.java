@@ -0,0 +1,143 @@
+package app.config.datasource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+
+public class ReadWriteRoutingDataSourceTest {
+    private static final long WINDOW_MILLIS = 1000;
+
+    private final AtomicLong now = new AtomicLong(1000000);
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readOnly;
+    private TransactionTemplate readWrite;
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    @Before
+    public void setUp() {
+        route(Collections.singletonList(node("replica")));
+    }
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void readOnlyTransactionsReadFromTheReplica() {
+        assertEquals("replica", readOnly.execute(status -> nodeName()));
+    }
+
+    @Test
+    public void readWriteTransactionsAndPlainStatementsUseThePrimary() {
+        assertEquals("primary", readWrite.execute(status -> nodeName()));
+        assertEquals("primary", nodeName());
+    }
+
+    @Test
+    public void replicasAreUsedRoundRobin() {
+        route(Arrays.asList(node("replica"), node("second_replica")));
+
+        assertEquals("replica", readOnly.execute(status -> nodeName()));
+        assertEquals("second_replica", readOnly.execute(status -> nodeName()));
+        assertEquals("replica", readOnly.execute(status -> nodeName()));
+    }
+
+    @Test
+    public void principalReadsItsOwnWritesFromThePrimaryWithinTheWindow() {
+        authenticate("writer");
+        readWrite.execute(status -> jdbcTemplate.update("update node set name = name"));
+
+        assertEquals("primary", readOnly.execute(status -> nodeName()));
+        authenticate("someone-else");
+        assertEquals("replica", readOnly.execute(status -> nodeName()));
+
+        authenticate("writer");
+        now.addAndGet(WINDOW_MILLIS);
+        assertEquals("replica", readOnly.execute(status -> nodeName()));
+        assertEquals(1, metric("datasource.routing.read-your-writes"));
+    }
+
+    @Test
+    public void rolledBackWritesDoNotKeepReadsOnThePrimary() {
+        authenticate("writer");
+        readWrite.execute(status -> {
+            jdbcTemplate.update("update node set name = name");
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertEquals("replica", readOnly.execute(status -> nodeName()));
+    }
+
+    @Test
+    public void unreachableReplicaFallsBackToThePrimary() {
+        route(Collections.singletonList(new DriverManagerDataSource("jdbc:h2:tcp://localhost:1/unreachable", "sa", "")));
+
+        assertEquals("primary", readOnly.execute(status -> nodeName()));
+        assertEquals(1, metric("datasource.routing.replica-fallbacks"));
+        assertEquals(0, metric("datasource.routing.replica-0.connections"));
+    }
+
+    @Test
+    public void replicaDataSourceReadsFromTheReplicaOutsideTransactions() {
+        assertEquals("replica", new JdbcTemplate(routingDataSource.replicaDataSource())
+                .queryForObject("select name from node", String.class));
+        assertEquals(1, metric("datasource.routing.replica-0.connections"));
+    }
+
+    private void route(List<DataSource> replicas) {
+        routingDataSource = new ReadWriteRoutingDataSource(node("primary"), replicas,
+                new ReplicaLagGuard(WINDOW_MILLIS, now::get));
+        routingDataSource.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routingDataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    private String nodeName() {
+        return jdbcTemplate.queryForObject("select name from node", String.class);
+    }
+
+    private long metric(String name) {
+        for (Metric<?> metric : routingDataSource.metrics()) {
+            if (metric.getName().equals(name)) {
+                return metric.getValue().longValue();
+            }
+        }
+        throw new AssertionError("No metric " + name);
+    }
+
+    private static void authenticate(String principal) {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(principal, null));
+    }
+
+    // a separate in-memory database per name, holding only its own name
+    private static DataSource node(String name) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:routing_" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table if not exists node (name varchar(32))");
+        jdbcTemplate.update("delete from node");
+        jdbcTemplate.update("insert into node values (?)", name);
+        return dataSource;
+    }
+}
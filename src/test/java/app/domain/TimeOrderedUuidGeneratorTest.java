@@ -0,0 +1,51 @@
+package app.domain;
+
+import org.junit.Test;
+
+import java.security.SecureRandom;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class TimeOrderedUuidGeneratorTest {
+
+    @Test
+    public void generate_isVersion7WithTheTimestampInFront() {
+        long now = System.currentTimeMillis();
+        UUID uuid = TimeOrderedUuidGenerator.generate(now, new SecureRandom());
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertEquals(now, uuid.getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    public void generate_sortsByCreationTimeAsString() {
+        SecureRandom random = new SecureRandom();
+        long now = System.currentTimeMillis();
+        String previous = TimeOrderedUuidGenerator.generate(now, random).toString();
+        for (int i = 1; i < 1000; i++) {
+            String next = TimeOrderedUuidGenerator.generate(now + i, random).toString();
+            assertTrue(previous + " < " + next, previous.compareTo(next) < 0);
+            previous = next;
+        }
+    }
+
+    @Test
+    public void generate_isUniqueWithinTheSameMillisecond() {
+        Set<UUID> uuids = new HashSet<>();
+        for (int i = 0; i < 100000; i++) {
+            assertTrue(uuids.add(TimeOrderedUuidGenerator.generate()));
+        }
+    }
+
+    @Test
+    public void generatesStringIdentifiers() {
+        Object id = new TimeOrderedUuidGenerator().generate(null, null);
+
+        assertEquals(36, id.toString().length());
+        assertEquals(id, UUID.fromString((String) id).toString());
+    }
+}
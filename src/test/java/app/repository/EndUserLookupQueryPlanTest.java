@@ -0,0 +1,53 @@
+package app.repository;
+
+import app.IdentityAccessServiceApplication;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Fails when an end-user identity lookup stops using an index, i.e. when H2 plans a table scan for it.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = IdentityAccessServiceApplication.class)
+public class EndUserLookupQueryPlanTest {
+    private static final String LOOKUP_BY_APPLICATION = "select u.end_user_id from app_user u " +
+            "join app_end_user a on a.end_user_id = u.end_user_id " +
+            "where a.app_id = 'application-id' and u.%s = lower(trim('Value'))";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void lookupByAccountUsesIndexes() {
+        assertIndexed(String.format(LOOKUP_BY_APPLICATION, "normalized_account"), "IDX_APP_USER_NORMALIZED_ACCOUNT");
+    }
+
+    @Test
+    public void lookupByEmailUsesIndexes() {
+        assertIndexed(String.format(LOOKUP_BY_APPLICATION, "normalized_email"), "IDX_APP_USER_NORMALIZED_EMAIL");
+    }
+
+    @Test
+    public void lookupByMobilePhoneNoUsesIndexes() {
+        assertIndexed(String.format(LOOKUP_BY_APPLICATION, "normalized_mobile_phone_no"), "IDX_APP_USER_NORMALIZED_MOBILE");
+    }
+
+    @Test
+    public void applicationMembersAreFoundByIndex() {
+        assertIndexed("select a.end_user_id from app_end_user a where a.app_id = 'application-id'", "PRIMARY_KEY");
+        assertIndexed("select a.app_id from app_end_user a where a.end_user_id = 'end-user-id'", "IDX_APP_END_USER_USER_APP");
+    }
+
+    private void assertIndexed(String sql, String expectedIndex) {
+        String plan = jdbcTemplate.queryForObject("explain " + sql, String.class).toUpperCase();
+        assertFalse("table scan in plan: " + plan, plan.contains("TABLESCAN"));
+        assertTrue(expectedIndex + " not used in plan: " + plan, plan.contains(expectedIndex));
+    }
+}
@@ -14,6 +14,9 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -112,328 +115,281 @@ public class EndUserRepositoryTest {
     }
 
     @Test
-    public void findById() {
-        EndUser foundEndUser = endUserRepository.findById(endUser.getId());
-        assertNotNull(foundEndUser);
-        assertEquals(foundEndUser.getId(), endUser.getId());
+    public void findLoginByApplicationAndCredentialAccount() {
+        EndUserLogin login = endUserRepository.findLoginByApplicationAndCredentialAccount(application.getId(), "test_user1");
+        assertNotNull(login);
+        assertEquals(endUser.getId(), login.getId());
+        assertEquals(endUser.getCredential().getPassword(), login.getPassword());
+        assertEquals(EndUserStatus.CREATED, login.getStatus());
     }
 
     @Test
-    public void findByEmail() {
-        EndUser foundEndUser = endUserRepository.findByEmail(
-                endUser.getEmail(),
-                application.getId(),
-                tenant.getId()
-        );
-        assertNotNull(foundEndUser);
-        assertEquals(foundEndUser.getEmail(), endUser.getEmail());
+    public void findLoginByApplicationAndEmail() {
+        EndUserLogin login = endUserRepository.findLoginByApplicationAndEmail(application.getId(), "test_user1@test.com");
+        assertNotNull(login);
+        assertEquals("test_user1", login.getAccount());
+        assertNull(endUserRepository.findLoginByApplicationAndEmail("unknown_application", "test_user1@test.com"));
     }
 
     @Test
-    public void findByEmail_without_applicationId() {
-        EndUser foundEndUser = endUserRepository.findByEmail(
-                endUser.getEmail(),
-                tenant.getId());
-        assertNotNull(foundEndUser);
-        assertEquals(foundEndUser.getEmail(), endUser.getEmail());
-    }
+    public void findRegistrationConflicts() {
+        EndUserConflicts conflicts = endUserRepository.findRegistrationConflicts(
+                application.getId(), "TEST_USER1", "other@test.com", "010-9999-5555", "");
 
-    @Test
-    public void findByEmailLike() {
-        Page<EndUser> endUsers = endUserRepository.findByEmailLike(
-                endUser.getEmail(),
-                application.getId(),
-                tenant.getId(),
-                PAGE_REQUEST);
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
+        assertTrue(conflicts.isApplicationExists());
+        assertEquals(endUser.getId(), conflicts.getAccountOwnerId());
+        assertNull(conflicts.getEmailOwnerId());
+        assertEquals(endUser.getId(), conflicts.getMobilePhoneNoOwnerId());
     }
 
     @Test
-    public void findByEmailLike_without_applicationId() {
-        Page<EndUser> endUsers = endUserRepository.findByEmailLike(
-                endUser.getEmail(),
-                tenant.getId(),
-                PAGE_REQUEST);
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
-    }
+    public void findRegistrationConflicts_ignores_the_registering_user() {
+        EndUserConflicts conflicts = endUserRepository.findRegistrationConflicts(
+                application.getId(), "new_account", "test_user1@test.com", null, endUser.getId());
 
-    @Test
-    public void findByEmailLike_with_only_start_letter() {
-        Page<EndUser> endUsers = endUserRepository.findByEmailLike("t", tenant.getId(), PAGE_REQUEST);
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
+        assertTrue(conflicts.isApplicationExists());
+        assertNull(conflicts.getAccountOwnerId());
+        assertNull(conflicts.getEmailOwnerId());
     }
 
     @Test
-    public void findByProfileFirstName() {
-        Page<EndUser> endUsers = endUserRepository.findByProfileFirstName(
-                endUser.getProfile().getFirstName(),
-                application.getId(),
-                tenant.getId(),
-                PAGE_REQUEST);
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
+    public void findRegistrationConflicts_of_unknown_application() {
+        EndUserConflicts conflicts = endUserRepository.findRegistrationConflicts(
+                "unknown_application", "test_user1", null, null, "");
+
+        assertFalse(conflicts.isApplicationExists());
+        assertNull(conflicts.getAccountOwnerId());
     }
 
     @Test
-    public void findByProfileFirstName_without_applicationId() {
-        Page<EndUser> endUsers = endUserRepository.findByProfileFirstName(
-                endUser.getProfile().getFirstName(),
-                tenant.getId(),
-                PAGE_REQUEST);
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
+    public void findById() {
+        EndUser foundEndUser = endUserRepository.findById(endUser.getId());
+        assertNotNull(foundEndUser);
+        assertEquals(foundEndUser.getId(), endUser.getId());
     }
 
     @Test
-    public void findByProfileFirstNameLike() {
-        Page<EndUser> endUsers = endUserRepository.findByProfileFirstNameLike(
-                endUser.getProfile().getFirstName(),
-                application.getId(),
-                tenant.getId(),
-                PAGE_REQUEST);
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
+    public void search_by_email() {
+        EndUserSearchCriteria criteria = criteria(application.getId());
+        criteria.setEmail("TEST_USER1@test.com");
+        assertFound(endUserRepository.search(tenant.getId(), criteria, PAGE_REQUEST));
     }
 
     @Test
-    public void findByProfileFirstNameLike_without_applicationId() {
-        Page<EndUser> endUsers = endUserRepository.findByProfileFirstNameLike(
-                endUser.getProfile().getFirstName(),
-                tenant.getId(),
-                PAGE_REQUEST);
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
+    public void search_by_email_without_applicationId() {
+        EndUserSearchCriteria criteria = criteria(null);
+        criteria.setEmail(endUser.getEmail());
+        assertFound(endUserRepository.search(tenant.getId(), criteria, PAGE_REQUEST));
     }
 
     @Test
-    public void findByProfileFirstNameLike_with_only_start_letter() {
-        Page<EndUser> endUsers = endUserRepository.findByProfileFirstNameLike(
-                "f",
-                application.getId(),
-                tenant.getId(),
-                PAGE_REQUEST);
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
+    public void search_by_email_prefix() {
+        EndUserSearchCriteria criteria = criteria(null);
+        criteria.setEmail("t*");
+        assertFound(endUserRepository.search(tenant.getId(), criteria, PAGE_REQUEST));
     }
 
     @Test
-    public void findByProfileLastName() {
-        Page<EndUser> endUsers = endUserRepository.findByProfileLastName(
-                endUser.getProfile().getLastName(),
-                application.getId(),
-                tenant.getId(),
-                PAGE_REQUEST);
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
+    public void search_by_email_contains() {
+        EndUserSearchCriteria criteria = criteria(application.getId());
+        criteria.setEmail(EndUserSearchCriteria.contains("user1@"));
+        assertFound(endUserRepository.search(tenant.getId(), criteria, PAGE_REQUEST));
     }
 
     @Test
-    public void findByProfileLastNameLike() {
-        Page<EndUser> endUsers = endUserRepository.findByProfileLastNameLike(
-                endUser.getProfile().getLastName(),
-                application.getId(),
-                tenant.getId(),
-                PAGE_REQUEST);
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
+    public void search_by_names() {
+        for (String applicationId : new String[]{application.getId(), null}) {
+            EndUserSearchCriteria criteria = criteria(applicationId);
+            criteria.setFirstName(endUser.getProfile().getFirstName());
+            criteria.setLastName(endUser.getProfile().getLastName());
+            criteria.setMiddleName(endUser.getProfile().getMiddleName());
+            criteria.setNickname(endUser.getProfile().getNickName());
+            assertFound(endUserRepository.search(tenant.getId(), criteria, PAGE_REQUEST));
+        }
     }
 
     @Test
-    public void findByProfileLastName_without_applicationId() {
-        Page<EndUser> endUsers = endUserRepository.findByProfileLastName(
-                endUser.getProfile().getLastName(),
-                tenant.getId(),
-                PAGE_REQUEST);
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
+    public void search_by_name_prefixes() {
+        EndUserSearchCriteria criteria = criteria(application.getId());
+        criteria.setFirstName("f*");
+        criteria.setLastName("l*");
+        criteria.setMiddleName("m*");
+        criteria.setNickname("n*");
+        assertFound(endUserRepository.search(tenant.getId(), criteria, PAGE_REQUEST));
     }
 
     @Test
-    public void findByProfileLastNameLike_without_applicationId() {
-        Page<EndUser> endUsers = endUserRepository.findByProfileLastNameLike(
-                endUser.getProfile().getLastName(),
-                tenant.getId(),
-                PAGE_REQUEST);
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
+    public void search_by_name_contains() {
+        EndUserSearchCriteria criteria = criteria(null);
+        criteria.setFirstName(EndUserSearchCriteria.contains("Name"));
+        criteria.setNickname(EndUserSearchCriteria.contains("ick"));
+        assertFound(endUserRepository.search(tenant.getId(), criteria, PAGE_REQUEST));
     }
 
     @Test
-    public void findByProfileLastNameLike_with_only_start_letter() {
-        Page<EndUser> endUsers = endUserRepository.findByProfileLastNameLike(
-                "l",
-                application.getId(),
-                tenant.getId(),
-                PAGE_REQUEST);
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
+    public void search_requires_every_filter_to_match() {
+        EndUserSearchCriteria criteria = criteria(null);
+        criteria.setFirstName(endUser.getProfile().getFirstName());
+        criteria.setGender(Gender.FEMALE);
+        assertFalse(endUserRepository.search(tenant.getId(), criteria, PAGE_REQUEST).hasContent());
     }
 
-
     @Test
-    public void findByProfileMiddleName() {
-        Page<EndUser> endUsers = endUserRepository.findByProfileMiddleName(
-                endUser.getProfile().getMiddleName(),
-                application.getId(),
-                tenant.getId(),
-                PAGE_REQUEST);
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
+    public void search_by_mobileNo_gender_and_status() {
+        for (String applicationId : new String[]{application.getId(), null}) {
+            EndUserSearchCriteria criteria = criteria(applicationId);
+            criteria.setMobileNo(endUser.getProfile().getMobilePhoneNo());
+            criteria.setGender(Gender.MALE);
+            criteria.setStatus(EndUserStatus.CREATED);
+            assertFound(endUserRepository.search(tenant.getId(), criteria, PAGE_REQUEST));
+        }
     }
 
     @Test
-    public void findByProfileMiddleNameLike() {
-        Page<EndUser> endUsers = endUserRepository.findByProfileMiddleNameLike(
-                endUser.getProfile().getMiddleName(),
-                application.getId(),
-                tenant.getId(),
-                PAGE_REQUEST);
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
+    public void search_by_created_date_range() {
+        EndUserSearchCriteria criteria = criteria(null);
+        criteria.setCreatedFrom(LocalDateTime.now().minusDays(1));
+        criteria.setCreatedTo(LocalDateTime.now().plusDays(1));
+        assertFound(endUserRepository.search(tenant.getId(), criteria, PAGE_REQUEST));
+
+        criteria.setCreatedFrom(LocalDateTime.now().plusDays(1));
+        criteria.setCreatedTo(null);
+        assertFalse(endUserRepository.search(tenant.getId(), criteria, PAGE_REQUEST).hasContent());
     }
 
     @Test
-    public void findByProfileMiddleName_without_applicationId() {
-        Page<EndUser> endUsers = endUserRepository.findByProfileMiddleName(
-                endUser.getProfile().getMiddleName(),
-                tenant.getId(),
-                PAGE_REQUEST);
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
+    public void search_is_limited_to_the_tenant_and_application() {
+        EndUserSearchCriteria criteria = criteria(null);
+        criteria.setEmail(endUser.getEmail());
+        assertFalse(endUserRepository.search("other_tenant", criteria, PAGE_REQUEST).hasContent());
+
+        criteria.setApplicationId("other_application");
+        assertFalse(endUserRepository.search(tenant.getId(), criteria, PAGE_REQUEST).hasContent());
     }
 
     @Test
-    public void findByProfileMiddleNameLike_without_applicationId() {
-        Page<EndUser> endUsers = endUserRepository.findByProfileMiddleNameLike(
-                endUser.getProfile().getMiddleName(),
-                tenant.getId(),
-                PAGE_REQUEST);
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
+    public void search_treats_like_wildcards_literally() {
+        EndUserSearchCriteria criteria = criteria(null);
+        criteria.setEmail("%*");
+        assertFalse(endUserRepository.search(tenant.getId(), criteria, PAGE_REQUEST).hasContent());
+
+        criteria.setEmail("test!user1*");
+        assertFalse(endUserRepository.search(tenant.getId(), criteria, PAGE_REQUEST).hasContent());
     }
 
     @Test
-    public void findByProfileMiddleNameLike_with_only_start_letter() {
-        Page<EndUser> endUsers = endUserRepository.findByProfileMiddleNameLike(
-                "m",
-                application.getId(),
-                tenant.getId(),
-                PAGE_REQUEST);
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
+    public void search_returns_list_view_columns() {
+        EndUserSearchCriteria criteria = criteria(application.getId());
+        criteria.setEmail(endUser.getEmail());
+
+        EndUserSummary summary = endUserRepository.search(tenant.getId(), criteria, PAGE_REQUEST).getContent().get(0);
+
+        assertEquals(endUser.getId(), summary.getId());
+        assertEquals("test_user1", summary.getAccount());
+        assertEquals("firstName", summary.getFirstName());
+        assertEquals(Gender.MALE, summary.getGender());
+        assertEquals(EndUserStatus.CREATED, summary.getStatus());
+        assertNotNull(summary.getCreatedAt());
     }
 
     @Test
-    public void findByProfileNickName() {
-        Page<EndUser> endUsers = endUserRepository.findByProfileNickName(
-                endUser.getProfile().getNickName(),
-                application.getId(),
-                tenant.getId(),
-                PAGE_REQUEST);
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
+    public void searchEndUsers_returns_entities() {
+        EndUserSearchCriteria criteria = criteria(application.getId());
+        criteria.setNickname(endUser.getProfile().getNickName());
+
+        Page<EndUser> endUsers = endUserRepository.searchEndUsers(tenant.getId(), criteria, PAGE_REQUEST);
+
+        assertEquals(1, endUsers.getTotalElements());
+        assertEquals(endUser.getProfile().getMobilePhoneNo(), endUsers.getContent().get(0).getProfile().getMobilePhoneNo());
     }
 
-    @Test
-    public void findByProfileNickNameLike() {
-        Page<EndUser> endUsers = endUserRepository.findByProfileNickNameLike(
-                endUser.getProfile().getNickName(),
-                application.getId(),
-                tenant.getId(),
-                PAGE_REQUEST);
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
+    private EndUserSearchCriteria criteria(String applicationId) {
+        EndUserSearchCriteria criteria = new EndUserSearchCriteria();
+        criteria.setApplicationId(applicationId);
+        return criteria;
     }
 
-    @Test
-    public void findByProfileNickName_without_applicationId() {
-        Page<EndUser> endUsers = endUserRepository.findByProfileNickName(
-                endUser.getProfile().getNickName(),
-                tenant.getId(),
-                PAGE_REQUEST);
+    private void assertFound(Page<EndUserSummary> endUsers) {
         assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
+        assertEquals(1, endUsers.getTotalElements());
+        assertEquals(endUser.getId(), endUsers.getContent().get(0).getId());
     }
 
     @Test
-    public void findByProfileNickNameLike_without_applicationId() {
-        Page<EndUser> endUsers = endUserRepository.findByProfileNickNameLike(
-                endUser.getProfile().getNickName(),
-                tenant.getId(),
-                PAGE_REQUEST);
+    public void findApplicationEndUsers() {
+        Page<EndUser> endUsers = endUserRepository.findApplicationEndUsers(application.getId(), new PageRequest(0, 10));
         assertNotNull(endUsers);
         assertTrue(endUsers.hasContent());
     }
 
     @Test
-    public void findByProfileNickNameLike_with_only_start_letter() {
-        Page<EndUser> endUsers = endUserRepository.findByProfileNickNameLike(
-                "n",
-                application.getId(),
-                tenant.getId(),
-                PAGE_REQUEST);
+    public void findAllEndTenantIdUsersForTenant() {
+        String tenantId = tenant.getId();
+        Page<EndUser> endUsers = endUserRepository.findAllEndUsersForTenant(tenantId, new PageRequest(0, 10));
         assertNotNull(endUsers);
         assertTrue(endUsers.hasContent());
     }
 
     @Test
-    public void findByProfileMobilePhoneNo() {
-        EndUser foundEndUser = endUserRepository.findByProfileMobilePhoneNo(
-                endUser.getProfile().getMobilePhoneNo(),
-                application.getId(),
-                tenant.getId()
-                );
-        assertNotNull(foundEndUser);
-        assertEquals(foundEndUser.getProfile().getMobilePhoneNo(), endUser.getProfile().getMobilePhoneNo());
-    }
+    public void findAllOfTenantAfter_walks_every_end_user_once_in_creation_order() {
+        for (int i = 2; i <= 5; i++) {
+            addEndUser(application, "test_user" + i);
+        }
 
-    @Test
-    public void findByProfileGender() {
-        Page<EndUser> endUsers = endUserRepository.findByProfileGender(
-                Gender.MALE,
-                application.getId(),
-                tenant.getId(),
-                PAGE_REQUEST);
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
-    }
+        List<String> ids = new ArrayList<>();
+        EndUserCursor cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<EndUser> page = endUserRepository.findAllOfTenantAfter(tenant.getId(), null, cursor, 2);
+            page.getContent().forEach(user -> ids.add(user.getId()));
+            cursor = EndUserCursor.decode(page.getNextCursor());
+            pages++;
+        } while (cursor != null);
 
-    @Test
-    public void findByProfileMobilePhoneNo_without_applicationId() {
-        EndUser foundEndUser = endUserRepository.findByProfileMobilePhoneNo(
-                endUser.getProfile().getMobilePhoneNo(),
-                tenant.getId()
-        );
-        assertNotNull(foundEndUser);
-        assertEquals(foundEndUser.getProfile().getMobilePhoneNo(), endUser.getProfile().getMobilePhoneNo());
+        assertEquals(3, pages);
+        assertEquals(5, ids.size());
+        assertEquals(5, new HashSet<>(ids).size());
+        assertEquals(endUser.getId(), ids.get(0));
     }
 
     @Test
-    public void findByProfileGender_without_applicationId() {
-        Page<EndUser> endUsers = endUserRepository.findByProfileGender(
-                Gender.MALE,
-                tenant.getId(),
-                PAGE_REQUEST);
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
+    public void findAllOfTenantAfter_is_limited_to_the_application() {
+        addEndUser(application, "test_user2");
+
+        assertEquals(2, endUserRepository.findAllOfTenantAfter(tenant.getId(), application.getId(), null, 10).getNumberOfElements());
+        assertTrue(endUserRepository.findAllOfTenantAfter(tenant.getId(), "unknown_application", null, 10).getContent().isEmpty());
+        assertTrue(endUserRepository.findAllOfTenantAfter("unknown_tenant", null, null, 10).getContent().isEmpty());
     }
 
     @Test
-    public void findApplicationEndUsers() {
-        Page<EndUser> endUsers = endUserRepository.findApplicationEndUsers(application.getId(), new PageRequest(0, 10));
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
+    public void findApplicationEndUsersAfter() {
+        EndUser second = addEndUser(application, "test_user2");
+
+        CursorPage<EndUser> first = endUserRepository.findApplicationEndUsersAfter(application.getId(), null, 1);
+        CursorPage<EndUser> next = endUserRepository.findApplicationEndUsersAfter(application.getId(),
+                EndUserCursor.decode(first.getNextCursor()), 1);
+
+        assertEquals(endUser.getId(), first.getContent().get(0).getId());
+        assertFalse(first.isLast());
+        assertEquals(second.getId(), next.getContent().get(0).getId());
+        assertTrue(next.isLast());
     }
 
-    @Test
-    public void findAllEndTenantIdUsersForTenant() {
-        String tenantId = tenant.getId();
-        Page<EndUser> endUsers = endUserRepository.findAllEndUsersForTenant(tenantId, new PageRequest(0, 10));
-        assertNotNull(endUsers);
-        assertTrue(endUsers.hasContent());
+    private EndUser addEndUser(Application application, String account) {
+        EndUser user = new EndUser();
+        user.setStatus(EndUserStatus.CREATED);
+        user.setEmail(account + "@test.com");
+        LoginCredential loginCredential = new LoginCredential();
+        loginCredential.setAccount(account);
+        loginCredential.setPassword("test");
+        user.setCredential(loginCredential);
+        user.setProfile(new UserProfile());
+
+        ApplicationEndUser applicationEndUser = new ApplicationEndUser();
+        applicationEndUser.setApplication(application);
+        applicationEndUser.setEndUser(user);
+        user.getApplicationEndUsers().add(applicationEndUser);
+        return endUserRepository.save(user);
     }
 
     @Test
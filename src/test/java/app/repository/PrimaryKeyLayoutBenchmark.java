@@ -0,0 +1,115 @@
+package app.repository;
+
+import app.domain.TimeOrderedUuidGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-user inserts per second, each with its APP_END_USER row, for the primary key layouts of APP_USER:
+ * random (uuid2) or time-ordered UUIDs stored as VARCHAR(36), and time-ordered UUIDs stored as BINARY(16).
+ * Runs against an in-memory H2 database unless {@code -Dbenchmark.url}, {@code -Dbenchmark.user} and
+ * {@code -Dbenchmark.password} point it at a MySQL schema, where the clustered primary key makes the difference.
+ * Run from the IDE or with {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=app.repository.PrimaryKeyLayoutBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(1)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class PrimaryKeyLayoutBenchmark {
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"varchar-random", "varchar-time-ordered", "binary-time-ordered"})
+    private String layout;
+
+    private Connection connection;
+    private PreparedStatement insertEndUser;
+    private PreparedStatement insertApplicationEndUser;
+    private Object applicationId;
+    private boolean binary;
+    private boolean timeOrdered;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        binary = layout.startsWith("binary");
+        timeOrdered = layout.endsWith("time-ordered");
+        connection = DriverManager.getConnection(System.getProperty("benchmark.url", "jdbc:h2:mem:pk_layout"),
+                System.getProperty("benchmark.user", "sa"), System.getProperty("benchmark.password", ""));
+        String idType = binary ? "BINARY(16)" : "VARCHAR(36)";
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists bench_app_end_user");
+            statement.execute("drop table if exists bench_app_user");
+            statement.execute("create table bench_app_user (end_user_id " + idType + " not null primary key, " +
+                    "account varchar(255), email varchar(255), status varchar(32), created_date timestamp)");
+            statement.execute("create table bench_app_end_user (app_id " + idType + " not null, end_user_id " + idType +
+                    " not null, primary key (app_id, end_user_id))");
+        }
+        connection.setAutoCommit(false);
+        insertEndUser = connection.prepareStatement("insert into bench_app_user values (?, ?, ?, 'CREATED', current_timestamp)");
+        insertApplicationEndUser = connection.prepareStatement("insert into bench_app_end_user values (?, ?)");
+        applicationId = id();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void insert() throws SQLException {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            Object id = id();
+            String account = id.hashCode() + "-" + i;
+            insertEndUser.setObject(1, id);
+            insertEndUser.setString(2, account);
+            insertEndUser.setString(3, account + "@test.com");
+            insertEndUser.addBatch();
+            insertApplicationEndUser.setObject(1, applicationId);
+            insertApplicationEndUser.setObject(2, id);
+            insertApplicationEndUser.addBatch();
+        }
+        insertEndUser.executeBatch();
+        insertApplicationEndUser.executeBatch();
+        connection.commit();
+    }
+
+    private Object id() {
+        UUID uuid = timeOrdered ? TimeOrderedUuidGenerator.generate() : UUID.randomUUID();
+        if (!binary) {
+            return uuid.toString();
+        }
+        return ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PrimaryKeyLayoutBenchmark.class.getSimpleName()).build()).run();
+    }
+}
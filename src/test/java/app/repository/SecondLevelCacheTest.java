@@ -0,0 +1,127 @@
+package app.repository;
+
+import app.IdentityAccessServiceApplication;
+import app.config.SecondLevelCacheMetrics;
+import app.domain.Application;
+import app.domain.Tenant;
+import app.service.ApplicationService;
+import app.service.TenantService;
+import app.util.TenantTestUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// not @Transactional: the query cache only serves results of committed transactions
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = IdentityAccessServiceApplication.class)
+public class SecondLevelCacheTest {
+    @Autowired
+    private TenantService tenantService;
+
+    @Autowired
+    private ApplicationService applicationService;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private ApplicationRepository applicationRepository;
+
+    @Autowired
+    private SecondLevelCacheMetrics secondLevelCacheMetrics;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private String account;
+    private Tenant tenant;
+
+    @Before
+    public void setUp() {
+        account = "cache-" + UUID.randomUUID().toString().substring(0, 8);
+        tenant = tenantService.createTenant(TenantTestUtil.createTestTenant(account, account + "@test.com"));
+    }
+
+    @After
+    public void tearDown() {
+        tenantService.delete(tenant.getId());
+    }
+
+    @Test
+    public void tenantLookupByAccountIsServedFromCache() {
+        tenantRepository.findByLoginCredentialAccount(account);
+        long lookupHits = metric("cache.l2.tenant-lookup.hit");
+        long tenantHits = metric("cache.l2.Tenant.hit");
+
+        Tenant found = tenantRepository.findByLoginCredentialAccount(account);
+
+        assertEquals(tenant.getId(), found.getId());
+        assertTrue(metric("cache.l2.tenant-lookup.hit") > lookupHits);
+        assertTrue(metric("cache.l2.Tenant.hit") > tenantHits);
+    }
+
+    @Test
+    public void tenantLookupByApiKeyIsServedFromCache() {
+        String apiKey = tenant.getApiKeyInformation().getApiKey();
+        tenantRepository.findByApiKeyInformationApiKey(apiKey);
+        long lookupHits = metric("cache.l2.tenant-lookup.hit");
+
+        Tenant found = tenantRepository.findByApiKeyInformationApiKey(apiKey);
+
+        assertEquals(tenant.getId(), found.getId());
+        assertTrue(metric("cache.l2.tenant-lookup.hit") > lookupHits);
+    }
+
+    @Test
+    public void tenantChangesAreVisibleThroughTheCache() {
+        tenantRepository.findByLoginCredentialAccount(account);
+
+        tenantService.activate(tenant.getId());
+
+        assertEquals(Tenant.Status.ACTIVE, tenantRepository.findByLoginCredentialAccount(account).getStatus());
+        assertEquals(Tenant.Status.ACTIVE, tenantRepository.findOne(tenant.getId()).getStatus());
+    }
+
+    @Test
+    public void applicationIsServedFromCacheAndEvictedOnUpdate() {
+        Application application = new Application();
+        application.setName("cached app");
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        String applicationId = transactionTemplate.execute(status -> applicationService.createApplication(account, application).getId());
+        try {
+            applicationRepository.findOne(applicationId);
+            long hits = metric("cache.l2.Application.hit");
+            applicationRepository.findOne(applicationId);
+            assertTrue(metric("cache.l2.Application.hit") > hits);
+
+            Application update = new Application();
+            update.setName("renamed app");
+            transactionTemplate.execute(status -> applicationService.updateApplicationOf(account, applicationId, update));
+
+            assertEquals("renamed app", applicationRepository.findOne(applicationId).getName());
+        } finally {
+            transactionTemplate.execute(status -> applicationService.deleteApplication(account, applicationId));
+        }
+    }
+
+    private long metric(String name) {
+        for (Metric<?> metric : secondLevelCacheMetrics.metrics()) {
+            if (metric.getName().equals(name)) {
+                return metric.getValue().longValue();
+            }
+        }
+        throw new AssertionError("No metric " + name);
+    }
+}
@@ -0,0 +1,167 @@
+package app.resource;
+
+import app.IdentityAccessServiceApplication;
+import app.domain.Application;
+import app.domain.ApplicationEndUser;
+import app.domain.EndUser;
+import app.domain.EndUserStatus;
+import app.domain.Tenant;
+import app.repository.TenantApiKeyRepository;
+import app.repository.TenantRepository;
+import app.util.ClientDetailsFactory;
+import app.util.EndUserTestUtil;
+import app.util.OAuth2Helper;
+import app.util.TenantTestUtil;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.client.JdbcClientDetailsService;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = IdentityAccessServiceApplication.class,
+        properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@WebAppConfiguration
+@Transactional
+public class EndUserListQueryCountTest {
+    private static final int END_USERS = 20;
+    private static final int APPLICATIONS = 4;
+
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Autowired
+    private TenantApiKeyRepository tenantApiKeyRepository;
+
+    @Autowired
+    private OAuth2Helper oAuth2Helper;
+
+    @Autowired
+    @Qualifier("tenantBaseClientDetailsFactory")
+    private ClientDetailsFactory<Tenant> tenantClientDetailsFactory;
+
+    @Autowired
+    private JdbcClientDetailsService jdbcClientDetailsService;
+
+    private Statistics statistics;
+    private String authorization;
+    private final List<EndUser> endUsers = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mockMvc = webAppContextSetup(webApplicationContext).apply(springSecurity()).build();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Tenant tenant = TenantTestUtil.prepareTestTenants("query_count_tenant", tenantRepository, tenantApiKeyRepository,
+                LocalDateTime.now().plusDays(1));
+        List<Application> applications = new ArrayList<>();
+        for (int i = 0; i < APPLICATIONS; i++) {
+            Application application = EndUserResourceTestUtil.createTestApplication();
+            application.setOwner(tenant);
+            entityManager.persist(application);
+            applications.add(application);
+        }
+        for (int i = 0; i < END_USERS; i++) {
+            EndUser endUser = EndUserTestUtil.createTestEndUser("query_count_user_" + i);
+            endUser.setStatus(EndUserStatus.ACTIVE);
+            endUser.setTenantId(tenant.getId());
+            entityManager.persist(endUser);
+            ApplicationEndUser applicationEndUser = new ApplicationEndUser();
+            applicationEndUser.setApplication(applications.get(i % APPLICATIONS));
+            applicationEndUser.setEndUser(endUser);
+            entityManager.persist(applicationEndUser);
+            endUsers.add(endUser);
+        }
+
+        ClientDetails tenantClientDetails = tenantClientDetailsFactory.createFrom(tenant);
+        jdbcClientDetailsService.addClientDetails(tenantClientDetails);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        oAuth2Helper.bearerToken(tenantClientDetails.getClientId(), tenant.getLoginCredential().getAccount())
+                .postProcessRequest(request);
+        authorization = request.getHeader("Authorization");
+    }
+
+    @Test
+    public void findAll_runsTheSameStatementsForAnyPageSize() throws Exception {
+        long smallPage = statementsFor(get("/api/end-users").param("size", "2"), 2);
+        long fullPage = statementsFor(get("/api/end-users").param("size", String.valueOf(END_USERS)), END_USERS);
+
+        assertEquals(smallPage, fullPage);
+    }
+
+    @Test
+    public void findByEmailLike_runsTheSameStatementsForAnyPageSize() throws Exception {
+        long smallPage = statementsFor(get("/api/end-users/search/by-email-like").param("email", "test_user")
+                .param("size", "2"), 2);
+        long fullPage = statementsFor(get("/api/end-users/search/by-email-like").param("email", "test_user")
+                .param("size", String.valueOf(END_USERS)), END_USERS);
+
+        assertEquals(smallPage, fullPage);
+    }
+
+    @Test
+    public void findById_loadsApplicationIdsWithTheEndUser() throws Exception {
+        entityManager.flush();
+        entityManager.clear();
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+
+        mockMvc.perform(get("/api/end-users/" + endUsers.get(1).getId()).header("Authorization", authorization))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.applications.length()").value(1));
+
+        // the end-user, then its application ids
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    private long statementsFor(MockHttpServletRequestBuilder request, int expectedSize) throws Exception {
+        entityManager.flush();
+        entityManager.clear();
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+
+        mockMvc.perform(request.header("Authorization", authorization))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(expectedSize))
+                .andExpect(jsonPath("$.content[0].applications.length()").value(1));
+
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -2,7 +2,10 @@ package app.resource;
 
 import app.IdentityAccessServiceApplication;
 import app.domain.Application;
+import app.domain.EndUser;
+import app.domain.EndUserStatus;
 import app.repository.ApplicationRepository;
+import app.repository.EndUserRepository;
 import org.hamcrest.core.Is;
 import org.junit.Before;
 import org.junit.Test;
@@ -14,6 +17,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.oauth2.provider.ClientDetails;
 import org.springframework.security.oauth2.provider.client.BaseClientDetails;
 import org.springframework.security.oauth2.provider.client.JdbcClientDetailsService;
@@ -63,6 +67,9 @@ public class EndUserResourceGetAccessTokenTest {
     @Autowired
     ApplicationRepository applicationRepository;
 
+    @Autowired
+    EndUserRepository endUserRepository;
+
     @Before
     public void setUp() {
         mockMvc = webAppContextSetup(webApplicationContext)
@@ -146,6 +153,41 @@ public class EndUserResourceGetAccessTokenTest {
 
     }
 
+    @Test
+    public void getAccessTokenOfEndUser_upgradesLegacyPasswordHash() throws Exception {
+        EndUser endUser = endUserRepository.findByCredentialAccount("test_user");
+        endUser.getCredential().setPassword(new BCryptPasswordEncoder(4).encode("test"));
+        endUserRepository.saveAndFlush(endUser);
+        Application application = applicationRepository.findAll(new PageRequest(0, 1)).getContent().get(0);
+
+        mockMvc.perform(
+                (post("/oauth/token"))
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .params(buildLoginParamsForEndUser())
+                        .with(httpBasic(application.getId(), application.getApiKey()))
+                        .accept(APPLICATION_JSON_CHARSET_UTF_8)
+        ).andExpect(status().isOk());
+
+        String upgraded = endUserRepository.findByCredentialAccount("test_user").getCredential().getPassword();
+        assertThat("Password hash upgraded", upgraded.startsWith("{bcrypt}$2a$10$"), Is.is(true));
+    }
+
+    @Test
+    public void getAccessTokenOfEndUser_rejectsSuspendedUser() throws Exception {
+        EndUser endUser = endUserRepository.findByCredentialAccount("test_user");
+        endUser.setStatus(EndUserStatus.SUSPENDED);
+        endUserRepository.saveAndFlush(endUser);
+        Application application = applicationRepository.findAll(new PageRequest(0, 1)).getContent().get(0);
+
+        mockMvc.perform(
+                (post("/oauth/token"))
+                        .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                        .params(buildLoginParamsForEndUser())
+                        .with(httpBasic(application.getId(), application.getApiKey()))
+                        .accept(APPLICATION_JSON_CHARSET_UTF_8)
+        ).andExpect(status().isBadRequest());
+    }
+
     private MultiValueMap<String, String> buildLoginParamsForEndUser() {
         MultiValueMap<String, String> loginParams = buildLoginParams();
         loginParams.remove("grant_type");
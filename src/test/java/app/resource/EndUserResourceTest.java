@@ -6,6 +6,7 @@ import app.repository.ApplicationRepository;
 import app.repository.EndUserRepository;
 import app.repository.TenantApiKeyRepository;
 import app.repository.TenantRepository;
+import app.service.EndUserStatusCounts;
 import app.util.ClientDetailsFactory;
 import app.util.OAuth2Helper;
 import app.util.TenantTestUtil;
@@ -16,6 +17,11 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
@@ -27,10 +33,13 @@ import org.springframework.security.oauth2.provider.client.JdbcClientDetailsServ
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.RequestPostProcessor;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.WebApplicationContext;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.Arrays;
@@ -44,10 +53,20 @@ import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppC
 
 
 @RunWith(SpringRunner.class)
-@SpringBootTest(classes = IdentityAccessServiceApplication.class)
+@SpringBootTest(classes = {IdentityAccessServiceApplication.class, EndUserResourceTest.SynchronousStatusChanges.class})
 @WebAppConfiguration
 @Transactional
 public class EndUserResourceTest {
+    // status changes run on the request thread, as a job thread could not see this test's uncommitted end-users
+    @TestConfiguration
+    static class SynchronousStatusChanges {
+        @Bean
+        @Primary
+        public TaskExecutor synchronousStatusChangeExecutor() {
+            return new SyncTaskExecutor();
+        }
+    }
+
     private final LocalDateTime testExpireDate = LocalDateTime.of(2017,8,30,1,1);
     private MockMvc mockMvc;
 
@@ -89,6 +108,12 @@ public class EndUserResourceTest {
     @Autowired
     private JdbcClientDetailsService jdbcClientDetailsService;
 
+    @Autowired
+    private EndUserStatusCounts endUserStatusCounts;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
 
     private HttpMessageConverter mappingJackson2HttpMessageConverter;
 
@@ -185,6 +210,143 @@ public class EndUserResourceTest {
                 .andReturn();
     }
 
+    @Test
+    public void findAllEndUsers_by_cursor() throws Exception {
+        mockMvc.perform(get("/api/end-users")
+                .param("cursor", "")
+                .param("size", "10")
+                .param("applicationId", createdApp.getId())
+                .with(tenantBearerToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(endUser.getId()))
+                .andExpect(jsonPath("$.last").value(true))
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    public void findAllEndUsers_with_invalid_cursor() throws Exception {
+        mockMvc.perform(get("/api/end-users")
+                .param("cursor", "not a cursor")
+                .with(tenantBearerToken))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void export_streams_ndjson() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/end-users/export")
+                .param("fields", "id,email")
+                .param("modifiedSince", "2017-01-01T00:00:00")
+                .with(tenantBearerToken))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // the body is written on another thread, outside this test's transaction
+        result.getAsyncResult(5000);
+        assertEquals(200, result.getResponse().getStatus());
+        assertEquals("application/x-ndjson", result.getResponse().getContentType());
+    }
+
+    @Test
+    public void export_with_unknown_field() throws Exception {
+        mockMvc.perform(get("/api/end-users/export")
+                .param("fields", "id,password")
+                .with(tenantBearerToken))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void countByStatus_follows_status_changes() throws Exception {
+        entityManager.flush();
+        endUserStatusCounts.reconcile();
+
+        mockMvc.perform(get("/api/end-users/count-by-status").with(tenantBearerToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0][0]").value(endUser.getStatus().name()))
+                .andExpect(jsonPath("$[0][1]").value(1));
+
+        mockMvc.perform(put("/api/end-users/" + endUser.getId() + "/suspend")
+                .param("applicationId", createdApp.getId())
+                .with(tenantBearerToken))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/end-users/count-by-status").with(tenantBearerToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0][0]").value("SUSPENDED"))
+                .andExpect(jsonPath("$[0][1]").value(1));
+    }
+
+    @Test
+    public void changeStatuses_by_ids() throws Exception {
+        entityManager.flush();
+        endUserStatusCounts.reconcile();
+
+        MvcResult result = mockMvc.perform(post("/api/end-users/status-changes")
+                .param("to", "SUSPENDED")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .content(json(Arrays.asList(endUser.getId(), "not-an-end-user", endUser.getId())))
+                .with(tenantBearerToken))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.state").value("COMPLETED"))
+                .andExpect(jsonPath("$.requested").value(2))
+                .andExpect(jsonPath("$.matched").value(1))
+                .andExpect(jsonPath("$.changed").value(1))
+                .andReturn();
+
+        mockMvc.perform(get(result.getResponse().getHeader("Location")).with(tenantBearerToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("SUSPENDED"))
+                .andExpect(jsonPath("$.changed").value(1));
+
+        entityManager.clear();
+        assertEquals(EndUserStatus.SUSPENDED, endUserRepository.findOne(endUser.getId()).getStatus());
+        mockMvc.perform(get("/api/end-users/count-by-status").with(tenantBearerToken))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0][0]").value("SUSPENDED"))
+                .andExpect(jsonPath("$[0][1]").value(1));
+    }
+
+    @Test
+    public void changeStatuses_by_filter() throws Exception {
+        mockMvc.perform(post("/api/end-users/status-changes")
+                .param("to", "ACTIVE")
+                .param("applicationId", createdApp.getId())
+                .param("status", "CREATED")
+                .with(tenantBearerToken))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.requested").doesNotExist())
+                .andExpect(jsonPath("$.matched").value(1))
+                .andExpect(jsonPath("$.changed").value(1));
+
+        mockMvc.perform(post("/api/end-users/status-changes")
+                .param("to", "ACTIVE")
+                .param("status", "CREATED")
+                .with(tenantBearerToken))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.matched").value(0));
+    }
+
+    @Test
+    public void changeStatuses_without_selection() throws Exception {
+        mockMvc.perform(post("/api/end-users/status-changes")
+                .param("to", "SUSPENDED")
+                .with(tenantBearerToken))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/api/end-users/status-changes")
+                .param("to", "CREATED")
+                .param("status", "ACTIVE")
+                .with(tenantBearerToken))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void findStatusChange_unknown_job() throws Exception {
+        mockMvc.perform(get("/api/end-users/status-changes/unknown").with(tenantBearerToken))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     public void findAnEndUser() throws Exception {
         String applicationId = createdApp.getId();
@@ -212,6 +374,83 @@ public class EndUserResourceTest {
                 .andDo(print());
     }
 
+    @Test
+    public void importEndUsers_from_json() throws Exception {
+        String applicationId = createdApp.getId();
+        EndUser duplicated = createTestEndUser(endUser.getCredential().getAccount(), "test_import_0@test.com", "010-222-0000");
+        EndUser first = createTestEndUser("test_import_1", "test_import_1@test.com", "010-222-0001");
+        EndUser second = createTestEndUser("test_import_2", "test_import_2@test.com", "010-222-0002");
+        mockMvc.perform(post("/api/end-users/import")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .param("applicationId", applicationId).with(tenantBearerToken)
+                .content("[" + json(first) + "," + json(duplicated) + "," + json(second) + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.errors[0].row").value(2))
+                .andExpect(jsonPath("$.errors[0].message").value(endUser.getCredential().getAccount() + " already existing"));
+
+        assertEquals(2, endUserRepository.findExistingAccounts(applicationId, Arrays.asList("test_import_1", "test_import_2")).size());
+    }
+
+    @Test
+    public void importEndUsers_from_csv() throws Exception {
+        String applicationId = createdApp.getId();
+        String csv = "account,password,email,firstName,mobilePhoneNo\n" +
+                "test_import_1,secret,test_import_1@test.com,\"Gil, Dong\",010-222-0001\n" +
+                "test_import_2,secret,test_import_1@test.com,,010-222-0002\n" +
+                "test_import_3,,test_import_3@test.com,,\n";
+        mockMvc.perform(post("/api/end-users/import")
+                .contentType("text/csv")
+                .param("applicationId", applicationId).with(tenantBearerToken)
+                .content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.failed").value(2))
+                .andExpect(jsonPath("$.errors[0].message").value("Same email(test_import_1@test.com) is not allowed"))
+                .andExpect(jsonPath("$.errors[1].message").value("No user credential provided"));
+
+        EndUser imported = endUserRepository.findOne(findIdOf("test_import_1"));
+        assertEquals("Gil, Dong", imported.getProfile().getFirstName());
+        assertEquals(EndUserStatus.CREATED, imported.getStatus());
+        assertTrue(passwordEncoder.matches("secret", imported.getCredential().getPassword()));
+    }
+
+    @Test
+    public void importEndUsers_with_unknown_csv_column() throws Exception {
+        mockMvc.perform(post("/api/end-users/import")
+                .contentType("text/csv")
+                .param("applicationId", createdApp.getId()).with(tenantBearerToken)
+                .content("account,password,salary\n"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void importEndUsers_pre_hashed() throws Exception {
+        String applicationId = createdApp.getId();
+        EndUser hashed = createTestEndUser("test_import_1", "test_import_1@test.com", "010-222-0001");
+        String hash = passwordEncoder.encode("secret");
+        hashed.getCredential().setPassword(hash);
+        EndUser plain = createTestEndUser("test_import_2", "test_import_2@test.com", "010-222-0002");
+        mockMvc.perform(post("/api/end-users/import")
+                .contentType("application/x-ndjson")
+                .param("applicationId", applicationId)
+                .param("preHashed", "true").with(tenantBearerToken)
+                .content(json(hashed) + "\n" + json(plain) + "\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.errors[0].row").value(2))
+                .andExpect(jsonPath("$.errors[0].message").value("Password is not a supported hash"));
+
+        assertEquals(hash, endUserRepository.findOne(findIdOf("test_import_1")).getCredential().getPassword());
+    }
+
+    private String findIdOf(String account) {
+        return (String) entityManager.createQuery("select u.id from APP_USER u where u.credential.account = :account")
+                .setParameter("account", account)
+                .getSingleResult();
+    }
+
     @Test
     public void createEndUser_without_login_credential() throws Exception {
         String applicationId = createdApp.getId();
@@ -538,6 +777,30 @@ public class EndUserResourceTest {
                 .andExpect(jsonPath("$.id").isNotEmpty());
     }
 
+    @Test
+    public void findByEmail_blank_or_wildcard_matches_nobody() throws Exception {
+        for (String email : new String[]{"", "*", "**"}) {
+            mockMvc.perform(get("/api/end-users/search/by-email")
+                    .contentType(MediaType.APPLICATION_JSON_UTF8)
+                    .param("email", email)
+                    .with(tenantBearerToken))
+                    .andExpect(status().isOk())
+                    .andExpect(content().string(""));
+        }
+        mockMvc.perform(get("/api/end-users/search/by-mobileNo")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .param("mobileNo", "*")
+                .with(tenantBearerToken))
+                .andExpect(status().isOk())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/end-users/search/by-firstName")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .param("firstName", endUser.getProfile().getFirstName().substring(0, 1) + "*")
+                .with(tenantBearerToken))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content").isEmpty());
+    }
+
     @Test
     public void findByMobileNo() throws Exception {
         String mobilePhoneNo = endUser.getProfile().getMobilePhoneNo();
@@ -648,6 +911,25 @@ public class EndUserResourceTest {
                 .andExpect(jsonPath("$.content[0].id").isNotEmpty());
     }
 
+    @Test
+    public void search_with_combined_criteria() throws Exception {
+        String searchFirstName = endUser.getProfile().getFirstName();
+        mockMvc.perform(get("/api/end-users/search")
+                .contentType(MediaType.APPLICATION_JSON_UTF8)
+                .param("applicationId", createdApp.getId())
+                .param("firstName", searchFirstName.substring(0, 2) + "*")
+                .param("email", endUser.getEmail())
+                .param("createdFrom", "2000-01-01T00:00:00")
+                .with(tenantBearerToken))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(jsonPath("$.totalElements").value(1))
+                .andExpect(jsonPath("$.content[0].id").value(endUser.getId()))
+                .andExpect(jsonPath("$.content[0].firstName").value(searchFirstName))
+                .andExpect(jsonPath("$.content[0].profile").doesNotExist());
+    }
+
     @Test
     public void searchUrls() throws Exception {
         mockMvc.perform(get("/api/end-users/search")
@@ -0,0 +1,105 @@
+package app.resource;
+
+import app.IdentityAccessServiceApplication;
+import app.domain.Tenant;
+import app.repository.TenantRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.json.JacksonJsonParser;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.jwt.JwtHelper;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+import org.springframework.security.oauth2.provider.token.store.JwtTokenStore;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = IdentityAccessServiceApplication.class, properties = "iam.token.store=jwt")
+@WebAppConfiguration
+@Transactional
+public class JwtAccessTokenTest {
+    private static final String TENANT_CLIENT_ID = "service-portal";
+    private static final String TENANT_CLIENT_SECRET = "secret";
+
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private FilterChainProxy springSecurityFilterChain;
+
+    @Autowired
+    private TokenStore tokenStore;
+
+    @Autowired
+    private TenantRepository tenantRepository;
+
+    @Before
+    public void setUp() {
+        mockMvc = webAppContextSetup(webApplicationContext)
+                .addFilters(springSecurityFilterChain).build();
+    }
+
+    @Test
+    public void tokenStoreIsJwt() {
+        assertTrue(tokenStore instanceof JwtTokenStore);
+    }
+
+    @Test
+    public void issuedTokenIsSignedJwtWithIdClaim() throws Exception {
+        String accessToken = requestAccessToken();
+
+        Map<String, Object> claims = new JacksonJsonParser().parseMap(JwtHelper.decode(accessToken).getClaims());
+        Tenant tenant = tenantRepository.findByLoginCredentialAccount(TENANT_CLIENT_ID);
+        assertEquals(tenant.getId(), claims.get("id"));
+    }
+
+    @Test
+    public void issuedTokenIsAcceptedByResourceServer() throws Exception {
+        String accessToken = requestAccessToken();
+
+        mockMvc.perform(get("/api/end-users/count-by-status")
+                .header("Authorization", "Bearer " + accessToken))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void publicKeyIsExposed() throws Exception {
+        mockMvc.perform(get("/oauth/token_key"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.alg").value("SHA256withRSA"))
+                .andExpect(jsonPath("$.value").isNotEmpty());
+    }
+
+    private String requestAccessToken() throws Exception {
+        MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+        params.add("grant_type", "client_credentials");
+        String response = mockMvc.perform(post("/oauth/token")
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .params(params)
+                .with(httpBasic(TENANT_CLIENT_ID, TENANT_CLIENT_SECRET)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return (String) new JacksonJsonParser().parseMap(response).get("access_token");
+    }
+}
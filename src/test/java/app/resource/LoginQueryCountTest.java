@@ -0,0 +1,91 @@
+package app.resource;
+
+import app.IdentityAccessServiceApplication;
+import app.domain.Application;
+import app.domain.EndUser;
+import app.repository.ApplicationRepository;
+import app.repository.EndUserRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.json.JacksonJsonParser;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.security.web.FilterChainProxy;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.context.WebApplicationContext;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.httpBasic;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = IdentityAccessServiceApplication.class,
+        properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@WebAppConfiguration
+@Transactional
+public class LoginQueryCountTest {
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private FilterChainProxy springSecurityFilterChain;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ApplicationRepository applicationRepository;
+
+    @Autowired
+    private EndUserRepository endUserRepository;
+
+    private Statistics statistics;
+
+    @Before
+    public void setUp() {
+        mockMvc = webAppContextSetup(webApplicationContext)
+                .addFilters(springSecurityFilterChain).build();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void passwordLogin_loadsEndUserOnce() throws Exception {
+        Application application = applicationRepository.findAll(new PageRequest(0, 1)).getContent().get(0);
+        EndUser endUser = endUserRepository.findByCredentialAccount("test_user");
+        MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+        params.add("grant_type", "password");
+        params.add("username", "test_user");
+        params.add("password", "test");
+        statistics.clear();
+
+        String response = mockMvc.perform(post("/oauth/token")
+                .contentType(MediaType.APPLICATION_FORM_URLENCODED)
+                .params(params)
+                .with(httpBasic(application.getId(), application.getApiKey())))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // only DomainUserDetailsService queries the end user, as a projection; token enhancement reuses the principal
+        assertEquals(1, statistics.getQueryExecutionCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        Map<String, Object> token = new JacksonJsonParser().parseMap(response);
+        assertEquals(endUser.getId(), token.get("id"));
+    }
+}
@@ -0,0 +1,110 @@
+package app.resource;
+
+import app.IdentityAccessServiceApplication;
+import app.domain.Application;
+import app.domain.EndUser;
+import app.domain.Tenant;
+import app.service.ApplicationService;
+import app.service.EndUserService;
+import app.service.TenantService;
+import app.util.EndUserTestUtil;
+import app.util.OAuth2Helper;
+import app.util.TenantTestUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.UUID;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
+
+// not @Transactional: the lazy associations must be rendered without a session spanning the request
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = IdentityAccessServiceApplication.class)
+@WebAppConfiguration
+public class ResponseViewTest {
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WebApplicationContext webApplicationContext;
+
+    @Autowired
+    private TenantService tenantService;
+
+    @Autowired
+    private ApplicationService applicationService;
+
+    @Autowired
+    private EndUserService endUserService;
+
+    @Autowired
+    private OAuth2Helper oAuth2Helper;
+
+    private String account;
+    private Tenant tenant;
+    private Application application;
+    private EndUser endUser;
+
+    @Before
+    public void setUp() {
+        mockMvc = webAppContextSetup(webApplicationContext).apply(springSecurity()).build();
+        account = "view-" + UUID.randomUUID().toString().substring(0, 8);
+        tenant = tenantService.createTenant(TenantTestUtil.createTestTenant(account, account + "@test.com"));
+        Application newApplication = new Application();
+        newApplication.setName("view app");
+        application = applicationService.createApplication(account, newApplication);
+        endUser = endUserService.createEndUser(application.getId(), EndUserTestUtil.createTestEndUser(account + "_user"));
+    }
+
+    @After
+    public void tearDown() {
+        endUserService.deleteEndUser(application.getId(), endUser.getId());
+        applicationService.deleteApplication(account, application.getId());
+        tenantService.delete(tenant.getId());
+    }
+
+    @Test
+    public void findTenantById_rendersItsApiKeyAndApplications() throws Exception {
+        mockMvc.perform(get("/api/tenants/" + tenant.getId()).with(oAuth2Helper.bearerToken(account, account)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.loginCredential.account").value(account))
+                .andExpect(jsonPath("$.apiKeyInformation.apiKey").value(tenant.getApiKeyInformation().getApiKey()))
+                .andExpect(jsonPath("$.applications[0].id").value(application.getId()))
+                .andExpect(jsonPath("$.applications[0].owner").value(tenant.getId()));
+    }
+
+    @Test
+    public void findEndUserById_rendersItsApplicationIds() throws Exception {
+        mockMvc.perform(get("/api/end-users/" + endUser.getId()).with(oAuth2Helper.bearerToken(account, account)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.credential.account").value(account + "_user"))
+                .andExpect(jsonPath("$.applications[0]").value(application.getId()));
+    }
+
+    @Test
+    public void findAllEndUsers_rendersTheApplicationIdsOfEachEndUser() throws Exception {
+        mockMvc.perform(get("/api/end-users").with(oAuth2Helper.bearerToken(account, account)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(endUser.getId()))
+                .andExpect(jsonPath("$.content[0].applications[0]").value(application.getId()));
+    }
+
+    @Test
+    public void findOwnApplication_rendersItsOwner() throws Exception {
+        mockMvc.perform(get("/api/applications/own/" + application.getId()).with(oAuth2Helper.bearerToken(account, account)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("view app"))
+                .andExpect(jsonPath("$.owner").value(tenant.getId()));
+    }
+}
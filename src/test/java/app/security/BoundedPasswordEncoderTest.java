@@ -0,0 +1,110 @@
+package app.security;
+
+import app.error.PasswordHashingUnavailableException;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class BoundedPasswordEncoderTest {
+    private BoundedPasswordEncoder passwordEncoder;
+
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        callers.shutdownNow();
+        passwordEncoder.destroy();
+    }
+
+    @Test
+    public void hashesOnThePool() {
+        passwordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 2, 10, 1);
+
+        String encoded = passwordEncoder.encode("secret");
+
+        assertTrue(passwordEncoder.matches("secret", encoded));
+        assertFalse(passwordEncoder.matches("wrong", encoded));
+        assertEquals(3L, metric("passwordencoder.hash.count"));
+    }
+
+    @Test
+    public void encodeAll_keepsTheOrderAndLeavesRoomInTheQueue() {
+        passwordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(4), 2, 2, 1);
+
+        List<String> encoded = passwordEncoder.encodeAll(Arrays.asList("a", "b", "c", "d", "e"));
+
+        assertEquals(5, encoded.size());
+        assertTrue(passwordEncoder.matches("a", encoded.get(0)));
+        assertTrue(passwordEncoder.matches("e", encoded.get(4)));
+        assertEquals(0, passwordEncoder.getRejectedCount());
+    }
+
+    @Test
+    public void rejectsWhenTheQueueIsFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        passwordEncoder = new BoundedPasswordEncoder(blockingEncoder(started, release), 1, 1, 3);
+        callers.submit(() -> passwordEncoder.encode("running"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        callers.submit(() -> passwordEncoder.encode("queued"));
+        while (passwordEncoder.getQueueDepth() == 0) {
+            Thread.sleep(1);
+        }
+
+        try {
+            passwordEncoder.encode("rejected");
+            fail("expected the saturated pool to reject the call");
+        } catch (PasswordHashingUnavailableException e) {
+            assertEquals(3, e.getRetryAfterSeconds());
+        } finally {
+            release.countDown();
+        }
+        assertEquals(1, passwordEncoder.getRejectedCount());
+        assertEquals(1L, metric("passwordencoder.rejected"));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void delegateFailuresArePropagated() {
+        passwordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(), 1, 1, 1);
+
+        passwordEncoder.encode(null);
+    }
+
+    private Object metric(String name) {
+        return passwordEncoder.metrics().stream()
+                .filter(metric -> metric.getName().equals(name))
+                .map(Metric::getValue)
+                .findFirst().orElse(null);
+    }
+
+    private PasswordEncoder blockingEncoder(CountDownLatch started, CountDownLatch release) {
+        return new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return rawPassword.toString().equals(encodedPassword);
+            }
+        };
+    }
+}
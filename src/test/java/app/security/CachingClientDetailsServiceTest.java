@@ -0,0 +1,140 @@
+package app.security;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.NoSuchClientException;
+import org.springframework.security.oauth2.provider.client.BaseClientDetails;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class CachingClientDetailsServiceTest {
+    private EmbeddedDatabase dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private CachingClientDetailsService clientDetailsService;
+
+    @Before
+    public void setUp() {
+        dataSource = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("schema-dev.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        clientDetailsService = new CachingClientDetailsService(dataSource, 100, 60_000);
+        clientDetailsService.addClientDetails(client("foo", "secret"));
+    }
+
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        dataSource.shutdown();
+    }
+
+    @Test
+    public void repeatedLoadsHitTheCache() {
+        clientDetailsService.loadClientByClientId("foo");
+        jdbcTemplate.update("update oauth_client_details set client_secret = 'changed-elsewhere'");
+
+        ClientDetails clientDetails = clientDetailsService.loadClientByClientId("foo");
+
+        assertEquals("secret", clientDetails.getClientSecret());
+        assertEquals(1, clientDetailsService.getHitCount());
+        assertEquals(1, clientDetailsService.getMissCount());
+    }
+
+    @Test
+    public void loadedClientsAreCopies() {
+        ((BaseClientDetails) clientDetailsService.loadClientByClientId("foo")).setClientSecret("mutated");
+
+        assertEquals("secret", clientDetailsService.loadClientByClientId("foo").getClientSecret());
+    }
+
+    @Test
+    public void changesEvictTheClient() {
+        clientDetailsService.loadClientByClientId("foo");
+
+        clientDetailsService.updateClientSecret("foo", "new-secret");
+
+        assertEquals("new-secret", clientDetailsService.loadClientByClientId("foo").getClientSecret());
+    }
+
+    @Test
+    public void changesInATransactionEvictTheClientAgainOnCommit() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        transactionTemplate.execute(status -> {
+            clientDetailsService.updateClientSecret("foo", "new-secret");
+            // a concurrent load still sees the old secret and caches it before the update commits
+            assertEquals("secret", loadOnAnotherThread("foo").getClientSecret());
+            return null;
+        });
+
+        assertEquals("new-secret", clientDetailsService.loadClientByClientId("foo").getClientSecret());
+    }
+
+    @Test(expected = NoSuchClientException.class)
+    public void removedClientsAreNotServedFromTheCache() {
+        clientDetailsService.loadClientByClientId("foo");
+
+        clientDetailsService.removeClientDetails("foo");
+
+        clientDetailsService.loadClientByClientId("foo");
+    }
+
+    @Test
+    public void warmLoadsAllClients() {
+        clientDetailsService.addClientDetails(client("bar", "secret"));
+
+        assertEquals(2, clientDetailsService.warm());
+        clientDetailsService.loadClientByClientId("bar");
+
+        assertEquals(2, clientDetailsService.size());
+        assertEquals(0, clientDetailsService.getMissCount());
+    }
+
+    @Test
+    public void tokenEndpointHitsAreCountedSeparately() {
+        clientDetailsService.loadClientByClientId("foo");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest("POST", "/oauth/token")));
+
+        clientDetailsService.loadClientByClientId("foo");
+
+        assertEquals(1, clientDetailsService.getTokenEndpointHitCount());
+    }
+
+    private ClientDetails loadOnAnotherThread(String clientId) {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(() -> clientDetailsService.loadClientByClientId(clientId)).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private BaseClientDetails client(String clientId, String secret) {
+        BaseClientDetails clientDetails = new BaseClientDetails(clientId, null, "read", "password", "USER");
+        clientDetails.setClientSecret(secret);
+        clientDetails.setAdditionalInformation(Collections.singletonMap("id", clientId + "-id"));
+        return clientDetails;
+    }
+}
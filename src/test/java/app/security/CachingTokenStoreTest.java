@@ -0,0 +1,146 @@
+package app.security;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+
+import java.util.Date;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class CachingTokenStoreTest {
+    @Mock
+    private TokenStore delegate;
+
+    @Mock
+    private OAuth2Authentication authentication;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private CachingTokenStore tokenStore;
+
+    private DefaultOAuth2AccessToken accessToken;
+
+    @Before
+    public void setUp() {
+        tokenStore = new CachingTokenStore(delegate, 2, 60_000);
+        accessToken = new DefaultOAuth2AccessToken("token-value");
+        accessToken.setExpiration(new Date(System.currentTimeMillis() + 3_600_000));
+        when(delegate.readAccessToken("token-value")).thenReturn(accessToken);
+        when(delegate.readAuthentication("token-value")).thenReturn(authentication);
+    }
+
+    @Test
+    public void readAccessToken_cachesDelegateResult() {
+        assertSame(accessToken, tokenStore.readAccessToken("token-value"));
+        assertSame(accessToken, tokenStore.readAccessToken("token-value"));
+        assertSame(authentication, tokenStore.readAuthentication(accessToken));
+        assertSame(authentication, tokenStore.readAuthentication("token-value"));
+
+        verify(delegate, times(1)).readAccessToken("token-value");
+        verify(delegate, times(1)).readAuthentication("token-value");
+        assertEquals(2, tokenStore.getHitCount());
+        assertEquals(2, tokenStore.getMissCount());
+    }
+
+    @Test
+    public void readAccessToken_doesNotCacheMissingToken() {
+        assertNull(tokenStore.readAccessToken("unknown"));
+        assertNull(tokenStore.readAccessToken("unknown"));
+
+        verify(delegate, times(2)).readAccessToken("unknown");
+        assertEquals(0, tokenStore.size());
+    }
+
+    @Test
+    public void readAccessToken_doesNotOutliveTokenExpiration() {
+        accessToken.setExpiration(new Date(System.currentTimeMillis() - 1));
+
+        tokenStore.readAccessToken("token-value");
+        tokenStore.readAccessToken("token-value");
+
+        verify(delegate, times(2)).readAccessToken("token-value");
+    }
+
+    @Test
+    public void removeAccessToken_evictsCachedToken() {
+        tokenStore.readAccessToken("token-value");
+        tokenStore.removeAccessToken(new DefaultOAuth2AccessToken("token-value"));
+        tokenStore.readAccessToken("token-value");
+
+        verify(delegate, times(2)).readAccessToken("token-value");
+    }
+
+    @Test
+    public void readRacingARemoval_doesNotCacheTheRemovedToken() {
+        boolean[] removed = {false};
+        when(delegate.readAccessToken("token-value")).thenAnswer(invocation -> {
+            if (!removed[0]) {
+                // another request revokes the token after this read found it
+                removed[0] = true;
+                tokenStore.removeAccessToken(new DefaultOAuth2AccessToken("token-value"));
+            }
+            return accessToken;
+        });
+
+        tokenStore.readAccessToken("token-value");
+        tokenStore.readAccessToken("token-value");
+
+        verify(delegate, times(2)).readAccessToken("token-value");
+    }
+
+    @Test
+    public void readAuthentication_doesNotOutliveTokenExpiration() {
+        accessToken.setExpiration(new Date(System.currentTimeMillis() - 1));
+
+        tokenStore.readAuthentication("token-value");
+        tokenStore.readAuthentication("token-value");
+
+        verify(delegate, times(2)).readAuthentication("token-value");
+    }
+
+    @Test
+    public void readAuthentication_ofARemovedToken_isNotCached() {
+        when(delegate.readAccessToken("token-value")).thenReturn(null);
+
+        assertSame(authentication, tokenStore.readAuthentication("token-value"));
+
+        assertEquals(0, tokenStore.size());
+    }
+
+    @Test
+    public void removeRefreshToken_evictsAccessTokensIssuedWithIt() {
+        DefaultOAuth2RefreshToken refreshToken = new DefaultOAuth2RefreshToken("refresh-value");
+        accessToken.setRefreshToken(refreshToken);
+
+        tokenStore.readAccessToken("token-value");
+        tokenStore.removeRefreshToken(new DefaultOAuth2RefreshToken("refresh-value"));
+
+        assertEquals(0, tokenStore.size());
+        verify(delegate).removeRefreshToken(any());
+    }
+
+    @Test
+    public void cacheIsBoundedBySize() {
+        when(delegate.readAccessToken(anyString())).thenAnswer(invocation -> {
+            DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken((String) invocation.getArguments()[0]);
+            token.setExpiration(new Date(System.currentTimeMillis() + 3_600_000));
+            return token;
+        });
+
+        tokenStore.readAccessToken("a");
+        tokenStore.readAccessToken("b");
+        tokenStore.readAccessToken("c");
+
+        assertEquals(2, tokenStore.size());
+    }
+}
@@ -0,0 +1,174 @@
+package app.security;
+
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.oauth2.common.DefaultExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2AccessToken;
+import org.springframework.security.oauth2.common.OAuth2RefreshToken;
+import org.springframework.security.oauth2.common.ExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.util.SerializationUtils;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CompactTokenCodecTest {
+    private final CompactTokenCodec codec = new CompactTokenCodec();
+
+    @Test
+    public void accessToken_roundTrip() {
+        DefaultOAuth2AccessToken token = accessToken();
+
+        byte[] bytes = codec.serializeAccessToken(token);
+        OAuth2AccessToken decoded = codec.deserializeAccessToken(bytes);
+
+        assertTrue(CompactTokenCodec.isCompact(bytes));
+        assertEquals(token.getValue(), decoded.getValue());
+        assertEquals(token.getTokenType(), decoded.getTokenType());
+        assertEquals(token.getExpiration(), decoded.getExpiration());
+        assertEquals(token.getScope(), decoded.getScope());
+        assertEquals("end-user-id", decoded.getAdditionalInformation().get("id"));
+        assertEquals(token.getRefreshToken().getValue(), decoded.getRefreshToken().getValue());
+        assertEquals(((ExpiringOAuth2RefreshToken) token.getRefreshToken()).getExpiration(),
+                ((ExpiringOAuth2RefreshToken) decoded.getRefreshToken()).getExpiration());
+    }
+
+    @Test
+    public void accessToken_isSmallerThanJavaSerialization() {
+        DefaultOAuth2AccessToken token = accessToken();
+
+        assertTrue(codec.serializeAccessToken(token).length < SerializationUtils.serialize(token).length);
+    }
+
+    @Test
+    public void refreshToken_roundTrip() {
+        OAuth2RefreshToken token = new DefaultExpiringOAuth2RefreshToken("refresh", new Date(1_500_000_000_000L));
+
+        OAuth2RefreshToken decoded = codec.deserializeRefreshToken(codec.serializeRefreshToken(token));
+
+        assertEquals("refresh", decoded.getValue());
+        assertEquals(new Date(1_500_000_000_000L), ((ExpiringOAuth2RefreshToken) decoded).getExpiration());
+    }
+
+    @Test
+    public void userAuthentication_roundTrip() {
+        OAuth2Authentication authentication = userAuthentication();
+
+        byte[] bytes = codec.serializeAuthentication(authentication);
+        OAuth2Authentication decoded = codec.deserializeAuthentication(bytes);
+
+        assertTrue(CompactTokenCodec.isCompact(bytes));
+        assertTrue(bytes.length < SerializationUtils.serialize(authentication).length);
+        assertEquals("test_user", decoded.getName());
+        assertEquals("test_user", ((User) decoded.getPrincipal()).getUsername());
+        assertEquals(authentication.getOAuth2Request().getClientId(), decoded.getOAuth2Request().getClientId());
+        assertEquals(authentication.getOAuth2Request().getScope(), decoded.getOAuth2Request().getScope());
+        assertEquals(authentication.getOAuth2Request().getRequestParameters(), decoded.getOAuth2Request().getRequestParameters());
+        assertEquals(AuthorityUtils.authorityListToSet(authentication.getAuthorities()),
+                AuthorityUtils.authorityListToSet(decoded.getAuthorities()));
+        assertEquals(authentication.getUserAuthentication().getDetails(), decoded.getUserAuthentication().getDetails());
+        assertTrue(decoded.isAuthenticated());
+    }
+
+    @Test
+    public void domainUserAuthentication_keepsIds() {
+        List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("USER");
+        DomainUser user = new DomainUser("end-user-id", "tenant-id", "test_user", "", authorities);
+        OAuth2Authentication authentication = new OAuth2Authentication(oAuth2Request(Collections.emptyMap()),
+                new UsernamePasswordAuthenticationToken(user, null, authorities));
+
+        byte[] bytes = codec.serializeAuthentication(authentication);
+        DomainUser decoded = (DomainUser) codec.deserializeAuthentication(bytes).getPrincipal();
+
+        assertTrue(CompactTokenCodec.isCompact(bytes));
+        assertEquals("end-user-id", decoded.getId());
+        assertEquals("tenant-id", decoded.getTenantId());
+        assertEquals("test_user", decoded.getUsername());
+    }
+
+    @Test
+    public void clientAuthentication_roundTrip() {
+        OAuth2Authentication authentication = new OAuth2Authentication(oAuth2Request(Collections.emptyMap()), null);
+
+        OAuth2Authentication decoded = codec.deserializeAuthentication(codec.serializeAuthentication(authentication));
+
+        assertTrue(decoded.isClientOnly());
+        assertEquals("foo", decoded.getName());
+    }
+
+    @Test
+    public void unsupportedContent_fallsBackToJavaSerialization() {
+        Map<String, Serializable> extensions = new HashMap<>();
+        extensions.put("extension", 1);
+        OAuth2Authentication authentication = new OAuth2Authentication(oAuth2Request(extensions), null);
+
+        byte[] bytes = codec.serializeAuthentication(authentication);
+        OAuth2Authentication decoded = codec.deserializeAuthentication(bytes);
+
+        assertFalse(CompactTokenCodec.isCompact(bytes));
+        assertEquals(1, decoded.getOAuth2Request().getExtensions().get("extension"));
+    }
+
+    @Test
+    public void legacyJavaSerializedBlobs_areStillRead() {
+        DefaultOAuth2AccessToken token = accessToken();
+        OAuth2Authentication authentication = userAuthentication();
+
+        OAuth2AccessToken decodedToken = codec.deserializeAccessToken(SerializationUtils.serialize(token));
+        OAuth2Authentication decodedAuthentication = codec.deserializeAuthentication(SerializationUtils.serialize(authentication));
+
+        assertEquals(token.getValue(), decodedToken.getValue());
+        assertEquals("test_user", decodedAuthentication.getName());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void truncatedData_isRejected() {
+        byte[] bytes = codec.serializeAccessToken(accessToken());
+
+        codec.deserializeAccessToken(Arrays.copyOf(bytes, bytes.length / 2));
+    }
+
+    private DefaultOAuth2AccessToken accessToken() {
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken("7d2bd1b6-4d9a-4b39-a1c4-2f0e4a6ce2e3");
+        token.setExpiration(new Date(1_500_000_000_000L));
+        token.setScope(new HashSet<>(Arrays.asList("read", "write")));
+        token.setRefreshToken(new DefaultExpiringOAuth2RefreshToken("refresh", new Date(1_600_000_000_000L)));
+        Map<String, Object> additionalInformation = new HashMap<>();
+        additionalInformation.put("id", "end-user-id");
+        token.setAdditionalInformation(additionalInformation);
+        return token;
+    }
+
+    private OAuth2Authentication userAuthentication() {
+        List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("USER");
+        User user = new User("test_user", "", authorities);
+        UsernamePasswordAuthenticationToken userAuthentication = new UsernamePasswordAuthenticationToken(user, null, authorities);
+        Map<String, String> details = new HashMap<>();
+        details.put("grant_type", "password");
+        details.put("username", "test_user");
+        userAuthentication.setDetails(details);
+        return new OAuth2Authentication(oAuth2Request(Collections.emptyMap()), userAuthentication);
+    }
+
+    private OAuth2Request oAuth2Request(Map<String, Serializable> extensions) {
+        Map<String, String> requestParameters = new HashMap<>();
+        requestParameters.put("grant_type", "password");
+        requestParameters.put("client_id", "foo");
+        return new OAuth2Request(requestParameters, "foo", AuthorityUtils.createAuthorityList("USER"), true,
+                new HashSet<>(Arrays.asList("read", "write")), Collections.emptySet(), null, Collections.emptySet(),
+                extensions);
+    }
+}
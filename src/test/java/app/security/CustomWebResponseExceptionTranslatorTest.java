@@ -0,0 +1,33 @@
+package app.security;
+
+import app.error.PasswordHashingUnavailableException;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.oauth2.common.exceptions.InvalidGrantException;
+import org.springframework.security.oauth2.common.exceptions.OAuth2Exception;
+
+import static org.junit.Assert.assertEquals;
+
+public class CustomWebResponseExceptionTranslatorTest {
+    private final CustomWebResponseExceptionTranslator translator = new CustomWebResponseExceptionTranslator();
+
+    @Test
+    public void saturatedHashingIsServiceUnavailable() throws Exception {
+        ResponseEntity<OAuth2Exception> response = translator.translate(new InternalAuthenticationServiceException(
+                "login failed", new PasswordHashingUnavailableException("busy", 2)));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals("2", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals("temporarily_unavailable", response.getBody().getOAuth2ErrorCode());
+    }
+
+    @Test
+    public void otherExceptionsAreTranslatedAsBefore() throws Exception {
+        ResponseEntity<OAuth2Exception> response = translator.translate(new InvalidGrantException("Bad credentials"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+}
@@ -0,0 +1,80 @@
+package app.security;
+
+import org.junit.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class PrefixedPasswordEncoderTest {
+    private final Map<String, PasswordEncoder> encoders = encoders();
+
+    @Test
+    public void encodedPasswordsCarryTheirId() {
+        PrefixedPasswordEncoder passwordEncoder = new PrefixedPasswordEncoder("bcrypt", encoders, "bcrypt", 4);
+
+        String encoded = passwordEncoder.encode("secret");
+
+        assertTrue(encoded.startsWith("{bcrypt}$2a$04$"));
+        assertTrue(passwordEncoder.matches("secret", encoded));
+        assertFalse(passwordEncoder.matches("wrong", encoded));
+        assertFalse(passwordEncoder.upgradeEncoding(encoded));
+    }
+
+    @Test
+    public void legacyHashesAreMatchedAndUpgraded() {
+        PrefixedPasswordEncoder passwordEncoder = new PrefixedPasswordEncoder("bcrypt", encoders, "bcrypt", 4);
+        String legacy = new BCryptPasswordEncoder(4).encode("secret");
+
+        assertTrue(passwordEncoder.matches("secret", legacy));
+        assertTrue(passwordEncoder.upgradeEncoding(legacy));
+    }
+
+    @Test
+    public void recognizesHashesItCanMatch() {
+        PrefixedPasswordEncoder passwordEncoder = new PrefixedPasswordEncoder("bcrypt", encoders, "bcrypt", 4);
+
+        assertTrue(passwordEncoder.isEncoded(passwordEncoder.encode("secret")));
+        assertTrue(passwordEncoder.isEncoded(new BCryptPasswordEncoder(4).encode("secret")));
+        assertFalse(passwordEncoder.isEncoded("secret"));
+        assertFalse(passwordEncoder.isEncoded("{unknown}hash"));
+        assertFalse(passwordEncoder.isEncoded("{bcrypt}"));
+        assertFalse(passwordEncoder.isEncoded(null));
+    }
+
+    @Test
+    public void changedCostOrAlgorithmNeedsUpgrade() {
+        String bcrypt4 = new PrefixedPasswordEncoder("bcrypt", encoders, "bcrypt", 4).encode("secret");
+        PrefixedPasswordEncoder stronger = new PrefixedPasswordEncoder("bcrypt", encoders(5), "bcrypt", 5);
+        PrefixedPasswordEncoder pbkdf2 = new PrefixedPasswordEncoder("pbkdf2", encoders, "bcrypt", 4);
+
+        assertTrue(stronger.matches("secret", bcrypt4));
+        assertTrue(stronger.upgradeEncoding(bcrypt4));
+        assertTrue(pbkdf2.matches("secret", bcrypt4));
+        assertTrue(pbkdf2.upgradeEncoding(bcrypt4));
+        assertFalse(pbkdf2.upgradeEncoding(pbkdf2.encode("secret")));
+    }
+
+    @Test
+    public void unknownIdsNeverMatch() {
+        PrefixedPasswordEncoder passwordEncoder = new PrefixedPasswordEncoder("bcrypt", encoders, "bcrypt", 4);
+
+        assertFalse(passwordEncoder.matches("secret", "{md5}5ebe2294ecd0e0f08eab7690d2a6ee69"));
+        assertFalse(passwordEncoder.matches("secret", null));
+    }
+
+    private Map<String, PasswordEncoder> encoders() {
+        return encoders(4);
+    }
+
+    private Map<String, PasswordEncoder> encoders(int bcryptStrength) {
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", new BCryptPasswordEncoder(bcryptStrength));
+        encoders.put("pbkdf2", new Pbkdf2PasswordEncoder("", 1000, 256));
+        return encoders;
+    }
+}
@@ -0,0 +1,132 @@
+package app.security;
+
+import app.config.datasource.ReplicaLagGuard;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.token.TokenStore;
+
+import java.sql.SQLException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ReplicaFallbackTokenStoreTest {
+    @Mock
+    private TokenStore delegate;
+
+    @Mock
+    private TokenStore replica;
+
+    @Mock
+    private OAuth2Authentication authentication;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private ReplicaFallbackTokenStore tokenStore;
+
+    private DefaultOAuth2AccessToken accessToken;
+
+    @Before
+    public void setUp() {
+        tokenStore = new ReplicaFallbackTokenStore(delegate, replica, new ReplicaLagGuard(60_000));
+        accessToken = new DefaultOAuth2AccessToken("token-value");
+    }
+
+    @Test
+    public void readAccessToken_isServedByTheReplica() {
+        when(replica.readAccessToken("token-value")).thenReturn(accessToken);
+        when(replica.readAuthentication("token-value")).thenReturn(authentication);
+
+        assertSame(accessToken, tokenStore.readAccessToken("token-value"));
+        assertSame(authentication, tokenStore.readAuthentication(accessToken));
+
+        verifyZeroInteractions(delegate);
+    }
+
+    @Test
+    public void readAccessToken_fallsBackWhenTheReplicaHasNotCaughtUp() {
+        when(delegate.readAccessToken("token-value")).thenReturn(accessToken);
+
+        assertSame(accessToken, tokenStore.readAccessToken("token-value"));
+
+        verify(replica).readAccessToken("token-value");
+    }
+
+    @Test
+    public void readAuthentication_fallsBackWhenTheReplicaIsUnreachable() {
+        when(replica.readAuthentication("token-value"))
+                .thenThrow(new CannotGetJdbcConnectionException("replica down", new SQLException()));
+        when(delegate.readAuthentication("token-value")).thenReturn(authentication);
+
+        assertSame(authentication, tokenStore.readAuthentication("token-value"));
+    }
+
+    @Test
+    public void refreshTokens_areReadFromThePrimaryOnly() {
+        DefaultOAuth2RefreshToken refreshToken = new DefaultOAuth2RefreshToken("refresh-value");
+        when(delegate.readRefreshToken("refresh-value")).thenReturn(refreshToken);
+        when(delegate.readAuthenticationForRefreshToken(refreshToken)).thenReturn(authentication);
+
+        assertSame(refreshToken, tokenStore.readRefreshToken("refresh-value"));
+        assertSame(authentication, tokenStore.readAuthenticationForRefreshToken(refreshToken));
+
+        verifyZeroInteractions(replica);
+    }
+
+    @Test
+    public void removedAccessToken_isNotReadFromTheReplicaWhileItMayLag() {
+        when(replica.readAccessToken("token-value")).thenReturn(accessToken);
+        when(replica.readAuthentication("token-value")).thenReturn(authentication);
+
+        tokenStore.removeAccessToken(accessToken);
+
+        assertNull(tokenStore.readAccessToken("token-value"));
+        assertNull(tokenStore.readAuthentication("token-value"));
+        verify(replica, never()).readAccessToken(any());
+        verify(replica, never()).readAuthentication(anyString());
+    }
+
+    @Test
+    public void accessTokenOfARemovedRefreshToken_isNotReadFromTheReplicaWhileItMayLag() {
+        DefaultOAuth2RefreshToken refreshToken = new DefaultOAuth2RefreshToken("refresh-value");
+        accessToken.setRefreshToken(refreshToken);
+        when(replica.readAccessToken("token-value")).thenReturn(accessToken);
+        when(replica.readAuthentication("token-value")).thenReturn(authentication);
+
+        tokenStore.removeAccessTokenUsingRefreshToken(refreshToken);
+
+        assertNull(tokenStore.readAccessToken("token-value"));
+        assertNull(tokenStore.readAuthentication(accessToken));
+        verify(delegate).readAccessToken("token-value");
+        verify(delegate).readAuthentication("token-value");
+    }
+
+    @Test
+    public void removedTokens_areReadFromTheReplicaAgainAfterTheWindow() {
+        tokenStore = new ReplicaFallbackTokenStore(delegate, replica, new ReplicaLagGuard(0));
+        when(replica.readAccessToken("token-value")).thenReturn(accessToken);
+
+        tokenStore.removeAccessToken(accessToken);
+
+        assertSame(accessToken, tokenStore.readAccessToken("token-value"));
+    }
+
+    @Test
+    public void writes_goToThePrimaryOnly() {
+        tokenStore.storeAccessToken(accessToken, authentication);
+        tokenStore.removeAccessToken(accessToken);
+
+        verify(delegate).storeAccessToken(accessToken, authentication);
+        verify(delegate).removeAccessToken(accessToken);
+        verifyZeroInteractions(replica);
+    }
+}
@@ -0,0 +1,180 @@
+package app.security;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.DefaultExpiringOAuth2RefreshToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.store.JdbcTokenStore;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TokenReaperTest {
+    private EmbeddedDatabase dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private CompactJdbcTokenStore tokenStore;
+
+    private TokenReaper tokenReaper;
+
+    @Before
+    public void setUp() {
+        dataSource = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("schema-dev.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        tokenStore = new CompactJdbcTokenStore(dataSource);
+        tokenReaper = new TokenReaper(dataSource);
+        ReflectionTestUtils.setField(tokenReaper, "batchSize", 2);
+        ReflectionTestUtils.setField(tokenReaper, "maxBatches", 10);
+        ReflectionTestUtils.setField(tokenReaper, "pauseMillis", 0L);
+        ReflectionTestUtils.setField(tokenReaper, "codeTtlSeconds", 600L);
+    }
+
+    @After
+    public void tearDown() {
+        dataSource.shutdown();
+    }
+
+    @Test
+    public void storedTokensCarryTheirExpiration() {
+        Date expiration = new Date(System.currentTimeMillis() + 60_000);
+        tokenStore.storeAccessToken(accessToken("token", expiration), authentication("foo"));
+
+        Timestamp stored = jdbcTemplate.queryForObject("select expiration from oauth_access_token", Timestamp.class);
+
+        assertEquals(expiration.getTime(), stored.getTime());
+    }
+
+    @Test
+    public void javaSerializedTokensCarryTheirExpiration() {
+        Date expiration = new Date(System.currentTimeMillis() + 60_000);
+        JavaSerializedJdbcTokenStore javaStore = new JavaSerializedJdbcTokenStore(dataSource);
+        javaStore.storeAccessToken(accessToken("token", expiration), authentication("foo"));
+        javaStore.storeRefreshToken(new DefaultExpiringOAuth2RefreshToken("refresh", expiration), authentication("foo"));
+
+        assertEquals(expiration.getTime(), jdbcTemplate.queryForObject("select expiration from oauth_access_token", Timestamp.class).getTime());
+        assertEquals(expiration.getTime(), jdbcTemplate.queryForObject("select expiration from oauth_refresh_token", Timestamp.class).getTime());
+        assertFalse(CompactTokenCodec.isCompact(jdbcTemplate.queryForObject("select token from oauth_access_token", byte[].class)));
+        assertNotNull(new JdbcTokenStore(dataSource).readAccessToken("token"));
+    }
+
+    @Test
+    public void reapDeletesOnlyExpiredRowsInBatches() {
+        Date past = new Date(System.currentTimeMillis() - 60_000);
+        Date future = new Date(System.currentTimeMillis() + 60_000);
+        for (int i = 0; i < 5; i++) {
+            tokenStore.storeAccessToken(accessToken("expired" + i, past), authentication("expired" + i));
+            tokenStore.storeRefreshToken(new DefaultExpiringOAuth2RefreshToken("expired-refresh" + i, past), authentication("expired" + i));
+        }
+        tokenStore.storeAccessToken(accessToken("valid", future), authentication("valid"));
+        tokenStore.storeRefreshToken(new DefaultExpiringOAuth2RefreshToken("valid-refresh", future), authentication("valid"));
+
+        tokenReaper.reap();
+
+        assertEquals(1, countRows("oauth_access_token"));
+        assertEquals(1, countRows("oauth_refresh_token"));
+        assertNotNull(tokenStore.readAccessToken("valid"));
+        assertNotNull(tokenStore.readRefreshToken("valid-refresh"));
+        Map<String, Object> statistics = tokenReaper.statistics();
+        assertEquals(1L, statistics.get("runs"));
+        assertEquals(5L, ((Map<?, ?>) statistics.get("deleted")).get("oauth_access_token"));
+    }
+
+    @Test
+    public void reapKeepsTokensReissuedAfterItsSelect() {
+        Date past = new Date(System.currentTimeMillis() - 60_000);
+        tokenStore.storeAccessToken(accessToken("expired", past), authentication("foo"));
+        tokenStore.storeRefreshToken(new DefaultExpiringOAuth2RefreshToken("refresh", past), authentication("foo"));
+        ReflectionTestUtils.setField(tokenReaper, "jdbcTemplate", new JdbcTemplate(dataSource) {
+            @Override
+            public <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+                List<T> keys = super.queryForList(sql, elementType, args);
+                // the user signs in again between the reaper's select and its delete
+                if (sql.contains("oauth_access_token")) {
+                    tokenStore.removeAccessToken("expired");
+                    tokenStore.storeAccessToken(accessToken("fresh", new Date(System.currentTimeMillis() + 60_000)), authentication("foo"));
+                } else if (sql.contains("oauth_refresh_token")) {
+                    jdbcTemplate.update("update oauth_refresh_token set expiration = ?", new Timestamp(System.currentTimeMillis() + 60_000));
+                }
+                return keys;
+            }
+        });
+
+        tokenReaper.reap();
+
+        assertNotNull(tokenStore.readAccessToken("fresh"));
+        assertEquals(1, countRows("oauth_refresh_token"));
+    }
+
+    @Test
+    public void reapBackfillsLegacyRowsWithoutExpiration() {
+        JdbcTokenStore legacyStore = new JdbcTokenStore(dataSource);
+        legacyStore.storeAccessToken(accessToken("legacy-expired", new Date(System.currentTimeMillis() - 60_000)), authentication("a"));
+        legacyStore.storeAccessToken(accessToken("legacy-valid", new Date(System.currentTimeMillis() + 60_000)), authentication("b"));
+
+        tokenReaper.reap();
+
+        assertEquals(1, countRows("oauth_access_token"));
+        assertEquals(0, (int) jdbcTemplate.queryForObject("select count(*) from oauth_access_token where expiration is null", Integer.class));
+        assertNotNull(tokenStore.readAccessToken("legacy-valid"));
+    }
+
+    @Test
+    public void reapBackfillsLegacyRowsInBatches() {
+        JdbcTokenStore legacyStore = new JdbcTokenStore(dataSource);
+        for (int i = 0; i < 5; i++) {
+            legacyStore.storeAccessToken(accessToken("legacy" + i, new Date(System.currentTimeMillis() + 60_000)), authentication("legacy" + i));
+        }
+
+        tokenReaper.reap();
+
+        assertEquals(0, (int) jdbcTemplate.queryForObject("select count(*) from oauth_access_token where expiration is null", Integer.class));
+        assertEquals(5L, tokenReaper.statistics().get("backfilled"));
+    }
+
+    @Test
+    public void reapDeletesAbandonedAuthorizationCodes() {
+        jdbcTemplate.update("insert into oauth_code (code, authentication, created_at) values (?, ?, ?)",
+                "old", new byte[0], new Timestamp(System.currentTimeMillis() - 3_600_000));
+        jdbcTemplate.update("insert into oauth_code (code, authentication) values (?, ?)", "fresh", new byte[0]);
+
+        tokenReaper.reap();
+
+        assertEquals(Collections.singletonList("fresh"), jdbcTemplate.queryForList("select code from oauth_code", String.class));
+    }
+
+    private int countRows(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table, Integer.class);
+    }
+
+    private DefaultOAuth2AccessToken accessToken(String value, Date expiration) {
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken(value);
+        token.setExpiration(expiration);
+        return token;
+    }
+
+    private OAuth2Authentication authentication(String clientId) {
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), clientId,
+                AuthorityUtils.createAuthorityList("USER"), true, Collections.singleton("read"),
+                Collections.emptySet(), null, Collections.emptySet(), null);
+        return new OAuth2Authentication(request, null);
+    }
+}
@@ -0,0 +1,122 @@
+package app.security;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.common.DefaultOAuth2AccessToken;
+import org.springframework.security.oauth2.common.DefaultOAuth2RefreshToken;
+import org.springframework.security.oauth2.provider.OAuth2Authentication;
+import org.springframework.security.oauth2.provider.OAuth2Request;
+import org.springframework.security.oauth2.provider.token.store.JdbcTokenStore;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class WriteBehindJdbcTokenStoreTest {
+    private EmbeddedDatabase dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private WriteBehindJdbcTokenStore tokenStore;
+
+    @Before
+    public void setUp() {
+        dataSource = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("schema-dev.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // long interval so the tests decide when to flush
+        tokenStore = new WriteBehindJdbcTokenStore(dataSource, 60_000, 2);
+        tokenStore.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        tokenStore.destroy();
+        dataSource.shutdown();
+    }
+
+    @Test
+    public void storedTokenIsReadableBeforeFlush() {
+        DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken("token");
+        OAuth2Authentication authentication = authentication("foo");
+
+        tokenStore.storeAccessToken(token, authentication);
+
+        assertEquals(0, countRows("oauth_access_token"));
+        assertEquals(token, tokenStore.readAccessToken("token"));
+        assertEquals(authentication, tokenStore.readAuthentication("token"));
+        assertEquals(token, tokenStore.getAccessToken(authentication("foo")));
+    }
+
+    @Test
+    public void flushWritesPendingTokensInBatches() {
+        for (int i = 0; i < 5; i++) {
+            DefaultOAuth2AccessToken token = new DefaultOAuth2AccessToken("token" + i);
+            token.setRefreshToken(new DefaultOAuth2RefreshToken("refresh" + i));
+            tokenStore.storeAccessToken(token, authentication("client" + i));
+            tokenStore.storeRefreshToken(token.getRefreshToken(), authentication("client" + i));
+        }
+
+        tokenStore.flush();
+
+        assertEquals(5, countRows("oauth_access_token"));
+        assertEquals(5, countRows("oauth_refresh_token"));
+        JdbcTokenStore plainStore = new CompactJdbcTokenStore(dataSource);
+        assertEquals("token3", plainStore.readAccessToken("token3").getValue());
+        assertEquals("client3", plainStore.readAuthentication("token3").getOAuth2Request().getClientId());
+        assertEquals("refresh3", plainStore.readRefreshToken("refresh3").getValue());
+    }
+
+    @Test
+    public void restoringSameAuthenticationReplacesRow() {
+        tokenStore.storeAccessToken(new DefaultOAuth2AccessToken("first"), authentication("foo"));
+        tokenStore.flush();
+
+        tokenStore.storeAccessToken(new DefaultOAuth2AccessToken("second"), authentication("foo"));
+        tokenStore.flush();
+
+        assertEquals(1, countRows("oauth_access_token"));
+        assertNull(tokenStore.readAccessToken("first"));
+        assertEquals("second", tokenStore.readAccessToken("second").getValue());
+    }
+
+    @Test
+    public void removedTokenIsNeverWritten() {
+        tokenStore.storeAccessToken(new DefaultOAuth2AccessToken("token"), authentication("foo"));
+        tokenStore.removeAccessToken(new DefaultOAuth2AccessToken("token"));
+
+        tokenStore.flush();
+
+        assertEquals(0, countRows("oauth_access_token"));
+        assertNull(tokenStore.readAccessToken("token"));
+    }
+
+    @Test
+    public void destroyFlushesPendingTokens() throws Exception {
+        tokenStore.storeAccessToken(new DefaultOAuth2AccessToken("token"), authentication("foo"));
+
+        tokenStore.destroy();
+
+        assertEquals(1, countRows("oauth_access_token"));
+    }
+
+    private int countRows(String table) {
+        return jdbcTemplate.queryForObject("select count(*) from " + table, Integer.class);
+    }
+
+    private OAuth2Authentication authentication(String clientId) {
+        OAuth2Request request = new OAuth2Request(Collections.emptyMap(), clientId,
+                AuthorityUtils.createAuthorityList("USER"), true, Collections.singleton("read"),
+                Collections.emptySet(), null, Collections.emptySet(), null);
+        return new OAuth2Authentication(request, null);
+    }
+}
@@ -14,12 +14,14 @@ import org.junit.Test;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.oauth2.provider.ClientDetails;
+import org.springframework.security.oauth2.provider.NoSuchClientException;
 import org.springframework.security.oauth2.provider.client.BaseClientDetails;
 import org.springframework.security.oauth2.provider.client.JdbcClientDetailsService;
 
@@ -45,11 +47,20 @@ public class ApplicationServiceTest {
     @Mock
     private TenantService tenantService;
 
+    @Mock
+    private EndUserStatusCounts endUserStatusCounts;
+
     private ApplicationService applicationService;
 
     @Rule
     public MockitoRule mockitoRule = MockitoJUnit.rule();
 
+    @Mock
+    private RegistrationBloomFilter registrationBloomFilter;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private EndUserService endUserService;
 
     private final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
@@ -60,8 +71,9 @@ public class ApplicationServiceTest {
                 applicationRepository,
                 jdbcClientDetailsService,
                 clientDetailsFactory,
-                tenantService);
-        this.endUserService = new EndUserService(endUserRepository, applicationService, passwordEncoder);
+                tenantService,
+                endUserStatusCounts);
+        this.endUserService = new EndUserService(endUserRepository, applicationService, passwordEncoder, registrationBloomFilter, eventPublisher);
     }
 
     @After
@@ -150,6 +162,23 @@ public class ApplicationServiceTest {
         verify(applicationRepository,times(1)).delete(testApplicationId);
     }
 
+    @Test
+    public void deleteApplicationOf_withoutClientDetails() {
+        Tenant testTenant = TenantTestUtil.createTestTenant();
+        String tenantAccount = testTenant.getLoginCredential().getAccount();
+        Application application = createTestApplication(tenantAccount);
+        String testApplicationId = "test_application";
+        application.setId(testApplicationId);
+        testTenant.getApplications().add(application);
+        when(tenantService.getTenantFromAccount(tenantAccount)).thenReturn(testTenant);
+        when(applicationRepository.findOne(testApplicationId)).thenReturn(application);
+        doThrow(new NoSuchClientException("No client with requested id: " + testApplicationId))
+                .when(jdbcClientDetailsService).removeClientDetails(testApplicationId);
+
+        assertTrue(applicationService.deleteApplication(tenantAccount, testApplicationId));
+        verify(applicationRepository, times(1)).delete(testApplicationId);
+    }
+
     private Application createTestApplication(String managerId) {
         Application application = new Application();
         application.setName("test_application");
@@ -0,0 +1,134 @@
+package app.service;
+
+import app.error.UnknownFieldException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EndUserExportServiceTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private EmbeddedDatabase dataSource;
+
+    private EndUserExportService exportService;
+
+    @Before
+    public void setUp() {
+        dataSource = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table tenant_application (app_id varchar(36) primary key, owner_id varchar(36))");
+        jdbcTemplate.execute("create table app_user (end_user_id varchar(36) primary key, account varchar(255), " +
+                "email varchar(255), status varchar(255), first_name varchar(255), last_name varchar(255), " +
+                "middle_name varchar(255), nick_name varchar(255), mobile_phone_no varchar(255), gender varchar(255), " +
+                "birth_date varchar(255), country varchar(255), locale varchar(255), language varchar(255), " +
+                "timezone varchar(255), created_date timestamp, last_modified_dt timestamp)");
+        jdbcTemplate.execute("create table app_end_user (app_id varchar(36), end_user_id varchar(36))");
+        jdbcTemplate.update("insert into tenant_application values ('app1', 'tenant1'), ('app2', 'tenant1'), ('app3', 'tenant2')");
+        for (int i = 1; i <= 3; i++) {
+            Timestamp modified = Timestamp.valueOf(LocalDateTime.of(2017, 1, i, 0, 0));
+            jdbcTemplate.update("insert into app_user (end_user_id, account, email, status, created_date, last_modified_dt) " +
+                    "values (?, ?, ?, 'ACTIVE', ?, ?)", "u" + i, "user" + i, "user" + i + "@example.com", modified, modified);
+        }
+        // u1 is in both applications of tenant1 and must be exported once
+        jdbcTemplate.update("insert into app_end_user values ('app1', 'u1'), ('app2', 'u1'), ('app2', 'u2'), ('app3', 'u3')");
+
+        exportService = new EndUserExportService(dataSource);
+        ReflectionTestUtils.setField(exportService, "fetchSize", 1);
+        ReflectionTestUtils.setField(exportService, "flushRows", 1);
+        exportService.init();
+    }
+
+    @After
+    public void tearDown() {
+        dataSource.shutdown();
+    }
+
+    @Test
+    public void export_writesOneJsonObjectPerLineForTheTenant() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = exportService.export("tenant1", null, null, out);
+
+        List<JsonNode> lines = lines(out);
+        assertEquals(2, exported);
+        assertEquals(2, lines.size());
+        JsonNode first = "u1".equals(lines.get(0).get("id").asText()) ? lines.get(0) : lines.get(1);
+        assertEquals("user1", first.get("account").asText());
+        assertEquals("user1@example.com", first.get("email").asText());
+        assertEquals("ACTIVE", first.get("status").asText());
+        assertEquals("2017-01-01 00:00:00", first.get("lastModifiedAt").asText());
+        assertTrue(first.get("firstName").isNull());
+    }
+
+    @Test
+    public void export_writesOnlySelectedFields() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.export("tenant2", Arrays.asList("id", "email"), null, out);
+
+        assertEquals("{\"id\":\"u3\",\"email\":\"user3@example.com\"}\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void export_isIncrementalWithModifiedSince() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        exportService.export("tenant1", Collections.singletonList("id"), LocalDateTime.of(2017, 1, 2, 0, 0), out);
+
+        assertEquals("{\"id\":\"u2\"}\n", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void export_ofUnknownTenantIsEmpty() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(0, exportService.export("unknown", null, null, out));
+        assertEquals(0, out.size());
+    }
+
+    @Test(expected = UnknownFieldException.class)
+    public void resolveFields_rejectsUnknownFields() {
+        exportService.resolveFields(Arrays.asList("id", "password"));
+    }
+
+    @Test(expected = IOException.class)
+    public void export_stopsWhenTheClientGoesAway() throws IOException {
+        exportService.export("tenant1", null, null, new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        });
+    }
+
+    private List<JsonNode> lines(ByteArrayOutputStream out) throws IOException {
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,119 @@
+package app.service;
+
+import app.domain.Application;
+import app.domain.EndUser;
+import app.domain.EndUserImportResult;
+import app.repository.ApplicationRepository;
+import app.repository.EndUserRepository;
+import app.security.BoundedPasswordEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class EndUserImportServiceTest {
+    private static final String APPLICATION = "app1";
+
+    @Rule public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private EndUserRepository endUserRepository;
+
+    @Mock
+    private ApplicationRepository applicationRepository;
+
+    @Mock
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private EndUserImportService importService;
+
+    @Before
+    public void setUp() {
+        importService = new EndUserImportService(endUserRepository, applicationRepository, passwordEncoder,
+                eventPublisher, transactionManager, new ObjectMapper());
+        ReflectionTestUtils.setField(importService, "entityManager", entityManager);
+        ReflectionTestUtils.setField(importService, "batchSize", 1);
+        ReflectionTestUtils.setField(importService, "maxReportedErrors", 10);
+        when(applicationRepository.findOne(APPLICATION)).thenReturn(new Application());
+        when(endUserRepository.findExistingAccounts(any(), any())).thenReturn(Collections.emptyList());
+        when(endUserRepository.findExistingEmails(any(), any())).thenReturn(Collections.emptyList());
+        when(endUserRepository.findExistingMobilePhoneNos(any(), any())).thenReturn(Collections.emptyList());
+        when(passwordEncoder.isEncoded(any())).thenReturn(true);
+    }
+
+    @Test
+    public void rowsOfAFailedChunkCanBeImportedAgain() throws Exception {
+        doThrow(new PersistenceException("deadlock")).doNothing().when(entityManager).persist(isA(EndUser.class));
+
+        EndUserImportResult result = importService.importCsv(APPLICATION,
+                new StringReader("account,password\nsame,{bcrypt}hash\nsame,{bcrypt}hash\n"), true);
+
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getFailed());
+        assertEquals(1, result.getErrors().get(0).getRow());
+        assertTrue(result.getErrors().get(0).getMessage().startsWith("Could not be saved"));
+    }
+
+    @Test
+    public void duplicatesWithinAChunkAreStillRejected() throws Exception {
+        ReflectionTestUtils.setField(importService, "batchSize", 10);
+
+        EndUserImportResult result = importService.importCsv(APPLICATION,
+                new StringReader("account,password\nsame,{bcrypt}hash\nsame,{bcrypt}hash\n"), true);
+
+        assertEquals(1, result.getImported());
+        assertEquals("same already existing", result.getErrors().get(0).getMessage());
+    }
+
+    @Test
+    public void jsonRowsWithAnIdAreRejected() throws Exception {
+        String json = "[{\"id\": \"existing\", \"credential\": {\"account\": \"a\", \"password\": \"{bcrypt}hash\"}}," +
+                "{\"credential\": {\"account\": \"b\", \"password\": \"{bcrypt}hash\"}}]";
+
+        EndUserImportResult result = importService.importJson(APPLICATION,
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), true);
+
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getErrors().get(0).getRow());
+        assertEquals("Ids are assigned on import", result.getErrors().get(0).getMessage());
+        verify(entityManager, times(1)).persist(isA(EndUser.class));
+    }
+
+    @Test
+    public void emptyEmailsAreNotDuplicates() throws Exception {
+        ReflectionTestUtils.setField(importService, "batchSize", 10);
+        String json = "[{\"email\": \"\", \"credential\": {\"account\": \"a\", \"password\": \"{bcrypt}hash\"}}," +
+                "{\"email\": \"\", \"credential\": {\"account\": \"b\", \"password\": \"{bcrypt}hash\"}}]";
+
+        EndUserImportResult result = importService.importJson(APPLICATION,
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), true);
+
+        assertEquals(2, result.getImported());
+        assertTrue(result.getErrors().isEmpty());
+    }
+}
@@ -0,0 +1,130 @@
+package app.service;
+
+import app.domain.EndUser;
+import app.domain.LoginCredential;
+import app.domain.UserProfile;
+import app.domain.event.EndUserCreated;
+import app.domain.event.EndUserDeleted;
+import app.domain.event.EndUserUpdated;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class EndUserNgramIndexTest {
+    private EmbeddedDatabase dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private EndUserNgramIndex index;
+
+    @Before
+    public void setUp() {
+        dataSource = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table tenant_application (app_id varchar(36) primary key, owner_id varchar(36))");
+        jdbcTemplate.execute("create table app_user (end_user_id varchar(36) primary key, normalized_email varchar(255), " +
+                "first_name varchar(255), last_name varchar(255), middle_name varchar(255), nick_name varchar(255))");
+        jdbcTemplate.execute("create table app_end_user (app_id varchar(36), end_user_id varchar(36))");
+        for (int tenant = 1; tenant <= 4; tenant++) {
+            jdbcTemplate.update("insert into tenant_application values (?, ?)", "app" + tenant, "tenant" + tenant);
+            jdbcTemplate.update("insert into app_user values (?, ?, ?, ?, null, ?)",
+                    "u" + tenant, "user" + tenant + "@example.com", "Gildong", "Hong", "nick" + tenant);
+            jdbcTemplate.update("insert into app_end_user values (?, ?)", "app" + tenant, "u" + tenant);
+        }
+
+        index = new EndUserNgramIndex(dataSource);
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "rebuildParallelism", 2);
+    }
+
+    @After
+    public void tearDown() {
+        dataSource.shutdown();
+    }
+
+    @Test
+    public void find_isUnavailableUntilBuilt() {
+        assertFalse(index.isReady());
+        assertNull(index.find("tenant1", EndUserNgramIndex.Field.EMAIL, "user1"));
+    }
+
+    @Test
+    public void rebuild_indexesEveryTenantSeparately() {
+        index.rebuild();
+
+        assertEquals(Collections.singleton("u1"), index.find("tenant1", EndUserNgramIndex.Field.EMAIL, "ER1@EXAMPLE"));
+        assertEquals(Collections.singleton("u3"), index.find("tenant3", EndUserNgramIndex.Field.FIRST_NAME, "ildon"));
+        assertEquals(Collections.singleton("u4"), index.find("tenant4", EndUserNgramIndex.Field.NICK_NAME, "ick4"));
+        assertTrue(index.find("tenant1", EndUserNgramIndex.Field.EMAIL, "user2").isEmpty());
+        assertTrue(index.find("tenant1", EndUserNgramIndex.Field.LAST_NAME, "gildong").isEmpty());
+        assertTrue(index.find("unknown", EndUserNgramIndex.Field.EMAIL, "user").isEmpty());
+    }
+
+    @Test
+    public void find_needsAtLeastOneTrigram() {
+        index.rebuild();
+
+        assertNull(index.find("tenant1", EndUserNgramIndex.Field.EMAIL, "us"));
+        assertNull(index.find("tenant1", EndUserNgramIndex.Field.EMAIL, " u "));
+    }
+
+    @Test
+    public void find_checksTheWholeTermNotJustItsTrigrams() {
+        index.rebuild();
+
+        // "gil" and "ong" are both in "gildong" but "gilong" is not
+        assertTrue(index.find("tenant1", EndUserNgramIndex.Field.FIRST_NAME, "gilong").isEmpty());
+    }
+
+    @Test
+    public void endUserEvents_updateTheIndex() {
+        index.rebuild();
+        EndUser endUser = endUser("u9", "kim@example.com", "Chulsoo");
+
+        index.onEndUserCreated(new EndUserCreated("app1", endUser, true));
+        assertEquals(new HashSet<>(Arrays.asList("u9")), index.find("tenant1", EndUserNgramIndex.Field.FIRST_NAME, "chul"));
+
+        endUser.getProfile().setFirstName("Younghee");
+        index.onEndUserUpdated(new EndUserUpdated(endUser, Collections.singletonList("app1"), null));
+        assertTrue(index.find("tenant1", EndUserNgramIndex.Field.FIRST_NAME, "chul").isEmpty());
+        assertEquals(Collections.singleton("u9"), index.find("tenant1", EndUserNgramIndex.Field.FIRST_NAME, "younghee"));
+
+        index.onEndUserDeleted(new EndUserDeleted(endUser, Collections.singletonList("app1")));
+        assertTrue(index.find("tenant1", EndUserNgramIndex.Field.EMAIL, "kim@").isEmpty());
+    }
+
+    @Test
+    public void rebuild_dropsEndUsersDeletedInTheDatabase() {
+        index.rebuild();
+        jdbcTemplate.update("delete from app_end_user where end_user_id = 'u2'");
+
+        index.rebuild();
+
+        assertTrue(index.find("tenant2", EndUserNgramIndex.Field.EMAIL, "user2").isEmpty());
+    }
+
+    private EndUser endUser(String id, String email, String firstName) {
+        EndUser endUser = new EndUser();
+        endUser.setId(id);
+        endUser.setEmail(email);
+        endUser.setCredential(new LoginCredential(id, "password"));
+        UserProfile profile = new UserProfile();
+        profile.setFirstName(firstName);
+        endUser.setProfile(profile);
+        return endUser;
+    }
+}
@@ -0,0 +1,82 @@
+package app.service;
+
+import app.domain.EndUserSearchCriteria;
+import app.repository.EndUserRepository;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class EndUserSearchServiceTest {
+    private static final PageRequest PAGE_REQUEST = new PageRequest(0, 10);
+
+    @Mock
+    private EndUserRepository endUserRepository;
+
+    @Mock
+    private EndUserNgramIndex endUserNgramIndex;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private EndUserSearchService endUserSearchService;
+
+    @Before
+    public void setUp() {
+        endUserSearchService = new EndUserSearchService(endUserRepository, endUserNgramIndex);
+        ReflectionTestUtils.setField(endUserSearchService, "maxCandidates", 2);
+        when(endUserNgramIndex.isReady()).thenReturn(true);
+        when(endUserNgramIndex.find(any(), any(), any())).thenReturn(null);
+    }
+
+    @Test
+    public void substringFilters_areNarrowedByTheIndex() {
+        EndUserSearchCriteria criteria = new EndUserSearchCriteria();
+        criteria.setEmail("*kim*");
+        criteria.setNickname("*gil*");
+        when(endUserNgramIndex.find("tenant", EndUserNgramIndex.Field.EMAIL, "kim")).thenReturn(new HashSet<>(Arrays.asList("a", "b")));
+        when(endUserNgramIndex.find("tenant", EndUserNgramIndex.Field.NICK_NAME, "gil")).thenReturn(new HashSet<>(Arrays.asList("b", "c")));
+
+        assertEquals(Collections.singleton("b"), endUserSearchService.findCandidates("tenant", criteria));
+    }
+
+    @Test
+    public void exactAndPrefixFilters_areLeftToTheDatabase() {
+        EndUserSearchCriteria criteria = new EndUserSearchCriteria();
+        criteria.setEmail("kim@example.com");
+        criteria.setFirstName("gil*");
+
+        assertNull(endUserSearchService.findCandidates("tenant", criteria));
+    }
+
+    @Test
+    public void tooManyCandidates_fallBackToTheDatabase() {
+        EndUserSearchCriteria criteria = new EndUserSearchCriteria();
+        criteria.setEmail("*kim*");
+        when(endUserNgramIndex.find("tenant", EndUserNgramIndex.Field.EMAIL, "kim")).thenReturn(new HashSet<>(Arrays.asList("a", "b", "c")));
+
+        assertNull(endUserSearchService.findCandidates("tenant", criteria));
+    }
+
+    @Test
+    public void noCandidates_skipTheDatabase() {
+        EndUserSearchCriteria criteria = new EndUserSearchCriteria();
+        criteria.setLastName("*nobody*");
+        when(endUserNgramIndex.find("tenant", EndUserNgramIndex.Field.LAST_NAME, "nobody")).thenReturn(Collections.emptySet());
+
+        assertFalse(endUserSearchService.search("tenant", criteria, PAGE_REQUEST).hasContent());
+        verify(endUserRepository, never()).search(any(), any(), any(), any());
+    }
+}
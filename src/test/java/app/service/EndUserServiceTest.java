@@ -1,7 +1,10 @@
 package app.service;
 
 import app.domain.EndUser;
+import app.domain.EndUserConflicts;
 import app.domain.EndUserStatus;
+import app.domain.event.EndUserCreated;
+import app.domain.event.EndUserUpdated;
 import app.error.*;
 import app.repository.EndUserRepository;
 import app.util.EndUserTestUtil;
@@ -10,10 +13,12 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentMatcher;
 import org.mockito.Mock;
 import org.mockito.internal.matchers.Equality;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
@@ -36,13 +41,22 @@ public class EndUserServiceTest {
 
     @Rule public MockitoRule mockitoRule = MockitoJUnit.rule();
 
+    @Mock
+    private RegistrationBloomFilter registrationBloomFilter;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     private EndUserService endUserService;
 
     private final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
 
     @Before
     public void setUp() {
-        this.endUserService = new EndUserService(endUserRepository, applicationService, passwordEncoder);
+        this.endUserService = new EndUserService(endUserRepository, applicationService, passwordEncoder, registrationBloomFilter, eventPublisher);
+        when(endUserRepository.findRegistrationConflicts(any(), any(), any(), any(), any()))
+                .thenReturn(new EndUserConflicts(1L, null, null, null));
+        when(registrationBloomFilter.mightBeRegistered(any(), any(), any(), any())).thenReturn(true);
     }
 
     @After
@@ -60,13 +74,42 @@ public class EndUserServiceTest {
         verify(applicationService, times(1)).addApplicationUser(test_application, endUser);
         assertThat("Created EndUser is not null", createdEndUser, IsNull.notNullValue());
         assertThat("EndUser and Created EndUser are equal", Equality.areEqual(endUser, createdEndUser));
+        verify(eventPublisher, times(1)).publishEvent(isA(EndUserCreated.class));
+    }
+
+    @Test
+    public void createEndUser_skips_duplicate_lookup_for_definitely_new_keys() {
+        EndUser endUser = EndUserTestUtil.createTestEndUser("brand_new_user");
+        String test_application = "test_application";
+        when(registrationBloomFilter.mightBeRegistered(any(), any(), any(), any())).thenReturn(false);
+        when(endUserRepository.save(endUser)).thenReturn(endUser);
+        when(applicationService.addApplicationUser(test_application, endUser)).thenReturn(true);
+
+        endUserService.createEndUser(test_application, endUser);
+        verify(applicationService, times(1)).checkApplicationExists(test_application);
+        verify(endUserRepository, never()).findRegistrationConflicts(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void createEndUser_checks_application_for_definitely_new_keys() {
+        EndUser endUser = EndUserTestUtil.createTestEndUser("brand_new_user");
+        String test_application = "not_existing_application";
+        when(registrationBloomFilter.mightBeRegistered(any(), any(), any(), any())).thenReturn(false);
+        doThrow(new RecordNotFoundException()).when(applicationService).checkApplicationExists(test_application);
+
+        try {
+            endUserService.createEndUser(test_application, endUser);
+            fail();
+        } catch (RecordNotFoundException e) {}
+        verify(endUserRepository, never()).save(any(EndUser.class));
     }
 
     @Test
     public void createEndUser_but_already_exsiting() {
         EndUser endUser = EndUserTestUtil.createTestEndUser("already_existing");
         String test_application = "test_application";
-        when(endUserRepository.findByApplicationAndCredentialAccount(test_application, endUser.getCredential().getAccount())).thenReturn(endUser);
+        when(endUserRepository.findRegistrationConflicts(eq(test_application), eq(endUser.getCredential().getAccount()), any(), any(), any()))
+                .thenReturn(new EndUserConflicts(1L, "existing_user_id", null, null));
 
         try {
             endUserService.createEndUser(test_application, endUser);
@@ -81,7 +124,8 @@ public class EndUserServiceTest {
         endUser.setId(UUID.randomUUID().toString());
         endUser.setEmail(createEndUser.getEmail());
         String test_application = "test_application";
-        when(endUserRepository.findByApplicationAndEmail(test_application, endUser.getEmail())).thenReturn(endUser);
+        when(endUserRepository.findRegistrationConflicts(eq(test_application), any(), eq(endUser.getEmail()), any(), any()))
+                .thenReturn(new EndUserConflicts(1L, null, endUser.getId(), null));
 
         try {
             endUserService.createEndUser(test_application, createEndUser);
@@ -96,7 +140,8 @@ public class EndUserServiceTest {
         endUser.setId(UUID.randomUUID().toString());
         endUser.getProfile().setMobilePhoneNo(createEndUser.getProfile().getMobilePhoneNo());
         String test_application = "test_application";
-        when(endUserRepository.findByApplicationAndMobileNo(test_application, endUser.getProfile().getMobilePhoneNo())).thenReturn(endUser);
+        when(endUserRepository.findRegistrationConflicts(eq(test_application), any(), any(), eq(endUser.getProfile().getMobilePhoneNo()), any()))
+                .thenReturn(new EndUserConflicts(1L, null, null, endUser.getId()));
 
         try {
             endUserService.createEndUser(test_application, createEndUser);
@@ -228,8 +273,18 @@ public class EndUserServiceTest {
         String existingEndUserId = "test_user_id";
         when(endUserRepository.findById(existingEndUserId)).thenReturn(endUser);
 
+        EndUserStatus previousStatus = endUser.getStatus();
+
         EndUser unregisteredEndUser = endUserService.unregisterEndUser(test_application, existingEndUserId);
         assertThat("Un-registered EndUser Status is TERMINATED ", Equality.areEqual(unregisteredEndUser.getStatus(), EndUserStatus.TERMINATED));
+        verify(eventPublisher, times(1)).publishEvent(argThat(new ArgumentMatcher<Object>() {
+            @Override
+            public boolean matches(Object event) {
+                return event instanceof EndUserUpdated
+                        && ((EndUserUpdated) event).getPreviousStatus() == previousStatus
+                        && ((EndUserUpdated) event).getStatus() == EndUserStatus.TERMINATED;
+            }
+        }));
     }
 
     @Test
@@ -254,6 +309,7 @@ public class EndUserServiceTest {
 
         EndUser unregisteredEndUser = endUserService.unregisterEndUser(test_application, existingEndUserId);
         assertThat("Un-registered EndUser Status is TERMINATED ", Equality.areEqual(unregisteredEndUser.getStatus(), EndUserStatus.TERMINATED));
+        verify(eventPublisher, never()).publishEvent(any());
     }
 
     @Test
@@ -0,0 +1,184 @@
+package app.service;
+
+import app.config.StatusChangeExecutorConfig;
+import app.domain.EndUserSearchCriteria;
+import app.domain.EndUserStatus;
+import app.domain.EndUserStatusChangeJob;
+import app.error.InvalidStatusChangeException;
+import app.error.RecordNotFoundException;
+import app.error.StatusChangeQueueFullException;
+import app.repository.EndUserRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class EndUserStatusChangeServiceTest {
+    private static final String TENANT = "tenant1";
+
+    @Rule public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private EndUserRepository endUserRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private ThreadPoolTaskExecutor executor;
+
+    private EndUserStatusChangeService service;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private volatile String updatingThread;
+
+    @Before
+    public void setUp() {
+        StatusChangeExecutorConfig config = new StatusChangeExecutorConfig();
+        ReflectionTestUtils.setField(config, "maxQueuedJobs", 2);
+        executor = config.endUserStatusChangeExecutor();
+        executor.initialize();
+
+        service = new EndUserStatusChangeService(endUserRepository, eventPublisher, transactionManager, executor);
+        ReflectionTestUtils.setField(service, "chunkSize", 2);
+        ReflectionTestUtils.setField(service, "retainedJobs", 1);
+        ReflectionTestUtils.setField(service, "maxIds", 5);
+
+        when(endUserRepository.findIdsAfter(eq(TENANT), any(), any(), any(), anyInt()))
+                .thenAnswer(invocation -> new ArrayList<>((Collection<String>) invocation.getArguments()[2]));
+        when(endUserRepository.countStatusChanges(any(), any())).thenReturn(Collections.emptyList());
+        when(endUserRepository.updateStatus(any(), any(), any())).thenAnswer(invocation -> {
+            updatingThread = Thread.currentThread().getName();
+            return ((Collection<?>) invocation.getArguments()[0]).size();
+        });
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void jobsRunOnTheStatusChangeThreadAndCanBePolled() throws Exception {
+        EndUserStatusChangeJob job = submit("u1", "u2", "u3");
+
+        EndUserStatusChangeJob polled = awaitFinished(job.getId());
+
+        assertEquals(EndUserStatusChangeJob.State.COMPLETED, polled.getState());
+        assertEquals(3, polled.getChanged());
+        assertEquals(2, polled.getChunks());
+        assertTrue(updatingThread.startsWith("end-user-status-change-"));
+        verify(eventPublisher, times(2)).publishEvent(any(Object.class));
+    }
+
+    @Test
+    public void unfinishedJobsAreNeverDropped() throws Exception {
+        EndUserStatusChangeJob running = submitBlockedJob();
+        EndUserStatusChangeJob queued = submit("u2");
+        EndUserStatusChangeJob alsoQueued = submit("u3");
+
+        assertSame(running, service.findJob(TENANT, running.getId()));
+        assertSame(queued, service.findJob(TENANT, queued.getId()));
+        assertSame(alsoQueued, service.findJob(TENANT, alsoQueued.getId()));
+
+        release.countDown();
+        awaitFinished(alsoQueued.getId());
+        EndUserStatusChangeJob next = submit("u4");
+
+        // only one finished job is retained, the newest
+        assertNotFound(running.getId());
+        assertNotFound(queued.getId());
+        assertSame(alsoQueued, service.findJob(TENANT, alsoQueued.getId()));
+        assertSame(next, service.findJob(TENANT, next.getId()));
+    }
+
+    @Test
+    public void submissionsAreRefusedWhileTheQueueIsFull() throws Exception {
+        submitBlockedJob();
+        submit("u2");
+        EndUserStatusChangeJob last = submit("u3");
+
+        try {
+            submit("u4");
+            fail("Expected the queue to be full");
+        } catch (StatusChangeQueueFullException expected) {
+        }
+
+        release.countDown();
+        awaitFinished(last.getId());
+        assertEquals(EndUserStatusChangeJob.State.COMPLETED, awaitFinished(submit("u5").getId()).getState());
+    }
+
+    @Test(expected = InvalidStatusChangeException.class)
+    public void tooManyIdsAreRejected() {
+        submit("u1", "u2", "u3", "u4", "u5", "u6");
+    }
+
+    @Test
+    public void duplicateIdsCountOnceTowardsTheLimit() throws Exception {
+        EndUserStatusChangeJob job = submit("u1", "u2", "u3", "u4", "u5", "u5", "u1");
+
+        assertEquals(Integer.valueOf(5), job.getRequested());
+        assertEquals(EndUserStatusChangeJob.State.COMPLETED, awaitFinished(job.getId()).getState());
+    }
+
+    private EndUserStatusChangeJob submit(String... endUserIds) {
+        List<String> ids = new ArrayList<>();
+        Collections.addAll(ids, endUserIds);
+        return service.submit(TENANT, EndUserStatus.SUSPENDED, new EndUserSearchCriteria(), ids, "tester");
+    }
+
+    // the job for u1 waits inside its first chunk until released, so later jobs queue behind it
+    private EndUserStatusChangeJob submitBlockedJob() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        when(endUserRepository.findIdsAfter(eq(TENANT), any(), eq(Collections.singletonList("u1")), any(), anyInt()))
+                .thenAnswer(invocation -> {
+                    started.countDown();
+                    release.await(10, TimeUnit.SECONDS);
+                    return Collections.singletonList("u1");
+                });
+        EndUserStatusChangeJob job = submit("u1");
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        return job;
+    }
+
+    private EndUserStatusChangeJob awaitFinished(String jobId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        EndUserStatusChangeJob job = service.findJob(TENANT, jobId);
+        while (job.getState() == EndUserStatusChangeJob.State.RUNNING) {
+            assertTrue("Job " + jobId + " did not finish", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+            job = service.findJob(TENANT, jobId);
+        }
+        return job;
+    }
+
+    private void assertNotFound(String jobId) {
+        try {
+            service.findJob(TENANT, jobId);
+            fail("Expected job " + jobId + " to be dropped");
+        } catch (RecordNotFoundException expected) {
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package app.service;
+
+import app.domain.EndUser;
+import app.domain.EndUserStatus;
+import app.domain.LoginCredential;
+import app.domain.event.EndUserCreated;
+import app.domain.event.EndUserDeleted;
+import app.domain.event.EndUserStatusesChanged;
+import app.domain.event.EndUserUpdated;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class EndUserStatusCountsTest {
+    private EmbeddedDatabase dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private EndUserStatusCounts statusCounts;
+
+    @Before
+    public void setUp() {
+        dataSource = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table tenant_application (app_id varchar(36) primary key, owner_id varchar(36))");
+        jdbcTemplate.execute("create table app_user (end_user_id varchar(36) primary key, status varchar(32))");
+        jdbcTemplate.execute("create table app_end_user (app_id varchar(36), end_user_id varchar(36))");
+        jdbcTemplate.execute("create table end_user_status_count (tenant_id varchar(36), app_id varchar(36) not null, " +
+                "status varchar(32) not null, end_user_count bigint not null, primary key (app_id, status))");
+        jdbcTemplate.update("insert into tenant_application values ('app1', 'tenant1'), ('app2', 'tenant1'), ('app3', 'tenant2')");
+        jdbcTemplate.update("insert into app_user values ('u1', 'ACTIVE'), ('u2', 'ACTIVE'), ('u3', 'CREATED'), ('u4', 'ACTIVE')");
+        jdbcTemplate.update("insert into app_end_user values ('app1', 'u1'), ('app2', 'u1'), ('app1', 'u2'), " +
+                "('app2', 'u3'), ('app3', 'u4')");
+
+        statusCounts = new EndUserStatusCounts(dataSource, new DataSourceTransactionManager(dataSource));
+        ReflectionTestUtils.setField(statusCounts, "enabled", true);
+    }
+
+    @After
+    public void tearDown() {
+        dataSource.shutdown();
+    }
+
+    @Test
+    public void countByStatus_isUnavailableUntilReconciled() {
+        assertNull(statusCounts.countByStatus("tenant1"));
+    }
+
+    @Test
+    public void reconcile_countsEachApplicationMembership() {
+        assertEquals(4, statusCounts.reconcile());
+
+        Map<EndUserStatus, Long> counts = counts("tenant1");
+        assertEquals(2, counts.size());
+        assertEquals(3L, (long) counts.get(EndUserStatus.ACTIVE));
+        assertEquals(1L, (long) counts.get(EndUserStatus.CREATED));
+        assertEquals(1L, (long) counts("tenant2").get(EndUserStatus.ACTIVE));
+        assertTrue(statusCounts.countByStatus("unknown").isEmpty());
+    }
+
+    @Test
+    public void events_adjustTheCounts() {
+        statusCounts.reconcile();
+
+        jdbcTemplate.update("insert into app_user values ('u5', 'CREATED')");
+        statusCounts.onEndUserCreated(new EndUserCreated("app1", endUser("u5", EndUserStatus.CREATED), true));
+        assertEquals(2L, (long) counts("tenant1").get(EndUserStatus.CREATED));
+
+        statusCounts.onEndUserUpdated(new EndUserUpdated(endUser("u3", EndUserStatus.SUSPENDED), Arrays.asList("app2"), EndUserStatus.CREATED));
+        Map<EndUserStatus, Long> counts = counts("tenant1");
+        assertEquals(1L, (long) counts.get(EndUserStatus.CREATED));
+        assertEquals(1L, (long) counts.get(EndUserStatus.SUSPENDED));
+
+        statusCounts.onEndUserDeleted(new EndUserDeleted(endUser("u1", EndUserStatus.ACTIVE), Arrays.asList("app1", "app2")));
+        assertEquals(1L, (long) counts("tenant1").get(EndUserStatus.ACTIVE));
+    }
+
+    @Test
+    public void bulkStatusChange_movesTheCounts() {
+        statusCounts.reconcile();
+
+        statusCounts.onEndUserStatusesChanged(new EndUserStatusesChanged(EndUserStatus.SUSPENDED, Arrays.asList(
+                new EndUserStatusesChanged.Change("app1", EndUserStatus.ACTIVE, 2),
+                new EndUserStatusesChanged.Change("app2", EndUserStatus.CREATED, 1))));
+
+        Map<EndUserStatus, Long> counts = counts("tenant1");
+        assertEquals(1L, (long) counts.get(EndUserStatus.ACTIVE));
+        assertEquals(3L, (long) counts.get(EndUserStatus.SUSPENDED));
+        assertNull(counts.get(EndUserStatus.CREATED));
+    }
+
+    @Test
+    public void updateWithoutStatusChange_keepsTheCounts() {
+        statusCounts.reconcile();
+
+        statusCounts.onEndUserUpdated(new EndUserUpdated(endUser("u1", EndUserStatus.ACTIVE), Arrays.asList("app1", "app2"), EndUserStatus.ACTIVE));
+
+        assertEquals(3L, (long) counts("tenant1").get(EndUserStatus.ACTIVE));
+    }
+
+    @Test
+    public void events_areIgnoredUntilReconciled() {
+        jdbcTemplate.execute("drop table end_user_status_count");
+
+        statusCounts.onEndUserCreated(new EndUserCreated("app1", endUser("u5", EndUserStatus.CREATED), true));
+
+        assertNull(statusCounts.countByStatus("tenant1"));
+    }
+
+    @Test
+    public void reconcile_createsARowForEveryApplicationAndStatus() {
+        statusCounts.reconcile();
+
+        assertEquals(3 * EndUserStatus.values().length,
+                (int) jdbcTemplate.queryForObject("select count(*) from end_user_status_count", Integer.class));
+    }
+
+    @Test
+    public void newApplication_isCountedFromItsCreation() {
+        statusCounts.reconcile();
+        jdbcTemplate.update("insert into tenant_application values ('app4', 'tenant2')");
+
+        statusCounts.addApplication("tenant2", "app4");
+        statusCounts.onEndUserCreated(new EndUserCreated("app4", endUser("u5", EndUserStatus.ACTIVE), true));
+
+        assertEquals(2L, (long) counts("tenant2").get(EndUserStatus.ACTIVE));
+    }
+
+    @Test(expected = DataAccessException.class)
+    public void failedAdjustment_failsTheChange() {
+        statusCounts.reconcile();
+        jdbcTemplate.execute("drop table end_user_status_count");
+
+        statusCounts.onEndUserCreated(new EndUserCreated("app1", endUser("u5", EndUserStatus.CREATED), true));
+    }
+
+    @Test
+    public void missingRow_fallsBackToCountingUntilReconciled() {
+        statusCounts.reconcile();
+        jdbcTemplate.update("insert into tenant_application values ('app4', 'tenant2')");
+        jdbcTemplate.update("insert into app_user values ('u5', 'ACTIVE')");
+        jdbcTemplate.update("insert into app_end_user values ('app4', 'u5')");
+
+        statusCounts.onEndUserCreated(new EndUserCreated("app4", endUser("u5", EndUserStatus.ACTIVE), true));
+
+        assertNull(statusCounts.countByStatus("tenant2"));
+        statusCounts.reconcile();
+        assertEquals(2L, (long) counts("tenant2").get(EndUserStatus.ACTIVE));
+    }
+
+    @Test
+    public void reconcile_correctsDrift() {
+        statusCounts.reconcile();
+        jdbcTemplate.update("update app_user set status = 'TERMINATED' where end_user_id = 'u2'");
+
+        assertEquals(2, statusCounts.reconcile());
+
+        Map<EndUserStatus, Long> counts = counts("tenant1");
+        assertEquals(2L, (long) counts.get(EndUserStatus.ACTIVE));
+        assertEquals(1L, (long) counts.get(EndUserStatus.TERMINATED));
+        assertEquals(0, statusCounts.reconcile());
+    }
+
+    private Map<EndUserStatus, Long> counts(String tenantId) {
+        List<Object[]> rows = statusCounts.countByStatus(tenantId);
+        Map<EndUserStatus, Long> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put((EndUserStatus) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    private EndUser endUser(String id, EndUserStatus status) {
+        EndUser endUser = new EndUser();
+        ReflectionTestUtils.setField(endUser, "id", id);
+        endUser.setStatus(status);
+        endUser.setCredential(new LoginCredential());
+        return endUser;
+    }
+}
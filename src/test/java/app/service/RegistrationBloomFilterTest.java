@@ -0,0 +1,174 @@
+package app.service;
+
+import app.domain.EndUser;
+import app.domain.EndUserStatus;
+import app.domain.LoginCredential;
+import app.domain.event.EndUserCreated;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class RegistrationBloomFilterTest {
+    private EmbeddedDatabase dataSource;
+
+    private RegistrationBloomFilter registrationBloomFilter;
+
+    @Before
+    public void setUp() {
+        dataSource = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .build();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table app_user (end_user_id varchar(36) primary key, normalized_account varchar(255), " +
+                "normalized_email varchar(255), normalized_mobile_phone_no varchar(255))");
+        jdbcTemplate.execute("create table app_end_user (app_id varchar(36), end_user_id varchar(36))");
+        jdbcTemplate.update("insert into app_user values ('u1', 'test_user', 'test_user@test.com', '010-1234-5678')");
+        jdbcTemplate.update("insert into app_end_user values ('app1', 'u1')");
+
+        registrationBloomFilter = new RegistrationBloomFilter(dataSource);
+        ReflectionTestUtils.setField(registrationBloomFilter, "enabled", true);
+        ReflectionTestUtils.setField(registrationBloomFilter, "falsePositiveProbability", 0.01);
+        ReflectionTestUtils.setField(registrationBloomFilter, "minCapacity", 1024);
+    }
+
+    @After
+    public void tearDown() {
+        dataSource.shutdown();
+    }
+
+    @Test
+    public void mightBeRegistered_isTrueUntilBuilt() {
+        assertTrue(registrationBloomFilter.mightBeRegistered("app1", "someone_else", null, null));
+    }
+
+    @Test
+    public void mightBeRegistered_afterRebuild() {
+        registrationBloomFilter.rebuild();
+
+        assertTrue(registrationBloomFilter.mightBeRegistered("app1", " Test_User ", null, null));
+        assertTrue(registrationBloomFilter.mightBeRegistered("app1", "someone_else", "TEST_USER@test.com", null));
+        assertTrue(registrationBloomFilter.mightBeRegistered("app1", "someone_else", null, "010-1234-5678"));
+        assertFalse(registrationBloomFilter.mightBeRegistered("app1", "someone_else", "someone_else@test.com", "010-0000-0000"));
+        assertFalse(registrationBloomFilter.mightBeRegistered("app2", "test_user", null, null));
+        // an account is not an email
+        assertFalse(registrationBloomFilter.mightBeRegistered("app1", "test_user@test.com", null, null));
+    }
+
+    @Test
+    public void createdEndUsersAreAdded() {
+        registrationBloomFilter.rebuild();
+
+        registrationBloomFilter.onEndUserCreated(new EndUserCreated("app2", endUser("new_user"), true));
+
+        assertTrue(registrationBloomFilter.mightBeRegistered("app2", "new_user", null, null));
+    }
+
+    @Test
+    public void endUsersCreatedBeforeTheScanSeesThemAreKept() {
+        // the end-user is created, but not yet committed, when the rebuild opens its first connection
+        RegistrationBloomFilter[] filter = new RegistrationBloomFilter[1];
+        filter[0] = new RegistrationBloomFilter(new DelegatingDataSource(dataSource) {
+            private boolean created;
+
+            @Override
+            public Connection getConnection() throws SQLException {
+                if (!created) {
+                    created = true;
+                    filter[0].onEndUserCreated(new EndUserCreated("app1", endUser("new_user"), true));
+                }
+                return super.getConnection();
+            }
+        });
+        ReflectionTestUtils.setField(filter[0], "enabled", true);
+        ReflectionTestUtils.setField(filter[0], "falsePositiveProbability", 0.01);
+        ReflectionTestUtils.setField(filter[0], "minCapacity", 1024);
+
+        filter[0].rebuild();
+
+        assertTrue(filter[0].mightBeRegistered("app1", "new_user", null, null));
+        assertFalse(filter[0].mightBeRegistered("app1", "someone_else", null, null));
+    }
+
+    @Test
+    public void endUsersCommittedAfterTheScanAreAddedOnCommit() {
+        // the end-user is written before the rebuild starts, but its transaction commits only after the scan
+        EndUserCreated event = new EndUserCreated("app1", endUser("new_user"), true);
+        registrationBloomFilter.onEndUserCreated(event);
+        registrationBloomFilter.rebuild();
+        assertFalse(registrationBloomFilter.mightBeRegistered("app1", "new_user", null, null));
+
+        registrationBloomFilter.onEndUserCreatedCommitted(event);
+
+        assertTrue(registrationBloomFilter.mightBeRegistered("app1", "new_user", null, null));
+    }
+
+    @Test
+    public void disabledFilterNeverSkipsTheLookup() {
+        ReflectionTestUtils.setField(registrationBloomFilter, "enabled", false);
+        registrationBloomFilter.rebuild();
+
+        assertTrue(registrationBloomFilter.mightBeRegistered("app2", "someone_else", null, null));
+        assertTrue(registrationBloomFilter.metrics().isEmpty());
+    }
+
+    @Test
+    public void falsePositiveRateStaysNearTheConfiguredProbability() {
+        RegistrationBloomFilter.Filter filter = new RegistrationBloomFilter.Filter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("a:user" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("a:user" + i));
+            if (filter.mightContain("a:other" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue("false positives: " + falsePositives, falsePositives < 200);
+        assertEquals(0.01, filter.expectedFalsePositiveProbability(), 0.005);
+    }
+
+    @Test
+    public void metricsExposeFalsePositiveRateAndMemory() {
+        registrationBloomFilter.rebuild();
+        registrationBloomFilter.mightBeRegistered("app1", "someone_else", null, null);
+        registrationBloomFilter.mightBeRegistered("app1", "test_user", null, null);
+        registrationBloomFilter.recordFalsePositive();
+
+        Map<String, Number> metrics = new HashMap<>();
+        for (Metric<?> metric : registrationBloomFilter.metrics()) {
+            metrics.put(metric.getName(), metric.getValue());
+        }
+
+        assertEquals(1, metrics.get("registration.bloomfilter.applications").intValue());
+        assertTrue(metrics.get("registration.bloomfilter.memory.bytes").longValue() > 0);
+        assertEquals(0.5, metrics.get("registration.bloomfilter.fpp.observed").doubleValue(), 0.0001);
+        assertEquals(1L, metrics.get("registration.bloomfilter.negative"));
+    }
+
+    private EndUser endUser(String account) {
+        EndUser endUser = new EndUser();
+        endUser.setId(account + "_id");
+        LoginCredential credential = new LoginCredential();
+        credential.setAccount(account);
+        endUser.setCredential(credential);
+        endUser.setStatus(EndUserStatus.CREATED);
+        return endUser;
+    }
+}
@@ -0,0 +1,34 @@
+package app.util;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class CsvReaderTest {
+
+    @Test
+    public void readRecord_handlesQuotesAndLineEndings() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a,\"b,c\",\"say \"\"hi\"\"\"\r\n,\"two\nlines\",\n"));
+
+        assertEquals(Arrays.asList("a", "b,c", "say \"hi\""), reader.readRecord());
+        assertEquals(Arrays.asList("", "two\nlines", ""), reader.readRecord());
+        assertNull(reader.readRecord());
+    }
+
+    @Test
+    public void readRecord_withoutTrailingNewline() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a,b"));
+
+        assertEquals(Arrays.asList("a", "b"), reader.readRecord());
+        assertNull(reader.readRecord());
+    }
+
+    @Test(expected = IOException.class)
+    public void readRecord_withUnterminatedQuote() throws IOException {
+        new CsvReader(new StringReader("\"a,b\n")).readRecord();
+    }
+}